@@ -1,6 +1,10 @@
 package com.nfbsoftware.sansserverplugin.maven.amazon;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.maven.plugin.logging.Log;
 
@@ -9,9 +13,22 @@ import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.cloudwatchevents.AmazonCloudWatchEventsClient;
+import com.amazonaws.services.cloudwatchevents.model.DeleteRuleRequest;
+import com.amazonaws.services.cloudwatchevents.model.DeleteRuleResult;
+import com.amazonaws.services.cloudwatchevents.model.ListRulesRequest;
+import com.amazonaws.services.cloudwatchevents.model.ListRulesResult;
+import com.amazonaws.services.cloudwatchevents.model.ListTargetsByRuleRequest;
+import com.amazonaws.services.cloudwatchevents.model.ListTargetsByRuleResult;
 import com.amazonaws.services.cloudwatchevents.model.PutRuleRequest;
 import com.amazonaws.services.cloudwatchevents.model.PutRuleResult;
+import com.amazonaws.services.cloudwatchevents.model.PutTargetsRequest;
+import com.amazonaws.services.cloudwatchevents.model.PutTargetsResult;
+import com.amazonaws.services.cloudwatchevents.model.RemoveTargetsRequest;
+import com.amazonaws.services.cloudwatchevents.model.RemoveTargetsResult;
+import com.amazonaws.services.cloudwatchevents.model.Rule;
+import com.amazonaws.services.cloudwatchevents.model.Target;
 import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
 
 /**
  * 
@@ -19,8 +36,12 @@ import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
  */
 public class AmazonCloudWatchEventUtility
 {
+    private static final int PAGE_SIZE = 100;
+    
     private Log m_logger;
     private AmazonCloudWatchEventsClient m_amazonCloudWatchEventsClient;
+    private AmazonRequestThrottle m_throttle;
+    private AmazonRequestExecutor m_requestExecutor;
     private Properties m_properties;
 
     public AmazonCloudWatchEventUtility(Log logger, Properties properties)
@@ -39,6 +60,10 @@ public class AmazonCloudWatchEventUtility
 
         // Set our region
         m_amazonCloudWatchEventsClient.setRegion(Region.getRegion(Regions.fromName(regionName)));
+        
+        // Share a throttle with every other utility calling CloudWatch Events
+        m_throttle = AmazonRequestThrottle.getInstance(m_logger, m_properties, AmazonRequestThrottle.SERVICE_CLOUDWATCH_EVENTS);
+        m_requestExecutor = AmazonRequestExecutor.getInstance(m_logger, m_properties);
     }
     
     /**
@@ -47,9 +72,15 @@ public class AmazonCloudWatchEventUtility
      * @return
      * @throws Exception
      */
-    public PutRuleResult createRule(PutRuleRequest putRuleRequest) throws Exception
+    public PutRuleResult createRule(final PutRuleRequest putRuleRequest) throws Exception
     {
-        PutRuleResult result = m_amazonCloudWatchEventsClient.putRule(putRuleRequest);
+        PutRuleResult result = m_throttle.execute("PutRule", new Callable<PutRuleResult>()
+        {
+            public PutRuleResult call() throws Exception
+            {
+                return m_amazonCloudWatchEventsClient.putRule(putRuleRequest);
+            }
+        });
         
         if(result != null)
         {
@@ -62,4 +93,180 @@ public class AmazonCloudWatchEventUtility
         
         return result;
     }
-}
+    
+    /**
+     * Returns every rule whose name starts with the given prefix, following the ListRules pages
+     * 
+     * @param namePrefix
+     * @return
+     * @throws Exception
+     */
+    public List<Rule> getRules(String namePrefix) throws Exception
+    {
+        List<Rule> rules = new ArrayList<Rule>();
+        String nextToken = null;
+        
+        do
+        {
+            final ListRulesRequest listRulesRequest = new ListRulesRequest();
+            listRulesRequest.setNamePrefix(namePrefix);
+            listRulesRequest.setLimit(PAGE_SIZE);
+            listRulesRequest.setNextToken(nextToken);
+            
+            ListRulesResult listRulesResult = m_throttle.execute("ListRules", new Callable<ListRulesResult>()
+            {
+                public ListRulesResult call() throws Exception
+                {
+                    return m_amazonCloudWatchEventsClient.listRules(listRulesRequest);
+                }
+            });
+            
+            rules.addAll(listRulesResult.getRules());
+            nextToken = listRulesResult.getNextToken();
+        }
+        while(!StringUtil.isNullOrEmpty(nextToken));
+        
+        return rules;
+    }
+    
+    /**
+     * Start listing the rules whose name starts with the given prefix on our shared request executor
+     * 
+     * @param namePrefix
+     * @return
+     */
+    public Future<List<Rule>> getRulesAsync(final String namePrefix)
+    {
+        return m_requestExecutor.submit(new Callable<List<Rule>>()
+        {
+            public List<Rule> call() throws Exception
+            {
+                return getRules(namePrefix);
+            }
+        });
+    }
+    
+    /**
+     * 
+     * @param ruleName
+     * @param targets
+     * @throws Exception
+     */
+    public void putTargets(String ruleName, List<Target> targets) throws Exception
+    {
+        final PutTargetsRequest putTargetsRequest = new PutTargetsRequest();
+        putTargetsRequest.setRule(ruleName);
+        putTargetsRequest.setTargets(targets);
+        
+        PutTargetsResult result = m_throttle.execute("PutTargets", new Callable<PutTargetsResult>()
+        {
+            public PutTargetsResult call() throws Exception
+            {
+                return m_amazonCloudWatchEventsClient.putTargets(putTargetsRequest);
+            }
+        });
+        
+        if(result.getFailedEntryCount() != null && result.getFailedEntryCount().intValue() > 0)
+        {
+            throw new Exception("Error adding targets to CloudWatch Event (" + ruleName + "): " + result.getFailedEntries());
+        }
+        
+        m_logger.info("CloudWatch Event (" + ruleName + ") now has " + targets.size() + " targets");
+    }
+    
+    /**
+     * 
+     * @param ruleName
+     * @return
+     * @throws Exception
+     */
+    public List<Target> getTargets(String ruleName) throws Exception
+    {
+        List<Target> targets = new ArrayList<Target>();
+        String nextToken = null;
+        
+        do
+        {
+            final ListTargetsByRuleRequest listTargetsByRuleRequest = new ListTargetsByRuleRequest();
+            listTargetsByRuleRequest.setRule(ruleName);
+            listTargetsByRuleRequest.setLimit(PAGE_SIZE);
+            listTargetsByRuleRequest.setNextToken(nextToken);
+            
+            ListTargetsByRuleResult listTargetsByRuleResult = m_throttle.execute("ListTargetsByRule", new Callable<ListTargetsByRuleResult>()
+            {
+                public ListTargetsByRuleResult call() throws Exception
+                {
+                    return m_amazonCloudWatchEventsClient.listTargetsByRule(listTargetsByRuleRequest);
+                }
+            });
+            
+            targets.addAll(listTargetsByRuleResult.getTargets());
+            nextToken = listTargetsByRuleResult.getNextToken();
+        }
+        while(!StringUtil.isNullOrEmpty(nextToken));
+        
+        return targets;
+    }
+    
+    /**
+     * 
+     * @param ruleName
+     * @param targetIds
+     * @throws Exception
+     */
+    public void removeTargets(String ruleName, List<String> targetIds) throws Exception
+    {
+        if(targetIds.isEmpty())
+        {
+            return;
+        }
+        
+        final RemoveTargetsRequest removeTargetsRequest = new RemoveTargetsRequest();
+        removeTargetsRequest.setRule(ruleName);
+        removeTargetsRequest.setIds(targetIds);
+        
+        RemoveTargetsResult result = m_throttle.execute("RemoveTargets", new Callable<RemoveTargetsResult>()
+        {
+            public RemoveTargetsResult call() throws Exception
+            {
+                return m_amazonCloudWatchEventsClient.removeTargets(removeTargetsRequest);
+            }
+        });
+        
+        if(result.getFailedEntryCount() != null && result.getFailedEntryCount().intValue() > 0)
+        {
+            throw new Exception("Error removing targets from CloudWatch Event (" + ruleName + "): " + result.getFailedEntries());
+        }
+    }
+    
+    /**
+     * Delete a rule, removing its targets first since CloudWatch won't delete a rule that still has targets
+     * 
+     * @param ruleName
+     * @throws Exception
+     */
+    public void deleteRule(String ruleName) throws Exception
+    {
+        List<String> targetIds = new ArrayList<String>();
+        
+        for(Target target : getTargets(ruleName))
+        {
+            targetIds.add(target.getId());
+        }
+        
+        removeTargets(ruleName, targetIds);
+        
+        final DeleteRuleRequest deleteRuleRequest = new DeleteRuleRequest();
+        deleteRuleRequest.setName(ruleName);
+        
+        m_throttle.execute("DeleteRule", new Callable<DeleteRuleResult>()
+        {
+            public DeleteRuleResult call() throws Exception
+            {
+                return m_amazonCloudWatchEventsClient.deleteRule(deleteRuleRequest);
+            }
+        });
+        
+        m_logger.info("CloudWatch Event (" + ruleName + ") has been deleted");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,258 @@
+package com.nfbsoftware.sansserverplugin.maven.amazon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.amazonaws.services.apigateway.model.Integration;
+import com.amazonaws.services.apigateway.model.Method;
+import com.amazonaws.services.apigateway.model.Resource;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
+
+/**
+ * The AmazonGatewayResourceSnapshot is an in-memory copy of a REST API's resource tree, its methods and the integrations we have looked up or created.
+ * It is loaded once per deploy run and kept up to date as our goals create and delete resources, so lookups by path or path part don't need to
+ * re-list the whole API.  Paths and path parts are matched without regard to case, like the lookups they replace.
+ *
+ * @author Brendan Clemenzi
+ */
+public class AmazonGatewayResourceSnapshot
+{
+    private String m_restApiId;
+
+    private Map<String, Resource> m_resourcesById = new LinkedHashMap<String, Resource>();
+    private Map<String, Resource> m_resourcesByPath = new HashMap<String, Resource>();
+    private Map<String, List<Resource>> m_resourcesByPathPart = new HashMap<String, List<Resource>>();
+    private Map<String, Integration> m_integrations = new HashMap<String, Integration>();
+
+    /**
+     *
+     * @param restApiId
+     * @param resources
+     */
+    public AmazonGatewayResourceSnapshot(String restApiId, List<Resource> resources)
+    {
+        m_restApiId = restApiId;
+
+        for(Resource resource : resources)
+        {
+            addResource(resource);
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getRestApiId()
+    {
+        return m_restApiId;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized List<Resource> getResources()
+    {
+        return new ArrayList<Resource>(m_resourcesById.values());
+    }
+
+    /**
+     *
+     * @param resourceId
+     * @return
+     */
+    public synchronized Resource getResourceById(String resourceId)
+    {
+        return m_resourcesById.get(resourceId);
+    }
+
+    /**
+     *
+     * @param path
+     * @return
+     */
+    public synchronized Resource getResourceByPath(String path)
+    {
+        return m_resourcesByPath.get(normalize(path));
+    }
+
+    /**
+     *
+     * @param pathPart
+     * @return
+     */
+    public synchronized Resource getResourceByPathPart(String pathPart)
+    {
+        List<Resource> resources = m_resourcesByPathPart.get(normalize(pathPart));
+
+        if(resources == null || resources.isEmpty())
+        {
+            return null;
+        }
+
+        return resources.get(0);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Resource getRootResource()
+    {
+        return getResourceByPath("/");
+    }
+
+    /**
+     *
+     * @param resource
+     */
+    public synchronized void addResource(Resource resource)
+    {
+        m_resourcesById.put(resource.getId(), resource);
+        m_resourcesByPath.put(normalize(resource.getPath()), resource);
+
+        if(!StringUtil.isNullOrEmpty(resource.getPathPart()))
+        {
+            String pathPartKey = normalize(resource.getPathPart());
+            List<Resource> resources = m_resourcesByPathPart.get(pathPartKey);
+
+            if(resources == null)
+            {
+                resources = new ArrayList<Resource>();
+                m_resourcesByPathPart.put(pathPartKey, resources);
+            }
+
+            resources.add(resource);
+        }
+    }
+
+    /**
+     * Remove a resource along with all of its child resources, the same way API Gateway deletes them
+     *
+     * @param resourceId
+     */
+    public synchronized void removeResource(String resourceId)
+    {
+        Resource removedResource = m_resourcesById.get(resourceId);
+
+        if(removedResource == null)
+        {
+            return;
+        }
+
+        String removedPath = StringUtil.emptyIfNull(removedResource.getPath());
+
+        Iterator<Resource> iterator = m_resourcesById.values().iterator();
+
+        while(iterator.hasNext())
+        {
+            Resource resource = iterator.next();
+            String resourcePath = StringUtil.emptyIfNull(resource.getPath());
+
+            if(resource.getId().equals(resourceId) || resourcePath.startsWith(removedPath + "/"))
+            {
+                iterator.remove();
+
+                m_resourcesByPath.remove(normalize(resourcePath));
+
+                List<Resource> resources = m_resourcesByPathPart.get(normalize(resource.getPathPart()));
+
+                if(resources != null)
+                {
+                    resources.remove(resource);
+                }
+
+                Iterator<String> integrationKeys = m_integrations.keySet().iterator();
+
+                while(integrationKeys.hasNext())
+                {
+                    if(integrationKeys.next().startsWith(resource.getId() + " "))
+                    {
+                        integrationKeys.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * @param resourceId
+     * @param httpMethod
+     * @return
+     */
+    public synchronized boolean hasMethod(String resourceId, String httpMethod)
+    {
+        Resource resource = m_resourcesById.get(resourceId);
+
+        return resource != null && resource.getResourceMethods() != null && resource.getResourceMethods().containsKey(httpMethod);
+    }
+
+    /**
+     *
+     * @param resourceId
+     * @param httpMethod
+     * @param method
+     */
+    public synchronized void putMethod(String resourceId, String httpMethod, Method method)
+    {
+        Resource resource = m_resourcesById.get(resourceId);
+
+        if(resource != null)
+        {
+            if(resource.getResourceMethods() == null)
+            {
+                resource.setResourceMethods(new HashMap<String, Method>());
+            }
+
+            resource.getResourceMethods().put(httpMethod, method);
+        }
+    }
+
+    /**
+     *
+     * @param resourceId
+     * @param httpMethod
+     * @return
+     */
+    public synchronized Integration getIntegration(String resourceId, String httpMethod)
+    {
+        return m_integrations.get(resourceId + " " + httpMethod);
+    }
+
+    /**
+     *
+     * @param resourceId
+     * @param httpMethod
+     * @param integration
+     */
+    public synchronized void putIntegration(String resourceId, String httpMethod, Integration integration)
+    {
+        m_integrations.put(resourceId + " " + httpMethod, integration);
+    }
+
+    /**
+     *
+     * @param resourceId
+     * @param httpMethod
+     */
+    public synchronized void removeIntegration(String resourceId, String httpMethod)
+    {
+        m_integrations.remove(resourceId + " " + httpMethod);
+    }
+
+    /**
+     *
+     * @param value
+     * @return
+     */
+    private static String normalize(String value)
+    {
+        return StringUtil.emptyIfNull(value).toLowerCase();
+    }
+}
@@ -1,8 +1,13 @@
 package com.nfbsoftware.sansserverplugin.maven.amazon;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.maven.plugin.logging.Log;
 
@@ -22,6 +27,7 @@ import com.amazonaws.services.apigateway.model.CreateRestApiRequest;
 import com.amazonaws.services.apigateway.model.CreateRestApiResult;
 import com.amazonaws.services.apigateway.model.DeleteApiKeyRequest;
 import com.amazonaws.services.apigateway.model.DeleteResourceRequest;
+import com.amazonaws.services.apigateway.model.DeleteResourceResult;
 import com.amazonaws.services.apigateway.model.GetApiKeyRequest;
 import com.amazonaws.services.apigateway.model.GetApiKeyResult;
 import com.amazonaws.services.apigateway.model.GetApiKeysRequest;
@@ -38,6 +44,8 @@ import com.amazonaws.services.apigateway.model.GetRestApiRequest;
 import com.amazonaws.services.apigateway.model.GetRestApiResult;
 import com.amazonaws.services.apigateway.model.GetRestApisRequest;
 import com.amazonaws.services.apigateway.model.GetRestApisResult;
+import com.amazonaws.services.apigateway.model.Integration;
+import com.amazonaws.services.apigateway.model.Method;
 import com.amazonaws.services.apigateway.model.PutIntegrationRequest;
 import com.amazonaws.services.apigateway.model.PutIntegrationResponseRequest;
 import com.amazonaws.services.apigateway.model.PutIntegrationResponseResult;
@@ -46,6 +54,9 @@ import com.amazonaws.services.apigateway.model.PutMethodRequest;
 import com.amazonaws.services.apigateway.model.PutMethodResponseRequest;
 import com.amazonaws.services.apigateway.model.PutMethodResponseResult;
 import com.amazonaws.services.apigateway.model.PutMethodResult;
+import com.amazonaws.services.apigateway.model.PutMode;
+import com.amazonaws.services.apigateway.model.PutRestApiRequest;
+import com.amazonaws.services.apigateway.model.PutRestApiResult;
 import com.amazonaws.services.apigateway.model.Resource;
 import com.amazonaws.services.apigateway.model.RestApi;
 import com.amazonaws.services.apigateway.model.UpdateIntegrationRequest;
@@ -60,14 +71,24 @@ import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
 import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
 
 /**
+ * The AmazonGatewayUtility keeps a snapshot of each REST API's resource tree for the life of the utility, so a deploy run lists an API's
+ * resources once and answers every later lookup from memory.  Resources, methods and integrations created through this utility are
+ * added to the snapshot as they are created.
  * 
  * @author Brendan Clemenzi
  */
 public class AmazonGatewayUtility
 {
+    private static final int PAGE_SIZE = 500;
+    
     private Log m_logger;
     private AmazonApiGatewayClient m_amazonApiGatewayClient;
+    private AmazonRequestThrottle m_throttle;
+    private AmazonRequestExecutor m_requestExecutor;
     private Properties m_properties;
+    
+    private Map<String, GetRestApiResult> m_restApisByName = new HashMap<String, GetRestApiResult>();
+    private Map<String, AmazonGatewayResourceSnapshot> m_resourceSnapshots = new HashMap<String, AmazonGatewayResourceSnapshot>();
 
     public AmazonGatewayUtility(Log logger, Properties properties)
     {
@@ -85,6 +106,10 @@ public class AmazonGatewayUtility
 
         // Set our region
         m_amazonApiGatewayClient.setRegion(Region.getRegion(Regions.fromName(regionName)));
+        
+        // Share a throttle with every other utility calling API Gateway
+        m_throttle = AmazonRequestThrottle.getInstance(m_logger, m_properties, AmazonRequestThrottle.SERVICE_APIGATEWAY);
+        m_requestExecutor = AmazonRequestExecutor.getInstance(m_logger, m_properties);
     }
     
     /**
@@ -92,7 +117,7 @@ public class AmazonGatewayUtility
      * @param restApiName
      * @return
      */
-    public String getRestApiInvokeUrl(String restApiName)
+    public String getRestApiInvokeUrl(String restApiName) throws Exception
     {
         String invokeUrl = "";
 
@@ -120,10 +145,16 @@ public class AmazonGatewayUtility
         
         try
         {
-            GetRestApiRequest getRestApiRequest = new GetRestApiRequest();
+            final GetRestApiRequest getRestApiRequest = new GetRestApiRequest();
             getRestApiRequest.setRestApiId(restApiId);
 
-            getRestApiResult =  m_amazonApiGatewayClient.getRestApi(getRestApiRequest);
+            getRestApiResult = m_throttle.execute("GetRestApi", new Callable<GetRestApiResult>()
+            {
+                public GetRestApiResult call() throws Exception
+                {
+                    return m_amazonApiGatewayClient.getRestApi(getRestApiRequest);
+                }
+            });
         }
         catch (Exception e)
         {
@@ -138,30 +169,84 @@ public class AmazonGatewayUtility
      * @param restApiName
      * @return
      */
-    public GetRestApiResult getRestApiByName(String restApiName) 
+    public GetRestApiResult getRestApiByName(String restApiName) throws Exception
     {
-        GetRestApiResult restApiResult = null;
+        String restApiKey = StringUtil.emptyIfNull(restApiName).toLowerCase();
         
-        GetRestApisRequest getRestApisRequest = new GetRestApisRequest();
-        GetRestApisResult result = m_amazonApiGatewayClient.getRestApis(getRestApisRequest);
+        synchronized(m_restApisByName)
+        {
+            if(m_restApisByName.containsKey(restApiKey))
+            {
+                return m_restApisByName.get(restApiKey);
+            }
+        }
         
-        List<RestApi> restApis = result.getItems();
+        GetRestApiResult restApiResult = null;
+        String position = null;
         
-        for(RestApi restApi : restApis)
+        // Page through all of our APIs
+        do
         {
-            String tempApiName = StringUtil.emptyIfNull(restApi.getName());
-            m_logger.info("tempApiName: " + tempApiName + "  " + restApi.toString());
+            final GetRestApisRequest getRestApisRequest = new GetRestApisRequest();
+            getRestApisRequest.setLimit(PAGE_SIZE);
+            getRestApisRequest.setPosition(position);
+            
+            GetRestApisResult result = m_throttle.execute("GetRestApis", new Callable<GetRestApisResult>()
+            {
+                public GetRestApisResult call() throws Exception
+                {
+                    return m_amazonApiGatewayClient.getRestApis(getRestApisRequest);
+                }
+            });
             
-            if(tempApiName.equalsIgnoreCase(restApiName))
+            for(RestApi restApi : result.getItems())
             {
-                m_logger.info("RestAPI Found: " + restApi.getId());
-                restApiResult = getRestApi(restApi.getId());
+                String tempApiName = StringUtil.emptyIfNull(restApi.getName());
+                
+                if(tempApiName.equalsIgnoreCase(restApiName))
+                {
+                    m_logger.info("RestAPI Found: " + restApi.getId());
+                    restApiResult = new GetRestApiResult()
+                            .withId(restApi.getId())
+                            .withName(restApi.getName())
+                            .withDescription(restApi.getDescription())
+                            .withCreatedDate(restApi.getCreatedDate());
+                }
+            }
+            
+            position = result.getPosition();
+        }
+        while(!StringUtil.isNullOrEmpty(position));
+        
+        // Only remember APIs we found, one we didn't may be created later in this run
+        if(restApiResult != null)
+        {
+            synchronized(m_restApisByName)
+            {
+                m_restApisByName.put(restApiKey, restApiResult);
             }
         }
 
         return restApiResult;
     }
     
+    /**
+     * Start looking up the REST API with the given name on our shared request executor
+     * 
+     * @param restApiName
+     * @return
+     */
+    public Future<GetRestApiResult> getRestApiByNameAsync(final String restApiName)
+    {
+        return m_requestExecutor.submit(new Callable<GetRestApiResult>()
+        {
+            public GetRestApiResult call() throws Exception
+            {
+                return getRestApiByName(restApiName);
+            }
+        });
+    }
+    
     /**
      * 
      * @param restApiId
@@ -171,31 +256,69 @@ public class AmazonGatewayUtility
     public GetResourceResult getRestApiRootResource(String restApiId) throws Exception
     {
         GetResourceResult getResourceResult = null;
-        GetRestApiResult restApiResult = getRestApi(restApiId);
+        Resource rootResource = getResourceSnapshot(restApiId).getRootResource();
         
-        if(restApiResult != null)
+        if(rootResource != null)
         {
-            GetResourcesRequest getResoursesRequest = new GetResourcesRequest();
-            getResoursesRequest.setRestApiId(restApiResult.getId());
+            m_logger.info("getRestApiRootResource found: " + rootResource.getId());
             
-            GetResourcesResult result = m_amazonApiGatewayClient.getResources(getResoursesRequest);
-            
-            List<Resource> resources = result.getItems();
+            getResourceResult = new GetResourceResult()
+                    .withId(rootResource.getId())
+                    .withParentId(rootResource.getParentId())
+                    .withPath(rootResource.getPath())
+                    .withPathPart(rootResource.getPathPart())
+                    .withResourceMethods(rootResource.getResourceMethods());
+        }
+        
+        return getResourceResult;
+    }
+    
+    /**
+     * Returns our per-run snapshot of the API's resource tree, loading it with a single paginated read the first time it is needed
+     * 
+     * @param restApiId
+     * @return
+     * @throws Exception
+     */
+    public AmazonGatewayResourceSnapshot getResourceSnapshot(String restApiId) throws Exception
+    {
+        synchronized(m_resourceSnapshots)
+        {
+            AmazonGatewayResourceSnapshot resourceSnapshot = m_resourceSnapshots.get(restApiId);
             
-            for(Resource resource : resources)
+            if(resourceSnapshot == null)
             {
-                String tempPath = StringUtil.emptyIfNull(resource.getPath());
-                m_logger.info("getRestApiRootResource tempPath: " + tempPath + "  " + resource.toString());
+                List<Resource> resources = new ArrayList<Resource>();
+                String position = null;
                 
-                if(tempPath.equalsIgnoreCase("/"))
+                do
                 {
-                    m_logger.info("getRestApiRootResource tempPath found: " + resource.getId());
-                    getResourceResult = getResource(resource.getId());
+                    final GetResourcesRequest getResoursesRequest = new GetResourcesRequest();
+                    getResoursesRequest.setRestApiId(restApiId);
+                    getResoursesRequest.setLimit(PAGE_SIZE);
+                    getResoursesRequest.setPosition(position);
+                    
+                    GetResourcesResult result = m_throttle.execute("GetResources", new Callable<GetResourcesResult>()
+                    {
+                        public GetResourcesResult call() throws Exception
+                        {
+                            return m_amazonApiGatewayClient.getResources(getResoursesRequest);
+                        }
+                    });
+                    
+                    resources.addAll(result.getItems());
+                    position = result.getPosition();
                 }
+                while(!StringUtil.isNullOrEmpty(position));
+                
+                m_logger.info("Loaded " + resources.size() + " resources for Gateway API: " + restApiId);
+                
+                resourceSnapshot = new AmazonGatewayResourceSnapshot(restApiId, resources);
+                m_resourceSnapshots.put(restApiId, resourceSnapshot);
             }
+            
+            return resourceSnapshot;
         }
-        
-        return getResourceResult;
     }
     
     /**
@@ -203,9 +326,15 @@ public class AmazonGatewayUtility
      * @param updateRestApiRequest
      * @throws Exception
      */
-    public void updateRestApi(UpdateRestApiRequest updateRestApiRequest) throws Exception
+    public void updateRestApi(final UpdateRestApiRequest updateRestApiRequest) throws Exception
     {
-        UpdateRestApiResult result = m_amazonApiGatewayClient.updateRestApi(updateRestApiRequest);
+        UpdateRestApiResult result = m_throttle.execute("UpdateRestApi", new Callable<UpdateRestApiResult>()
+        {
+            public UpdateRestApiResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.updateRestApi(updateRestApiRequest);
+            }
+        });
         
         if(result != null)
         {
@@ -222,13 +351,28 @@ public class AmazonGatewayUtility
      * @param createRestApiRequest
      * @throws Exception
      */
-    public void createRestApi(CreateRestApiRequest createRestApiRequest) throws Exception
+    public void createRestApi(final CreateRestApiRequest createRestApiRequest) throws Exception
     {
-        CreateRestApiResult result = m_amazonApiGatewayClient.createRestApi(createRestApiRequest);
+        CreateRestApiResult result = m_throttle.execute("CreateRestApi", new Callable<CreateRestApiResult>()
+        {
+            public CreateRestApiResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.createRestApi(createRestApiRequest);
+            }
+        });
         
         if(result != null)
         {
             m_logger.info("Gateway API (" + createRestApiRequest.getName() + ") has been created with id: " + result.getId());
+            
+            synchronized(m_restApisByName)
+            {
+                m_restApisByName.put(StringUtil.emptyIfNull(createRestApiRequest.getName()).toLowerCase(), new GetRestApiResult()
+                        .withId(result.getId())
+                        .withName(result.getName())
+                        .withDescription(result.getDescription())
+                        .withCreatedDate(result.getCreatedDate()));
+            }
         }
         else
         {
@@ -236,6 +380,45 @@ public class AmazonGatewayUtility
         }
     }
     
+    /**
+     * Apply an OpenAPI document to our API in a single call.  The API's resource snapshot is dropped since the import may have changed any of it.
+     * 
+     * @param restApiId
+     * @param apiDefinition
+     * @param putMode
+     * @throws Exception
+     */
+    public void putRestApi(String restApiId, byte[] apiDefinition, PutMode putMode) throws Exception
+    {
+        final PutRestApiRequest putRestApiRequest = new PutRestApiRequest();
+        putRestApiRequest.setRestApiId(restApiId);
+        putRestApiRequest.setMode(putMode);
+        putRestApiRequest.setFailOnWarnings(true);
+        putRestApiRequest.setBody(ByteBuffer.wrap(apiDefinition));
+        
+        PutRestApiResult result = m_throttle.execute("PutRestApi", new Callable<PutRestApiResult>()
+        {
+            public PutRestApiResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.putRestApi(putRestApiRequest);
+            }
+        });
+        
+        synchronized(m_resourceSnapshots)
+        {
+            m_resourceSnapshots.remove(restApiId);
+        }
+        
+        if(result != null)
+        {
+            m_logger.info("Gateway API (" + restApiId + ") definition has been imported with mode: " + putMode.toString());
+        }
+        else
+        {
+            throw new Exception("Error importing Gateway API definition: " + restApiId);
+        }
+    }
+    
     /**
      * 
      * @param resourceId
@@ -248,10 +431,16 @@ public class AmazonGatewayUtility
         
         try
         {
-            GetResourceRequest getResourceRequest = new GetResourceRequest();
+            final GetResourceRequest getResourceRequest = new GetResourceRequest();
             getResourceRequest.setResourceId(resourceId);
             
-            getResourceResult = m_amazonApiGatewayClient.getResource(getResourceRequest);
+            getResourceResult = m_throttle.execute("GetResource", new Callable<GetResourceResult>()
+            {
+                public GetResourceResult call() throws Exception
+                {
+                    return m_amazonApiGatewayClient.getResource(getResourceRequest);
+                }
+            });
         }
         catch (Exception e)
         {
@@ -272,25 +461,11 @@ public class AmazonGatewayUtility
      */
     public Resource getResourceByPath(String restApiId, String path) throws Exception
     {
-        Resource resourceObject = null;
-        
-        GetResourcesRequest getResoursesRequest = new GetResourcesRequest();
-        getResoursesRequest.setRestApiId(restApiId);
+        Resource resourceObject = getResourceSnapshot(restApiId).getResourceByPath(path);
         
-        GetResourcesResult result = m_amazonApiGatewayClient.getResources(getResoursesRequest);
-        
-        List<Resource> resources = result.getItems();
-        
-        for(Resource resource : resources)
+        if(resourceObject != null)
         {
-            String tempPath = StringUtil.emptyIfNull(resource.getPath());
-            m_logger.info("tempPath: " + tempPath + "   " + resource.toString());
-            
-            if(tempPath.equalsIgnoreCase(path))
-            {
-                m_logger.info("Resource found by path (" + path + "): " + resource.getId());
-                resourceObject = resource;
-            }
+            m_logger.info("Resource found by path (" + path + "): " + resourceObject.getId());
         }
 
         return resourceObject;
@@ -301,14 +476,26 @@ public class AmazonGatewayUtility
      * @param restApiId
      * @return
      */
-    public List<Resource> getResources(String restApiId)
+    public List<Resource> getResources(String restApiId) throws Exception
     {
-        GetResourcesRequest getResoursesRequest = new GetResourcesRequest();
-        getResoursesRequest.setRestApiId(restApiId);
-        
-        GetResourcesResult result = m_amazonApiGatewayClient.getResources(getResoursesRequest);
-        
-        return result.getItems();
+        return getResourceSnapshot(restApiId).getResources();
+    }
+    
+    /**
+     * Start listing the resources of the given REST API on our shared request executor
+     * 
+     * @param restApiId
+     * @return
+     */
+    public Future<List<Resource>> getResourcesAsync(final String restApiId)
+    {
+        return m_requestExecutor.submit(new Callable<List<Resource>>()
+        {
+            public List<Resource> call() throws Exception
+            {
+                return getResources(restApiId);
+            }
+        });
     }
     
     /**
@@ -316,13 +503,21 @@ public class AmazonGatewayUtility
      * @param restApiId
      * @param resourceId
      */
-    public void deleteResource(String restApiId, String resourceId)
+    public void deleteResource(String restApiId, String resourceId) throws Exception
     {
-        DeleteResourceRequest deleteResourceRequest = new DeleteResourceRequest();
+        final DeleteResourceRequest deleteResourceRequest = new DeleteResourceRequest();
         deleteResourceRequest.setRestApiId(restApiId);
         deleteResourceRequest.setResourceId(resourceId);
         
-        m_amazonApiGatewayClient.deleteResource(deleteResourceRequest);
+        m_throttle.execute("DeleteResource", new Callable<DeleteResourceResult>()
+        {
+            public DeleteResourceResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.deleteResource(deleteResourceRequest);
+            }
+        });
+        
+        getResourceSnapshot(restApiId).removeResource(resourceId);
     }
     
     /**
@@ -334,22 +529,7 @@ public class AmazonGatewayUtility
      */
     public Resource getResourceByPathPart(String restApiId, String pathPart) throws Exception
     {
-        Resource resourceObject = null;
-
-        List<Resource> resources = getResources(restApiId);
-        
-        for(Resource resource : resources)
-        {
-            String tempPathPart = StringUtil.emptyIfNull(resource.getPathPart());
-            m_logger.info("tempPathPart: " + tempPathPart + "   " + resource.toString());
-            
-            if(tempPathPart.equalsIgnoreCase(pathPart))
-            {
-                resourceObject = resource;
-            }
-        }
-
-        return resourceObject;
+        return getResourceSnapshot(restApiId).getResourceByPathPart(pathPart);
     }
     
     /**
@@ -358,13 +538,26 @@ public class AmazonGatewayUtility
      * @return
      * @throws Exception
      */
-    public CreateResourceResult createResource(CreateResourceRequest createResourceRequest) throws Exception
+    public CreateResourceResult createResource(final CreateResourceRequest createResourceRequest) throws Exception
     {
-        CreateResourceResult result = m_amazonApiGatewayClient.createResource(createResourceRequest);
+        CreateResourceResult result = m_throttle.execute("CreateResource", new Callable<CreateResourceResult>()
+        {
+            public CreateResourceResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.createResource(createResourceRequest);
+            }
+        });
         
         if(result != null)
         {
             m_logger.info("Gateway API Resource (" + createResourceRequest.getPathPart() + ") has been created with id: " + result.getId());
+            
+            getResourceSnapshot(createResourceRequest.getRestApiId()).addResource(new Resource()
+                    .withId(result.getId())
+                    .withParentId(result.getParentId())
+                    .withPath(result.getPath())
+                    .withPathPart(result.getPathPart())
+                    .withResourceMethods(result.getResourceMethods()));
         }
         else
         {
@@ -379,9 +572,15 @@ public class AmazonGatewayUtility
      * @param updateResourceRequest
      * @throws Exception
      */
-    public void updateResource(UpdateResourceRequest updateResourceRequest) throws Exception
+    public void updateResource(final UpdateResourceRequest updateResourceRequest) throws Exception
     {
-        UpdateResourceResult result = m_amazonApiGatewayClient.updateResource(updateResourceRequest);
+        UpdateResourceResult result = m_throttle.execute("UpdateResource", new Callable<UpdateResourceResult>()
+        {
+            public UpdateResourceResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.updateResource(updateResourceRequest);
+            }
+        });
         
         if(result != null)
         {
@@ -399,13 +598,19 @@ public class AmazonGatewayUtility
      * @return
      * @throws Exception
      */
-    public GetMethodResult getMethod(GetMethodRequest getMethodRequest) throws Exception
+    public GetMethodResult getMethod(final GetMethodRequest getMethodRequest) throws Exception
     {
         GetMethodResult getMethodResult = null;
         
         try
         {
-            getMethodResult = m_amazonApiGatewayClient.getMethod(getMethodRequest);
+            getMethodResult = m_throttle.execute("GetMethod", new Callable<GetMethodResult>()
+            {
+                public GetMethodResult call() throws Exception
+                {
+                    return m_amazonApiGatewayClient.getMethod(getMethodRequest);
+                }
+            });
         }
         catch (Exception e)
         {
@@ -421,13 +626,24 @@ public class AmazonGatewayUtility
      * @return
      * @throws Exception
      */
-    public PutMethodResult createMethod(PutMethodRequest putMethodRequest) throws Exception
+    public PutMethodResult createMethod(final PutMethodRequest putMethodRequest) throws Exception
     {
-        PutMethodResult putMethodResult = m_amazonApiGatewayClient.putMethod(putMethodRequest);
+        PutMethodResult putMethodResult = m_throttle.execute("PutMethod", new Callable<PutMethodResult>()
+        {
+            public PutMethodResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.putMethod(putMethodRequest);
+            }
+        });
         
         if(putMethodResult != null)
         {
             m_logger.info("Gateway API Resource Method (" + putMethodRequest.getHttpMethod() + ") has been created");
+            
+            getResourceSnapshot(putMethodRequest.getRestApiId()).putMethod(putMethodRequest.getResourceId(), putMethodRequest.getHttpMethod(), new Method()
+                    .withHttpMethod(putMethodResult.getHttpMethod())
+                    .withAuthorizationType(putMethodResult.getAuthorizationType())
+                    .withApiKeyRequired(putMethodResult.getApiKeyRequired()));
         }
         else
         {
@@ -443,9 +659,15 @@ public class AmazonGatewayUtility
      * @return
      * @throws Exception
      */
-    public UpdateMethodResult updateMethod(UpdateMethodRequest updateMethodRequest) throws Exception
+    public UpdateMethodResult updateMethod(final UpdateMethodRequest updateMethodRequest) throws Exception
     {
-        UpdateMethodResult updateMethodResult = m_amazonApiGatewayClient.updateMethod(updateMethodRequest);
+        UpdateMethodResult updateMethodResult = m_throttle.execute("UpdateMethod", new Callable<UpdateMethodResult>()
+        {
+            public UpdateMethodResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.updateMethod(updateMethodRequest);
+            }
+        });
         
         if(updateMethodResult != null)
         {
@@ -466,9 +688,15 @@ public class AmazonGatewayUtility
      * @return
      * @throws Exception
      */
-    public PutMethodResponseResult createMethodResponse(PutMethodResponseRequest putMethodResponseRequest) throws Exception
+    public PutMethodResponseResult createMethodResponse(final PutMethodResponseRequest putMethodResponseRequest) throws Exception
     {
-        PutMethodResponseResult putMethodResponseResult = m_amazonApiGatewayClient.putMethodResponse(putMethodResponseRequest);
+        PutMethodResponseResult putMethodResponseResult = m_throttle.execute("PutMethodResponse", new Callable<PutMethodResponseResult>()
+        {
+            public PutMethodResponseResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.putMethodResponse(putMethodResponseRequest);
+            }
+        });
         
         if(putMethodResponseResult != null)
         {
@@ -488,13 +716,35 @@ public class AmazonGatewayUtility
      * @return
      * @throws Exception
      */
-    public GetIntegrationResult getIntegrationt(GetIntegrationRequest getIntegrationRequest) throws Exception
+    public GetIntegrationResult getIntegrationt(final GetIntegrationRequest getIntegrationRequest) throws Exception
     {
         GetIntegrationResult getIntegrationResult = null;
         
+        // Integrations we have already created or looked up during this run don't need another round trip
+        Integration cachedIntegration = getResourceSnapshot(getIntegrationRequest.getRestApiId()).getIntegration(getIntegrationRequest.getResourceId(), getIntegrationRequest.getHttpMethod());
+        
+        if(cachedIntegration != null)
+        {
+            return toIntegrationResult(cachedIntegration);
+        }
+        
         try
         {
-            getIntegrationResult = m_amazonApiGatewayClient.getIntegration(getIntegrationRequest);
+            getIntegrationResult = m_throttle.execute("GetIntegration", new Callable<GetIntegrationResult>()
+            {
+                public GetIntegrationResult call() throws Exception
+                {
+                    return m_amazonApiGatewayClient.getIntegration(getIntegrationRequest);
+                }
+            });
+            
+            getResourceSnapshot(getIntegrationRequest.getRestApiId()).putIntegration(getIntegrationRequest.getResourceId(), getIntegrationRequest.getHttpMethod(), new Integration()
+                    .withType(getIntegrationResult.getType())
+                    .withHttpMethod(getIntegrationResult.getHttpMethod())
+                    .withUri(getIntegrationResult.getUri())
+                    .withCredentials(getIntegrationResult.getCredentials())
+                    .withRequestTemplates(getIntegrationResult.getRequestTemplates())
+                    .withIntegrationResponses(getIntegrationResult.getIntegrationResponses()));
         }
         catch (Exception e)
         {
@@ -504,19 +754,49 @@ public class AmazonGatewayUtility
         return getIntegrationResult;
     }
     
+    /**
+     * 
+     * @param integration
+     * @return
+     */
+    private GetIntegrationResult toIntegrationResult(Integration integration)
+    {
+        return new GetIntegrationResult()
+                .withType(integration.getType())
+                .withHttpMethod(integration.getHttpMethod())
+                .withUri(integration.getUri())
+                .withCredentials(integration.getCredentials())
+                .withRequestTemplates(integration.getRequestTemplates())
+                .withIntegrationResponses(integration.getIntegrationResponses());
+    }
+    
     /**
      * 
      * @param putIntegrationRequest
      * @return
      * @throws Exception
      */
-    public PutIntegrationResult createIntegration(PutIntegrationRequest putIntegrationRequest) throws Exception
+    public PutIntegrationResult createIntegration(final PutIntegrationRequest putIntegrationRequest) throws Exception
     {
-        PutIntegrationResult putIntegrationResult = m_amazonApiGatewayClient.putIntegration(putIntegrationRequest);
+        PutIntegrationResult putIntegrationResult = m_throttle.execute("PutIntegration", new Callable<PutIntegrationResult>()
+        {
+            public PutIntegrationResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.putIntegration(putIntegrationRequest);
+            }
+        });
         
         if(putIntegrationResult != null)
         {
             m_logger.info("Gateway API Resource Method Integration (" + putIntegrationRequest.getUri() + ") has been created");
+            
+            getResourceSnapshot(putIntegrationRequest.getRestApiId()).putIntegration(putIntegrationRequest.getResourceId(), putIntegrationRequest.getHttpMethod(), new Integration()
+                    .withType(putIntegrationResult.getType())
+                    .withHttpMethod(putIntegrationResult.getHttpMethod())
+                    .withUri(putIntegrationResult.getUri())
+                    .withCredentials(putIntegrationResult.getCredentials())
+                    .withRequestTemplates(putIntegrationResult.getRequestTemplates())
+                    .withIntegrationResponses(putIntegrationResult.getIntegrationResponses()));
         }
         else
         {
@@ -532,13 +812,21 @@ public class AmazonGatewayUtility
      * @return
      * @throws Exception
      */
-    public UpdateIntegrationResult updateIntegration(UpdateIntegrationRequest updateIntegrationRequest) throws Exception
+    public UpdateIntegrationResult updateIntegration(final UpdateIntegrationRequest updateIntegrationRequest) throws Exception
     {
-        UpdateIntegrationResult updateIntegrationResult = m_amazonApiGatewayClient.updateIntegration(updateIntegrationRequest);
+        UpdateIntegrationResult updateIntegrationResult = m_throttle.execute("UpdateIntegration", new Callable<UpdateIntegrationResult>()
+        {
+            public UpdateIntegrationResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.updateIntegration(updateIntegrationRequest);
+            }
+        });
         
         if(updateIntegrationResult != null)
         {
             m_logger.info("Gateway API Resource Method Integration (" + updateIntegrationRequest.getHttpMethod() + ") has been updated");
+            
+            getResourceSnapshot(updateIntegrationRequest.getRestApiId()).removeIntegration(updateIntegrationRequest.getResourceId(), updateIntegrationRequest.getHttpMethod());
         }
         else
         {
@@ -554,9 +842,15 @@ public class AmazonGatewayUtility
      * @return
      * @throws Exception
      */
-    public PutIntegrationResponseResult createIntegrationResponse(PutIntegrationResponseRequest putIntegrationResponseRequest) throws Exception
+    public PutIntegrationResponseResult createIntegrationResponse(final PutIntegrationResponseRequest putIntegrationResponseRequest) throws Exception
     {
-        PutIntegrationResponseResult putIntegrationResponseResult = m_amazonApiGatewayClient.putIntegrationResponse(putIntegrationResponseRequest);
+        PutIntegrationResponseResult putIntegrationResponseResult = m_throttle.execute("PutIntegrationResponse", new Callable<PutIntegrationResponseResult>()
+        {
+            public PutIntegrationResponseResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.putIntegrationResponse(putIntegrationResponseRequest);
+            }
+        });
         
         if(putIntegrationResponseResult != null)
         {
@@ -576,9 +870,15 @@ public class AmazonGatewayUtility
      * @return
      * @throws Exception
      */
-    public CreateDeploymentResult createDeployment(CreateDeploymentRequest createDeploymentRequest) throws Exception
+    public CreateDeploymentResult createDeployment(final CreateDeploymentRequest createDeploymentRequest) throws Exception
     {
-        CreateDeploymentResult createDeploymentResult = m_amazonApiGatewayClient.createDeployment(createDeploymentRequest);
+        CreateDeploymentResult createDeploymentResult = m_throttle.execute("CreateDeployment", new Callable<CreateDeploymentResult>()
+        {
+            public CreateDeploymentResult call() throws Exception
+            {
+                return m_amazonApiGatewayClient.createDeployment(createDeploymentRequest);
+            }
+        });
         
         if(createDeploymentResult != null)
         {
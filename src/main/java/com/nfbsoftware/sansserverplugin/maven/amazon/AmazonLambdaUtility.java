@@ -1,7 +1,10 @@
 package com.nfbsoftware.sansserverplugin.maven.amazon;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.apache.maven.plugin.logging.Log;
 
@@ -15,16 +18,28 @@ import com.amazonaws.services.lambda.model.AddPermissionResult;
 import com.amazonaws.services.lambda.model.CreateFunctionRequest;
 import com.amazonaws.services.lambda.model.CreateFunctionResult;
 import com.amazonaws.services.lambda.model.DeleteFunctionRequest;
+import com.amazonaws.services.lambda.model.DeleteFunctionResult;
 import com.amazonaws.services.lambda.model.FunctionCode;
 import com.amazonaws.services.lambda.model.FunctionConfiguration;
 import com.amazonaws.services.lambda.model.GetFunctionRequest;
 import com.amazonaws.services.lambda.model.GetFunctionResult;
+import com.amazonaws.services.lambda.model.GetPolicyRequest;
+import com.amazonaws.services.lambda.model.GetPolicyResult;
+import com.amazonaws.services.lambda.model.InvocationType;
+import com.amazonaws.services.lambda.model.InvokeRequest;
+import com.amazonaws.services.lambda.model.InvokeResult;
+import com.amazonaws.services.lambda.model.ListFunctionsRequest;
 import com.amazonaws.services.lambda.model.ListFunctionsResult;
+import com.amazonaws.services.lambda.model.LogType;
+import com.amazonaws.services.lambda.model.RemovePermissionRequest;
+import com.amazonaws.services.lambda.model.RemovePermissionResult;
+import com.amazonaws.services.lambda.model.ResourceNotFoundException;
 import com.amazonaws.services.lambda.model.UpdateFunctionCodeRequest;
 import com.amazonaws.services.lambda.model.UpdateFunctionCodeResult;
 import com.amazonaws.services.lambda.model.UpdateFunctionConfigurationRequest;
 import com.amazonaws.services.lambda.model.UpdateFunctionConfigurationResult;
 import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
 
 /**
  * 
@@ -32,8 +47,12 @@ import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
  */
 public class AmazonLambdaUtility
 {
+    private static final int PAGE_SIZE = 50;
+    
     private Log m_logger;
     private AWSLambdaClient m_amazonLambdaClient;
+    private AmazonRequestThrottle m_throttle;
+    private AmazonRequestExecutor m_requestExecutor;
     private Properties m_properties;
 
     public AmazonLambdaUtility(Log logger, Properties properties)
@@ -52,6 +71,10 @@ public class AmazonLambdaUtility
 
         // Set our region
         m_amazonLambdaClient.setRegion(Region.getRegion(Regions.fromName(regionName)));
+        
+        // Share a throttle with every other utility calling Lambda
+        m_throttle = AmazonRequestThrottle.getInstance(m_logger, m_properties, AmazonRequestThrottle.SERVICE_LAMBDA);
+        m_requestExecutor = AmazonRequestExecutor.getInstance(m_logger, m_properties);
     }
     
     /**
@@ -62,31 +85,40 @@ public class AmazonLambdaUtility
      */
     public boolean hasFunctionConfigChanged(GetFunctionResult getFunctionResult, UpdateFunctionConfigurationRequest updateFunctionConfigurationRequest) 
     {
-        FunctionConfiguration functionConfiguration = getFunctionResult.getConfiguration();
-        
+        return hasFunctionConfigChanged(getFunctionResult.getConfiguration(), updateFunctionConfigurationRequest);
+    }
+    
+    /**
+     * 
+     * @param functionConfiguration
+     * @param updateFunctionConfigurationRequest
+     * @return
+     */
+    public boolean hasFunctionConfigChanged(FunctionConfiguration functionConfiguration, UpdateFunctionConfigurationRequest updateFunctionConfigurationRequest) 
+    {
         if(functionConfiguration == null)
         {
             return false;
         }
         else
         {
-            if(!functionConfiguration.getDescription().equalsIgnoreCase(updateFunctionConfigurationRequest.getDescription()))
+            if(!StringUtil.emptyIfNull(functionConfiguration.getDescription()).equalsIgnoreCase(StringUtil.emptyIfNull(updateFunctionConfigurationRequest.getDescription())))
             {
                 return true;
             }
-            if(!functionConfiguration.getHandler().equalsIgnoreCase(updateFunctionConfigurationRequest.getHandler()))
+            if(!StringUtil.emptyIfNull(functionConfiguration.getHandler()).equalsIgnoreCase(updateFunctionConfigurationRequest.getHandler()))
             {
                 return true;
             }
-            if(!functionConfiguration.getRole().equalsIgnoreCase(updateFunctionConfigurationRequest.getRole()))
+            if(!StringUtil.emptyIfNull(functionConfiguration.getRole()).equalsIgnoreCase(updateFunctionConfigurationRequest.getRole()))
             {
                 return true;
             }
-            if(functionConfiguration.getTimeout().compareTo(updateFunctionConfigurationRequest.getTimeout()) == 0)
+            if(functionConfiguration.getTimeout().compareTo(updateFunctionConfigurationRequest.getTimeout()) != 0)
             {
                 return true;
             }
-            if(functionConfiguration.getMemorySize().compareTo(updateFunctionConfigurationRequest.getMemorySize()) == 0)
+            if(functionConfiguration.getMemorySize().compareTo(updateFunctionConfigurationRequest.getMemorySize()) != 0)
             {
                 return true;
             }
@@ -99,12 +131,18 @@ public class AmazonLambdaUtility
      * 
      * @param functionName
      */
-    public void deleteFunction(String functionName) 
+    public void deleteFunction(String functionName) throws Exception
     {
-        DeleteFunctionRequest deleteFunctionRequest = new DeleteFunctionRequest();
+        final DeleteFunctionRequest deleteFunctionRequest = new DeleteFunctionRequest();
         deleteFunctionRequest.setFunctionName(functionName);
 
-        m_amazonLambdaClient.deleteFunction(deleteFunctionRequest);
+        m_throttle.execute("DeleteFunction", new Callable<DeleteFunctionResult>()
+        {
+            public DeleteFunctionResult call() throws Exception
+            {
+                return m_amazonLambdaClient.deleteFunction(deleteFunctionRequest);
+            }
+        });
     }
 
     /**
@@ -118,10 +156,16 @@ public class AmazonLambdaUtility
         
         try
         {
-            GetFunctionRequest getFunctionRequest = new GetFunctionRequest();
+            final GetFunctionRequest getFunctionRequest = new GetFunctionRequest();
             getFunctionRequest.setFunctionName(functionName);
 
-            getFunctionResult = m_amazonLambdaClient.getFunction(getFunctionRequest);
+            getFunctionResult = m_throttle.execute("GetFunction", new Callable<GetFunctionResult>()
+            {
+                public GetFunctionResult call() throws Exception
+                {
+                    return m_amazonLambdaClient.getFunction(getFunctionRequest);
+                }
+            });
         }
         catch (Exception e)
         {
@@ -132,6 +176,7 @@ public class AmazonLambdaUtility
     }
     
     /**
+     * Returns every function in the account, following the ListFunctions pages
      * 
      * @return
      */
@@ -141,12 +186,29 @@ public class AmazonLambdaUtility
         
         try
         {
-            ListFunctionsResult listFunctionsResult = m_amazonLambdaClient.listFunctions();
+            List<FunctionConfiguration> pagedFunctionList = new ArrayList<FunctionConfiguration>();
+            String marker = null;
             
-            if(listFunctionsResult != null)
+            do
             {
-                functionList = listFunctionsResult.getFunctions();
+                final ListFunctionsRequest listFunctionsRequest = new ListFunctionsRequest();
+                listFunctionsRequest.setMaxItems(PAGE_SIZE);
+                listFunctionsRequest.setMarker(marker);
+                
+                ListFunctionsResult listFunctionsResult = m_throttle.execute("ListFunctions", new Callable<ListFunctionsResult>()
+                {
+                    public ListFunctionsResult call() throws Exception
+                    {
+                        return m_amazonLambdaClient.listFunctions(listFunctionsRequest);
+                    }
+                });
+                
+                pagedFunctionList.addAll(listFunctionsResult.getFunctions());
+                marker = listFunctionsResult.getNextMarker();
             }
+            while(!StringUtil.isNullOrEmpty(marker));
+            
+            functionList = pagedFunctionList;
         }
         catch (Exception e)
         {
@@ -156,14 +218,109 @@ public class AmazonLambdaUtility
         return functionList;
     }
     
+    /**
+     * Start listing every function in the account on our shared request executor
+     * 
+     * @return
+     */
+    public Future<List<FunctionConfiguration>> getFunctionsAsync()
+    {
+        return m_requestExecutor.submit(new Callable<List<FunctionConfiguration>>()
+        {
+            public List<FunctionConfiguration> call() throws Exception
+            {
+                return getFunctions();
+            }
+        });
+    }
+    
+    /**
+     * Returns the resource policy of the given function as a JSON document, or null when the function has no policy
+     * 
+     * @param functionName
+     * @return
+     * @throws Exception
+     */
+    public String getPolicy(String functionName) throws Exception
+    {
+        final GetPolicyRequest getPolicyRequest = new GetPolicyRequest();
+        getPolicyRequest.setFunctionName(functionName);
+        
+        try
+        {
+            GetPolicyResult getPolicyResult = m_throttle.execute("GetPolicy", new Callable<GetPolicyResult>()
+            {
+                public GetPolicyResult call() throws Exception
+                {
+                    return m_amazonLambdaClient.getPolicy(getPolicyRequest);
+                }
+            });
+            
+            return getPolicyResult.getPolicy();
+        }
+        catch (ResourceNotFoundException e)
+        {
+            return null;
+        }
+    }
+    
+    /**
+     * Start fetching the resource policy of the given function on our shared request executor
+     * 
+     * @param functionName
+     * @return
+     */
+    public Future<String> getPolicyAsync(final String functionName)
+    {
+        return m_requestExecutor.submit(new Callable<String>()
+        {
+            public String call() throws Exception
+            {
+                return getPolicy(functionName);
+            }
+        });
+    }
+    
+    /**
+     * Invoke the given function and wait for its response.  The tail of the invocation's log, which holds Lambda's REPORT line with the
+     * duration, billed duration and memory used, is returned base64 encoded in the result's log result.
+     * 
+     * @param functionName
+     * @param payload
+     * @return
+     * @throws Exception
+     */
+    public InvokeResult invokeFunction(String functionName, String payload) throws Exception
+    {
+        final InvokeRequest invokeRequest = new InvokeRequest();
+        invokeRequest.setFunctionName(functionName);
+        invokeRequest.setInvocationType(InvocationType.RequestResponse);
+        invokeRequest.setLogType(LogType.Tail);
+        invokeRequest.setPayload(payload);
+        
+        return m_throttle.execute("Invoke", new Callable<InvokeResult>()
+        {
+            public InvokeResult call() throws Exception
+            {
+                return m_amazonLambdaClient.invoke(invokeRequest);
+            }
+        });
+    }
+    
     /**
      * 
      * @param updateFunctionConfigurationRequest
      * @throws Exception
      */
-    public void updateFunctionConfiguration(UpdateFunctionConfigurationRequest updateFunctionConfigurationRequest) throws Exception
+    public void updateFunctionConfiguration(final UpdateFunctionConfigurationRequest updateFunctionConfigurationRequest) throws Exception
     {
-        UpdateFunctionConfigurationResult result = m_amazonLambdaClient.updateFunctionConfiguration(updateFunctionConfigurationRequest);
+        UpdateFunctionConfigurationResult result = m_throttle.execute("UpdateFunctionConfiguration", new Callable<UpdateFunctionConfigurationResult>()
+        {
+            public UpdateFunctionConfigurationResult call() throws Exception
+            {
+                return m_amazonLambdaClient.updateFunctionConfiguration(updateFunctionConfigurationRequest);
+            }
+        });
                 
         if(result != null)
         {
@@ -187,14 +344,20 @@ public class AmazonLambdaUtility
         String bucketName = m_properties.getProperty(Entity.FrameworkProperties.AWS_S3_BUCKET_NAME);
         String deploymentFolder = m_properties.getProperty(Entity.FrameworkProperties.AWS_S3_DEPLOYMENT_FOLDER);
         
-        UpdateFunctionCodeRequest updateFunctionRequest = new UpdateFunctionCodeRequest();
+        final UpdateFunctionCodeRequest updateFunctionRequest = new UpdateFunctionCodeRequest();
         
         updateFunctionRequest.setS3Bucket(bucketName);
         updateFunctionRequest.setS3Key(deploymentFolder + "/" + deploymentJarFileName);
         updateFunctionRequest.setFunctionName(functionName);
         updateFunctionRequest.setPublish(Boolean.TRUE);
         
-        UpdateFunctionCodeResult result = m_amazonLambdaClient.updateFunctionCode(updateFunctionRequest);
+        UpdateFunctionCodeResult result = m_throttle.execute("UpdateFunctionCode", new Callable<UpdateFunctionCodeResult>()
+        {
+            public UpdateFunctionCodeResult call() throws Exception
+            {
+                return m_amazonLambdaClient.updateFunctionCode(updateFunctionRequest);
+            }
+        });
         
         if(result != null)
         {
@@ -212,7 +375,7 @@ public class AmazonLambdaUtility
      * @param createFunctionRequest
      * @throws Exception
      */
-    public void createFunction(String deploymentJarFileName, CreateFunctionRequest createFunctionRequest) throws Exception
+    public void createFunction(String deploymentJarFileName, final CreateFunctionRequest createFunctionRequest) throws Exception
     {
         FunctionCode functionCode = new FunctionCode();
         
@@ -225,7 +388,13 @@ public class AmazonLambdaUtility
         
         createFunctionRequest.setCode(functionCode);
 
-        CreateFunctionResult result = m_amazonLambdaClient.createFunction(createFunctionRequest);
+        CreateFunctionResult result = m_throttle.execute("CreateFunction", new Callable<CreateFunctionResult>()
+        {
+            public CreateFunctionResult call() throws Exception
+            {
+                return m_amazonLambdaClient.createFunction(createFunctionRequest);
+            }
+        });
         
         if(result != null)
         {
@@ -242,9 +411,15 @@ public class AmazonLambdaUtility
      * @param addPermissionRequest
      * @throws Exception
      */
-    public void addPermission(AddPermissionRequest addPermissionRequest) throws Exception
+    public void addPermission(final AddPermissionRequest addPermissionRequest) throws Exception
     {
-        AddPermissionResult addPermissionResult = m_amazonLambdaClient.addPermission(addPermissionRequest);
+        AddPermissionResult addPermissionResult = m_throttle.execute("AddPermission", new Callable<AddPermissionResult>()
+        {
+            public AddPermissionResult call() throws Exception
+            {
+                return m_amazonLambdaClient.addPermission(addPermissionRequest);
+            }
+        });
         
         if(addPermissionResult != null)
         {
@@ -255,4 +430,34 @@ public class AmazonLambdaUtility
             throw new Exception("Error creating Lambda function permission: " + addPermissionRequest.getFunctionName());
         }
     }
+    
+    /**
+     * 
+     * @param functionName
+     * @param statementId
+     * @throws Exception
+     */
+    public void removePermission(String functionName, String statementId) throws Exception
+    {
+        final RemovePermissionRequest removePermissionRequest = new RemovePermissionRequest();
+        removePermissionRequest.setFunctionName(functionName);
+        removePermissionRequest.setStatementId(statementId);
+        
+        try
+        {
+            m_throttle.execute("RemovePermission", new Callable<RemovePermissionResult>()
+            {
+                public RemovePermissionResult call() throws Exception
+                {
+                    return m_amazonLambdaClient.removePermission(removePermissionRequest);
+                }
+            });
+            
+            m_logger.info("Lambda function permission (" + statementId + ") has been removed from: " + functionName);
+        }
+        catch (ResourceNotFoundException e)
+        {
+            m_logger.info("Lambda function permission (" + statementId + ") was already removed from: " + functionName);
+        }
+    }
 }
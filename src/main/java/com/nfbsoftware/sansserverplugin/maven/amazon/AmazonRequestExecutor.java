@@ -0,0 +1,138 @@
+package com.nfbsoftware.sansserverplugin.maven.amazon;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
+
+/**
+ * The AmazonRequestExecutor runs the asynchronous variants of our utility methods on a bounded pool of worker threads shared by every utility.
+ * Each call still goes through its service's AmazonRequestThrottle, so running calls in parallel never exceeds the configured request rates;
+ * it only stops the deploy from waiting on one round-trip before starting the next.
+ *
+ * Idle workers are released after a minute, so the pool costs nothing between goals.  Tasks queued here must not wait on other tasks queued
+ * here, or a full pool could wait on itself.
+ *
+ * @author Brendan Clemenzi
+ */
+public class AmazonRequestExecutor
+{
+    public static final int DEFAULT_CONCURRENCY = 8;
+
+    private static AmazonRequestExecutor s_executor;
+
+    private ThreadPoolExecutor m_threadPoolExecutor;
+
+    /**
+     * Returns the executor shared by all of our utilities, creating it with the configured concurrency on first use
+     *
+     * @param logger
+     * @param properties
+     * @return
+     */
+    public static synchronized AmazonRequestExecutor getInstance(Log logger, Properties properties)
+    {
+        if(s_executor == null)
+        {
+            s_executor = new AmazonRequestExecutor(getConfiguredConcurrency(logger, properties));
+        }
+
+        return s_executor;
+    }
+
+    /**
+     *
+     * @param concurrency
+     */
+    private AmazonRequestExecutor(int concurrency)
+    {
+        final AtomicInteger threadCount = new AtomicInteger(0);
+
+        m_threadPoolExecutor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "sansserver-aws-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+
+        m_threadPoolExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     *
+     * @param logger
+     * @param properties
+     * @return
+     */
+    private static int getConfiguredConcurrency(Log logger, Properties properties)
+    {
+        String concurrencyString = StringUtil.emptyIfNull(properties.getProperty(Entity.FrameworkProperties.AWS_REQUEST_CONCURRENCY)).trim();
+
+        if(StringUtil.isNullOrEmpty(concurrencyString))
+        {
+            return DEFAULT_CONCURRENCY;
+        }
+
+        try
+        {
+            return Math.max(1, Integer.parseInt(concurrencyString));
+        }
+        catch (NumberFormatException e)
+        {
+            logger.warn("Invalid " + Entity.FrameworkProperties.AWS_REQUEST_CONCURRENCY + " value (" + concurrencyString + "), using " + DEFAULT_CONCURRENCY);
+
+            return DEFAULT_CONCURRENCY;
+        }
+    }
+
+    /**
+     * Queue an AWS call to run on one of our worker threads
+     *
+     * @param awsCall
+     * @return
+     */
+    public <T> Future<T> submit(Callable<T> awsCall)
+    {
+        return m_threadPoolExecutor.submit(awsCall);
+    }
+
+    /**
+     * Wait for the given call to finish, unwrapping any failure into the exception thrown by the call itself
+     *
+     * @param future
+     * @return
+     * @throws Exception
+     */
+    public static <T> T await(Future<T> future) throws Exception
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+
+            if(cause instanceof Exception)
+            {
+                throw (Exception)cause;
+            }
+
+            throw e;
+        }
+    }
+}
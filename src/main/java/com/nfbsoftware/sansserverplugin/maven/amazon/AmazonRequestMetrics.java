@@ -0,0 +1,207 @@
+package com.nfbsoftware.sansserverplugin.maven.amazon;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The AmazonRequestMetrics collects the timing and outcome of every AWS call made through an AmazonRequestThrottle:  how long each call
+ * took, how long it waited for a token, and whether it succeeded, failed or was throttled.  Latencies are kept as a histogram per
+ * operation so a deploy of any size costs the same to record.
+ *
+ * One collector is shared by every throttle, so the numbers cover every utility in the build.
+ *
+ * @author Brendan Clemenzi
+ */
+public class AmazonRequestMetrics
+{
+    /**
+     * The outcome of a single attempt at a call
+     */
+    public static enum Outcome
+    {
+        SUCCESS, THROTTLED, FAILED
+    }
+
+    public static final long[] LATENCY_BUCKETS_MILLIS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final AmazonRequestMetrics s_metrics = new AmazonRequestMetrics();
+
+    private Map<String, OperationMetrics> m_operations = new TreeMap<String, OperationMetrics>();
+
+    /**
+     *
+     * @return
+     */
+    public static AmazonRequestMetrics getInstance()
+    {
+        return s_metrics;
+    }
+
+    /**
+     * Forget what has been recorded, so a goal run in the same JVM as an earlier one only reports its own calls
+     */
+    public synchronized void reset()
+    {
+        m_operations.clear();
+    }
+
+    /**
+     *
+     * @param serviceName
+     * @param operationName
+     * @param waitMillis
+     * @param latencyMillis
+     * @param outcome
+     */
+    public synchronized void recordCall(String serviceName, String operationName, long waitMillis, long latencyMillis, Outcome outcome)
+    {
+        String operationKey = serviceName + ":" + operationName;
+
+        OperationMetrics operationMetrics = m_operations.get(operationKey);
+
+        if(operationMetrics == null)
+        {
+            operationMetrics = new OperationMetrics();
+
+            m_operations.put(operationKey, operationMetrics);
+        }
+
+        operationMetrics.record(waitMillis, latencyMillis, outcome);
+    }
+
+    /**
+     * Returns the total number of attempts that were throttled by AWS
+     *
+     * @return
+     */
+    public synchronized long getThrottledCount()
+    {
+        long throttledCount = 0;
+
+        for(OperationMetrics operationMetrics : m_operations.values())
+        {
+            throttledCount += operationMetrics.m_throttledCount;
+        }
+
+        return throttledCount;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized long getCallCount()
+    {
+        long callCount = 0;
+
+        for(OperationMetrics operationMetrics : m_operations.values())
+        {
+            callCount += operationMetrics.m_callCount;
+        }
+
+        return callCount;
+    }
+
+    /**
+     * Returns our metrics keyed by service:operation, ready to be written out as JSON
+     *
+     * @return
+     */
+    public synchronized Map<String, Object> toReport()
+    {
+        Map<String, Object> report = new LinkedHashMap<String, Object>();
+
+        for(Map.Entry<String, OperationMetrics> operation : m_operations.entrySet())
+        {
+            report.put(operation.getKey(), operation.getValue().toReport());
+        }
+
+        return report;
+    }
+
+    /**
+     * The counts and latency histogram of one operation
+     */
+    private static class OperationMetrics
+    {
+        private long m_callCount;
+        private long m_successCount;
+        private long m_throttledCount;
+        private long m_failedCount;
+        private long m_totalMillis;
+        private long m_maxMillis;
+        private long m_totalWaitMillis;
+        private long[] m_histogram = new long[LATENCY_BUCKETS_MILLIS.length + 1];
+
+        /**
+         *
+         * @param waitMillis
+         * @param latencyMillis
+         * @param outcome
+         */
+        private void record(long waitMillis, long latencyMillis, Outcome outcome)
+        {
+            m_callCount++;
+            m_totalMillis += latencyMillis;
+            m_maxMillis = Math.max(m_maxMillis, latencyMillis);
+            m_totalWaitMillis += waitMillis;
+
+            if(outcome == Outcome.SUCCESS)
+            {
+                m_successCount++;
+            }
+            else if(outcome == Outcome.THROTTLED)
+            {
+                m_throttledCount++;
+            }
+            else
+            {
+                m_failedCount++;
+            }
+
+            int bucket = 0;
+
+            while(bucket < LATENCY_BUCKETS_MILLIS.length && latencyMillis > LATENCY_BUCKETS_MILLIS[bucket])
+            {
+                bucket++;
+            }
+
+            m_histogram[bucket]++;
+        }
+
+        /**
+         *
+         * @return
+         */
+        private Map<String, Object> toReport()
+        {
+            Map<String, Object> report = new LinkedHashMap<String, Object>();
+            report.put("calls", m_callCount);
+            report.put("succeeded", m_successCount);
+            report.put("throttled", m_throttledCount);
+            report.put("failed", m_failedCount);
+            report.put("totalMillis", m_totalMillis);
+            report.put("meanMillis", m_callCount == 0 ? 0 : m_totalMillis / m_callCount);
+            report.put("maxMillis", m_maxMillis);
+            report.put("tokenWaitMillis", m_totalWaitMillis);
+
+            List<Object> histogram = new ArrayList<Object>();
+
+            for(int bucket = 0; bucket < m_histogram.length; bucket++)
+            {
+                Map<String, Object> histogramBucket = new LinkedHashMap<String, Object>();
+                histogramBucket.put("leMillis", bucket < LATENCY_BUCKETS_MILLIS.length ? (Object)LATENCY_BUCKETS_MILLIS[bucket] : "+Inf");
+                histogramBucket.put("count", m_histogram[bucket]);
+
+                histogram.add(histogramBucket);
+            }
+
+            report.put("latencyHistogram", histogram);
+
+            return report;
+        }
+    }
+}
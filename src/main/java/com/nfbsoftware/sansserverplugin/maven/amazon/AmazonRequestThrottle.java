@@ -0,0 +1,331 @@
+package com.nfbsoftware.sansserverplugin.maven.amazon;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.amazonaws.AmazonServiceException;
+import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
+
+/**
+ * The AmazonRequestThrottle is a per-service token bucket used by our deployment utilities to pace their AWS calls.  Calls run as fast as the
+ * configured rate allows and only slow down when AWS pushes back with a throttling error.  Throttled calls are retried with an exponential
+ * backoff with full jitter, and the bucket's rate is cut in half so the following calls back off as well.  Each successful call lets the rate
+ * climb back up towards the configured limit.
+ *
+ * One throttle is shared per service and region, so every utility talking to the same service draws from the same bucket.  Every attempt
+ * is timed and recorded in the shared AmazonRequestMetrics.
+ *
+ * @author Brendan Clemenzi
+ */
+public class AmazonRequestThrottle
+{
+    public static final String SERVICE_LAMBDA               = "lambda";
+    public static final String SERVICE_APIGATEWAY           = "apigateway";
+    public static final String SERVICE_S3                   = "s3";
+    public static final String SERVICE_CLOUDWATCH_EVENTS    = "events";
+
+    public static final int DEFAULT_MAX_RETRIES             = 8;
+    public static final long DEFAULT_BASE_DELAY_MILLIS      = 200;
+    public static final long DEFAULT_MAX_DELAY_MILLIS       = 20000;
+
+    private static final double MINIMUM_REQUESTS_PER_SECOND = 0.5;
+
+    private static final Set<String> THROTTLING_ERROR_CODES = new HashSet<String>(Arrays.asList(
+            "TooManyRequestsException",
+            "Throttling",
+            "ThrottlingException",
+            "ThrottledException",
+            "RequestThrottled",
+            "RequestLimitExceeded",
+            "SlowDown",
+            "ProvisionedThroughputExceededException"));
+
+    private static final Map<String, AmazonRequestThrottle> s_throttles = new HashMap<String, AmazonRequestThrottle>();
+
+    private Log m_logger;
+    private String m_serviceName;
+
+    private double m_maxRequestsPerSecond;
+    private double m_requestsPerSecond;
+    private double m_availableTokens;
+    private long m_lastRefillNanos;
+
+    private int m_maxRetries;
+    private long m_baseDelayMillis;
+    private long m_maxDelayMillis;
+
+    private Random m_random = new Random();
+
+    private AmazonRequestMetrics m_metrics = AmazonRequestMetrics.getInstance();
+
+    /**
+     * Returns the throttle shared by all utilities calling the given service in the configured region
+     *
+     * @param logger
+     * @param properties
+     * @param serviceName
+     * @return
+     */
+    public static synchronized AmazonRequestThrottle getInstance(Log logger, Properties properties, String serviceName)
+    {
+        String regionName = StringUtil.emptyIfNull(properties.getProperty(Entity.FrameworkProperties.AWS_REGION));
+        String throttleKey = serviceName + ":" + regionName;
+
+        AmazonRequestThrottle throttle = s_throttles.get(throttleKey);
+
+        if(throttle == null)
+        {
+            throttle = new AmazonRequestThrottle(logger, properties, serviceName);
+
+            s_throttles.put(throttleKey, throttle);
+        }
+
+        return throttle;
+    }
+
+    /**
+     *
+     * @param logger
+     * @param properties
+     * @param serviceName
+     */
+    private AmazonRequestThrottle(Log logger, Properties properties, String serviceName)
+    {
+        m_logger = logger;
+        m_serviceName = serviceName;
+
+        m_maxRequestsPerSecond = Math.max(MINIMUM_REQUESTS_PER_SECOND, getDoubleProperty(properties, Entity.FrameworkProperties.AWS_THROTTLE_PREFIX + serviceName + ".requestsPerSecond", getDefaultRequestsPerSecond(serviceName)));
+        m_requestsPerSecond = m_maxRequestsPerSecond;
+        m_availableTokens = m_maxRequestsPerSecond;
+        m_lastRefillNanos = System.nanoTime();
+
+        m_maxRetries = (int)getDoubleProperty(properties, Entity.FrameworkProperties.AWS_THROTTLE_MAX_RETRIES, DEFAULT_MAX_RETRIES);
+        m_baseDelayMillis = (long)getDoubleProperty(properties, Entity.FrameworkProperties.AWS_THROTTLE_BASE_DELAY, DEFAULT_BASE_DELAY_MILLIS);
+        m_maxDelayMillis = (long)getDoubleProperty(properties, Entity.FrameworkProperties.AWS_THROTTLE_MAX_DELAY, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * The default request rates are kept under the published control plane limits of each service
+     *
+     * @param serviceName
+     * @return
+     */
+    private static double getDefaultRequestsPerSecond(String serviceName)
+    {
+        if(SERVICE_APIGATEWAY.equals(serviceName))
+        {
+            return 5;
+        }
+        else if(SERVICE_S3.equals(serviceName))
+        {
+            return 50;
+        }
+
+        return 10;
+    }
+
+    /**
+     *
+     * @param properties
+     * @param propertyKey
+     * @param defaultValue
+     * @return
+     */
+    private double getDoubleProperty(Properties properties, String propertyKey, double defaultValue)
+    {
+        String propertyValue = StringUtil.emptyIfNull(properties.getProperty(propertyKey)).trim();
+
+        if(StringUtil.isNullOrEmpty(propertyValue))
+        {
+            return defaultValue;
+        }
+
+        try
+        {
+            return Double.parseDouble(propertyValue);
+        }
+        catch (NumberFormatException e)
+        {
+            m_logger.warn("Invalid " + propertyKey + " value (" + propertyValue + "), using " + defaultValue);
+
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Execute the given AWS call once a token is available, retrying with backoff while AWS answers with a throttling error
+     *
+     * @param operationName
+     * @param awsCall
+     * @return
+     * @throws Exception
+     */
+    public <T> T execute(String operationName, Callable<T> awsCall) throws Exception
+    {
+        int attempt = 0;
+
+        while(true)
+        {
+            long waitStartTime = System.nanoTime();
+
+            acquire();
+
+            long callStartTime = System.nanoTime();
+            long waitMillis = (callStartTime - waitStartTime) / 1000000;
+
+            try
+            {
+                T result = awsCall.call();
+
+                m_metrics.recordCall(m_serviceName, operationName, waitMillis, (System.nanoTime() - callStartTime) / 1000000, AmazonRequestMetrics.Outcome.SUCCESS);
+
+                onSuccess();
+
+                return result;
+            }
+            catch (Exception e)
+            {
+                boolean throttled = isThrottlingException(e);
+
+                m_metrics.recordCall(m_serviceName, operationName, waitMillis, (System.nanoTime() - callStartTime) / 1000000, throttled ? AmazonRequestMetrics.Outcome.THROTTLED : AmazonRequestMetrics.Outcome.FAILED);
+
+                if(!throttled || attempt >= m_maxRetries)
+                {
+                    throw e;
+                }
+
+                onThrottled();
+
+                long delayMillis = getBackoffDelay(attempt);
+                attempt++;
+
+                m_logger.warn("AWS " + m_serviceName + " throttled " + operationName + ", retry " + attempt + " of " + m_maxRetries + " in " + delayMillis + "ms");
+
+                Thread.sleep(delayMillis);
+            }
+        }
+    }
+
+    /**
+     * Block until the bucket has a token for the next call
+     *
+     * @throws InterruptedException
+     */
+    public void acquire() throws InterruptedException
+    {
+        while(true)
+        {
+            long waitMillis;
+
+            synchronized(this)
+            {
+                refill();
+
+                if(m_availableTokens >= 1)
+                {
+                    m_availableTokens -= 1;
+
+                    return;
+                }
+
+                waitMillis = (long)Math.ceil(((1 - m_availableTokens) / m_requestsPerSecond) * 1000);
+            }
+
+            Thread.sleep(Math.max(1, waitMillis));
+        }
+    }
+
+    /**
+     * Add the tokens earned since our last refill, never holding more than one second's worth
+     */
+    private void refill()
+    {
+        long nowNanos = System.nanoTime();
+        double elapsedSeconds = (nowNanos - m_lastRefillNanos) / 1000000000.0;
+
+        m_availableTokens = Math.min(Math.max(1, m_requestsPerSecond), m_availableTokens + (elapsedSeconds * m_requestsPerSecond));
+        m_lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * Let the rate climb back towards the configured limit after each successful call
+     */
+    private synchronized void onSuccess()
+    {
+        if(m_requestsPerSecond < m_maxRequestsPerSecond)
+        {
+            m_requestsPerSecond = Math.min(m_maxRequestsPerSecond, m_requestsPerSecond + 0.1);
+        }
+    }
+
+    /**
+     * Cut the rate in half and drain the bucket so every caller slows down, not only the one that was throttled
+     */
+    private synchronized void onThrottled()
+    {
+        refill();
+
+        m_requestsPerSecond = Math.max(MINIMUM_REQUESTS_PER_SECOND, m_requestsPerSecond / 2);
+        m_availableTokens = Math.min(m_availableTokens, 0);
+    }
+
+    /**
+     * Exponential backoff with full jitter:  a random delay between zero and base * 2^attempt, capped at our maximum delay
+     *
+     * @param attempt
+     * @return
+     */
+    private long getBackoffDelay(int attempt)
+    {
+        long ceilingMillis = Math.min(m_maxDelayMillis, m_baseDelayMillis * (1L << Math.min(attempt, 20)));
+
+        synchronized(m_random)
+        {
+            return 1 + (long)(m_random.nextDouble() * ceilingMillis);
+        }
+    }
+
+    /**
+     *
+     * @param e
+     * @return
+     */
+    public static boolean isThrottlingException(Exception e)
+    {
+        if(e instanceof AmazonServiceException)
+        {
+            AmazonServiceException ase = (AmazonServiceException)e;
+
+            return ase.getStatusCode() == 429 || THROTTLING_ERROR_CODES.contains(ase.getErrorCode());
+        }
+
+        return false;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getServiceName()
+    {
+        return m_serviceName;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized double getRequestsPerSecond()
+    {
+        return m_requestsPerSecond;
+    }
+}
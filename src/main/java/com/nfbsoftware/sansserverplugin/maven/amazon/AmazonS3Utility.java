@@ -2,12 +2,17 @@ package com.nfbsoftware.sansserverplugin.maven.amazon;
 
 import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.security.MessageDigest;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.maven.plugin.logging.Log;
@@ -21,15 +26,22 @@ import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.Bucket;
 import com.amazonaws.services.s3.model.BucketWebsiteConfiguration;
+import com.amazonaws.services.s3.model.CopyObjectResult;
 import com.amazonaws.services.s3.model.CreateBucketRequest;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.SetBucketPolicyRequest;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerConfiguration;
+import com.amazonaws.util.BinaryUtils;
 import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
 import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
 
@@ -39,14 +51,34 @@ import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
  */
 public class AmazonS3Utility
 {
+    public static final String CONTENT_MD5_METADATA = "sansserver-md5";
+
+    private static final long MEGABYTE = 1024L * 1024L;
+    private static final int DEFAULT_MULTIPART_THRESHOLD_MB = 16;
+    private static final int DEFAULT_MULTIPART_PART_SIZE_MB = 8;
+    private static final int DEFAULT_UPLOAD_CONCURRENCY = 4;
+
     private Log m_logger;
     private String m_regionName;
     private String m_bucketName;
     private String m_deploymentFolder;
     private AmazonS3 m_amazonS3Client;
+    private AmazonRequestThrottle m_throttle;
+    private AmazonRequestExecutor m_requestExecutor;
     private Properties m_properties;
 
     public AmazonS3Utility(Log logger, Properties properties)
+    {
+        this(logger, properties, true);
+    }
+
+    /**
+     * 
+     * @param logger
+     * @param properties
+     * @param initializeBucket false to leave a missing bucket alone, i.e. when we are only reading from S3
+     */
+    public AmazonS3Utility(Log logger, Properties properties, boolean initializeBucket)
     {
         // Save our logger
         m_logger = logger;
@@ -69,9 +101,16 @@ public class AmazonS3Utility
 
         // Set our region
         m_amazonS3Client.setRegion(Region.getRegion(Regions.fromName(regionName)));
+        
+        // Share a throttle with every other utility calling S3
+        m_throttle = AmazonRequestThrottle.getInstance(m_logger, m_properties, AmazonRequestThrottle.SERVICE_S3);
+        m_requestExecutor = AmazonRequestExecutor.getInstance(m_logger, m_properties);
 
         // Make sure our bucket has been created
-        initilizeS3Bucket();
+        if(initializeBucket)
+        {
+            initilizeS3Bucket();
+        }
     }
 
     /**
@@ -81,13 +120,34 @@ public class AmazonS3Utility
     {
         try
         {
-            if(!(m_amazonS3Client.doesBucketExist(m_bucketName)))
+            boolean bucketExists = m_throttle.execute("HeadBucket", new Callable<Boolean>()
+            {
+                public Boolean call() throws Exception
+                {
+                    return m_amazonS3Client.doesBucketExist(m_bucketName);
+                }
+            });
+            
+            if(!bucketExists)
             {
                 m_logger.info("Create new S3 bucket: " + m_bucketName);
-                m_amazonS3Client.createBucket(new CreateBucketRequest(m_bucketName));
+                m_throttle.execute("CreateBucket", new Callable<Bucket>()
+                {
+                    public Bucket call() throws Exception
+                    {
+                        return m_amazonS3Client.createBucket(new CreateBucketRequest(m_bucketName));
+                    }
+                });
                 
                 m_logger.info("Set new website configuration for the bucket");
-                m_amazonS3Client.setBucketWebsiteConfiguration(m_bucketName, new BucketWebsiteConfiguration("index.html", "error.html"));
+                m_throttle.execute("PutBucketWebsite", new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        m_amazonS3Client.setBucketWebsiteConfiguration(m_bucketName, new BucketWebsiteConfiguration("index.html", "error.html"));
+                        return null;
+                    }
+                });
                 
                 // Verify website configuration.
                 getWebsiteConfig();
@@ -113,8 +173,15 @@ public class AmazonS3Utility
                 m_logger.info("Configure the bucket policy: " + bucketPolicy.toString());
                 
                 // Add bucket policy
-                SetBucketPolicyRequest bucketPolicyRequest = new SetBucketPolicyRequest(m_bucketName, bucketPolicy.toString());
-                m_amazonS3Client.setBucketPolicy(bucketPolicyRequest);
+                final SetBucketPolicyRequest bucketPolicyRequest = new SetBucketPolicyRequest(m_bucketName, bucketPolicy.toString());
+                m_throttle.execute("PutBucketPolicy", new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        m_amazonS3Client.setBucketPolicy(bucketPolicyRequest);
+                        return null;
+                    }
+                });
                 
                 m_logger.info("New S3 bucket have been created with a web-hosting and deployment policy");
                 m_logger.info("New Webite path: " + getWebsitePath());
@@ -141,18 +208,28 @@ public class AmazonS3Utility
                     + "communicate with S3, " + "such as not being able to access the network.");
             m_logger.error("Error Message: " + ace.getMessage());
         }
+        catch (Exception ex)
+        {
+            m_logger.error("ERROR AmazonS3Utility.initilizeS3Bucket: Bucket Name: " + m_bucketName + ", " + ex.getMessage());
+        }
     }
 
     /**
      * 
      * @return
      */
-    private BucketWebsiteConfiguration getWebsiteConfig()
+    private BucketWebsiteConfiguration getWebsiteConfig() throws Exception
     {
         m_logger.info("Get website config");
 
         // Get website config.
-        BucketWebsiteConfiguration bucketWebsiteConfiguration = m_amazonS3Client.getBucketWebsiteConfiguration(m_bucketName);
+        BucketWebsiteConfiguration bucketWebsiteConfiguration = m_throttle.execute("GetBucketWebsite", new Callable<BucketWebsiteConfiguration>()
+        {
+            public BucketWebsiteConfiguration call() throws Exception
+            {
+                return m_amazonS3Client.getBucketWebsiteConfiguration(m_bucketName);
+            }
+        });
         if (bucketWebsiteConfiguration == null)
         {
             m_logger.warn("No website config.");
@@ -204,6 +281,179 @@ public class AmazonS3Utility
         }
     }
 
+    /**
+     * Upload the given file unless the object already in our bucket has the same content.  The local MD5 is compared with the MD5 we
+     * stored in the object's metadata, or with its ETag for objects uploaded in a single part.  Files over the multipart threshold are
+     * uploaded in parallel parts.
+     * 
+     * @param folderName
+     * @param fileName
+     * @param fileObject
+     * @return true when the file was uploaded, false when the existing object was already identical
+     * @throws Exception
+     */
+    public boolean uploadFileIfChanged(String folderName, String fileName, File fileObject) throws Exception
+    {
+        String objectKey = fileName;
+        
+        // If a folder name was passed in, use it.
+        if(!StringUtil.isNullOrEmpty(folderName))
+        {
+            objectKey = folderName + "/" + fileName;
+        }
+        
+        byte[] contentMd5 = computeMd5(fileObject);
+        String contentMd5Hex = BinaryUtils.toHex(contentMd5);
+        
+        ObjectMetadata remoteMetadata = getObjectMetadata(objectKey);
+        
+        if(remoteMetadata != null && remoteMetadata.getContentLength() == fileObject.length())
+        {
+            if(contentMd5Hex.equalsIgnoreCase(remoteMetadata.getUserMetaDataOf(CONTENT_MD5_METADATA)) || contentMd5Hex.equalsIgnoreCase(remoteMetadata.getETag()))
+            {
+                m_logger.info("Skipping upload of " + objectKey + ", the object in S3 is identical (MD5 " + contentMd5Hex + ")");
+                return false;
+            }
+        }
+        
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(fileObject.length());
+        objectMetadata.addUserMetadata(CONTENT_MD5_METADATA, contentMd5Hex);
+        
+        final PutObjectRequest objectRequest = new PutObjectRequest(m_bucketName, objectKey, fileObject).withMetadata(objectMetadata);
+        
+        long multipartThreshold = getIntegerProperty(Entity.FrameworkProperties.AWS_S3_MULTIPART_THRESHOLD, DEFAULT_MULTIPART_THRESHOLD_MB) * MEGABYTE;
+        long startTime = System.currentTimeMillis();
+        
+        if(fileObject.length() < multipartThreshold)
+        {
+            // Let S3 verify the content of single part uploads
+            objectMetadata.setContentMD5(BinaryUtils.toBase64(contentMd5));
+            
+            m_throttle.execute("PutObject", new Callable<PutObjectResult>()
+            {
+                public PutObjectResult call() throws Exception
+                {
+                    return m_amazonS3Client.putObject(objectRequest);
+                }
+            });
+        }
+        else
+        {
+            uploadInParts(objectRequest, multipartThreshold);
+        }
+        
+        m_logger.info("Uploaded " + objectKey + " (" + (fileObject.length() / 1024) + " KB) in " + (System.currentTimeMillis() - startTime) + "ms");
+        
+        return true;
+    }
+    
+    /**
+     * Start uploading the given file on our shared request executor, so the caller can carry on with other AWS calls while it uploads.
+     * The upload is skipped when the object already in our bucket has the same content.
+     * 
+     * @param folderName
+     * @param fileName
+     * @param fileObject
+     * @return true when the file was uploaded, false when the existing object was already identical
+     */
+    public Future<Boolean> uploadFileIfChangedAsync(final String folderName, final String fileName, final File fileObject)
+    {
+        return m_requestExecutor.submit(new Callable<Boolean>()
+        {
+            public Boolean call() throws Exception
+            {
+                return uploadFileIfChanged(folderName, fileName, fileObject);
+            }
+        });
+    }
+
+    /**
+     * Upload our file with a TransferManager, which sends the parts of large files in parallel
+     * 
+     * @param objectRequest
+     * @param multipartThreshold
+     * @throws Exception
+     */
+    private void uploadInParts(PutObjectRequest objectRequest, long multipartThreshold) throws Exception
+    {
+        int uploadConcurrency = getIntegerProperty(Entity.FrameworkProperties.AWS_S3_UPLOAD_CONCURRENCY, DEFAULT_UPLOAD_CONCURRENCY);
+        long partSize = getIntegerProperty(Entity.FrameworkProperties.AWS_S3_MULTIPART_PART_SIZE, DEFAULT_MULTIPART_PART_SIZE_MB) * MEGABYTE;
+        
+        TransferManagerConfiguration transferConfiguration = new TransferManagerConfiguration();
+        transferConfiguration.setMultipartUploadThreshold(multipartThreshold);
+        transferConfiguration.setMinimumUploadPartSize(partSize);
+        
+        TransferManager transferManager = new TransferManager(m_amazonS3Client, Executors.newFixedThreadPool(uploadConcurrency));
+        transferManager.setConfiguration(transferConfiguration);
+        
+        long callStartTime = System.nanoTime();
+        AmazonRequestMetrics.Outcome outcome = AmazonRequestMetrics.Outcome.FAILED;
+        
+        try
+        {
+            // Each part is its own request, retried on its own by the SDK, so a throttled part doesn't restart the whole upload the way our
+            // throttle's retries would
+            transferManager.upload(objectRequest).waitForUploadResult();
+            
+            outcome = AmazonRequestMetrics.Outcome.SUCCESS;
+        }
+        finally
+        {
+            AmazonRequestMetrics.getInstance().recordCall(AmazonRequestThrottle.SERVICE_S3, "MultipartUpload", 0, (System.nanoTime() - callStartTime) / 1000000, outcome);
+            
+            // Stop our upload threads but keep the shared S3 client open
+            transferManager.shutdownNow(false);
+        }
+    }
+
+    /**
+     * 
+     * @param fileObject
+     * @return
+     * @throws Exception
+     */
+    private byte[] computeMd5(File fileObject) throws Exception
+    {
+        MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+        InputStream inputStream = new BufferedInputStream(new FileInputStream(fileObject));
+        
+        try
+        {
+            byte[] buffer = new byte[64 * 1024];
+            int length;
+            
+            while((length = inputStream.read(buffer)) > 0)
+            {
+                messageDigest.update(buffer, 0, length);
+            }
+        }
+        finally
+        {
+            inputStream.close();
+        }
+        
+        return messageDigest.digest();
+    }
+
+    /**
+     * 
+     * @param propertyName
+     * @param defaultValue
+     * @return
+     */
+    private int getIntegerProperty(String propertyName, int defaultValue)
+    {
+        String value = m_properties.getProperty(propertyName);
+        
+        if(StringUtil.isNullOrEmptyTrim(value))
+        {
+            return defaultValue;
+        }
+        
+        return Math.max(1, Integer.parseInt(value.trim()));
+    }
+
     /**
      * 
      * @param folderName
@@ -244,6 +494,57 @@ public class AmazonS3Utility
         return fileBytes;
     }
 
+    /**
+     * 
+     * @param folderName
+     * @param fileName
+     * @return
+     * @throws Exception
+     */
+    public boolean doesFileExist(String folderName, String fileName) throws Exception
+    {
+        String tempName = fileName;
+        
+        // If a folder name was passed in, use it.
+        if(!StringUtil.isNullOrEmpty(folderName))
+        {
+            tempName = folderName + "/" + fileName;
+        }
+        
+        return getObjectMetadata(tempName) != null;
+    }
+
+    /**
+     * Returns the metadata of the given object, or null when it doesn't exist
+     * 
+     * @param objectKey
+     * @return
+     * @throws Exception
+     */
+    private ObjectMetadata getObjectMetadata(String objectKey) throws Exception
+    {
+        try
+        {
+            final GetObjectMetadataRequest getObjectMetadataRequest = new GetObjectMetadataRequest(m_bucketName, objectKey);
+            return m_throttle.execute("HeadObject", new Callable<ObjectMetadata>()
+            {
+                public ObjectMetadata call() throws Exception
+                {
+                    return m_amazonS3Client.getObjectMetadata(getObjectMetadataRequest);
+                }
+            });
+        }
+        catch (AmazonServiceException ase)
+        {
+            if (ase.getStatusCode() == 404)
+            {
+                return null;
+            }
+            
+            throw ase;
+        }
+    }
+
     /**
      * 
      * @param folderName
@@ -273,10 +574,16 @@ public class AmazonS3Utility
         {
             m_logger.error("Copying remote file from " + originalFileName + " to " + newFileName);
 
-            String tempOriginalName = folderName + "/" + originalFileName;
-            String tempNewName = folderName + "/" + newFileName;
+            final String tempOriginalName = folderName + "/" + originalFileName;
+            final String tempNewName = folderName + "/" + newFileName;
 
-            m_amazonS3Client.copyObject(m_bucketName, tempOriginalName, m_bucketName, tempNewName);
+            m_throttle.execute("CopyObject", new Callable<CopyObjectResult>()
+            {
+                public CopyObjectResult call() throws Exception
+                {
+                    return m_amazonS3Client.copyObject(m_bucketName, tempOriginalName, m_bucketName, tempNewName);
+                }
+            });
         }
         catch (AmazonServiceException exception)
         {
@@ -363,9 +670,15 @@ public class AmazonS3Utility
 
             try
             {
-                PutObjectRequest objectRequest = new PutObjectRequest(m_bucketName, tempName, fileObject);
+                final PutObjectRequest objectRequest = new PutObjectRequest(m_bucketName, tempName, fileObject);
 
-                m_amazonS3Client.putObject(objectRequest);
+                m_throttle.execute("PutObject", new Callable<PutObjectResult>()
+                {
+                    public PutObjectResult call() throws Exception
+                    {
+                        return m_amazonS3Client.putObject(objectRequest);
+                    }
+                });
 
                 uploadSuccessful = true;
             }
@@ -410,9 +723,15 @@ public class AmazonS3Utility
 
             try
             {
-                GetObjectRequest objectRequest = new GetObjectRequest(m_bucketName, tempName);
+                final GetObjectRequest objectRequest = new GetObjectRequest(m_bucketName, tempName);
 
-                S3Object tmpFileObject = m_amazonS3Client.getObject(objectRequest);
+                S3Object tmpFileObject = m_throttle.execute("GetObject", new Callable<S3Object>()
+                {
+                    public S3Object call() throws Exception
+                    {
+                        return m_amazonS3Client.getObject(objectRequest);
+                    }
+                });
 
                 int pos = fileName.lastIndexOf(".");
                 String fileExt = fileName.substring(pos + 1, fileName.length());
@@ -471,9 +790,15 @@ public class AmazonS3Utility
 
             try
             {
-                GetObjectRequest objectRequest = new GetObjectRequest(m_bucketName, tempName);
+                final GetObjectRequest objectRequest = new GetObjectRequest(m_bucketName, tempName);
 
-                S3Object tmpFileObject = m_amazonS3Client.getObject(objectRequest);
+                S3Object tmpFileObject = m_throttle.execute("GetObject", new Callable<S3Object>()
+                {
+                    public S3Object call() throws Exception
+                    {
+                        return m_amazonS3Client.getObject(objectRequest);
+                    }
+                });
 
                 InputStream inputStream = new BufferedInputStream(tmpFileObject.getObjectContent());
                 fileBytes = IOUtils.toByteArray(inputStream);
@@ -520,17 +845,30 @@ public class AmazonS3Utility
 
             try
             {
-                DeleteObjectRequest deleteObjectRequest = new DeleteObjectRequest(m_bucketName, tempName);
+                final DeleteObjectRequest deleteObjectRequest = new DeleteObjectRequest(m_bucketName, tempName);
 
-                m_amazonS3Client.deleteObject(deleteObjectRequest);
+                m_throttle.execute("DeleteObject", new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        m_amazonS3Client.deleteObject(deleteObjectRequest);
+                        return null;
+                    }
+                });
 
                 // Check that it was deleted by looking at the meta data.
                 // Then take what code the error message gives back to determine
                 // if delete succeeded.
                 try
                 {
-                    GetObjectMetadataRequest getObjectMetadataRequest = new GetObjectMetadataRequest(m_bucketName, tempName);
-                    m_amazonS3Client.getObjectMetadata(getObjectMetadataRequest);
+                    final GetObjectMetadataRequest getObjectMetadataRequest = new GetObjectMetadataRequest(m_bucketName, tempName);
+                    m_throttle.execute("HeadObject", new Callable<ObjectMetadata>()
+                    {
+                        public ObjectMetadata call() throws Exception
+                        {
+                            return m_amazonS3Client.getObjectMetadata(getObjectMetadataRequest);
+                        }
+                    });
                 }
                 catch (AmazonServiceException ase)
                 {
@@ -0,0 +1,171 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * The ClassFileConstantPool reads the constant pool at the start of a class file.  Only the Utf8 and Class entries are kept, which is all our
+ * class scanning and JAR packaging need.  The stream is left positioned on the access flags that follow the pool.
+ *
+ * @author Brendan Clemenzi
+ */
+public class ClassFileConstantPool
+{
+    public static final int CLASS_FILE_MAGIC = 0xCAFEBABE;
+
+    private String[] m_utf8Constants;
+    private int[] m_classNameIndexes;
+
+    /**
+     *
+     * @param utf8Constants
+     * @param classNameIndexes
+     */
+    private ClassFileConstantPool(String[] utf8Constants, int[] classNameIndexes)
+    {
+        m_utf8Constants = utf8Constants;
+        m_classNameIndexes = classNameIndexes;
+    }
+
+    /**
+     * Read the header and constant pool of a class file, returning null when the stream isn't a class file
+     *
+     * @param input
+     * @return
+     * @throws IOException
+     */
+    public static ClassFileConstantPool read(DataInputStream input) throws IOException
+    {
+        if(input.readInt() != CLASS_FILE_MAGIC)
+        {
+            return null;
+        }
+
+        // Skip the minor and major versions
+        input.readUnsignedShort();
+        input.readUnsignedShort();
+
+        int constantPoolCount = input.readUnsignedShort();
+
+        String[] utf8Constants = new String[constantPoolCount];
+        int[] classNameIndexes = new int[constantPoolCount];
+
+        for(int index = 1; index < constantPoolCount; index++)
+        {
+            int tag = input.readUnsignedByte();
+
+            switch(tag)
+            {
+                case 1:     // Utf8
+                    utf8Constants[index] = input.readUTF();
+                    break;
+                case 7:     // Class
+                    classNameIndexes[index] = input.readUnsignedShort();
+                    break;
+                case 8:     // String
+                case 16:    // MethodType
+                case 19:    // Module
+                case 20:    // Package
+                    skipFully(input, 2);
+                    break;
+                case 15:    // MethodHandle
+                    skipFully(input, 3);
+                    break;
+                case 3:     // Integer
+                case 4:     // Float
+                case 9:     // Fieldref
+                case 10:    // Methodref
+                case 11:    // InterfaceMethodref
+                case 12:    // NameAndType
+                case 17:    // Dynamic
+                case 18:    // InvokeDynamic
+                    skipFully(input, 4);
+                    break;
+                case 5:     // Long
+                case 6:     // Double
+                    skipFully(input, 8);
+                    index++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag: " + tag);
+            }
+        }
+
+        return new ClassFileConstantPool(utf8Constants, classNameIndexes);
+    }
+
+    /**
+     *
+     * @param index
+     * @return
+     */
+    public String getUtf8(int index)
+    {
+        return m_utf8Constants[index];
+    }
+
+    /**
+     * Returns the internal (slash separated) name of the Class entry at the given index
+     *
+     * @param index
+     * @return
+     */
+    public String getClassName(int index)
+    {
+        return m_utf8Constants[m_classNameIndexes[index]];
+    }
+
+    /**
+     * Returns every Utf8 entry in the pool.  Unused slots are null.
+     *
+     * @return
+     */
+    public String[] getUtf8Constants()
+    {
+        return m_utf8Constants;
+    }
+
+    /**
+     *
+     * @param value
+     * @return
+     */
+    public boolean containsUtf8(String value)
+    {
+        for(String utf8Constant : m_utf8Constants)
+        {
+            if(value.equals(utf8Constant))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * DataInputStream.skipBytes may skip fewer bytes than asked for, so keep skipping until we have them all
+     *
+     * @param input
+     * @param byteCount
+     * @throws IOException
+     */
+    public static void skipFully(DataInputStream input, int byteCount) throws IOException
+    {
+        int remaining = byteCount;
+
+        while(remaining > 0)
+        {
+            int skipped = input.skipBytes(remaining);
+
+            if(skipped <= 0)
+            {
+                // Fall back to reading a byte, which also tells us when the class file ends early
+                input.readByte();
+                skipped = 1;
+            }
+
+            remaining -= skipped;
+        }
+    }
+}
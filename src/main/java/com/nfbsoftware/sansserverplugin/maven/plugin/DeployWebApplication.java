@@ -226,7 +226,7 @@ public class DeployWebApplication extends AbstractMojo
 
             w.write(defaultJavascript.toString());
         }
-        catch (IOException e)
+        catch (Exception e)
         {
             throw new MojoExecutionException("Error creating file " + touch, e);
         }
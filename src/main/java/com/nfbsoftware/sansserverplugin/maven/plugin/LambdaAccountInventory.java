@@ -0,0 +1,253 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.amazonaws.services.apigateway.model.GetRestApiResult;
+import com.amazonaws.services.apigateway.model.Resource;
+import com.amazonaws.services.cloudwatchevents.model.Rule;
+import com.amazonaws.services.lambda.model.FunctionConfiguration;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonCloudWatchEventUtility;
+import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonGatewayUtility;
+import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonLambdaUtility;
+import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonRequestExecutor;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
+
+/**
+ * The LambdaAccountInventory is a snapshot of what is deployed for our environment, taken once at the start of a deploy:  every Lambda function
+ * carrying our environment prefix with its configuration and the statement ids of its resource policy, the CloudWatch Events rules we created for
+ * them, plus our REST API and its resource tree.  The deployment plan is worked out against this snapshot instead of looking each function and
+ * resource up as it is deployed.
+ *
+ * @author Brendan Clemenzi
+ */
+public class LambdaAccountInventory
+{
+    public static final String EVENT_RULE_DESCRIPTION_PREFIX = "SansServer ";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private Map<String, FunctionConfiguration> m_functions = new TreeMap<String, FunctionConfiguration>();
+    private Map<String, Set<String>> m_policyStatementIds = new ConcurrentHashMap<String, Set<String>>();
+    private Map<String, Rule> m_rules = new TreeMap<String, Rule>();
+
+    private GetRestApiResult m_restApi;
+    private List<Resource> m_resources = new ArrayList<Resource>();
+
+    /**
+     * Take a snapshot of our environment.  The function list, event rules and REST API are fetched at the same time, then every function's
+     * policy, all on the shared request executor.
+     *
+     * @param logger
+     * @param awsLambdaClient
+     * @param awsGatewayClient
+     * @param amazonCloudWatchEventUtility
+     * @param environmentPrefix
+     * @param projectGatewayName
+     * @return
+     * @throws Exception
+     */
+    public static LambdaAccountInventory load(Log logger, AmazonLambdaUtility awsLambdaClient, AmazonGatewayUtility awsGatewayClient, AmazonCloudWatchEventUtility amazonCloudWatchEventUtility, String environmentPrefix, String projectGatewayName) throws Exception
+    {
+        long startTime = System.currentTimeMillis();
+
+        LambdaAccountInventory inventory = new LambdaAccountInventory();
+
+        // None of these depend on each other, so start them all before waiting on any
+        Future<List<FunctionConfiguration>> functionsFuture = awsLambdaClient.getFunctionsAsync();
+        Future<List<Rule>> rulesFuture = amazonCloudWatchEventUtility.getRulesAsync(environmentPrefix);
+        Future<GetRestApiResult> restApiFuture = awsGatewayClient.getRestApiByNameAsync(projectGatewayName);
+
+        List<FunctionConfiguration> functionConfigurations = AmazonRequestExecutor.await(functionsFuture);
+
+        if(functionConfigurations == null)
+        {
+            throw new Exception("Unable to list the deployed Lambda functions");
+        }
+
+        for(FunctionConfiguration functionConfiguration : functionConfigurations)
+        {
+            // Only functions with our env prefix belong to this deployment
+            if(functionConfiguration.getFunctionName().startsWith(environmentPrefix))
+            {
+                inventory.m_functions.put(functionConfiguration.getFunctionName(), functionConfiguration);
+            }
+        }
+
+        Map<String, Future<String>> policyFutures = new HashMap<String, Future<String>>();
+
+        for(String functionName : inventory.m_functions.keySet())
+        {
+            policyFutures.put(functionName, awsLambdaClient.getPolicyAsync(functionName));
+        }
+
+        // The resource tree needs the API id, so it can only start once the API has been found
+        Future<List<Resource>> resourcesFuture = null;
+
+        inventory.m_restApi = AmazonRequestExecutor.await(restApiFuture);
+
+        if(inventory.m_restApi != null)
+        {
+            resourcesFuture = awsGatewayClient.getResourcesAsync(inventory.m_restApi.getId());
+        }
+
+        for(Rule rule : AmazonRequestExecutor.await(rulesFuture))
+        {
+            // Leave alone any rule with our prefix that we didn't create
+            if(StringUtil.emptyIfNull(rule.getDescription()).startsWith(EVENT_RULE_DESCRIPTION_PREFIX))
+            {
+                inventory.m_rules.put(rule.getName(), rule);
+            }
+        }
+
+        for(Map.Entry<String, Future<String>> policyFuture : policyFutures.entrySet())
+        {
+            inventory.m_policyStatementIds.put(policyFuture.getKey(), parseStatementIds(AmazonRequestExecutor.await(policyFuture.getValue())));
+        }
+
+        if(resourcesFuture != null)
+        {
+            inventory.m_resources.addAll(AmazonRequestExecutor.await(resourcesFuture));
+        }
+
+        logger.info("Inventory of " + inventory.m_functions.size() + " Lambda functions, " + inventory.m_rules.size() + " event rules and " + inventory.m_resources.size() + " API resources taken in " + (System.currentTimeMillis() - startTime) + "ms");
+
+        return inventory;
+    }
+
+    /**
+     *
+     * @param policy
+     * @return
+     * @throws Exception
+     */
+    private static Set<String> parseStatementIds(String policy) throws Exception
+    {
+        Set<String> statementIds = new HashSet<String>();
+
+        if(policy != null)
+        {
+            for(JsonNode statement : OBJECT_MAPPER.readTree(policy).path("Statement"))
+            {
+                statementIds.add(statement.path("Sid").asText());
+            }
+        }
+
+        return statementIds;
+    }
+
+    /**
+     * Returns the deployed function with the given name, or null when it hasn't been deployed
+     *
+     * @param functionName
+     * @return
+     */
+    public FunctionConfiguration getFunction(String functionName)
+    {
+        return m_functions.get(functionName);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Map<String, FunctionConfiguration> getFunctions()
+    {
+        return Collections.unmodifiableMap(m_functions);
+    }
+
+    /**
+     *
+     * @param functionName
+     * @param statementId
+     * @return
+     */
+    public boolean hasPolicyStatement(String functionName, String statementId)
+    {
+        Set<String> statementIds = m_policyStatementIds.get(functionName);
+
+        return statementIds != null && statementIds.contains(statementId);
+    }
+
+    /**
+     * Returns the statement ids in the given function's resource policy, or an empty set when it has none
+     *
+     * @param functionName
+     * @return
+     */
+    public Set<String> getPolicyStatementIds(String functionName)
+    {
+        Set<String> statementIds = m_policyStatementIds.get(functionName);
+
+        return statementIds == null ? Collections.<String>emptySet() : Collections.unmodifiableSet(statementIds);
+    }
+
+    /**
+     * Returns the event rule we created with the given name, or null when there is none
+     *
+     * @param ruleName
+     * @return
+     */
+    public Rule getRule(String ruleName)
+    {
+        return m_rules.get(ruleName);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Map<String, Rule> getRules()
+    {
+        return Collections.unmodifiableMap(m_rules);
+    }
+
+    /**
+     * Returns our REST API, or null when it hasn't been created
+     *
+     * @return
+     */
+    public GetRestApiResult getRestApi()
+    {
+        return m_restApi;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public List<Resource> getResources()
+    {
+        return Collections.unmodifiableList(m_resources);
+    }
+
+    /**
+     *
+     * @param pathPart
+     * @return
+     */
+    public Resource getResourceByPathPart(String pathPart)
+    {
+        for(Resource resource : m_resources)
+        {
+            if(pathPart.equals(resource.getPathPart()))
+            {
+                return resource;
+            }
+        }
+
+        return null;
+    }
+}
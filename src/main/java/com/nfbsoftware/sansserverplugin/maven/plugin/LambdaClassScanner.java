@@ -0,0 +1,330 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * The LambdaClassScanner finds our annotated Lambda classes by reading the class files directly.  Only the constant pool and the class
+ * level RuntimeVisibleAnnotations attribute are read, so no class is loaded or initialized while scanning.  Each directory is scanned by its
+ * own fork-join task, so large class trees are walked and parsed in parallel.
+ *
+ * @author Brendan Clemenzi
+ */
+public class LambdaClassScanner
+{
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    private Log m_logger;
+    private Set<String> m_annotationDescriptors = new HashSet<String>();
+
+    /**
+     *
+     * @param logger
+     * @param annotationClasses
+     */
+    public LambdaClassScanner(Log logger, Class<?>... annotationClasses)
+    {
+        m_logger = logger;
+
+        for(Class<?> annotationClass : annotationClasses)
+        {
+            m_annotationDescriptors.add("L" + annotationClass.getName().replace('.', '/') + ";");
+        }
+    }
+
+    /**
+     * Returns the classes carrying one of our annotations, keyed by the absolute path of their class file and sorted by path
+     *
+     * @param classesDirectory
+     * @return
+     * @throws Exception
+     */
+    public Map<String, String> scan(File classesDirectory) throws Exception
+    {
+        Map<String, String> annotatedClasses = new TreeMap<String, String>();
+
+        if(!classesDirectory.isDirectory())
+        {
+            return annotatedClasses;
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        ForkJoinPool forkJoinPool = new ForkJoinPool();
+
+        try
+        {
+            annotatedClasses.putAll(forkJoinPool.invoke(new DirectoryScanTask(classesDirectory.toPath())));
+        }
+        finally
+        {
+            forkJoinPool.shutdown();
+        }
+
+        m_logger.info("Found " + annotatedClasses.size() + " annotated classes in " + (System.currentTimeMillis() - startTime) + "ms");
+
+        return annotatedClasses;
+    }
+
+    /**
+     * Returns the class name of the given class file when it carries one of our annotations, otherwise null
+     *
+     * @param classFile
+     * @return
+     * @throws IOException
+     */
+    public String getAnnotatedClassName(Path classFile) throws IOException
+    {
+        InputStream inputStream = new BufferedInputStream(Files.newInputStream(classFile));
+
+        try
+        {
+            return readAnnotatedClassName(new DataInputStream(inputStream));
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+    /**
+     *
+     * @param input
+     * @return
+     * @throws IOException
+     */
+    private String readAnnotatedClassName(DataInputStream input) throws IOException
+    {
+        ClassFileConstantPool constantPool = ClassFileConstantPool.read(input);
+
+        if(constantPool == null)
+        {
+            return null;
+        }
+
+        boolean hasAnnotationDescriptor = false;
+
+        for(String annotationDescriptor : m_annotationDescriptors)
+        {
+            if(constantPool.containsUtf8(annotationDescriptor))
+            {
+                hasAnnotationDescriptor = true;
+            }
+        }
+
+        // Classes that never mention our annotations can be skipped without reading any further
+        if(!hasAnnotationDescriptor)
+        {
+            return null;
+        }
+
+        // Skip the access flags
+        input.readUnsignedShort();
+
+        String className = constantPool.getClassName(input.readUnsignedShort());
+
+        // Skip the super class and interfaces
+        input.readUnsignedShort();
+        ClassFileConstantPool.skipFully(input, input.readUnsignedShort() * 2);
+
+        // Skip the fields and methods
+        for(int member = 0; member < 2; member++)
+        {
+            int memberCount = input.readUnsignedShort();
+
+            for(int memberIndex = 0; memberIndex < memberCount; memberIndex++)
+            {
+                ClassFileConstantPool.skipFully(input, 6);
+                skipAttributes(input);
+            }
+        }
+
+        int attributeCount = input.readUnsignedShort();
+
+        for(int attributeIndex = 0; attributeIndex < attributeCount; attributeIndex++)
+        {
+            String attributeName = constantPool.getUtf8(input.readUnsignedShort());
+            int attributeLength = input.readInt();
+
+            if(RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName))
+            {
+                int annotationCount = input.readUnsignedShort();
+
+                for(int annotationIndex = 0; annotationIndex < annotationCount; annotationIndex++)
+                {
+                    if(m_annotationDescriptors.contains(constantPool.getUtf8(input.readUnsignedShort())))
+                    {
+                        return className.replace('/', '.');
+                    }
+
+                    skipElementValuePairs(input);
+                }
+
+                return null;
+            }
+
+            ClassFileConstantPool.skipFully(input, attributeLength);
+        }
+
+        return null;
+    }
+
+    /**
+     *
+     * @param input
+     * @throws IOException
+     */
+    private static void skipAttributes(DataInputStream input) throws IOException
+    {
+        int attributeCount = input.readUnsignedShort();
+
+        for(int attributeIndex = 0; attributeIndex < attributeCount; attributeIndex++)
+        {
+            input.readUnsignedShort();
+            ClassFileConstantPool.skipFully(input, input.readInt());
+        }
+    }
+
+    /**
+     *
+     * @param input
+     * @throws IOException
+     */
+    private static void skipElementValuePairs(DataInputStream input) throws IOException
+    {
+        int pairCount = input.readUnsignedShort();
+
+        for(int pairIndex = 0; pairIndex < pairCount; pairIndex++)
+        {
+            input.readUnsignedShort();
+            skipElementValue(input);
+        }
+    }
+
+    /**
+     *
+     * @param input
+     * @throws IOException
+     */
+    private static void skipElementValue(DataInputStream input) throws IOException
+    {
+        int tag = input.readUnsignedByte();
+
+        switch(tag)
+        {
+            case 'e':
+                ClassFileConstantPool.skipFully(input, 4);
+                break;
+            case '@':
+                input.readUnsignedShort();
+                skipElementValuePairs(input);
+                break;
+            case '[':
+                int valueCount = input.readUnsignedShort();
+
+                for(int valueIndex = 0; valueIndex < valueCount; valueIndex++)
+                {
+                    skipElementValue(input);
+                }
+                break;
+            default:
+                ClassFileConstantPool.skipFully(input, 2);
+                break;
+        }
+    }
+
+    /**
+     * Scans the class files of one directory and forks a task for each of its sub-directories
+     */
+    private class DirectoryScanTask extends RecursiveTask<Map<String, String>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private Path m_directory;
+
+        /**
+         *
+         * @param directory
+         */
+        public DirectoryScanTask(Path directory)
+        {
+            m_directory = directory;
+        }
+
+        /**
+         *
+         */
+        @Override
+        protected Map<String, String> compute()
+        {
+            Map<String, String> annotatedClasses = new TreeMap<String, String>();
+            List<DirectoryScanTask> subDirectoryTasks = new ArrayList<DirectoryScanTask>();
+
+            try
+            {
+                DirectoryStream<Path> directoryStream = Files.newDirectoryStream(m_directory);
+
+                try
+                {
+                    for(Path path : directoryStream)
+                    {
+                        if(Files.isDirectory(path))
+                        {
+                            DirectoryScanTask subDirectoryTask = new DirectoryScanTask(path);
+                            subDirectoryTask.fork();
+
+                            subDirectoryTasks.add(subDirectoryTask);
+                        }
+                        else if(path.getFileName().toString().endsWith(".class"))
+                        {
+                            try
+                            {
+                                String className = getAnnotatedClassName(path);
+
+                                if(className != null)
+                                {
+                                    annotatedClasses.put(path.toAbsolutePath().toString(), className);
+                                }
+                            }
+                            catch (IOException e)
+                            {
+                                m_logger.warn("Unable to read class file (" + path + "): " + e.getMessage());
+                            }
+                        }
+                    }
+                }
+                finally
+                {
+                    directoryStream.close();
+                }
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException("Error scanning class files in: " + m_directory, e);
+            }
+
+            for(DirectoryScanTask subDirectoryTask : subDirectoryTasks)
+            {
+                annotatedClasses.putAll(subDirectoryTask.join());
+            }
+
+            return annotatedClasses;
+        }
+    }
+}
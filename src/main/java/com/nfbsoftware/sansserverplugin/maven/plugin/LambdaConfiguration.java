@@ -2,8 +2,10 @@ package com.nfbsoftware.sansserverplugin.maven.plugin;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
@@ -11,11 +13,17 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -31,20 +39,34 @@ import com.amazonaws.services.apigateway.model.PutIntegrationRequest;
 import com.amazonaws.services.apigateway.model.PutIntegrationResponseRequest;
 import com.amazonaws.services.apigateway.model.PutMethodRequest;
 import com.amazonaws.services.apigateway.model.PutMethodResponseRequest;
+import com.amazonaws.services.apigateway.model.PutMode;
 import com.amazonaws.services.apigateway.model.Resource;
+import com.amazonaws.services.cloudwatchevents.model.PutRuleRequest;
+import com.amazonaws.services.cloudwatchevents.model.PutRuleResult;
+import com.amazonaws.services.cloudwatchevents.model.Rule;
+import com.amazonaws.services.cloudwatchevents.model.RuleState;
+import com.amazonaws.services.cloudwatchevents.model.Target;
 import com.amazonaws.services.lambda.model.AddPermissionRequest;
 import com.amazonaws.services.lambda.model.CreateFunctionRequest;
 import com.amazonaws.services.lambda.model.FunctionConfiguration;
-import com.amazonaws.services.lambda.model.GetFunctionResult;
+import com.amazonaws.services.lambda.model.ResourceConflictException;
 import com.amazonaws.services.lambda.model.UpdateFunctionConfigurationRequest;
+import com.amazonaws.util.BinaryUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonCloudWatchEventUtility;
 import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonGatewayUtility;
 import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonLambdaUtility;
+import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonRequestExecutor;
+import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonRequestMetrics;
 import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonS3Utility;
+import com.nfbsoftware.sansserverplugin.maven.plugin.LambdaDeploymentChange.ChangeType;
 import com.nfbsoftware.sansserverplugin.sdk.annotation.AwsLambda;
+import com.nfbsoftware.sansserverplugin.sdk.annotation.AwsLambdaScheduled;
 import com.nfbsoftware.sansserverplugin.sdk.annotation.AwsLambdaWithGateway;
+import com.nfbsoftware.sansserverplugin.sdk.annotation.processor.LambdaFunctionProcessor;
+import com.nfbsoftware.sansserverplugin.sdk.lambda.BaseLambdaHandler;
 import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
-import com.nfbsoftware.sansserverplugin.sdk.util.SecureUUID;
 import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
 
 /**
@@ -55,6 +77,15 @@ import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
  */
 public class LambdaConfiguration extends AbstractMojo
 {
+    public static final String PROVISIONING_MODE_RESOURCES = "resources";
+    public static final String PROVISIONING_MODE_OPENAPI = "openapi";
+    
+    public static final String PERMISSION_SCOPE_ROUTE = "route";
+    public static final String PERMISSION_SCOPE_API = "api";
+    
+    public static final int DEFAULT_PING_RATE_MINUTES = 5;
+    public static final int DEFAULT_PING_HOLD_MILLIS = 250;
+    
     private Log m_logger;
     
     private AmazonS3Utility m_amazonS3Utility;
@@ -66,7 +97,17 @@ public class LambdaConfiguration extends AbstractMojo
     
     private Map<String, Class<?>> m_lambdaClassMap = new HashMap<String, Class<?>>();
     
-    private boolean m_hasGateway = false;
+    private LambdaDeploymentManifest m_deploymentManifest;
+    private String m_codeSha256;
+    private LambdaFunctionJarBuilder m_functionJarBuilder;
+    private File m_deploymentJarFile;
+    private String m_deploymentJarKey;
+    private boolean m_deploymentJarUploaded = false;
+    private File m_workingDirectory;
+    private Future<Boolean> m_deploymentJarUpload;
+    
+    private LambdaAccountInventory m_inventory;
+    private Set<String> m_activeRuleNames = Collections.synchronizedSet(new HashSet<String>());
     
     /**
      * Location of the file.
@@ -105,666 +146,1774 @@ public class LambdaConfiguration extends AbstractMojo
      */
     public void execute() throws MojoExecutionException
     {
+        // Grab a handle to our logger
+        m_logger = getLog();
+        m_workingDirectory = outputDirectory;
+        
+        // Only this goal's AWS calls belong in its report
+        AmazonRequestMetrics.getInstance().reset();
+        
+        LambdaDeploymentReport deploymentReport = new LambdaDeploymentReport(m_logger, getGoalName());
+        
         try
         {
-            // Grab a handle to our logger
-            m_logger = getLog();
+            deploymentReport.startPhase("initialize");
             
             m_logger.info("Loading SansServer build.properties file");
             File propertiesFile = new File(rootDirectory.getAbsolutePath() + "/build.properties");
             InputStream inStream = new FileInputStream(propertiesFile);
             m_properties.load(inStream);
             
-            m_logger.info("Loading properties");
-            String deploymentFolder = m_properties.getProperty(Entity.FrameworkProperties.AWS_S3_DEPLOYMENT_FOLDER);
-            
-            m_logger.info("Initializing AWS S3");
-            m_amazonS3Utility = new AmazonS3Utility(m_logger, m_properties);
-            
-            m_logger.info("Initializing AWS Gateway API");
-            m_awsGatewayClient = new AmazonGatewayUtility(m_logger, m_properties);
-            
-            m_logger.info("Initializing AWS Cloud Watch Event Utility");
-            m_amazonCloudWatchEventUtility = new AmazonCloudWatchEventUtility(m_logger, m_properties);
-            
-            m_logger.info("Initializing AWS Lambda");
-            m_awsLambdaClient = new AmazonLambdaUtility(m_logger, m_properties);
+            deploymentReport.startPhase("scan");
             
             m_logger.info("Search for Lambda functions");
             List<String> lambdaClassFiles = getClassFileList();
             
-            // Only upload our Lambda code if there is some
             if(!lambdaClassFiles.isEmpty())
             {
-                String jarFileName = generateDeploymentJarFileName();
-                File jarFile = new File(outputDirectory.getAbsolutePath() + "/" + jarFileName);
+                deploymentReport.startPhase("package");
                 
-                m_logger.info("Uploading Lambda JAR to S3: " + jarFileName);
-                m_amazonS3Utility.uploadFile(deploymentFolder, jarFileName, jarFile);
-                
-                m_logger.info("Configure SansServer Lambda functions");
-                configureLambdaFunctions(lambdaClassFiles);
-                
-                m_logger.info("Clean old old Lambda functions");
-                cleanUpOldLambdaFunctions(lambdaClassFiles);
-                
-                m_logger.info("Deleting Lambda JAR from S3: " + jarFileName);
-                m_amazonS3Utility.deleteFile(deploymentFolder, jarFileName);
+                // Every region deploys the same JAR, so it is only hashed once
+                m_codeSha256 = LambdaDeploymentManifest.computeCodeSha256(new File(outputDirectory.getAbsolutePath() + "/" + generateDeploymentJarFileName()));
+                m_logger.info("Lambda JAR CodeSha256: " + m_codeSha256);
+            }
+            
+            List<String> regionNames = getDeploymentRegions();
+            
+            if(regionNames.isEmpty())
+            {
+                deployRegion(lambdaClassFiles, deploymentReport);
+            }
+            else
+            {
+                deployRegions(regionNames, lambdaClassFiles, deploymentReport);
             }
         }
         catch (Exception e)
         {
+            deploymentReport.setFailure(e);
+            
             e.printStackTrace();
             
             throw new MojoExecutionException("Error processing LambdaGatewayApiConfiguration plugin", e);
         }
-    }
-
-    /**
-     * 
-     * @return
-     */
-    private String generateDeploymentJarFileName()
-    {
-        String jarFileName = projectName + "-" + projectVersion + ".jar";
-        return jarFileName;
+        finally
+        {
+            writeDeploymentReport(deploymentReport);
+        }
     }
     
     /**
+     * Deploy our functions to the region in our properties
      * 
      * @param lambdaClassFiles
+     * @param deploymentReport
      * @throws Exception
      */
-    private void cleanUpOldLambdaFunctions(List<String> lambdaClassFiles) throws Exception
+    private void deployRegion(List<String> lambdaClassFiles, LambdaDeploymentReport deploymentReport) throws Exception
     {
-        Set<String> activeFunctionSet = new HashSet<String>();
-        Set<String> activeApiResourceSet = new HashSet<String>();
+        // The initialize and package phases ran once for every region in execute, so ours only cover the work done in this region
+        deploymentReport.startPhase("connect");
         
-        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+        m_logger.info("Loading properties");
+        String deploymentFolder = m_properties.getProperty(Entity.FrameworkProperties.AWS_S3_DEPLOYMENT_FOLDER);
         
-        // Create a generated function name so that we can isolate multiple deployments
-        String projectGatewayName = environmentPrefix + "_GATEWAY";
+        m_logger.info("Initializing AWS S3");
+        m_amazonS3Utility = new AmazonS3Utility(m_logger, m_properties, !isPlanOnly());
         
-        // Loop through our class files to collect the names of our active functions
-        for(String classFileName : lambdaClassFiles)
-        {  
-            // Get our class file from the loader
-            Class classObject = m_lambdaClassMap.get(classFileName);
+        m_logger.info("Initializing AWS Gateway API");
+        m_awsGatewayClient = new AmazonGatewayUtility(m_logger, m_properties);
+        
+        m_logger.info("Initializing AWS Cloud Watch Event Utility");
+        m_amazonCloudWatchEventUtility = new AmazonCloudWatchEventUtility(m_logger, m_properties);
+        
+        m_logger.info("Initializing AWS Lambda");
+        m_awsLambdaClient = new AmazonLambdaUtility(m_logger, m_properties);
+        
+        // Only upload our Lambda code if there is some
+        if(!lambdaClassFiles.isEmpty())
+        {
+            deploymentReport.startPhase("prepare");
             
-            if(classObject.isAnnotationPresent(AwsLambda.class))
+            String jarFileName = generateDeploymentJarFileName();
+            File jarFile = new File(outputDirectory.getAbsolutePath() + "/" + jarFileName);
+            
+            m_logger.info("Loading deployment manifest");
+            m_deploymentManifest = new LambdaDeploymentManifest(m_logger, generateDeploymentManifestFileName());
+            m_deploymentManifest.load(m_amazonS3Utility, deploymentFolder);
+            
+            if(isSlimJarsEnabled())
             {
-                AwsLambda awsLambdaAnnotation = (AwsLambda)classObject.getAnnotation(AwsLambda.class);
+                // Each function gets its own JAR, uploaded as it is deployed
+                m_logger.info("Packaging slim Lambda JARs from: " + jarFileName);
+                m_functionJarBuilder = new LambdaFunctionJarBuilder(m_logger, m_properties, jarFile);
+            }
+            else
+            {
+                // The shared JAR is only uploaded once a function actually needs new code
+                m_deploymentJarFile = jarFile;
+                m_deploymentJarKey = isContentAddressedJarsEnabled() ? generateContentAddressedJarFileName(projectName + "-" + projectVersion, m_codeSha256) : jarFileName;
                 
-                if(awsLambdaAnnotation != null)
+                // When the last deploy ran different code we'll almost certainly need the JAR, so upload it while we take inventory
+                if(!isPlanOnly() && m_deploymentManifest.hasCodeSha256Changed(m_codeSha256))
                 {
-                    String generatedlambdaName = StringUtil.replaceSubstr(environmentPrefix + "_" + awsLambdaAnnotation.name(), " ", "");
-                    
-                    activeFunctionSet.add(generatedlambdaName);
+                    m_logger.info("Uploading Lambda JAR to S3 in the background: " + m_deploymentJarKey);
+                    m_deploymentJarUpload = m_amazonS3Utility.uploadFileIfChangedAsync(deploymentFolder, m_deploymentJarKey, m_deploymentJarFile);
                 }
             }
-            if(classObject.isAnnotationPresent(AwsLambdaWithGateway.class))
+            
+            String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+            
+            LambdaDeploymentExecutor deploymentExecutor = new LambdaDeploymentExecutor(m_logger, m_properties);
+            boolean deploymentFinished = false;
+            
+            try
             {
-                AwsLambdaWithGateway awsLambdaWithGatewayAnnotation = (AwsLambdaWithGateway)classObject.getAnnotation(AwsLambdaWithGateway.class);
+                deploymentReport.startPhase("inventory");
                 
-                if(awsLambdaWithGatewayAnnotation != null)
+                m_logger.info("Taking inventory of deployed Lambda functions and API resources");
+                m_inventory = LambdaAccountInventory.load(m_logger, m_awsLambdaClient, m_awsGatewayClient, m_amazonCloudWatchEventUtility, environmentPrefix, environmentPrefix + "_GATEWAY");
+                
+                deploymentReport.startPhase("plan");
+                
+                m_logger.info("Planning SansServer Lambda deployment");
+                LambdaDeploymentPlan deploymentPlan = planDeployment(lambdaClassFiles, deploymentExecutor);
+                deploymentPlan.log(m_logger);
+                deploymentReport.setDeploymentPlan(deploymentPlan);
+                
+                if(isPlanOnly())
                 {
-                    String generatedlambdaName = StringUtil.replaceSubstr(environmentPrefix + "_" + awsLambdaWithGatewayAnnotation.name(), " ", "");
-                    
-                    activeFunctionSet.add(generatedlambdaName);
-                    activeApiResourceSet.add(awsLambdaWithGatewayAnnotation.resourceName());
+                    deploymentFinished = true;
+                    return;
                 }
+                
+                deploymentReport.startPhase("apply");
+                
+                m_logger.info("Applying SansServer Lambda deployment");
+                applyDeploymentPlan(deploymentPlan, deploymentExecutor);
+                
+                deploymentFinished = true;
             }
-        }
-        
-        // Loop through the API resources to delete ones that are no longer needed
-        GetRestApiResult restApiResult = m_awsGatewayClient.getRestApiByName(projectGatewayName);
-        
-        if(restApiResult != null)
-        {
-            List<Resource> deployedResources = m_awsGatewayClient.getResources(restApiResult.getId());
-            
-            for(Resource resource : deployedResources)
+            finally
             {
-                if(!StringUtil.isNullOrEmpty(resource.getPathPart()))
+                // After a failure there is no point waiting on the tasks still queued, so cancel them and report it right away
+                if(deploymentFinished)
                 {
-                    if(!activeApiResourceSet.contains(resource.getPathPart()))
-                    {
-                        // Sleep for a 10th of a second as to not overload our AWS throttling limits
-                        Thread.sleep(1000);
-                        
-                        m_logger.info("Deleting API Resource: " + resource.getId() + "  " + resource.getPathPart());
-                        m_awsGatewayClient.deleteResource(restApiResult.getId(), resource.getId());
-                    }
+                    deploymentExecutor.shutdown();
+                }
+                else
+                {
+                    deploymentExecutor.cancel();
+                }
+                
+                if(m_functionJarBuilder != null)
+                {
+                    m_functionJarBuilder.close();
                 }
             }
-        }
-        
-        // Loop through deployed functions to see which ones we should delete
-        List<FunctionConfiguration> functionConfigurations = m_awsLambdaClient.getFunctions();
-        
-        for(FunctionConfiguration functionConfiguration : functionConfigurations)
-        {
-            String functionName = functionConfiguration.getFunctionName();
             
-            // Only delete functions with our env prefix
-            if(functionName.startsWith(environmentPrefix))
+            deploymentReport.startPhase("finalize");
+            
+            m_logger.info("Saving deployment manifest");
+            m_deploymentManifest.save(m_amazonS3Utility, deploymentFolder, m_workingDirectory, getActiveFunctionNames(lambdaClassFiles));
+            
+            // A background upload no function ended up needing still has to finish before we can clean it up
+            if(m_deploymentJarUpload != null)
             {
-                // Make sure this function isn't on our active deploy list
-                if(!activeFunctionSet.contains(functionName))
-                {
-                    // Sleep for a 10th of a second as to not overload our AWS throttling limits
-                    Thread.sleep(1000);
-                    
-                    m_logger.info("Deleting Lambda Function: " + functionName);
-                    m_awsLambdaClient.deleteFunction(functionName);
-                }
+                uploadDeploymentJar(deploymentFolder);
+            }
+            
+            // Content addressed JARs stay in the deployment folder so a rollback can reuse them
+            if(m_deploymentJarUploaded && !isContentAddressedJarsEnabled())
+            {
+                m_logger.info("Deleting Lambda JAR from S3: " + m_deploymentJarKey);
+                m_amazonS3Utility.deleteFile(deploymentFolder, m_deploymentJarKey);
             }
         }
     }
     
     /**
+     * Deploy to each of the given regions at the same time.  Every region gets its own copy of our properties, with any
+     * aws.regions.{region}.{property} overrides applied, and its own AWS clients and deployment plan.  The scanned functions and the
+     * built JAR are shared, so the deploy takes as long as the slowest region rather than the sum of them.
      * 
+     * @param regionNames
      * @param lambdaClassFiles
+     * @param deploymentReport
      * @throws Exception
      */
-    private void configureLambdaFunctions(List<String> lambdaClassFiles) throws Exception
+    private void deployRegions(List<String> regionNames, final List<String> lambdaClassFiles, LambdaDeploymentReport deploymentReport) throws Exception
     {
-        // Loop through our class files
-        for(String classFileName : lambdaClassFiles)
-        {            
-            // Get our class file from the loader
-            Class classObject = m_lambdaClassMap.get(classFileName);
+        deploymentReport.startPhase("regions");
+        
+        Map<String, LambdaConfiguration> regionDeployments = new LinkedHashMap<String, LambdaConfiguration>();
+        Map<String, String> regionBuckets = new HashMap<String, String>();
+        
+        for(String regionName : regionNames)
+        {
+            LambdaConfiguration regionDeployment = createRegionDeployment(regionName);
+            String bucketName = StringUtil.emptyIfNull(regionDeployment.m_properties.getProperty(Entity.FrameworkProperties.AWS_S3_BUCKET_NAME));
             
-            // process our AwsLambda annotations
-            if(classObject.isAnnotationPresent(AwsLambda.class))
+            // Lambda only deploys code from a bucket in the function's own region
+            if(regionBuckets.containsKey(bucketName))
             {
-                AwsLambda awsLambdaAnnotation = (AwsLambda)classObject.getAnnotation(AwsLambda.class);
-                
-                if(awsLambdaAnnotation != null)
-                {
-                    deployLambdaFunction(classFileName, awsLambdaAnnotation.name(), awsLambdaAnnotation.desc(), awsLambdaAnnotation.handlerMethod(), awsLambdaAnnotation.memorySize(), awsLambdaAnnotation.timeout(), awsLambdaAnnotation.enablePing());
-                }
+                throw new Exception("Regions " + regionBuckets.get(bucketName) + " and " + regionName + " share the S3 bucket (" + bucketName + "), set " + Entity.FrameworkProperties.AWS_REGIONS + "." + regionName + "." + Entity.FrameworkProperties.AWS_S3_BUCKET_NAME + " to a bucket in that region");
             }
-            if(classObject.isAnnotationPresent(AwsLambdaWithGateway.class))
+            
+            regionBuckets.put(bucketName, regionName);
+            regionDeployments.put(regionName, regionDeployment);
+        }
+        
+        ExecutorService regionExecutor = Executors.newFixedThreadPool(regionDeployments.size());
+        Map<String, Future<Void>> regionFutures = new LinkedHashMap<String, Future<Void>>();
+        
+        try
+        {
+            for(Map.Entry<String, LambdaConfiguration> regionDeployment : regionDeployments.entrySet())
             {
-                AwsLambdaWithGateway awsLambdaWithGatewayAnnotation = (AwsLambdaWithGateway)classObject.getAnnotation(AwsLambdaWithGateway.class);
+                final LambdaConfiguration finalRegionDeployment = regionDeployment.getValue();
+                final LambdaDeploymentReport regionReport = new LambdaDeploymentReport(finalRegionDeployment.m_logger, getGoalName());
                 
-                if(awsLambdaWithGatewayAnnotation != null)
+                deploymentReport.addRegionReport(regionDeployment.getKey(), regionReport);
+                
+                regionFutures.put(regionDeployment.getKey(), regionExecutor.submit(new Callable<Void>()
                 {
-                    // Deploy out Lambda function
-                    deployLambdaFunction(classFileName, awsLambdaWithGatewayAnnotation.name(), awsLambdaWithGatewayAnnotation.desc(), awsLambdaWithGatewayAnnotation.handlerMethod(), awsLambdaWithGatewayAnnotation.memorySize(), awsLambdaWithGatewayAnnotation.timeout(), awsLambdaWithGatewayAnnotation.enablePing());
-                    
-                    // Make sure we have our API Gateway to link our Lambda functions to
-                    if(!m_hasGateway)
+                    public Void call() throws Exception
                     {
-                        createAPIGateway();
+                        try
+                        {
+                            finalRegionDeployment.deployRegion(lambdaClassFiles, regionReport);
+                        }
+                        catch (Exception e)
+                        {
+                            regionReport.setFailure(e);
+                            throw e;
+                        }
+                        finally
+                        {
+                            regionReport.endPhase();
+                        }
+                        
+                        return null;
                     }
-                    
-                    // TODO finish the API integration because at the time of this writing there was no support for Lambda configurations in the AWS SDK
-                    deployGatewayAPIforLambdaFunction(classFileName, awsLambdaWithGatewayAnnotation.name(), awsLambdaWithGatewayAnnotation);
+                }));
+            }
+            
+            // Let every region finish before reporting the ones that failed
+            List<String> failedRegions = new ArrayList<String>();
+            
+            for(Map.Entry<String, Future<Void>> regionFuture : regionFutures.entrySet())
+            {
+                try
+                {
+                    AmazonRequestExecutor.await(regionFuture.getValue());
+                }
+                catch (Exception e)
+                {
+                    m_logger.error("Deployment to " + regionFuture.getKey() + " failed", e);
+                    failedRegions.add(regionFuture.getKey());
                 }
             }
+            
+            if(!failedRegions.isEmpty())
+            {
+                throw new Exception("Deployment failed in regions: " + failedRegions);
+            }
         }
-        
-        // Deploy the APIs for public use if we configured a gateway
-        if(m_hasGateway)
+        finally
         {
-            
-            pubishAPIGateway(true);
+            regionExecutor.shutdown();
         }
     }
     
     /**
+     * A copy of this goal that deploys to the given region, sharing our scanned functions and JAR hash
      * 
+     * @param regionName
+     * @return
      * @throws Exception
      */
-    private void createAPIGateway() throws Exception
+    private LambdaConfiguration createRegionDeployment(String regionName) throws Exception
     {
-        // Sleep for a second as to not overload our AWS throttling limits
-        Thread.sleep(1000);
+        LambdaConfiguration regionDeployment = getClass().newInstance();
         
-        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+        regionDeployment.m_logger = new LambdaRegionLog(m_logger, regionName);
+        regionDeployment.outputDirectory = outputDirectory;
+        regionDeployment.rootDirectory = rootDirectory;
+        regionDeployment.projectName = projectName;
+        regionDeployment.projectVersion = projectVersion;
+        regionDeployment.m_lambdaClassMap = m_lambdaClassMap;
+        regionDeployment.m_codeSha256 = m_codeSha256;
         
-        // Generate our environment-based gateway name
-        String projectGatewayName = environmentPrefix + "_GATEWAY";
+        // Files written for one region, like slim JARs and the working copy of its manifest, go in a folder of their own
+        regionDeployment.m_workingDirectory = new File(outputDirectory, regionName);
+        regionDeployment.m_workingDirectory.mkdirs();
         
-        GetRestApiResult restApiResult = m_awsGatewayClient.getRestApiByName(projectGatewayName);
+        regionDeployment.m_properties.putAll(m_properties);
+        regionDeployment.m_properties.setProperty(Entity.FrameworkProperties.AWS_REGION, regionName);
         
-        if(restApiResult != null)
+        String overridePrefix = Entity.FrameworkProperties.AWS_REGIONS + "." + regionName + ".";
+        
+        for(String propertyKey : m_properties.stringPropertyNames())
         {
-            m_hasGateway = true;
+            if(propertyKey.startsWith(overridePrefix))
+            {
+                regionDeployment.m_properties.setProperty(propertyKey.substring(overridePrefix.length()), m_properties.getProperty(propertyKey));
+            }
         }
-        else
+        
+        return regionDeployment;
+    }
+    
+    /**
+     * The regions listed in aws.regions, or an empty list to deploy only to aws.region
+     * 
+     * @return
+     */
+    private List<String> getDeploymentRegions()
+    {
+        List<String> regionNames = new ArrayList<String>();
+        
+        for(String regionName : StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_REGIONS)).split(","))
         {
-            // Create our new API
-            CreateRestApiRequest createRestApiRequest = new CreateRestApiRequest();
-            createRestApiRequest.setName(projectGatewayName);
-            createRestApiRequest.setDescription("Auto-generated API for " + projectGatewayName);
-            
-            // Create our api
-            m_awsGatewayClient.createRestApi(createRestApiRequest);
-            
-            m_hasGateway = true;
+            if(!StringUtil.isNullOrEmpty(regionName.trim()) && !regionNames.contains(regionName.trim()))
+            {
+                regionNames.add(regionName.trim());
+            }
         }
+        
+        return regionNames;
     }
     
     /**
      * 
-     * @throws Exception
+     * @return
      */
-    private void pubishAPIGateway(boolean allowRetry) throws Exception
+    private String getGoalName()
+    {
+        return isPlanOnly() ? "plan" : "deploy-lambda";
+    }
+    
+    /**
+     * A report we can't write shouldn't fail the deploy it describes
+     * 
+     * @param deploymentReport
+     */
+    private void writeDeploymentReport(LambdaDeploymentReport deploymentReport)
     {
-        // Sleep for a second as to not overload our AWS throttling limits
-        Thread.sleep(1000);
-        
         String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
-        String deploymentStage = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_STAGE));
-        
-        // Generate our environment-based gateway name
-        String projectGatewayName = environmentPrefix + "_GATEWAY";
         
-        GetRestApiResult restApiResult = m_awsGatewayClient.getRestApiByName(projectGatewayName);
-        
-        if(restApiResult != null)
+        try
         {
-            try
-            {
-                m_logger.info("Deploying (" + restApiResult.getName() + ") API Gateway for public consumption: " + restApiResult.getId());
-                
-                CreateDeploymentRequest createDeploymentRequest = new CreateDeploymentRequest();
-                createDeploymentRequest.setRestApiId(restApiResult.getId());
-                createDeploymentRequest.setStageName(deploymentStage);
-                createDeploymentRequest.setStageDescription(deploymentStage + " deployment stage created by the SansServerPlugin");
-                
-                m_awsGatewayClient.createDeployment(createDeploymentRequest);
-                
-                m_logger.info("Gateway API (" + restApiResult.getName() + ") has been deployed: " + restApiResult.getId());
-            }
-            catch (Exception e)
-            {
-                if(allowRetry)
-                {
-                    m_logger.error("Failed to deploy Gateway API (" + restApiResult.getName() + ") retrying in 2 seconds: " + restApiResult.getId());
-                    
-                    // Sleep for a second as to not overload our AWS throttling limits
-                    Thread.sleep(2000);
-                    
-                    pubishAPIGateway(false);
-                }
-                else
-                {
-                    m_logger.error("Failed to deploy Gateway API (" + restApiResult.getName() + ") for a second time: " + restApiResult.getId());
-                }
-            }
+            deploymentReport.write(new File(outputDirectory, environmentPrefix + "-deploy-report.json"));
+        }
+        catch (Exception e)
+        {
+            m_logger.warn("Unable to write the deploy report: " + e.getMessage());
         }
     }
+
+    /**
+     * When true, the deployment plan is logged and nothing is changed in AWS
+     * 
+     * @return
+     */
+    protected boolean isPlanOnly()
+    {
+        return false;
+    }
     
     /**
      * 
-     * @param awsLambdaWithGatewayAnnotation
+     * @return
      */
-    private void deployGatewayAPIforLambdaFunction(String classFileName, String name, AwsLambdaWithGateway awsLambdaWithGatewayAnnotation) throws Exception
+    private boolean isSlimJarsEnabled()
+    {
+        return Boolean.parseBoolean(StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_LAMBDA_SLIM_JARS)).trim());
+    }
+    
+    /**
+     * 
+     * @return
+     */
+    private boolean isContentAddressedJarsEnabled()
+    {
+        return Boolean.parseBoolean(StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_S3_CONTENT_ADDRESSED_JARS)).trim());
+    }
+    
+    /**
+     * Names a JAR after its content so the same code always maps to the same S3 object
+     * 
+     * @param baseName
+     * @param codeSha256
+     * @return
+     */
+    private String generateContentAddressedJarFileName(String baseName, String codeSha256)
     {
-        // Sleep for a 1/2 a second as to not overload our AWS throttling limits
-        Thread.sleep(2000);
+        String contentHash = BinaryUtils.toHex(BinaryUtils.fromBase64(codeSha256)).substring(0, 16);
         
+        return baseName + "-" + contentHash + ".jar";
+    }
+    
+    /**
+     * 
+     * @return
+     */
+    private String generateDeploymentJarFileName()
+    {
+        String jarFileName = projectName + "-" + projectVersion + ".jar";
+        return jarFileName;
+    }
+    
+    /**
+     * 
+     * @return
+     */
+    private String generateDeploymentManifestFileName()
+    {
         String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
-        String regionName = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_REGION));
-        String accountId = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_ACCOUNT_ID));
-        String stageName = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_STAGE));
         
-        // Create a generated function name so that we can isolate multiple deployments
-        String projectGatewayName = environmentPrefix + "_GATEWAY";
-        String generatedlambdaName = StringUtil.replaceSubstr(environmentPrefix + "_" + name, " ", "");
+        String manifestFileName = environmentPrefix + "-deployment-manifest.properties";
+        return manifestFileName;
+    }
+    
+    /**
+     * 
+     * @param lambdaClassFiles
+     * @return
+     */
+    private Set<String> getActiveFunctionNames(List<String> lambdaClassFiles)
+    {
+        Set<String> activeFunctionSet = new HashSet<String>();
+        
+        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+        
+        for(String classFileName : lambdaClassFiles)
+        {
+            Class classObject = m_lambdaClassMap.get(classFileName);
+            
+            if(classObject.isAnnotationPresent(AwsLambda.class))
+            {
+                AwsLambda awsLambdaAnnotation = (AwsLambda)classObject.getAnnotation(AwsLambda.class);
+                
+                activeFunctionSet.add(StringUtil.replaceSubstr(environmentPrefix + "_" + awsLambdaAnnotation.name(), " ", ""));
+            }
+            if(classObject.isAnnotationPresent(AwsLambdaWithGateway.class))
+            {
+                AwsLambdaWithGateway awsLambdaWithGatewayAnnotation = (AwsLambdaWithGateway)classObject.getAnnotation(AwsLambdaWithGateway.class);
+                
+                activeFunctionSet.add(StringUtil.replaceSubstr(environmentPrefix + "_" + awsLambdaWithGatewayAnnotation.name(), " ", ""));
+            }
+            if(classObject.isAnnotationPresent(AwsLambdaScheduled.class))
+            {
+                AwsLambdaScheduled awsLambdaScheduledAnnotation = (AwsLambdaScheduled)classObject.getAnnotation(AwsLambdaScheduled.class);
+                
+                activeFunctionSet.add(StringUtil.replaceSubstr(environmentPrefix + "_" + awsLambdaScheduledAnnotation.name(), " ", ""));
+            }
+        }
+        
+        return activeFunctionSet;
+    }
+    
+    /**
+     * Work out every change needed to bring our environment in line with the annotated classes.  Nothing is changed in AWS while planning,
+     * every comparison is made against our inventory.
+     *
+     * @param lambdaClassFiles
+     * @param deploymentExecutor
+     * @return
+     * @throws Exception
+     */
+    private LambdaDeploymentPlan planDeployment(List<String> lambdaClassFiles, LambdaDeploymentExecutor deploymentExecutor) throws Exception
+    {
+        final LambdaDeploymentPlan deploymentPlan = new LambdaDeploymentPlan();
+
+        final String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+        String deploymentStage = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_STAGE));
+        String projectGatewayName = environmentPrefix + "_GATEWAY";
+
+        List<Future<Void>> planningFutures = new ArrayList<Future<Void>>();
+        boolean hasGatewayFunctions = false;
+
+        // Each function is planned independently, so slim JARs are packaged in parallel
+        for(final String classFileName : lambdaClassFiles)
+        {
+            // Get our class file from the loader
+            Class classObject = m_lambdaClassMap.get(classFileName);
+
+            // process our AwsLambda annotations
+            if(classObject.isAnnotationPresent(AwsLambda.class))
+            {
+                final AwsLambda awsLambdaAnnotation = (AwsLambda)classObject.getAnnotation(AwsLambda.class);
+
+                if(awsLambdaAnnotation != null)
+                {
+                    planningFutures.add(deploymentExecutor.submit(new Callable<Void>()
+                    {
+                        public Void call() throws Exception
+                        {
+                            planLambdaFunction(deploymentPlan, classFileName, awsLambdaAnnotation.name(), awsLambdaAnnotation.desc(), awsLambdaAnnotation.handlerMethod(), awsLambdaAnnotation.memorySize(), awsLambdaAnnotation.timeout(), awsLambdaAnnotation.enablePing(), awsLambdaAnnotation.warmConcurrency());
+                            return null;
+                        }
+                    }));
+                }
+            }
+            if(classObject.isAnnotationPresent(AwsLambdaWithGateway.class))
+            {
+                final AwsLambdaWithGateway awsLambdaWithGatewayAnnotation = (AwsLambdaWithGateway)classObject.getAnnotation(AwsLambdaWithGateway.class);
+
+                if(awsLambdaWithGatewayAnnotation != null)
+                {
+                    planningFutures.add(deploymentExecutor.submit(new Callable<Void>()
+                    {
+                        public Void call() throws Exception
+                        {
+                            planLambdaFunction(deploymentPlan, classFileName, awsLambdaWithGatewayAnnotation.name(), awsLambdaWithGatewayAnnotation.desc(), awsLambdaWithGatewayAnnotation.handlerMethod(), awsLambdaWithGatewayAnnotation.memorySize(), awsLambdaWithGatewayAnnotation.timeout(), awsLambdaWithGatewayAnnotation.enablePing(), awsLambdaWithGatewayAnnotation.warmConcurrency());
+                            return null;
+                        }
+                    }));
+
+                    hasGatewayFunctions = true;
+                }
+            }
+            if(classObject.isAnnotationPresent(AwsLambdaScheduled.class))
+            {
+                final AwsLambdaScheduled awsLambdaScheduledAnnotation = (AwsLambdaScheduled)classObject.getAnnotation(AwsLambdaScheduled.class);
+
+                if(awsLambdaScheduledAnnotation != null)
+                {
+                    planningFutures.add(deploymentExecutor.submit(new Callable<Void>()
+                    {
+                        public Void call() throws Exception
+                        {
+                            planLambdaFunction(deploymentPlan, classFileName, awsLambdaScheduledAnnotation.name(), awsLambdaScheduledAnnotation.desc(), awsLambdaScheduledAnnotation.handlerMethod(), awsLambdaScheduledAnnotation.memorySize(), awsLambdaScheduledAnnotation.timeout(), false, "1");
+                            planScheduleRule(deploymentPlan, StringUtil.replaceSubstr(environmentPrefix + "_" + awsLambdaScheduledAnnotation.name(), " ", ""), awsLambdaScheduledAnnotation.cronExpression());
+                            return null;
+                        }
+                    }));
+                }
+            }
+        }
+
+        for(Future<Void> planningFuture : planningFutures)
+        {
+            deploymentExecutor.await(planningFuture);
+        }
+
+        if(hasGatewayFunctions)
+        {
+            planGatewayChanges(deploymentPlan, lambdaClassFiles);
+        }
+
+        planCleanUp(deploymentPlan, lambdaClassFiles);
+
+        // Deploy the APIs for public use once every resource change, including the clean up, has been made
+        if(deploymentPlan.hasChanges(ChangeType.CREATE_REST_API, ChangeType.CREATE_GATEWAY_RESOURCE, ChangeType.IMPORT_GATEWAY_API, ChangeType.DELETE_GATEWAY_RESOURCE))
+        {
+            deploymentPlan.addChange(ChangeType.DEPLOY_STAGE, projectGatewayName, deploymentStage, new Callable<Void>()
+            {
+                public Void call() throws Exception
+                {
+                    pubishAPIGateway();
+                    return null;
+                }
+            });
+        }
+
+        return deploymentPlan;
+    }
+
+    /**
+     * Apply our plan.  The changes to each function are applied in order, with different functions updated in parallel, before the gateway
+     * and clean up changes are applied one at a time.
+     *
+     * @param deploymentPlan
+     * @param deploymentExecutor
+     * @throws Exception
+     */
+    private void applyDeploymentPlan(LambdaDeploymentPlan deploymentPlan, LambdaDeploymentExecutor deploymentExecutor) throws Exception
+    {
+        Map<String, List<LambdaDeploymentChange>> functionChanges = new TreeMap<String, List<LambdaDeploymentChange>>();
+        List<LambdaDeploymentChange> otherChanges = new ArrayList<LambdaDeploymentChange>();
+
+        for(LambdaDeploymentChange change : deploymentPlan.getChanges())
+        {
+            if(change.getChangeType().isFunctionChange())
+            {
+                if(!functionChanges.containsKey(change.getTarget()))
+                {
+                    functionChanges.put(change.getTarget(), new ArrayList<LambdaDeploymentChange>());
+                }
+
+                functionChanges.get(change.getTarget()).add(change);
+            }
+            else
+            {
+                otherChanges.add(change);
+            }
+        }
+
+        List<Future<Void>> functionFutures = new ArrayList<Future<Void>>();
+
+        for(final List<LambdaDeploymentChange> changes : functionChanges.values())
+        {
+            functionFutures.add(deploymentExecutor.submit(new Callable<Void>()
+            {
+                public Void call() throws Exception
+                {
+                    for(LambdaDeploymentChange change : changes)
+                    {
+                        m_logger.info("Applying " + change);
+                        change.apply();
+                    }
+
+                    return null;
+                }
+            }));
+        }
+
+        // The gateway wiring depends on the functions existing, so every function change has to finish first
+        for(Future<Void> functionFuture : functionFutures)
+        {
+            deploymentExecutor.await(functionFuture);
+        }
+
+        for(LambdaDeploymentChange change : otherChanges)
+        {
+            m_logger.info("Applying " + change);
+            change.apply();
+        }
+    }
+
+    /**
+     *
+     * @param deploymentPlan
+     * @param lambdaClassFiles
+     * @throws Exception
+     */
+    private void planGatewayChanges(LambdaDeploymentPlan deploymentPlan, List<String> lambdaClassFiles) throws Exception
+    {
+        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+        final String projectGatewayName = environmentPrefix + "_GATEWAY";
+
+        // Make sure we have our API Gateway to link our Lambda functions to
+        if(m_inventory.getRestApi() == null)
+        {
+            deploymentPlan.addChange(ChangeType.CREATE_REST_API, projectGatewayName, "", new Callable<Void>()
+            {
+                public Void call() throws Exception
+                {
+                    createAPIGateway();
+                    return null;
+                }
+            });
+        }
+
+        // In openapi mode our gateway functions are collected into a single document instead of being wired up one resource at a time
+        final LambdaGatewayApiDefinition gatewayApiDefinition = isOpenApiProvisioningMode() ? new LambdaGatewayApiDefinition(projectGatewayName, m_properties) : null;
+
+        for(final String classFileName : lambdaClassFiles)
+        {
+            Class classObject = m_lambdaClassMap.get(classFileName);
+
+            if(!classObject.isAnnotationPresent(AwsLambdaWithGateway.class))
+            {
+                continue;
+            }
+
+            final AwsLambdaWithGateway awsLambdaWithGatewayAnnotation = (AwsLambdaWithGateway)classObject.getAnnotation(AwsLambdaWithGateway.class);
+            final String generatedlambdaName = StringUtil.replaceSubstr(environmentPrefix + "_" + awsLambdaWithGatewayAnnotation.name(), " ", "");
+
+            planGatewayPermission(deploymentPlan, generatedlambdaName, awsLambdaWithGatewayAnnotation);
+
+            if(gatewayApiDefinition != null)
+            {
+                gatewayApiDefinition.addFunction(generatedlambdaName, awsLambdaWithGatewayAnnotation);
+            }
+            else if(m_inventory.getResourceByPathPart(awsLambdaWithGatewayAnnotation.resourceName()) == null)
+            {
+                deploymentPlan.addChange(ChangeType.CREATE_GATEWAY_RESOURCE, "/" + awsLambdaWithGatewayAnnotation.resourceName(), awsLambdaWithGatewayAnnotation.method().name() + " -> " + generatedlambdaName, new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        // TODO finish the API integration because at the time of this writing there was no support for Lambda configurations in the AWS SDK
+                        deployGatewayAPIforLambdaFunction(classFileName, awsLambdaWithGatewayAnnotation.name(), awsLambdaWithGatewayAnnotation);
+                        return null;
+                    }
+                });
+            }
+        }
+
+        if(gatewayApiDefinition == null)
+        {
+            // The resources mode changes the API behind our document's back, so the next import can't be skipped
+            m_deploymentManifest.setApiDefinitionHash(projectGatewayName, null);
+        }
+        else if(!gatewayApiDefinition.isEmpty())
+        {
+            final String apiDefinitionHash = LambdaDeploymentManifest.computeConfigHash(getGatewayImportMode(), new String(gatewayApiDefinition.toJson(), "UTF-8"));
+            
+            // Importing the same document again would only trigger another stage deployment
+            if(m_inventory.getRestApi() == null || !apiDefinitionHash.equals(m_deploymentManifest.getApiDefinitionHash(projectGatewayName)))
+            {
+                deploymentPlan.addChange(ChangeType.IMPORT_GATEWAY_API, projectGatewayName, gatewayApiDefinition.getFunctions().size() + " functions", new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        importGatewayAPIDefinition(gatewayApiDefinition);
+                        m_deploymentManifest.setApiDefinitionHash(projectGatewayName, apiDefinitionHash);
+                        return null;
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Plan the removal of the API resources and functions that no longer have an annotated class
+     *
+     * @param deploymentPlan
+     * @param lambdaClassFiles
+     * @throws Exception
+     */
+    private void planCleanUp(LambdaDeploymentPlan deploymentPlan, List<String> lambdaClassFiles) throws Exception
+    {
+        Set<String> activeFunctionSet = getActiveFunctionNames(lambdaClassFiles);
+        Set<String> activeApiResourceSet = new HashSet<String>();
+
+        for(String classFileName : lambdaClassFiles)
+        {
+            Class classObject = m_lambdaClassMap.get(classFileName);
+
+            if(classObject.isAnnotationPresent(AwsLambdaWithGateway.class))
+            {
+                AwsLambdaWithGateway awsLambdaWithGatewayAnnotation = (AwsLambdaWithGateway)classObject.getAnnotation(AwsLambdaWithGateway.class);
+
+                activeApiResourceSet.add(awsLambdaWithGatewayAnnotation.resourceName());
+            }
+        }
+
+        // Loop through the API resources to delete ones that are no longer needed
+        if(m_inventory.getRestApi() != null)
+        {
+            final String restApiId = m_inventory.getRestApi().getId();
+
+            Map<String, Resource> deletedResources = new TreeMap<String, Resource>();
+
+            for(Resource resource : m_inventory.getResources())
+            {
+                if(!StringUtil.isNullOrEmpty(resource.getPathPart()) && !activeApiResourceSet.contains(resource.getPathPart()))
+                {
+                    deletedResources.put(resource.getPath(), resource);
+                }
+            }
+
+            String deletedParentPath = null;
+
+            for(final Resource resource : deletedResources.values())
+            {
+                // Deleting a resource deletes everything below it
+                if(deletedParentPath != null && resource.getPath().startsWith(deletedParentPath + "/"))
+                {
+                    continue;
+                }
+
+                deletedParentPath = resource.getPath();
+
+                deploymentPlan.addChange(ChangeType.DELETE_GATEWAY_RESOURCE, resource.getPath(), resource.getId(), new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        m_awsGatewayClient.deleteResource(restApiId, resource.getId());
+                        return null;
+                    }
+                });
+            }
+        }
+
+        // Remove the event rules of functions that no longer use them
+        for(final String ruleName : m_inventory.getRules().keySet())
+        {
+            if(!m_activeRuleNames.contains(ruleName))
+            {
+                deploymentPlan.addChange(ChangeType.DELETE_EVENT_RULE, ruleName, "", new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        m_amazonCloudWatchEventUtility.deleteRule(ruleName);
+                        return null;
+                    }
+                });
+                
+                // The permission the rule was granted stays in its function's policy unless we remove it as well.  Functions being deleted
+                // take their policy with them.
+                final String statementId = generateRuleStatementId(ruleName);
+                
+                for(final String functionName : m_inventory.getFunctions().keySet())
+                {
+                    if(activeFunctionSet.contains(functionName) && m_inventory.hasPolicyStatement(functionName, statementId))
+                    {
+                        deploymentPlan.addChange(ChangeType.REMOVE_EVENT_PERMISSION, functionName, statementId, new Callable<Void>()
+                        {
+                            public Void call() throws Exception
+                            {
+                                m_awsLambdaClient.removePermission(functionName, statementId);
+                                return null;
+                            }
+                        });
+                    }
+                }
+            }
+        }
+        
+        // Loop through deployed functions to see which ones we should delete
+        for(final String functionName : m_inventory.getFunctions().keySet())
+        {
+            // Make sure this function isn't on our active deploy list
+            if(!activeFunctionSet.contains(functionName))
+            {
+                deploymentPlan.addChange(ChangeType.DELETE_FUNCTION, functionName, "", new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        m_awsLambdaClient.deleteFunction(functionName);
+                        return null;
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    private void createAPIGateway() throws Exception
+    {
+        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+
+        // Generate our environment-based gateway name
+        String projectGatewayName = environmentPrefix + "_GATEWAY";
+
+        // Create our new API
+        CreateRestApiRequest createRestApiRequest = new CreateRestApiRequest();
+        createRestApiRequest.setName(projectGatewayName);
+        createRestApiRequest.setDescription("Auto-generated API for " + projectGatewayName);
+
+        // Create our api
+        m_awsGatewayClient.createRestApi(createRestApiRequest);
+    }
+
+    /**
+     * Deploy our stage.  This is the only deployment made per run, so every resource, method and integration change is staged
+     * before it is called.  Throttled deployments are retried with backoff by the gateway utility.
+     * 
+     * @throws Exception
+     */
+    private void pubishAPIGateway() throws Exception
+    {
+        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+        String deploymentStage = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_STAGE));
+        
+        // Generate our environment-based gateway name
+        String projectGatewayName = environmentPrefix + "_GATEWAY";
+        
+        GetRestApiResult restApiResult = m_awsGatewayClient.getRestApiByName(projectGatewayName);
+        
+        if(restApiResult != null)
+        {
+            try
+            {
+                m_logger.info("Deploying (" + restApiResult.getName() + ") API Gateway for public consumption: " + restApiResult.getId());
+                
+                CreateDeploymentRequest createDeploymentRequest = new CreateDeploymentRequest();
+                createDeploymentRequest.setRestApiId(restApiResult.getId());
+                createDeploymentRequest.setStageName(deploymentStage);
+                createDeploymentRequest.setStageDescription(deploymentStage + " deployment stage created by the SansServerPlugin");
+                
+                m_awsGatewayClient.createDeployment(createDeploymentRequest);
+                
+                m_logger.info("Gateway API (" + restApiResult.getName() + ") has been deployed: " + restApiResult.getId());
+            }
+            catch (Exception e)
+            {
+                m_logger.error("Failed to deploy Gateway API (" + restApiResult.getName() + "): " + restApiResult.getId() + "  " + e.getMessage());
+                
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * 
+     * @return
+     */
+    private boolean isOpenApiProvisioningMode()
+    {
+        String provisioningMode = StringUtil.replaceIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_APIGATEWAY_PROVISIONING_MODE), PROVISIONING_MODE_RESOURCES).trim();
+        
+        return PROVISIONING_MODE_OPENAPI.equalsIgnoreCase(provisioningMode);
+    }
+    
+    /**
+     * When true, each function grants API Gateway access to every route of our API with a single statement, instead of one statement for
+     * its own route
+     * 
+     * @return
+     */
+    private boolean isApiPermissionScope()
+    {
+        String permissionScope = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_APIGATEWAY_PERMISSION_SCOPE)).trim();
+        
+        return PERMISSION_SCOPE_API.equalsIgnoreCase(permissionScope);
+    }
+    
+    /**
+     * Every statement we add to grant API Gateway access starts with this prefix, which is how we tell our statements from anyone else's
+     * 
+     * @return
+     */
+    private String getGatewayStatementIdPrefix()
+    {
+        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+        
+        return ("apigateway-" + environmentPrefix + "-").toLowerCase().replaceAll("[^a-z0-9_-]", "-");
+    }
+    
+    /**
+     * Returns true for any statement we added to grant API Gateway access, including the random ids of earlier deploys.  Those were built
+     * from the raw environment prefix rather than our sanitised one, and the ids may come back in any case.
+     * 
+     * @param statementId
+     * @return
+     */
+    private boolean isGatewayStatementId(String statementId)
+    {
+        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+        String lowerCaseStatementId = statementId.toLowerCase();
+        
+        return lowerCaseStatementId.startsWith(getGatewayStatementIdPrefix()) || lowerCaseStatementId.startsWith(("apigateway-" + environmentPrefix + "-").toLowerCase());
+    }
+    
+    /**
+     * The statement id granting API Gateway access to a function is derived from its route, or is the same for every function when access is
+     * granted to the whole API, so it is the same on every deploy
+     * 
+     * @param awsLambdaWithGatewayAnnotation
+     * @return
+     */
+    private String generateGatewayStatementId(AwsLambdaWithGateway awsLambdaWithGatewayAnnotation)
+    {
+        if(isApiPermissionScope())
+        {
+            return getGatewayStatementIdPrefix() + "api";
+        }
+        
+        return getGatewayStatementIdPrefix() + (awsLambdaWithGatewayAnnotation.method().name() + "-" + awsLambdaWithGatewayAnnotation.resourceName()).toLowerCase().replaceAll("[^a-z0-9_-]", "-");
+    }
+    
+    /**
+     * Compare a gateway function's policy with the statement it should have, adding the statement when it is missing and removing any other
+     * statement we added before.  Earlier deploys added statements with random ids for every stage, which only ever grew the policy.
+     * 
+     * @param deploymentPlan
+     * @param generatedlambdaName
+     * @param awsLambdaWithGatewayAnnotation
+     */
+    private void planGatewayPermission(LambdaDeploymentPlan deploymentPlan, final String generatedlambdaName, AwsLambdaWithGateway awsLambdaWithGatewayAnnotation)
+    {
+        final String statementId = generateGatewayStatementId(awsLambdaWithGatewayAnnotation);
+        
+        // One statement with a wildcard stage covers every stage, including the console's test invocations
+        final String sourcePath = isApiPermissionScope() ? "/*" : "/*/" + awsLambdaWithGatewayAnnotation.method().name() + "/" + awsLambdaWithGatewayAnnotation.resourceName();
+        
+        if(!m_inventory.hasPolicyStatement(generatedlambdaName, statementId))
+        {
+            deploymentPlan.addChange(ChangeType.ADD_GATEWAY_PERMISSION, generatedlambdaName, statementId, new Callable<Void>()
+            {
+                public Void call() throws Exception
+                {
+                    addGatewayPermission(generatedlambdaName, statementId, sourcePath);
+                    return null;
+                }
+            });
+        }
+        
+        for(final String deployedStatementId : m_inventory.getPolicyStatementIds(generatedlambdaName))
+        {
+            if(isGatewayStatementId(deployedStatementId) && !deployedStatementId.equals(statementId))
+            {
+                deploymentPlan.addChange(ChangeType.REMOVE_GATEWAY_PERMISSION, generatedlambdaName, deployedStatementId, new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        m_awsLambdaClient.removePermission(generatedlambdaName, deployedStatementId);
+                        return null;
+                    }
+                });
+            }
+        }
+    }
+    
+    /**
+     * Grant API Gateway permission to invoke a function from the given path of our API
+     * 
+     * @param generatedlambdaName
+     * @param statementId
+     * @param sourcePath
+     * @throws Exception
+     */
+    private void addGatewayPermission(String generatedlambdaName, String statementId, String sourcePath) throws Exception
+    {
+        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+        String regionName = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_REGION));
+        String accountId = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_ACCOUNT_ID));
+        
+        GetRestApiResult getRestApiResult = m_awsGatewayClient.getRestApiByName(environmentPrefix + "_GATEWAY");
+        
+        AddPermissionRequest addPermissionRequest = new AddPermissionRequest();
+        addPermissionRequest.setFunctionName(generatedlambdaName);
+        addPermissionRequest.setStatementId(statementId);
+        addPermissionRequest.setAction("lambda:InvokeFunction");
+        addPermissionRequest.setPrincipal("apigateway.amazonaws.com");
+        addPermissionRequest.setSourceArn("arn:aws:execute-api:" + regionName + ":" + accountId + ":" + getRestApiResult.getId() + sourcePath);
+        
+        try
+        {
+            m_awsLambdaClient.addPermission(addPermissionRequest);
+        }
+        catch (ResourceConflictException e)
+        {
+            m_logger.info("Lambda function (" + generatedlambdaName + ") already grants API Gateway access");
+        }
+    }
+    
+    /**
+     * How PutRestApi applies our document to the API, "merge" or "overwrite"
+     * 
+     * @return
+     */
+    private String getGatewayImportMode()
+    {
+        return StringUtil.replaceIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_APIGATEWAY_IMPORT_MODE), PutMode.Merge.toString()).trim().toLowerCase();
+    }
+    
+    /**
+     * Apply all of our gateway functions to the API with one PutRestApi call
+     * 
+     * @param gatewayApiDefinition
+     * @throws Exception
+     */
+    private void importGatewayAPIDefinition(LambdaGatewayApiDefinition gatewayApiDefinition) throws Exception
+    {
+        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+        String importMode = getGatewayImportMode();
+        
+        String projectGatewayName = environmentPrefix + "_GATEWAY";
+        
+        GetRestApiResult getRestApiResult = m_awsGatewayClient.getRestApiByName(projectGatewayName);
+        
+        if(getRestApiResult == null)
+        {
+            throw new Exception("Unable to find REST API: " + projectGatewayName);
+        }
+        
+        byte[] apiDefinition = gatewayApiDefinition.toJson();
+        
+        // Keep a copy of what we imported next to our other build output
+        File apiDefinitionFile = new File(m_workingDirectory, environmentPrefix + "-gateway-openapi.json");
+        OutputStream outputStream = new FileOutputStream(apiDefinitionFile);
+        
+        try
+        {
+            outputStream.write(apiDefinition);
+        }
+        finally
+        {
+            outputStream.close();
+        }
+        
+        m_logger.info("Importing " + gatewayApiDefinition.getFunctions().size() + " gateway functions into (" + projectGatewayName + "): " + apiDefinitionFile.getAbsolutePath());
+        m_awsGatewayClient.putRestApi(getRestApiResult.getId(), apiDefinition, PutMode.fromValue(importMode));
+        
+        m_logger.info("Lambda Gateway API import Complete");
+    }
+    
+    /**
+     * 
+     * @param awsLambdaWithGatewayAnnotation
+     */
+    private void deployGatewayAPIforLambdaFunction(String classFileName, String name, AwsLambdaWithGateway awsLambdaWithGatewayAnnotation) throws Exception
+    {
+        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+        String regionName = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_REGION));
+        String accountId = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_ACCOUNT_ID));
+        
+        // Create a generated function name so that we can isolate multiple deployments
+        String projectGatewayName = environmentPrefix + "_GATEWAY";
+        String generatedlambdaName = StringUtil.replaceSubstr(environmentPrefix + "_" + name, " ", "");
+        
+        m_logger.info("projectGatewayName: " + projectGatewayName);
+        m_logger.info("generatedlambdaName: " + generatedlambdaName);
+        
+        GetRestApiResult getRestApiResult = m_awsGatewayClient.getRestApiByName(projectGatewayName);
+        
+        if(getRestApiResult != null)
+        {
+            Resource resourceObject = m_awsGatewayClient.getResourceByPathPart(getRestApiResult.getId(), awsLambdaWithGatewayAnnotation.resourceName());
+            
+            if(resourceObject != null)
+            {
+                // Update the existing api
+                m_logger.info("Resource (" + awsLambdaWithGatewayAnnotation.resourceName() + ") Found, no updates will be made: " + resourceObject.getId());
+                
+                // TODO Add code to update the various method/integration objects for the resource.
+            }
+            else
+            {
+                m_logger.info("Resource Not Found: " + awsLambdaWithGatewayAnnotation.resourceName());
+                
+                Resource rootResource = m_awsGatewayClient.getResourceByPath(getRestApiResult.getId(), "/");
+                
+                // create a new api resourse
+                CreateResourceRequest createResourceRequest = new CreateResourceRequest();
+                createResourceRequest.setPathPart(awsLambdaWithGatewayAnnotation.resourceName());
+                createResourceRequest.setRestApiId(getRestApiResult.getId());
+                createResourceRequest.setParentId(rootResource.getId());
+                
+                m_logger.info("Creating Resource Request"); 
+                CreateResourceResult createResourceResult = m_awsGatewayClient.createResource(createResourceRequest);
+                
+                if(createResourceResult != null)
+                {
+                    m_logger.info("Create our method with type: " + awsLambdaWithGatewayAnnotation.method().name() + "  authorization: " + awsLambdaWithGatewayAnnotation.authorization().name()); 
+                    PutMethodRequest putMethodRequest = new PutMethodRequest();
+                    putMethodRequest.setRestApiId(getRestApiResult.getId());
+                    putMethodRequest.setResourceId(createResourceResult.getId());
+                    putMethodRequest.setApiKeyRequired(awsLambdaWithGatewayAnnotation.keyRequired());
+                    putMethodRequest.setAuthorizationType(awsLambdaWithGatewayAnnotation.authorization().name());
+                    putMethodRequest.setHttpMethod(awsLambdaWithGatewayAnnotation.method().name());
+                    
+                    m_awsGatewayClient.createMethod(putMethodRequest);
+                    
+                    m_logger.info("Create our integration"); 
+                    PutIntegrationRequest putIntegrationRequest = new PutIntegrationRequest();
+                    putIntegrationRequest.setRestApiId(getRestApiResult.getId());
+                    putIntegrationRequest.setResourceId(createResourceResult.getId());
+                    putIntegrationRequest.setHttpMethod(awsLambdaWithGatewayAnnotation.method().name());
+                    putIntegrationRequest.setType(IntegrationType.AWS);
+                    putIntegrationRequest.setIntegrationHttpMethod(awsLambdaWithGatewayAnnotation.method().name());
+                    
+                    // When using the gateway api, pass through the body, headers, parameters, query string parameters to our lambda functions when the context-type is application/json
+                    putIntegrationRequest.setPassthroughBehavior("WHEN_NO_TEMPLATES");
+                    putIntegrationRequest.addRequestTemplatesEntry("application/json", LambdaGatewayApiDefinition.REQUEST_TEMPLATE);
+                    
+                    String lambdaUriArn = "arn:aws:apigateway:" + regionName + ":lambda:path/2015-03-31/functions/arn:aws:lambda:" + regionName + ":" + accountId + ":function:" + generatedlambdaName + "/invocations";
+                    putIntegrationRequest.setUri(lambdaUriArn);
+                    
+                    m_awsGatewayClient.createIntegration(putIntegrationRequest);
+                    
+                    m_logger.info("Create our method response"); 
+                    PutMethodResponseRequest putMethodResponseRequest = new PutMethodResponseRequest();
+                    putMethodResponseRequest.setRestApiId(getRestApiResult.getId());
+                    putMethodResponseRequest.setResourceId(createResourceResult.getId());
+                    putMethodResponseRequest.setHttpMethod(awsLambdaWithGatewayAnnotation.method().name());
+                    putMethodResponseRequest.setStatusCode("200");
+                    
+                    Map<String, String> responseModels = new HashMap<String, String>();
+                    responseModels.put("application/json", "Empty");
+                    putMethodResponseRequest.setResponseModels(responseModels);
+                    
+                    if(awsLambdaWithGatewayAnnotation.enableCORS())
+                    {
+                        m_logger.info("Enable CORS for our method response"); 
+                        Map<String,Boolean> methodResponseParameters = new HashMap<String,Boolean>();
+                        methodResponseParameters.put("method.response.header.Access-Control-Allow-Origin", new Boolean("true"));
+                        
+                        putMethodResponseRequest.setResponseParameters(methodResponseParameters);
+                    }
+                    
+                    m_awsGatewayClient.createMethodResponse(putMethodResponseRequest);
+                    
+                    m_logger.info("Create our integration response"); 
+                    PutIntegrationResponseRequest putIntegrationResponseRequest = new PutIntegrationResponseRequest();
+                    putIntegrationResponseRequest.setRestApiId(getRestApiResult.getId());
+                    putIntegrationResponseRequest.setResourceId(createResourceResult.getId());
+                    putIntegrationResponseRequest.setHttpMethod(awsLambdaWithGatewayAnnotation.method().name());
+                    putIntegrationResponseRequest.setStatusCode("200");
+                    
+                    if(awsLambdaWithGatewayAnnotation.enableCORS())
+                    {
+                        m_logger.info("Enable CORS for our integration response"); 
+                        String accessControlAllowOrigin = StringUtil.replaceIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_APIGATEWAY_CORS_ORIGIN), "*");
+                        
+                        Map<String,String> integrationResponseParameters = new HashMap<String,String>();
+                        integrationResponseParameters.put("method.response.header.Access-Control-Allow-Origin", "'" + accessControlAllowOrigin + "'");
+                        
+                        putIntegrationResponseRequest.setResponseParameters(integrationResponseParameters);
+                    }
+                    
+                    Map<String, String> responseTemplates = new HashMap<String, String>();
+                    responseTemplates.put("application/json", "");
+                    putIntegrationResponseRequest.setResponseTemplates(responseTemplates);
+                    
+                    m_awsGatewayClient.createIntegrationResponse(putIntegrationResponseRequest);
+                    
+                    // Check if we should enable CORS
+                    if(awsLambdaWithGatewayAnnotation.enableCORS())
+                    {
+                        m_logger.info("Create our method with type: OPTIONS  authorization: NONE"); 
+                        PutMethodRequest putOptionsMethodRequest = new PutMethodRequest();
+                        putOptionsMethodRequest.setRestApiId(getRestApiResult.getId());
+                        putOptionsMethodRequest.setResourceId(createResourceResult.getId());
+                        putOptionsMethodRequest.setApiKeyRequired(false);
+                        putOptionsMethodRequest.setAuthorizationType(AwsLambdaWithGateway.AuthorizationTypes.NONE.toString());
+                        putOptionsMethodRequest.setHttpMethod(AwsLambdaWithGateway.MethodTypes.OPTIONS.toString());
+                        
+                        m_awsGatewayClient.createMethod(putOptionsMethodRequest);
+                        
+                        m_logger.info("Create our integration with type: OPTIONS"); 
+                        PutIntegrationRequest putOptionsIntegrationRequest = new PutIntegrationRequest();
+                        putOptionsIntegrationRequest.setRestApiId(getRestApiResult.getId());
+                        putOptionsIntegrationRequest.setResourceId(createResourceResult.getId());
+                        putOptionsIntegrationRequest.setHttpMethod(AwsLambdaWithGateway.MethodTypes.OPTIONS.toString());
+                        putOptionsIntegrationRequest.setType(IntegrationType.MOCK);
+                        putOptionsIntegrationRequest.setIntegrationHttpMethod(AwsLambdaWithGateway.MethodTypes.OPTIONS.toString());
+                        
+                        Map<String, String> requestIntegrationOptionsTemplates = new HashMap<String, String>();
+                        requestIntegrationOptionsTemplates.put("application/json", "{\"statusCode\": 200}");
+                        putOptionsIntegrationRequest.setRequestTemplates(requestIntegrationOptionsTemplates);
+                        
+                        m_awsGatewayClient.createIntegration(putOptionsIntegrationRequest);
+                        
+                        m_logger.info("Create our method response with type: OPTIONS"); 
+                        PutMethodResponseRequest putOptionsMethodResponseRequest = new PutMethodResponseRequest();
+                        putOptionsMethodResponseRequest.setRestApiId(getRestApiResult.getId());
+                        putOptionsMethodResponseRequest.setResourceId(createResourceResult.getId());
+                        putOptionsMethodResponseRequest.setHttpMethod(AwsLambdaWithGateway.MethodTypes.OPTIONS.toString());
+                        putOptionsMethodResponseRequest.setStatusCode("200");
+                        
+                        Map<String, String> optionsResponseModels = new HashMap<String, String>();
+                        optionsResponseModels.put("application/json", "Empty");
+                        putOptionsMethodResponseRequest.setResponseModels(optionsResponseModels);                            
+                        
+                        m_logger.info("Enable CORS for our OPTIONS method response"); 
+                        Map<String,Boolean> methodOptionsResponseParameters = new HashMap<String,Boolean>();
+                        methodOptionsResponseParameters.put("method.response.header.Access-Control-Allow-Methods", new Boolean("true"));
+                        methodOptionsResponseParameters.put("method.response.header.Access-Control-Allow-Origin", new Boolean("true"));
+                        methodOptionsResponseParameters.put("method.response.header.Access-Control-Allow-Headers", new Boolean("true"));
+                        
+                        putOptionsMethodResponseRequest.setResponseParameters(methodOptionsResponseParameters);
+                        
+                        m_awsGatewayClient.createMethodResponse(putOptionsMethodResponseRequest);
+                        
+                        m_logger.info("Create our integration response"); 
+                        PutIntegrationResponseRequest putOptionsIntegrationResponseRequest = new PutIntegrationResponseRequest();
+                        putOptionsIntegrationResponseRequest.setRestApiId(getRestApiResult.getId());
+                        putOptionsIntegrationResponseRequest.setResourceId(createResourceResult.getId());
+                        putOptionsIntegrationResponseRequest.setHttpMethod(AwsLambdaWithGateway.MethodTypes.OPTIONS.toString());
+                        putOptionsIntegrationResponseRequest.setStatusCode("200");
+                        
+                        m_logger.info("Enable CORS for our OPTIONS integration response"); 
+                        Map<String,String> integrationOptionsResponseParameters = new HashMap<String,String>();
+                        integrationOptionsResponseParameters.put("method.response.header.Access-Control-Allow-Headers", "'Content-Type,X-Amz-Date,Authorization,X-Api-Key,X-Amz-Security-Token'");
+                        integrationOptionsResponseParameters.put("method.response.header.Access-Control-Allow-Methods", "'POST,OPTIONS'");
+                        integrationOptionsResponseParameters.put("method.response.header.Access-Control-Allow-Origin", "'*'");
+                        
+                        putOptionsIntegrationResponseRequest.setResponseParameters(integrationOptionsResponseParameters);
+                        
+                        Map<String, String> responseIntegrationOptionsTemplates = new HashMap<String, String>();
+                        responseIntegrationOptionsTemplates.put("application/json", "Empty");
+                        putOptionsIntegrationResponseRequest.setResponseTemplates(responseIntegrationOptionsTemplates);
+                        
+                        m_awsGatewayClient.createIntegrationResponse(putOptionsIntegrationResponseRequest);
+                    }
+                    
+                    // API Gateway's access to the function is granted by its ADD_GATEWAY_PERMISSION change
+                    m_logger.info("Lambda Gateway API Complete"); 
+                }
+                else
+                {
+                    throw new Exception("Unable to find new REST API resource: " + awsLambdaWithGatewayAnnotation.resourceName());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Compare one function with what our inventory says is deployed, adding a change for its configuration and code only when they differ
+     *
+     * @param deploymentPlan
+     * @param classFileName
+     * @param name
+     * @param description
+     * @param handlerMethod
+     * @param memorySize
+     * @param timeout
+     * @param enablePing
+     * @param warmConcurrency
+     * @throws Exception
+     */
+    private void planLambdaFunction(LambdaDeploymentPlan deploymentPlan, String classFileName, String name, String description, String handlerMethod, String memorySize, String timeout, boolean enablePing, String warmConcurrency) throws Exception
+    {
+        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+        String lambdaRoleArn = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_LAMBDA_ROLE_ARN));
+
+        // Create a generated function name so that we can isolate multiple deployments
+        final String generatedlambdaName = StringUtil.replaceSubstr(environmentPrefix + "_" + name, " ", "");
+        String generatedHandlerName = generateHandlerFunctionName(classFileName, handlerMethod);
+
+        // Classes found by the scanner haven't been through our annotation processor, so check the value before planning anything
+        int warmContainers = enablePing ? parseWarmConcurrency(generatedlambdaName, warmConcurrency) : 1;
+
+        // Hash everything our annotation configures so we can tell when it changes between deployments
+        String configHash = LambdaDeploymentManifest.computeConfigHash(description, lambdaRoleArn, generatedHandlerName, timeout, memorySize, String.valueOf(enablePing));
+
+        // Work out which JAR this function is deployed from
+        String deploymentJarFileName = m_deploymentJarKey;
+        String codeSha256 = m_codeSha256;
+        File functionJarFile = null;
+
+        if(m_functionJarBuilder != null)
+        {
+            functionJarFile = m_functionJarBuilder.writeFunctionJar(m_lambdaClassMap.get(classFileName).getName(), new File(m_workingDirectory, "sansserver-functions/" + generatedlambdaName + ".jar"));
+
+            codeSha256 = LambdaDeploymentManifest.computeCodeSha256(functionJarFile);
+            deploymentJarFileName = isContentAddressedJarsEnabled() ? generateContentAddressedJarFileName(generatedlambdaName + "-" + projectVersion, codeSha256) : generatedlambdaName + "-" + projectVersion + ".jar";
+        }
+
+        final File finalFunctionJarFile = functionJarFile;
+        final String finalDeploymentJarFileName = deploymentJarFileName;
+
+        FunctionConfiguration deployedConfiguration = m_inventory.getFunction(generatedlambdaName);
+
+        if(deployedConfiguration != null)
+        {
+            final UpdateFunctionConfigurationRequest updateFunctionConfigurationRequest = new UpdateFunctionConfigurationRequest();
+            updateFunctionConfigurationRequest.setDescription(description);
+            updateFunctionConfigurationRequest.setRole(lambdaRoleArn);
+            updateFunctionConfigurationRequest.setFunctionName(generatedlambdaName);
+            updateFunctionConfigurationRequest.setHandler(generatedHandlerName);
+            updateFunctionConfigurationRequest.setTimeout(new Integer(timeout));
+            updateFunctionConfigurationRequest.setMemorySize(new Integer(memorySize));
+
+            // Lets look if we have changed the configuration since our last update
+            if(!configHash.equals(m_deploymentManifest.getConfigHash(generatedlambdaName)) || m_awsLambdaClient.hasFunctionConfigChanged(deployedConfiguration, updateFunctionConfigurationRequest))
+            {
+                deploymentPlan.addChange(ChangeType.UPDATE_FUNCTION_CONFIGURATION, generatedlambdaName, memorySize + " MB, " + timeout + " s, " + generatedHandlerName, new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        m_awsLambdaClient.updateFunctionConfiguration(updateFunctionConfigurationRequest);
+                        return null;
+                    }
+                });
+            }
+
+            // Only push new code (and publish a new version) when our JAR differs from the one the function is running
+            String deployedCodeSha256 = deployedConfiguration.getCodeSha256();
+
+            if(!codeSha256.equals(deployedCodeSha256))
+            {
+                deploymentPlan.addChange(ChangeType.UPDATE_FUNCTION_CODE, generatedlambdaName, deployedCodeSha256 + " -> " + codeSha256, new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        uploadFunctionJar(finalFunctionJarFile, finalDeploymentJarFileName);
+
+                        try
+                        {
+                            // Update our function
+                            m_awsLambdaClient.updateFunction(finalDeploymentJarFileName, generatedlambdaName);
+                        }
+                        finally
+                        {
+                            deleteFunctionJar(finalFunctionJarFile, finalDeploymentJarFileName);
+                        }
+
+                        return null;
+                    }
+                });
+            }
+        }
+        else
+        {
+            // No function with that name found, so lets create it now
+            final CreateFunctionRequest createFunctionRequest = new CreateFunctionRequest();
+
+            createFunctionRequest.setFunctionName(generatedlambdaName);
+            createFunctionRequest.setDescription(description);
+            createFunctionRequest.setRole(lambdaRoleArn);
+            createFunctionRequest.setHandler(generatedHandlerName);
+            createFunctionRequest.setRuntime(com.amazonaws.services.lambda.model.Runtime.Java8);
+            createFunctionRequest.setTimeout(new Integer(timeout));
+            createFunctionRequest.setMemorySize(new Integer(memorySize));
+
+            deploymentPlan.addChange(ChangeType.CREATE_FUNCTION, generatedlambdaName, memorySize + " MB, " + timeout + " s, " + generatedHandlerName, new Callable<Void>()
+            {
+                public Void call() throws Exception
+                {
+                    uploadFunctionJar(finalFunctionJarFile, finalDeploymentJarFileName);
+
+                    try
+                    {
+                        // Create our function
+                        m_awsLambdaClient.createFunction(finalDeploymentJarFileName, createFunctionRequest);
+                    }
+                    finally
+                    {
+                        deleteFunctionJar(finalFunctionJarFile, finalDeploymentJarFileName);
+                    }
+
+                    return null;
+                }
+            });
+        }
+
+        // Configure Ping if needed to keep the function in memory
+        if(enablePing)
+        {
+            planPingRule(deploymentPlan, generatedlambdaName, warmContainers);
+        }
+
+        // Record what this function will be running once the plan is applied
+        m_deploymentManifest.setCodeSha256(generatedlambdaName, codeSha256);
+        m_deploymentManifest.setConfigHash(generatedlambdaName, configHash);
+    }
+
+    /**
+     * The number of containers a function keeps warm.  CloudWatch Events allows five targets per rule, one for each container.
+     * 
+     * @param generatedlambdaName
+     * @param warmConcurrency
+     * @return
+     * @throws Exception
+     */
+    private int parseWarmConcurrency(String generatedlambdaName, String warmConcurrency) throws Exception
+    {
+        int warmContainers;
+        
+        try
+        {
+            warmContainers = Integer.parseInt(StringUtil.emptyIfNull(warmConcurrency).trim());
+        }
+        catch (NumberFormatException e)
+        {
+            warmContainers = -1;
+        }
+        
+        if(warmContainers < LambdaFunctionProcessor.MINIMUM_WARM_CONCURRENCY || warmContainers > LambdaFunctionProcessor.MAXIMUM_WARM_CONCURRENCY)
+        {
+            throw new Exception("The warmConcurrency of " + generatedlambdaName + " must be a whole number from " + LambdaFunctionProcessor.MINIMUM_WARM_CONCURRENCY + " to " + LambdaFunctionProcessor.MAXIMUM_WARM_CONCURRENCY + ": " + warmConcurrency);
+        }
+        
+        return warmContainers;
+    }
+    
+    /**
+     * How often CloudWatch Events pings a function to keep it warm, as a schedule expression
+     * 
+     * @return
+     * @throws Exception
+     */
+    private String generatePingScheduleExpression() throws Exception
+    {
+        String pingRate = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_LAMBDA_PING_RATE)).trim();
+        int pingRateMinutes = DEFAULT_PING_RATE_MINUTES;
+        
+        if(!StringUtil.isNullOrEmpty(pingRate))
+        {
+            try
+            {
+                pingRateMinutes = Integer.parseInt(pingRate);
+            }
+            catch (NumberFormatException e)
+            {
+                pingRateMinutes = -1;
+            }
+            
+            if(pingRateMinutes < 1)
+            {
+                throw new Exception(Entity.FrameworkProperties.AWS_LAMBDA_PING_RATE + " must be a whole number of minutes, 1 or more: " + pingRate);
+            }
+        }
+        
+        return pingRateMinutes == 1 ? "rate(1 minute)" : "rate(" + pingRateMinutes + " minutes)";
+    }
+    
+    /**
+     * Rule names are limited to 64 characters, so long function names are shortened to fit the suffix
+     * 
+     * @param generatedlambdaName
+     * @param suffix
+     * @return
+     */
+    private String generateRuleName(String generatedlambdaName, String suffix)
+    {
+        if(generatedlambdaName.length() + suffix.length() > 64)
+        {
+            return generatedlambdaName.substring(0, 64 - suffix.length()) + suffix;
+        }
         
-        m_logger.info("projectGatewayName: " + projectGatewayName);
-        m_logger.info("generatedlambdaName: " + generatedlambdaName);
+        return generatedlambdaName + suffix;
+    }
+    
+    /**
+     * The statement id granting a rule access to its function is derived from the rule's name, so it is the same on every deploy
+     * 
+     * @param ruleName
+     * @return
+     */
+    private String generateRuleStatementId(String ruleName)
+    {
+        return ("events-" + ruleName).toLowerCase().replaceAll("[^a-z0-9_-]", "-");
+    }
+    
+    /**
+     * Returns true when our inventory has no rule matching the one we want, or the function doesn't yet grant the rule access
+     * 
+     * @param generatedlambdaName
+     * @param ruleName
+     * @param ruleDescription
+     * @param scheduleExpression
+     * @return
+     */
+    private boolean hasEventRuleChanged(String generatedlambdaName, String ruleName, String ruleDescription, String scheduleExpression)
+    {
+        Rule deployedRule = m_inventory.getRule(ruleName);
+        
+        if(deployedRule == null || !scheduleExpression.equals(deployedRule.getScheduleExpression()) || !ruleDescription.equals(deployedRule.getDescription()) || !RuleState.ENABLED.toString().equals(deployedRule.getState()))
+        {
+            return true;
+        }
+        
+        return !m_inventory.hasPolicyStatement(generatedlambdaName, generateRuleStatementId(ruleName));
+    }
+    
+    /**
+     * Compare a function's ping rule with what our inventory says is deployed, adding a change only when the rule, its schedule, its number
+     * of targets or the permission it needs to invoke the function are missing or out of date
+     * 
+     * @param deploymentPlan
+     * @param generatedlambdaName
+     * @param warmConcurrency
+     * @throws Exception
+     */
+    private void planPingRule(LambdaDeploymentPlan deploymentPlan, final String generatedlambdaName, final int warmConcurrency) throws Exception
+    {
+        final String ruleName = generateRuleName(generatedlambdaName, "-ping");
+        final String scheduleExpression = generatePingScheduleExpression();
+        final int pingHoldMillis = getPingHoldMillis(warmConcurrency);
+        
+        // The rule's description records how many containers it keeps warm, so a change in concurrency shows up in our inventory
+        final String ruleDescription = LambdaAccountInventory.EVENT_RULE_DESCRIPTION_PREFIX + "keep-warm ping for " + generatedlambdaName + " (" + warmConcurrency + " x " + pingHoldMillis + "ms)";
         
-        // Get a handle to the existing function if there is one
-        GetFunctionResult getFunctionResult = m_awsLambdaClient.getFunction(generatedlambdaName);
+        m_activeRuleNames.add(ruleName);
         
-        if(getFunctionResult != null)
+        if(hasEventRuleChanged(generatedlambdaName, ruleName, ruleDescription, scheduleExpression))
         {
-            GetRestApiResult getRestApiResult = m_awsGatewayClient.getRestApiByName(projectGatewayName);
-            
-            if(getRestApiResult != null)
+            deploymentPlan.addChange(ChangeType.PUT_EVENT_RULE, ruleName, scheduleExpression + ", " + warmConcurrency + " warm", new Callable<Void>()
             {
-                Resource resourceObject = m_awsGatewayClient.getResourceByPathPart(getRestApiResult.getId(), awsLambdaWithGatewayAnnotation.resourceName());
-                
-                if(resourceObject != null)
+                public Void call() throws Exception
                 {
-                    // Update the existing api
-                    m_logger.info("Resource (" + awsLambdaWithGatewayAnnotation.resourceName() + ") Found, no updates will be made: " + resourceObject.getId());
-                    
-                    // TODO Add code to update the various method/integration objects for the resource.
+                    putPingRule(ruleName, ruleDescription, scheduleExpression, generatedlambdaName, warmConcurrency, pingHoldMillis);
+                    return null;
                 }
-                else
+            });
+        }
+    }
+    
+    /**
+     * Schedule a rule that sends the function one ping event per container we want kept warm.  CloudWatch Events invokes every target of
+     * a rule at the same time, and each ping holds its container briefly, so the pings are spread across that many containers.
+     * BaseLambdaHandler answers the pings without running the function's own code.
+     * 
+     * @param ruleName
+     * @param ruleDescription
+     * @param scheduleExpression
+     * @param generatedlambdaName
+     * @param warmConcurrency
+     * @param pingHoldMillis
+     * @throws Exception
+     */
+    private void putPingRule(String ruleName, String ruleDescription, String scheduleExpression, String generatedlambdaName, int warmConcurrency, int pingHoldMillis) throws Exception
+    {
+        List<Target> targets = new ArrayList<Target>();
+        
+        for(int pingIndex = 1; pingIndex <= warmConcurrency; pingIndex++)
+        {
+            // Our first target keeps the id it had before concurrent pings were supported
+            Target target = new Target();
+            target.setId(pingIndex == 1 ? "ping" : "ping-" + pingIndex);
+            target.setInput("{\"" + BaseLambdaHandler.PING_EVENT_KEY + "\":true,\"" + BaseLambdaHandler.PING_HOLD_KEY + "\":" + pingHoldMillis + "}");
+            
+            targets.add(target);
+        }
+        
+        putEventRule(ruleName, ruleDescription, scheduleExpression, generatedlambdaName, targets);
+    }
+    
+    /**
+     * Compare a scheduled function's rule with what our inventory says is deployed, adding a change only when it is missing or out of date
+     * 
+     * @param deploymentPlan
+     * @param generatedlambdaName
+     * @param cronExpression
+     * @throws Exception
+     */
+    private void planScheduleRule(LambdaDeploymentPlan deploymentPlan, final String generatedlambdaName, String cronExpression) throws Exception
+    {
+        final String ruleName = generateRuleName(generatedlambdaName, "-schedule");
+        final String ruleDescription = LambdaAccountInventory.EVENT_RULE_DESCRIPTION_PREFIX + "schedule for " + generatedlambdaName;
+        
+        // Accept a complete expression as well as the bare cron fields
+        String trimmedExpression = cronExpression.trim();
+        final String scheduleExpression = trimmedExpression.startsWith("cron(") || trimmedExpression.startsWith("rate(") ? trimmedExpression : "cron(" + trimmedExpression + ")";
+        
+        m_activeRuleNames.add(ruleName);
+        
+        if(hasEventRuleChanged(generatedlambdaName, ruleName, ruleDescription, scheduleExpression))
+        {
+            deploymentPlan.addChange(ChangeType.PUT_EVENT_RULE, ruleName, scheduleExpression, new Callable<Void>()
+            {
+                public Void call() throws Exception
                 {
-                    m_logger.info("Resource Not Found: " + awsLambdaWithGatewayAnnotation.resourceName());
-                    
-                    Resource rootResource = m_awsGatewayClient.getResourceByPath(getRestApiResult.getId(), "/");
-                    
-                    // create a new api resourse
-                    CreateResourceRequest createResourceRequest = new CreateResourceRequest();
-                    createResourceRequest.setPathPart(awsLambdaWithGatewayAnnotation.resourceName());
-                    createResourceRequest.setRestApiId(getRestApiResult.getId());
-                    createResourceRequest.setParentId(rootResource.getId());
-                    
-                    m_logger.info("Creating Resource Request"); 
-                    CreateResourceResult createResourceResult = m_awsGatewayClient.createResource(createResourceRequest);
+                    Target target = new Target();
+                    target.setId("schedule");
                     
-                    if(createResourceResult != null)
-                    {
-                        Thread.sleep(1000);
-                        m_logger.info("Create our method with type: " + awsLambdaWithGatewayAnnotation.method().name() + "  authorization: " + awsLambdaWithGatewayAnnotation.authorization().name()); 
-                        PutMethodRequest putMethodRequest = new PutMethodRequest();
-                        putMethodRequest.setRestApiId(getRestApiResult.getId());
-                        putMethodRequest.setResourceId(createResourceResult.getId());
-                        putMethodRequest.setApiKeyRequired(awsLambdaWithGatewayAnnotation.keyRequired());
-                        putMethodRequest.setAuthorizationType(awsLambdaWithGatewayAnnotation.authorization().name());
-                        putMethodRequest.setHttpMethod(awsLambdaWithGatewayAnnotation.method().name());
-                        
-                        m_awsGatewayClient.createMethod(putMethodRequest);
-                        
-                        Thread.sleep(1000);
-                        m_logger.info("Create our integration"); 
-                        PutIntegrationRequest putIntegrationRequest = new PutIntegrationRequest();
-                        putIntegrationRequest.setRestApiId(getRestApiResult.getId());
-                        putIntegrationRequest.setResourceId(createResourceResult.getId());
-                        putIntegrationRequest.setHttpMethod(awsLambdaWithGatewayAnnotation.method().name());
-                        putIntegrationRequest.setType(IntegrationType.AWS);
-                        putIntegrationRequest.setIntegrationHttpMethod(awsLambdaWithGatewayAnnotation.method().name());
-                        
-                        // When using the gateway api, pass through the body, headers, parameters, query string parameters to our lambda functions when the context-type is application/json
-                        putIntegrationRequest.setPassthroughBehavior("WHEN_NO_TEMPLATES");
-                        putIntegrationRequest.addRequestTemplatesEntry("application/json", "{\"body\":$input.json('$'),\"headers\":{ #foreach($header in $input.params().header.keySet()) \"$header\":\"$util.escapeJavaScript($input.params().header.get($header))\" #if($foreach.hasNext),#end #end }, \"method\":\"$context.httpMethod\", \"params\": { #foreach($param in $input.params().path.keySet()) \"$param\":\"$util.escapeJavaScript($input.params().path.get($param))\" #if($foreach.hasNext),#end #end }, \"query\": { #foreach($queryParam in $input.params().querystring.keySet()) \"$queryParam\":\"$util.escapeJavaScript($input.params().querystring.get($queryParam))\" #if($foreach.hasNext),#end #end } }");
-                        
-                        String lambdaUriArn = "arn:aws:apigateway:" + regionName + ":lambda:path/2015-03-31/functions/arn:aws:lambda:" + regionName + ":" + accountId + ":function:" + generatedlambdaName + "/invocations";
-                        putIntegrationRequest.setUri(lambdaUriArn);
-                        
-                        m_awsGatewayClient.createIntegration(putIntegrationRequest);
-                        
-                        Thread.sleep(1000);
-                        m_logger.info("Create our method response"); 
-                        PutMethodResponseRequest putMethodResponseRequest = new PutMethodResponseRequest();
-                        putMethodResponseRequest.setRestApiId(getRestApiResult.getId());
-                        putMethodResponseRequest.setResourceId(createResourceResult.getId());
-                        putMethodResponseRequest.setHttpMethod(awsLambdaWithGatewayAnnotation.method().name());
-                        putMethodResponseRequest.setStatusCode("200");
-                        
-                        Map<String, String> responseModels = new HashMap<String, String>();
-                        responseModels.put("application/json", "Empty");
-                        putMethodResponseRequest.setResponseModels(responseModels);
-                        
-                        if(awsLambdaWithGatewayAnnotation.enableCORS())
-                        {
-                            m_logger.info("Enable CORS for our method response"); 
-                            Map<String,Boolean> methodResponseParameters = new HashMap<String,Boolean>();
-                            methodResponseParameters.put("method.response.header.Access-Control-Allow-Origin", new Boolean("true"));
-                            
-                            putMethodResponseRequest.setResponseParameters(methodResponseParameters);
-                        }
-                        
-                        m_awsGatewayClient.createMethodResponse(putMethodResponseRequest);
-                        
-                        Thread.sleep(1000);
-                        m_logger.info("Create our integration response"); 
-                        PutIntegrationResponseRequest putIntegrationResponseRequest = new PutIntegrationResponseRequest();
-                        putIntegrationResponseRequest.setRestApiId(getRestApiResult.getId());
-                        putIntegrationResponseRequest.setResourceId(createResourceResult.getId());
-                        putIntegrationResponseRequest.setHttpMethod(awsLambdaWithGatewayAnnotation.method().name());
-                        putIntegrationResponseRequest.setStatusCode("200");
-                        
-                        if(awsLambdaWithGatewayAnnotation.enableCORS())
-                        {
-                            m_logger.info("Enable CORS for our integration response"); 
-                            String accessControlAllowOrigin = StringUtil.replaceIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_APIGATEWAY_CORS_ORIGIN), "*");
-                            
-                            Map<String,String> integrationResponseParameters = new HashMap<String,String>();
-                            integrationResponseParameters.put("method.response.header.Access-Control-Allow-Origin", "'" + accessControlAllowOrigin + "'");
-                            
-                            putIntegrationResponseRequest.setResponseParameters(integrationResponseParameters);
-                        }
-                        
-                        Map<String, String> responseTemplates = new HashMap<String, String>();
-                        responseTemplates.put("application/json", "");
-                        putIntegrationResponseRequest.setResponseTemplates(responseTemplates);
-                        
-                        m_awsGatewayClient.createIntegrationResponse(putIntegrationResponseRequest);
-                        
-                        // Check if we should enable CORS
-                        if(awsLambdaWithGatewayAnnotation.enableCORS())
-                        {
-                            Thread.sleep(1000);
-                            m_logger.info("Create our method with type: OPTIONS  authorization: NONE"); 
-                            PutMethodRequest putOptionsMethodRequest = new PutMethodRequest();
-                            putOptionsMethodRequest.setRestApiId(getRestApiResult.getId());
-                            putOptionsMethodRequest.setResourceId(createResourceResult.getId());
-                            putOptionsMethodRequest.setApiKeyRequired(false);
-                            putOptionsMethodRequest.setAuthorizationType(AwsLambdaWithGateway.AuthorizationTypes.NONE.toString());
-                            putOptionsMethodRequest.setHttpMethod(AwsLambdaWithGateway.MethodTypes.OPTIONS.toString());
-                            
-                            m_awsGatewayClient.createMethod(putOptionsMethodRequest);
-                            
-                            Thread.sleep(1000);
-                            m_logger.info("Create our integration with type: OPTIONS"); 
-                            PutIntegrationRequest putOptionsIntegrationRequest = new PutIntegrationRequest();
-                            putOptionsIntegrationRequest.setRestApiId(getRestApiResult.getId());
-                            putOptionsIntegrationRequest.setResourceId(createResourceResult.getId());
-                            putOptionsIntegrationRequest.setHttpMethod(AwsLambdaWithGateway.MethodTypes.OPTIONS.toString());
-                            putOptionsIntegrationRequest.setType(IntegrationType.MOCK);
-                            putOptionsIntegrationRequest.setIntegrationHttpMethod(AwsLambdaWithGateway.MethodTypes.OPTIONS.toString());
-                            
-                            Map<String, String> requestIntegrationOptionsTemplates = new HashMap<String, String>();
-                            requestIntegrationOptionsTemplates.put("application/json", "{\"statusCode\": 200}");
-                            putOptionsIntegrationRequest.setRequestTemplates(requestIntegrationOptionsTemplates);
-                            
-                            m_awsGatewayClient.createIntegration(putOptionsIntegrationRequest);
-                            
-                            Thread.sleep(1000);
-                            m_logger.info("Create our method response with type: OPTIONS"); 
-                            PutMethodResponseRequest putOptionsMethodResponseRequest = new PutMethodResponseRequest();
-                            putOptionsMethodResponseRequest.setRestApiId(getRestApiResult.getId());
-                            putOptionsMethodResponseRequest.setResourceId(createResourceResult.getId());
-                            putOptionsMethodResponseRequest.setHttpMethod(AwsLambdaWithGateway.MethodTypes.OPTIONS.toString());
-                            putOptionsMethodResponseRequest.setStatusCode("200");
-                            
-                            Map<String, String> optionsResponseModels = new HashMap<String, String>();
-                            optionsResponseModels.put("application/json", "Empty");
-                            putOptionsMethodResponseRequest.setResponseModels(optionsResponseModels);                            
-                            
-                            m_logger.info("Enable CORS for our OPTIONS method response"); 
-                            Map<String,Boolean> methodOptionsResponseParameters = new HashMap<String,Boolean>();
-                            methodOptionsResponseParameters.put("method.response.header.Access-Control-Allow-Methods", new Boolean("true"));
-                            methodOptionsResponseParameters.put("method.response.header.Access-Control-Allow-Origin", new Boolean("true"));
-                            methodOptionsResponseParameters.put("method.response.header.Access-Control-Allow-Headers", new Boolean("true"));
-                            
-                            putOptionsMethodResponseRequest.setResponseParameters(methodOptionsResponseParameters);
-                            
-                            m_awsGatewayClient.createMethodResponse(putOptionsMethodResponseRequest);
-                            
-                            Thread.sleep(1000);
-                            m_logger.info("Create our integration response"); 
-                            PutIntegrationResponseRequest putOptionsIntegrationResponseRequest = new PutIntegrationResponseRequest();
-                            putOptionsIntegrationResponseRequest.setRestApiId(getRestApiResult.getId());
-                            putOptionsIntegrationResponseRequest.setResourceId(createResourceResult.getId());
-                            putOptionsIntegrationResponseRequest.setHttpMethod(AwsLambdaWithGateway.MethodTypes.OPTIONS.toString());
-                            putOptionsIntegrationResponseRequest.setStatusCode("200");
-                            
-                            m_logger.info("Enable CORS for our OPTIONS integration response"); 
-                            Map<String,String> integrationOptionsResponseParameters = new HashMap<String,String>();
-                            integrationOptionsResponseParameters.put("method.response.header.Access-Control-Allow-Headers", "'Content-Type,X-Amz-Date,Authorization,X-Api-Key,X-Amz-Security-Token'");
-                            integrationOptionsResponseParameters.put("method.response.header.Access-Control-Allow-Methods", "'POST,OPTIONS'");
-                            integrationOptionsResponseParameters.put("method.response.header.Access-Control-Allow-Origin", "'*'");
-                            
-                            putOptionsIntegrationResponseRequest.setResponseParameters(integrationOptionsResponseParameters);
-                            
-                            Map<String, String> responseIntegrationOptionsTemplates = new HashMap<String, String>();
-                            responseIntegrationOptionsTemplates.put("application/json", "Empty");
-                            putOptionsIntegrationResponseRequest.setResponseTemplates(responseIntegrationOptionsTemplates);
-                            
-                            m_awsGatewayClient.createIntegrationResponse(putOptionsIntegrationResponseRequest);
-                        }
-                        
-                        m_logger.info("Waiting for provisioning operation to complete before starting deployment........"); 
-                        Thread.sleep(5000);
-                        
-                        m_logger.info("Create our api deployment"); 
-                        CreateDeploymentRequest createDeploymentRequest = new CreateDeploymentRequest();
-                        createDeploymentRequest.setRestApiId(getRestApiResult.getId());
-                        createDeploymentRequest.setStageName(stageName);
-                        createDeploymentRequest.setStageDescription("Auto Generated State: " + stageName);
-                        
-                        m_awsGatewayClient.createDeployment(createDeploymentRequest);
-                        
-                        Thread.sleep(1000);
-                        m_logger.info("Create our function permissions for testing"); 
-                        AddPermissionRequest testinAddPermissionRequest = new AddPermissionRequest();
-                        testinAddPermissionRequest.setFunctionName(generatedlambdaName);
-                        
-                        String testStatementId = "apigateway-" + environmentPrefix + "-test-" + SecureUUID.generateUniqueNumber(4);
-                        testinAddPermissionRequest.setStatementId(testStatementId.toLowerCase());
-                        testinAddPermissionRequest.setAction("lambda:InvokeFunction");
-                        testinAddPermissionRequest.setPrincipal("apigateway.amazonaws.com");
-                        
-                        String testSourceArn = "arn:aws:execute-api:" + regionName + ":" + accountId + ":" + getRestApiResult.getId() + "/*/" + awsLambdaWithGatewayAnnotation.method().name() + "/" + awsLambdaWithGatewayAnnotation.resourceName();
-                        testinAddPermissionRequest.setSourceArn(testSourceArn);
-                        
-                        m_awsLambdaClient.addPermission(testinAddPermissionRequest);
-                        
-                        Thread.sleep(1000);
-                        m_logger.info("Create our function permissions for the deployment"); 
-                        AddPermissionRequest deployAddPermissionRequest = new AddPermissionRequest();
-                        deployAddPermissionRequest.setFunctionName(generatedlambdaName);
-                        
-                        String deployStatementId = "apigateway-" + environmentPrefix + "-" + stageName + "-" + SecureUUID.generateUniqueNumber(4);
-                        deployAddPermissionRequest.setStatementId(deployStatementId.toLowerCase());
-                        deployAddPermissionRequest.setAction("lambda:InvokeFunction");
-                        deployAddPermissionRequest.setPrincipal("apigateway.amazonaws.com");
-                        
-                        String deploySourceArn = "arn:aws:execute-api:" + regionName + ":" + accountId + ":" + getRestApiResult.getId() + "/" + stageName + "/" + awsLambdaWithGatewayAnnotation.method().name() + "/" + awsLambdaWithGatewayAnnotation.resourceName();
-                        deployAddPermissionRequest.setSourceArn(deploySourceArn);
-                        
-                        m_awsLambdaClient.addPermission(deployAddPermissionRequest);
-                        
-                        if(awsLambdaWithGatewayAnnotation.enableCORS())
-                        {
-                            Thread.sleep(1000);
-                            m_logger.info("Create our function permissions for testing"); 
-                            AddPermissionRequest testingOptionsAddPermissionRequest = new AddPermissionRequest();
-                            testingOptionsAddPermissionRequest.setFunctionName(generatedlambdaName);
-                            
-                            String testOptionsStatementId = "apigateway-" + environmentPrefix + "-test-" + SecureUUID.generateUniqueNumber(4);
-                            testingOptionsAddPermissionRequest.setStatementId(testOptionsStatementId.toLowerCase());
-                            testingOptionsAddPermissionRequest.setAction("lambda:InvokeFunction");
-                            testingOptionsAddPermissionRequest.setPrincipal("apigateway.amazonaws.com");
-                            
-                            String testOptionsSourceArn = "arn:aws:execute-api:" + regionName + ":" + accountId + ":" + getRestApiResult.getId() + "/*/" + AwsLambdaWithGateway.MethodTypes.OPTIONS.toString() + "/" + awsLambdaWithGatewayAnnotation.resourceName();
-                            testingOptionsAddPermissionRequest.setSourceArn(testOptionsSourceArn);
-                            
-                            m_awsLambdaClient.addPermission(testingOptionsAddPermissionRequest);
-                            
-                            Thread.sleep(1000);
-                            m_logger.info("Create our function permissions for the deployment"); 
-                            AddPermissionRequest deployOptionsAddPermissionRequest = new AddPermissionRequest();
-                            deployOptionsAddPermissionRequest.setFunctionName(generatedlambdaName);
-                            
-                            String deployOptionStatementId = "apigateway-" + environmentPrefix + "-" + stageName + "-" + SecureUUID.generateUniqueNumber(4);
-                            deployOptionsAddPermissionRequest.setStatementId(deployOptionStatementId.toLowerCase());
-                            deployOptionsAddPermissionRequest.setAction("lambda:InvokeFunction");
-                            deployOptionsAddPermissionRequest.setPrincipal("apigateway.amazonaws.com");
-                            
-                            String deployOptionSourceArn = "arn:aws:execute-api:" + regionName + ":" + accountId + ":" + getRestApiResult.getId() + "/" + stageName + "/" + AwsLambdaWithGateway.MethodTypes.OPTIONS.toString() + "/" + awsLambdaWithGatewayAnnotation.resourceName();
-                            deployOptionsAddPermissionRequest.setSourceArn(deployOptionSourceArn);
-                            
-                            m_awsLambdaClient.addPermission(deployOptionsAddPermissionRequest);
-                        }
-                        
-                        m_logger.info("Lambda Gateway API Complete"); 
-                    }
-                    else
-                    {
-                        throw new Exception("Unable to find new REST API resource: " + awsLambdaWithGatewayAnnotation.resourceName());
-                    }
+                    putEventRule(ruleName, ruleDescription, scheduleExpression, generatedlambdaName, Collections.singletonList(target));
+                    return null;
                 }
-            }
+            });
         }
     }
     
     /**
+     * Create or update a rule invoking our function on a schedule:  the rule itself, its targets (any others are removed) and the
+     * permission for CloudWatch Events to invoke the function
      * 
-     * @param awsLambdaAnnotation
+     * @param ruleName
+     * @param ruleDescription
+     * @param scheduleExpression
+     * @param generatedlambdaName
+     * @param targets
      * @throws Exception
      */
-    private void deployLambdaFunction(String classFileName, String name, String description, String handlerMethod, String memorySize, String timeout, boolean enablePing) throws Exception
+    private void putEventRule(String ruleName, String ruleDescription, String scheduleExpression, String generatedlambdaName, List<Target> targets) throws Exception
     {
-        // Sleep for a 1/2 a second as to not overload our AWS throttling limits
-        Thread.sleep(2000);
+        String regionName = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_REGION));
+        String accountId = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_ACCOUNT_ID));
         
-        String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
-        String lambdaRoleArn = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_LAMBDA_ROLE_ARN));
+        PutRuleRequest putRuleRequest = new PutRuleRequest();
+        putRuleRequest.setName(ruleName);
+        putRuleRequest.setDescription(ruleDescription);
+        putRuleRequest.setScheduleExpression(scheduleExpression);
+        putRuleRequest.setState(RuleState.ENABLED);
         
-        // Create a generated function name so that we can isolate multiple deployments
-        String generatedlambdaName = StringUtil.replaceSubstr(environmentPrefix + "_" + name, " ", "");
-        String generatedHandlerName = generateHandlerFunctionName(classFileName, handlerMethod);
+        PutRuleResult putRuleResult = m_amazonCloudWatchEventUtility.createRule(putRuleRequest);
         
-        // Get a handle to the existing function if there is one
-        GetFunctionResult getFunctionResult = m_awsLambdaClient.getFunction(generatedlambdaName);
+        Set<String> targetIds = new HashSet<String>();
         
-        if(getFunctionResult != null)
+        for(Target target : targets)
         {
-            UpdateFunctionConfigurationRequest updateFunctionConfigurationRequest = new UpdateFunctionConfigurationRequest();
-            updateFunctionConfigurationRequest.setDescription(description);
-            updateFunctionConfigurationRequest.setRole(lambdaRoleArn);
-            updateFunctionConfigurationRequest.setFunctionName(generatedlambdaName);
-            updateFunctionConfigurationRequest.setHandler(generatedHandlerName);
-            updateFunctionConfigurationRequest.setTimeout(new Integer(timeout));
-            updateFunctionConfigurationRequest.setMemorySize(new Integer(memorySize));
-            
-            // Lets look if we have changed the configuration since our last update
-            if(m_awsLambdaClient.hasFunctionConfigChanged(getFunctionResult, updateFunctionConfigurationRequest))
-            {
-                m_awsLambdaClient.updateFunctionConfiguration(updateFunctionConfigurationRequest);
-            }
-            
-            // Get the name of our deployment jar
-            String deploymentJarFileName = generateDeploymentJarFileName();
-            
-            // Update our function
-            m_awsLambdaClient.updateFunction(deploymentJarFileName, generatedlambdaName);
-            
-            // Configure Ping if needed to keep the function in memory
-            if(enablePing)
+            target.setArn("arn:aws:lambda:" + regionName + ":" + accountId + ":function:" + generatedlambdaName);
+            targetIds.add(target.getId());
+        }
+        
+        m_amazonCloudWatchEventUtility.putTargets(ruleName, targets);
+        
+        // Drop any targets left over from an earlier deploy
+        List<String> staleTargetIds = new ArrayList<String>();
+        
+        for(Target target : m_amazonCloudWatchEventUtility.getTargets(ruleName))
+        {
+            if(!targetIds.contains(target.getId()))
             {
-                // TODO Add cloud ping event
+                staleTargetIds.add(target.getId());
             }
         }
-        else
+        
+        m_amazonCloudWatchEventUtility.removeTargets(ruleName, staleTargetIds);
+        
+        AddPermissionRequest addPermissionRequest = new AddPermissionRequest();
+        addPermissionRequest.setFunctionName(generatedlambdaName);
+        addPermissionRequest.setStatementId(generateRuleStatementId(ruleName));
+        addPermissionRequest.setAction("lambda:InvokeFunction");
+        addPermissionRequest.setPrincipal("events.amazonaws.com");
+        addPermissionRequest.setSourceArn(putRuleResult.getRuleArn());
+        
+        try
         {
-            // No function with that name found, so lets create it now
-            String deploymentJarFileName = generateDeploymentJarFileName();
+            m_awsLambdaClient.addPermission(addPermissionRequest);
+        }
+        catch (ResourceConflictException e)
+        {
+            m_logger.info("Lambda function (" + generatedlambdaName + ") already grants CloudWatch Events access");
+        }
+    }
+    
+    /**
+     * Upload the JAR a function is deployed from, either its slim JAR or the shared project JAR.  Uploads are skipped when S3 already holds
+     * an identical object.
+     * 
+     * @param functionJarFile
+     * @param deploymentJarFileName
+     * @throws Exception
+     */
+    private void uploadFunctionJar(File functionJarFile, String deploymentJarFileName) throws Exception
+    {
+        String deploymentFolder = m_properties.getProperty(Entity.FrameworkProperties.AWS_S3_DEPLOYMENT_FOLDER);
         
-            CreateFunctionRequest createFunctionRequest = new CreateFunctionRequest();
-            
-            createFunctionRequest.setFunctionName(generatedlambdaName);
-            createFunctionRequest.setDescription(description);
-            createFunctionRequest.setRole(lambdaRoleArn);
-            createFunctionRequest.setHandler(generatedHandlerName);
-            createFunctionRequest.setRuntime(com.amazonaws.services.lambda.model.Runtime.Java8);
-            createFunctionRequest.setTimeout(new Integer(timeout));
-            createFunctionRequest.setMemorySize(new Integer(memorySize));
-            
-            // Create our function
-            m_awsLambdaClient.createFunction(deploymentJarFileName, createFunctionRequest);
-            
-            // Configure Ping if needed to keep the function in memory
-            if(enablePing)
+        if(functionJarFile != null)
+        {
+            m_amazonS3Utility.uploadFileIfChanged(deploymentFolder, deploymentJarFileName, functionJarFile);
+        }
+        else
+        {
+            uploadDeploymentJar(deploymentFolder);
+        }
+    }
+    
+    /**
+     * Upload the shared project JAR the first time a function needs it, or wait for the upload we started in the background
+     * 
+     * @param deploymentFolder
+     * @throws Exception
+     */
+    private synchronized void uploadDeploymentJar(String deploymentFolder) throws Exception
+    {
+        if(!m_deploymentJarUploaded)
+        {
+            if(m_deploymentJarUpload != null)
+            {
+                AmazonRequestExecutor.await(m_deploymentJarUpload);
+            }
+            else
             {
-                // TODO Add cloud ping event
+                m_logger.info("Uploading Lambda JAR to S3: " + m_deploymentJarKey);
+                m_amazonS3Utility.uploadFileIfChanged(deploymentFolder, m_deploymentJarKey, m_deploymentJarFile);
             }
+            
+            m_deploymentJarUploaded = true;
         }
     }
-
+    
+    /**
+     * 
+     * @param functionJarFile
+     * @param deploymentJarFileName
+     * @throws Exception
+     */
+    private void deleteFunctionJar(File functionJarFile, String deploymentJarFileName) throws Exception
+    {
+        if(functionJarFile != null && !isContentAddressedJarsEnabled())
+        {
+            String deploymentFolder = m_properties.getProperty(Entity.FrameworkProperties.AWS_S3_DEPLOYMENT_FOLDER);
+            
+            m_amazonS3Utility.deleteFile(deploymentFolder, deploymentJarFileName);
+        }
+    }
+    
     private String generateHandlerFunctionName(String classFileName, String handlerMethod)
     {
         File seedDir = new File(outputDirectory.getAbsolutePath() + "/classes");
@@ -784,68 +1933,45 @@ public class LambdaConfiguration extends AbstractMojo
     }
     
     /**
+     * Find our annotated classes from the function manifest written by the LambdaFunctionProcessor at compile time, falling back to reading
+     * the class files when there is no usable manifest.  Only the classes found are loaded, without being initialized so no static
+     * initializers are run.
      * 
      * @return
      * @throws MojoExecutionException
      */
     private List<String> getClassFileList() throws MojoExecutionException
     {
-        // Search out spring configuration files.
-        boolean recursive = true;
-
-        FilenameFilter filter = new FilenameFilter()
-        {
-            public boolean accept(File dir, String name)
-            {
-                return name.endsWith(".class");
-            }
-        };
-
         List<String> classfiles = new ArrayList<String>();
         
         try
         {
-            File seedDir = new File(outputDirectory.getAbsolutePath() + "/classes");
-            Collection<File> files = listFiles(seedDir, filter, recursive);
-
             File classesDirectory = new File(outputDirectory.getAbsolutePath() + "/classes"); 
             
+            Map<String, String> annotatedClasses = readFunctionManifest(classesDirectory);
+            
+            if(annotatedClasses == null)
+            {
+                LambdaClassScanner lambdaClassScanner = new LambdaClassScanner(m_logger, AwsLambda.class, AwsLambdaWithGateway.class, AwsLambdaScheduled.class);
+                annotatedClasses = lambdaClassScanner.scan(classesDirectory);
+            }
+            
             URL classesUrl = classesDirectory.toURI().toURL();
             URL[] classesUrls = new URL[]{classesUrl}; 
             
             URLClassLoader classLoader = URLClassLoader.newInstance(classesUrls, getClass().getClassLoader());
 
-            // Copy the configuration files to a resource folder.
-            for (File file : files)
+            for(Map.Entry<String, String> annotatedClass : annotatedClasses.entrySet())
             {
-                String seedPathString = seedDir.getAbsolutePath();
-                String filePathString = file.getAbsolutePath();
-                
-                // Remove the seed path
-                filePathString = StringUtil.replaceSubstr(filePathString, seedPathString + "/", "");
+                Class<?> classObject = Class.forName(annotatedClass.getValue(), false, classLoader);
                 
-                // Remove the file extension
-                filePathString = StringUtil.replaceSubstr(filePathString, ".class", "");
+                classfiles.add(annotatedClass.getKey());
                 
-                // Create a package name
-                String javaClassName = StringUtil.replaceSubstr(filePathString, "/", ".");
-                
-                // Check each file for our annotations
-                Class classObject = classLoader.loadClass(javaClassName); 
-
-                // Look for our custom annotations
-                if(classObject.isAnnotationPresent(AwsLambda.class) 
-                        || classObject.isAnnotationPresent(AwsLambdaWithGateway.class)) 
-                {
-                    classfiles.add(file.getAbsolutePath());
-                    
-                    m_lambdaClassMap.put(file.getAbsolutePath(), classObject);
-                }
+                m_lambdaClassMap.put(annotatedClass.getKey(), classObject);
             }
         }
         catch (Exception e)
         {
-            // TODO Auto-generated catch block
             e.printStackTrace();
             
             throw new MojoExecutionException("Error searching for annotated classes");
@@ -858,6 +1984,94 @@ public class LambdaConfiguration extends AbstractMojo
 
     }
     
+    /**
+     * Returns our annotated classes keyed by the absolute path of their class file, or null when there is no manifest, it lists a class
+     * that no longer exists, or a class compiled after it no longer matches it
+     * 
+     * @param classesDirectory
+     * @return
+     * @throws Exception
+     */
+    private Map<String, String> readFunctionManifest(File classesDirectory) throws Exception
+    {
+        File manifestFile = new File(classesDirectory, LambdaFunctionProcessor.FUNCTION_MANIFEST);
+        
+        if(!manifestFile.isFile())
+        {
+            m_logger.info("No function manifest found, scanning class files for Lambda functions");
+            return null;
+        }
+        
+        Map<String, String> annotatedClasses = new TreeMap<String, String>();
+        
+        JsonNode manifest = new ObjectMapper().readTree(manifestFile);
+        
+        for(JsonNode function : manifest.path("functions"))
+        {
+            String className = function.path("className").asText();
+            File classFile = new File(classesDirectory, className.replace('.', '/') + ".class");
+            
+            if(!classFile.isFile())
+            {
+                m_logger.warn("Function manifest lists a missing class (" + className + "), scanning class files for Lambda functions");
+                return null;
+            }
+            
+            annotatedClasses.put(classFile.getAbsolutePath(), className);
+        }
+        
+        if(!isFunctionManifestCurrent(classesDirectory, manifestFile, annotatedClasses))
+        {
+            m_logger.info("Function manifest is out of date, scanning class files for Lambda functions");
+            return null;
+        }
+        
+        m_logger.info("Loaded " + annotatedClasses.size() + " Lambda functions from: " + manifestFile.getAbsolutePath());
+        
+        return annotatedClasses;
+    }
+    
+    /**
+     * Check every class file written after our manifest against it.  Classes recompiled without the manifest being rewritten, such as new
+     * classes or changed annotations in an incremental build, show up here.  The class files of the compile that wrote the manifest are
+     * written just after it too, so a newer class file only makes the manifest stale when its annotations don't match what is listed.
+     * 
+     * @param classesDirectory
+     * @param manifestFile
+     * @param annotatedClasses
+     * @return
+     * @throws Exception
+     */
+    private boolean isFunctionManifestCurrent(File classesDirectory, File manifestFile, Map<String, String> annotatedClasses) throws Exception
+    {
+        LambdaClassScanner lambdaClassScanner = new LambdaClassScanner(m_logger, AwsLambda.class, AwsLambdaWithGateway.class, AwsLambdaScheduled.class);
+        
+        long manifestModified = manifestFile.lastModified();
+        
+        FilenameFilter classFileFilter = new FilenameFilter()
+        {
+            public boolean accept(File directory, String name)
+            {
+                return name.endsWith(".class");
+            }
+        };
+        
+        for(File classFile : listFiles(classesDirectory, classFileFilter, true))
+        {
+            if(classFile.isFile() && classFile.lastModified() > manifestModified)
+            {
+                boolean annotated = lambdaClassScanner.getAnnotatedClassName(classFile.toPath()) != null;
+                
+                if(annotated != annotatedClasses.containsKey(classFile.getAbsolutePath()))
+                {
+                    return false;
+                }
+            }
+        }
+        
+        return true;
+    }
+    
     /**
      * 
      * @param directory
@@ -0,0 +1,145 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A single change in a deployment plan:  what kind of change it is, the function or resource it targets, and the action that applies it.
+ *
+ * @author Brendan Clemenzi
+ */
+public class LambdaDeploymentChange implements Comparable<LambdaDeploymentChange>
+{
+    /**
+     * The kinds of change, in the order they are applied.  Function changes for different functions are applied in parallel.
+     */
+    public static enum ChangeType
+    {
+        CREATE_FUNCTION(true),
+        UPDATE_FUNCTION_CONFIGURATION(true),
+        UPDATE_FUNCTION_CODE(true),
+        CREATE_REST_API(false),
+        CREATE_GATEWAY_RESOURCE(false),
+        IMPORT_GATEWAY_API(false),
+        ADD_GATEWAY_PERMISSION(false),
+        REMOVE_GATEWAY_PERMISSION(false),
+        PUT_EVENT_RULE(false),
+        DELETE_EVENT_RULE(false),
+        REMOVE_EVENT_PERMISSION(false),
+        DELETE_GATEWAY_RESOURCE(false),
+        DELETE_FUNCTION(false),
+        DEPLOY_STAGE(false);
+
+        private boolean m_functionChange;
+
+        private ChangeType(boolean functionChange)
+        {
+            m_functionChange = functionChange;
+        }
+
+        public boolean isFunctionChange()
+        {
+            return m_functionChange;
+        }
+    }
+
+    private ChangeType m_changeType;
+    private String m_target;
+    private String m_detail;
+    private Callable<Void> m_action;
+    private long m_applyMillis = -1;
+
+    /**
+     *
+     * @param changeType
+     * @param target
+     * @param detail
+     * @param action
+     */
+    public LambdaDeploymentChange(ChangeType changeType, String target, String detail, Callable<Void> action)
+    {
+        m_changeType = changeType;
+        m_target = target;
+        m_detail = detail;
+        m_action = action;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public ChangeType getChangeType()
+    {
+        return m_changeType;
+    }
+
+    /**
+     * The name of the function, resource or API this change applies to
+     *
+     * @return
+     */
+    public String getTarget()
+    {
+        return m_target;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public String getDetail()
+    {
+        return m_detail;
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    public void apply() throws Exception
+    {
+        long startTime = System.currentTimeMillis();
+
+        try
+        {
+            m_action.call();
+        }
+        finally
+        {
+            m_applyMillis = System.currentTimeMillis() - startTime;
+        }
+    }
+
+    /**
+     * How long this change took to apply, or -1 when it hasn't been applied
+     *
+     * @return
+     */
+    public long getApplyMillis()
+    {
+        return m_applyMillis;
+    }
+
+    /**
+     *
+     */
+    public int compareTo(LambdaDeploymentChange otherChange)
+    {
+        int typeOrder = m_changeType.compareTo(otherChange.m_changeType);
+
+        if(typeOrder != 0)
+        {
+            return typeOrder;
+        }
+
+        return m_target.compareTo(otherChange.m_target);
+    }
+
+    /**
+     *
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%-30s %s%s", m_changeType, m_target, m_detail == null || m_detail.isEmpty() ? "" : "  (" + m_detail + ")");
+    }
+}
@@ -0,0 +1,186 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
+
+/**
+ * The LambdaDeploymentExecutor runs independent deployment tasks (function create/update/configuration calls) on a bounded pool of worker threads.
+ * The number of workers is read from the aws.lambda.deploymentConcurrency property found in the build.properties file.
+ *
+ * @author Brendan Clemenzi
+ */
+public class LambdaDeploymentExecutor
+{
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    private Log m_logger;
+    private int m_concurrency;
+    private ExecutorService m_executorService;
+
+    private List<Future<?>> m_futures = new ArrayList<Future<?>>();
+    private volatile boolean m_cancelled = false;
+
+    /**
+     *
+     * @param logger
+     * @param properties
+     */
+    public LambdaDeploymentExecutor(Log logger, Properties properties)
+    {
+        m_logger = logger;
+        m_concurrency = getConfiguredConcurrency(properties);
+
+        final AtomicInteger threadCount = new AtomicInteger(0);
+
+        m_executorService = Executors.newFixedThreadPool(m_concurrency, new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "sansserver-deploy-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+
+        m_logger.info("Lambda deployment concurrency: " + m_concurrency);
+    }
+
+    /**
+     *
+     * @param properties
+     * @return
+     */
+    private int getConfiguredConcurrency(Properties properties)
+    {
+        String concurrencyString = StringUtil.emptyIfNull(properties.getProperty(Entity.FrameworkProperties.AWS_LAMBDA_DEPLOYMENT_CONCURRENCY)).trim();
+
+        if(StringUtil.isNullOrEmpty(concurrencyString))
+        {
+            return DEFAULT_CONCURRENCY;
+        }
+
+        try
+        {
+            return Math.max(1, Integer.parseInt(concurrencyString));
+        }
+        catch (NumberFormatException e)
+        {
+            m_logger.warn("Invalid " + Entity.FrameworkProperties.AWS_LAMBDA_DEPLOYMENT_CONCURRENCY + " value (" + concurrencyString + "), using " + DEFAULT_CONCURRENCY);
+
+            return DEFAULT_CONCURRENCY;
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getConcurrency()
+    {
+        return m_concurrency;
+    }
+
+    /**
+     * Queue a deployment task to run on one of our worker threads
+     *
+     * @param task
+     * @return
+     */
+    public <T> Future<T> submit(Callable<T> task)
+    {
+        Future<T> future = m_executorService.submit(task);
+
+        synchronized(m_futures)
+        {
+            m_futures.add(future);
+        }
+
+        return future;
+    }
+
+    /**
+     * Wait for the given task to finish, unwrapping any failure into the exception thrown by the task itself.  The first failure cancels every
+     * other task, so we don't carry on deploying once the deployment is known to have failed.
+     *
+     * @param future
+     * @return
+     * @throws Exception
+     */
+    public <T> T await(Future<T> future) throws Exception
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (ExecutionException e)
+        {
+            cancel();
+
+            Throwable cause = e.getCause();
+
+            if(cause instanceof Exception)
+            {
+                throw (Exception)cause;
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Cancel every task still queued or running and stop the worker threads without waiting for them
+     */
+    public void cancel()
+    {
+        if(!m_cancelled)
+        {
+            m_cancelled = true;
+
+            synchronized(m_futures)
+            {
+                for(Future<?> future : m_futures)
+                {
+                    future.cancel(true);
+                }
+            }
+
+            m_executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Stop accepting new tasks and wait for the running ones to finish.  Once the tasks have been cancelled there is nothing to wait for.
+     *
+     * @throws InterruptedException
+     */
+    public void shutdown() throws InterruptedException
+    {
+        if(m_cancelled)
+        {
+            return;
+        }
+
+        m_executorService.shutdown();
+
+        if(!m_executorService.awaitTermination(30, TimeUnit.MINUTES))
+        {
+            m_logger.warn("Lambda deployment tasks did not finish in time, cancelling the remaining tasks");
+            cancel();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.amazonaws.util.BinaryUtils;
+import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonS3Utility;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
+
+/**
+ * The LambdaDeploymentManifest records what was last deployed for each of our functions:  the CodeSha256 of the deployment JAR and a hash of the
+ * function's annotation-derived configuration.  It is stored next to the deployment JAR in the S3 deployment folder so the next deploy-lambda run
+ * can skip functions whose code and configuration have not changed.  In the openapi provisioning mode it also records a hash of the document
+ * last imported into our API, so an unchanged API isn't imported and deployed again.
+ *
+ * @author Brendan Clemenzi
+ */
+public class LambdaDeploymentManifest
+{
+    private static final String CODE_SHA256_SUFFIX      = ".codeSha256";
+    private static final String CONFIG_HASH_SUFFIX      = ".configHash";
+    private static final String API_DEFINITION_SUFFIX   = ".apiDefinitionHash";
+
+    private Log m_logger;
+    private String m_manifestFileName;
+    private Properties m_manifest = new Properties();
+
+    /**
+     *
+     * @param logger
+     * @param manifestFileName
+     */
+    public LambdaDeploymentManifest(Log logger, String manifestFileName)
+    {
+        m_logger = logger;
+        m_manifestFileName = manifestFileName;
+    }
+
+    /**
+     * Load the manifest from our deployment folder.  A missing manifest simply means every function will be deployed.
+     *
+     * @param amazonS3Utility
+     * @param deploymentFolder
+     * @throws Exception
+     */
+    public void load(AmazonS3Utility amazonS3Utility, String deploymentFolder) throws Exception
+    {
+        if(amazonS3Utility.doesFileExist(deploymentFolder, m_manifestFileName))
+        {
+            byte[] manifestBytes = amazonS3Utility.downloadContentAsBytes(deploymentFolder, m_manifestFileName);
+
+            m_manifest.load(new ByteArrayInputStream(manifestBytes));
+
+            m_logger.info("Loaded deployment manifest (" + m_manifestFileName + ") with " + m_manifest.size() + " entries");
+        }
+        else
+        {
+            m_logger.info("No deployment manifest found (" + m_manifestFileName + "), all functions will be deployed");
+        }
+    }
+
+    /**
+     * Save the manifest to our deployment folder, dropping the entries of functions that are no longer deployed
+     *
+     * @param amazonS3Utility
+     * @param deploymentFolder
+     * @param workingDirectory
+     * @param activeFunctionNames
+     * @throws Exception
+     */
+    public synchronized void save(AmazonS3Utility amazonS3Utility, String deploymentFolder, File workingDirectory, Set<String> activeFunctionNames) throws Exception
+    {
+        for(String manifestKey : new HashSet<String>(m_manifest.stringPropertyNames()))
+        {
+            String functionName = manifestKey.substring(0, manifestKey.lastIndexOf('.'));
+
+            // Our API's entry is kept for as long as the openapi mode keeps setting it
+            if(!activeFunctionNames.contains(functionName) && !manifestKey.endsWith(API_DEFINITION_SUFFIX))
+            {
+                m_manifest.remove(manifestKey);
+            }
+        }
+
+        File manifestFile = new File(workingDirectory, m_manifestFileName);
+
+        OutputStream outputStream = new FileOutputStream(manifestFile);
+
+        try
+        {
+            m_manifest.store(outputStream, "SansServer deployment manifest");
+        }
+        finally
+        {
+            outputStream.close();
+        }
+
+        amazonS3Utility.uploadFile(deploymentFolder, m_manifestFileName, manifestFile);
+
+        m_logger.info("Saved deployment manifest (" + m_manifestFileName + ") with " + m_manifest.size() + " entries");
+    }
+
+    /**
+     *
+     * @param functionName
+     * @return
+     */
+    public String getCodeSha256(String functionName)
+    {
+        return m_manifest.getProperty(functionName + CODE_SHA256_SUFFIX);
+    }
+
+    /**
+     * True when some function was last deployed with different code, or the manifest doesn't know what any function is running
+     *
+     * @param codeSha256
+     * @return
+     */
+    public boolean hasCodeSha256Changed(String codeSha256)
+    {
+        boolean foundCodeSha256 = false;
+
+        for(String key : m_manifest.stringPropertyNames())
+        {
+            if(key.endsWith(CODE_SHA256_SUFFIX))
+            {
+                foundCodeSha256 = true;
+
+                if(!m_manifest.getProperty(key).equals(codeSha256))
+                {
+                    return true;
+                }
+            }
+        }
+
+        return !foundCodeSha256;
+    }
+
+    /**
+     *
+     * @param functionName
+     * @param codeSha256
+     */
+    public void setCodeSha256(String functionName, String codeSha256)
+    {
+        m_manifest.setProperty(functionName + CODE_SHA256_SUFFIX, codeSha256);
+    }
+
+    /**
+     *
+     * @param functionName
+     * @return
+     */
+    public String getConfigHash(String functionName)
+    {
+        return m_manifest.getProperty(functionName + CONFIG_HASH_SUFFIX);
+    }
+
+    /**
+     *
+     * @param functionName
+     * @param configHash
+     */
+    public void setConfigHash(String functionName, String configHash)
+    {
+        m_manifest.setProperty(functionName + CONFIG_HASH_SUFFIX, configHash);
+    }
+
+    /**
+     *
+     * @param apiName
+     * @return
+     */
+    public String getApiDefinitionHash(String apiName)
+    {
+        return m_manifest.getProperty(apiName + API_DEFINITION_SUFFIX);
+    }
+
+    /**
+     *
+     * @param apiName
+     * @param apiDefinitionHash null to forget what was imported
+     */
+    public void setApiDefinitionHash(String apiName, String apiDefinitionHash)
+    {
+        if(apiDefinitionHash == null)
+        {
+            m_manifest.remove(apiName + API_DEFINITION_SUFFIX);
+        }
+        else
+        {
+            m_manifest.setProperty(apiName + API_DEFINITION_SUFFIX, apiDefinitionHash);
+        }
+    }
+
+    /**
+     * Returns the base64 encoded SHA-256 of the given file, the same format Lambda reports as a function's CodeSha256
+     *
+     * @param file
+     * @return
+     * @throws Exception
+     */
+    public static String computeCodeSha256(File file) throws Exception
+    {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+
+        InputStream inputStream = new FileInputStream(file);
+
+        try
+        {
+            byte[] buffer = new byte[65536];
+            int length;
+
+            while((length = inputStream.read(buffer)) > 0)
+            {
+                messageDigest.update(buffer, 0, length);
+            }
+        }
+        finally
+        {
+            inputStream.close();
+        }
+
+        return BinaryUtils.toBase64(messageDigest.digest());
+    }
+
+    /**
+     * Returns a hash of the configuration values we set on a function
+     *
+     * @param configurationValues
+     * @return
+     * @throws Exception
+     */
+    public static String computeConfigHash(String... configurationValues) throws Exception
+    {
+        MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+
+        for(String configurationValue : configurationValues)
+        {
+            messageDigest.update(StringUtil.emptyIfNull(configurationValue).getBytes("UTF-8"));
+            messageDigest.update((byte)0);
+        }
+
+        return BinaryUtils.toHex(messageDigest.digest());
+    }
+}
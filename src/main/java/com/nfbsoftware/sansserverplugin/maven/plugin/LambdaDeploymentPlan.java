@@ -0,0 +1,98 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.nfbsoftware.sansserverplugin.maven.plugin.LambdaDeploymentChange.ChangeType;
+
+/**
+ * The LambdaDeploymentPlan is the ordered set of changes needed to bring our deployed functions and API resources in line with the annotated
+ * classes.  Changes can be added from several planning threads at once.
+ *
+ * @author Brendan Clemenzi
+ */
+public class LambdaDeploymentPlan
+{
+    private List<LambdaDeploymentChange> m_changes = new ArrayList<LambdaDeploymentChange>();
+
+    /**
+     *
+     * @param changeType
+     * @param target
+     * @param detail
+     * @param action
+     */
+    public synchronized void addChange(ChangeType changeType, String target, String detail, Callable<Void> action)
+    {
+        m_changes.add(new LambdaDeploymentChange(changeType, target, detail, action));
+    }
+
+    /**
+     * Returns our changes in the order they are applied
+     *
+     * @return
+     */
+    public synchronized List<LambdaDeploymentChange> getChanges()
+    {
+        List<LambdaDeploymentChange> changes = new ArrayList<LambdaDeploymentChange>(m_changes);
+        Collections.sort(changes);
+
+        return changes;
+    }
+
+    /**
+     *
+     * @param changeTypes
+     * @return
+     */
+    public synchronized boolean hasChanges(ChangeType... changeTypes)
+    {
+        for(LambdaDeploymentChange change : m_changes)
+        {
+            for(ChangeType changeType : changeTypes)
+            {
+                if(change.getChangeType() == changeType)
+                {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public synchronized boolean isEmpty()
+    {
+        return m_changes.isEmpty();
+    }
+
+    /**
+     *
+     * @param logger
+     */
+    public void log(Log logger)
+    {
+        List<LambdaDeploymentChange> changes = getChanges();
+
+        if(changes.isEmpty())
+        {
+            logger.info("Deployment plan: no changes, everything is up to date");
+            return;
+        }
+
+        logger.info("Deployment plan: " + changes.size() + " changes");
+
+        for(LambdaDeploymentChange change : changes)
+        {
+            logger.info("  " + change);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.maven.plugin.logging.Log;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonRequestMetrics;
+
+/**
+ * The LambdaDeploymentReport records where a deploy spent its time:  how long each phase took, how long each function's changes took to
+ * apply, and the calls made to each AWS API with their latency histograms, retries and throttles.  It is written as JSON to
+ * target/${environment.namePrefix}-deploy-report.json so deploy performance can be tracked from one build to the next.  A deploy to several
+ * regions keeps a report for each region inside the main one.
+ *
+ * @author Brendan Clemenzi
+ */
+public class LambdaDeploymentReport
+{
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private Log m_logger;
+    private String m_goalName;
+    private long m_startTime = System.currentTimeMillis();
+
+    private Map<String, Long> m_phases = new LinkedHashMap<String, Long>();
+    private String m_currentPhase;
+    private long m_currentPhaseStartTime;
+
+    private LambdaDeploymentPlan m_deploymentPlan;
+    private String m_failure;
+
+    private Map<String, LambdaDeploymentReport> m_regionReports = Collections.synchronizedMap(new TreeMap<String, LambdaDeploymentReport>());
+
+    /**
+     * Start a report for the given goal.  The goal resets the AWS call metrics before it starts, so only its own calls are reported.
+     *
+     * @param logger
+     * @param goalName
+     */
+    public LambdaDeploymentReport(Log logger, String goalName)
+    {
+        m_logger = logger;
+        m_goalName = goalName;
+    }
+
+    /**
+     * End the current phase, if any, and start timing the next one.  Time spent in a phase that is started again is added to it.
+     *
+     * @param phaseName
+     */
+    public void startPhase(String phaseName)
+    {
+        endPhase();
+
+        m_currentPhase = phaseName;
+        m_currentPhaseStartTime = System.currentTimeMillis();
+    }
+
+    /**
+     *
+     */
+    public void endPhase()
+    {
+        if(m_currentPhase != null)
+        {
+            Long phaseMillis = m_phases.get(m_currentPhase);
+
+            m_phases.put(m_currentPhase, (phaseMillis == null ? 0 : phaseMillis.longValue()) + System.currentTimeMillis() - m_currentPhaseStartTime);
+
+            m_currentPhase = null;
+        }
+    }
+
+    /**
+     *
+     * @param deploymentPlan
+     */
+    public void setDeploymentPlan(LambdaDeploymentPlan deploymentPlan)
+    {
+        m_deploymentPlan = deploymentPlan;
+    }
+
+    /**
+     * Add the report of one region in a multi-region deploy
+     *
+     * @param regionName
+     * @param regionReport
+     */
+    public void addRegionReport(String regionName, LambdaDeploymentReport regionReport)
+    {
+        m_regionReports.put(regionName, regionReport);
+    }
+
+    /**
+     *
+     * @param e
+     */
+    public void setFailure(Exception e)
+    {
+        m_failure = e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    /**
+     * Write our report and log a one line summary of it
+     *
+     * @param reportFile
+     * @throws Exception
+     */
+    public void write(File reportFile) throws Exception
+    {
+        endPhase();
+
+        long totalMillis = System.currentTimeMillis() - m_startTime;
+        AmazonRequestMetrics requestMetrics = AmazonRequestMetrics.getInstance();
+
+        Map<String, Object> report = new LinkedHashMap<String, Object>();
+        report.put("goal", m_goalName);
+        report.put("startTime", m_startTime);
+        report.put("totalMillis", totalMillis);
+        report.put("succeeded", m_failure == null);
+
+        if(m_failure != null)
+        {
+            report.put("failure", m_failure);
+        }
+
+        report.putAll(toPhaseReport());
+
+        if(!m_regionReports.isEmpty())
+        {
+            Map<String, Object> regionReport = new LinkedHashMap<String, Object>();
+
+            synchronized(m_regionReports)
+            {
+                for(Map.Entry<String, LambdaDeploymentReport> region : m_regionReports.entrySet())
+                {
+                    regionReport.put(region.getKey(), region.getValue().toRegionReport());
+                }
+            }
+
+            report.put("regions", regionReport);
+        }
+
+        report.put("awsCallCount", requestMetrics.getCallCount());
+        report.put("awsThrottledCount", requestMetrics.getThrottledCount());
+        report.put("awsCalls", requestMetrics.toReport());
+
+        reportFile.getParentFile().mkdirs();
+
+        OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(reportFile, report);
+
+        m_logger.info("Deploy took " + totalMillis + "ms " + m_phases + " with " + requestMetrics.getCallCount() + " AWS calls (" + requestMetrics.getThrottledCount() + " throttled), report written to: " + reportFile.getAbsolutePath());
+    }
+
+    /**
+     *
+     * @return
+     */
+    private Map<String, Object> toPhaseReport()
+    {
+        Map<String, Object> report = new LinkedHashMap<String, Object>();
+        report.put("phases", m_phases);
+        report.put("changes", getChangeReport());
+        report.put("functions", getFunctionReport());
+
+        return report;
+    }
+
+    /**
+     * The part of a region's report kept in the main report.  AWS calls are only counted once, for the whole deploy.
+     *
+     * @return
+     */
+    private Map<String, Object> toRegionReport()
+    {
+        Map<String, Object> report = new LinkedHashMap<String, Object>();
+        report.put("succeeded", m_failure == null);
+
+        if(m_failure != null)
+        {
+            report.put("failure", m_failure);
+        }
+
+        report.putAll(toPhaseReport());
+
+        return report;
+    }
+
+    /**
+     *
+     * @return
+     */
+    private List<Object> getChangeReport()
+    {
+        List<Object> changeReport = new ArrayList<Object>();
+
+        if(m_deploymentPlan != null)
+        {
+            for(LambdaDeploymentChange change : m_deploymentPlan.getChanges())
+            {
+                Map<String, Object> changeEntry = new LinkedHashMap<String, Object>();
+                changeEntry.put("type", change.getChangeType().name());
+                changeEntry.put("target", change.getTarget());
+                changeEntry.put("detail", change.getDetail());
+                changeEntry.put("applyMillis", change.getApplyMillis());
+
+                changeReport.add(changeEntry);
+            }
+        }
+
+        return changeReport;
+    }
+
+    /**
+     * The time spent applying each function's own changes, which run one after the other for a function
+     *
+     * @return
+     */
+    private Map<String, Object> getFunctionReport()
+    {
+        Map<String, Object> functionReport = new TreeMap<String, Object>();
+
+        if(m_deploymentPlan != null)
+        {
+            for(LambdaDeploymentChange change : m_deploymentPlan.getChanges())
+            {
+                if(change.getChangeType().isFunctionChange() && change.getApplyMillis() >= 0)
+                {
+                    Long applyMillis = (Long)functionReport.get(change.getTarget());
+
+                    functionReport.put(change.getTarget(), (applyMillis == null ? 0 : applyMillis.longValue()) + change.getApplyMillis());
+                }
+            }
+        }
+
+        return functionReport;
+    }
+}
@@ -0,0 +1,355 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.logging.Log;
+
+import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
+
+/**
+ * The LambdaFunctionJarBuilder writes a slim deployment JAR for each of our functions.  Starting from the function's handler class it follows
+ * the class references found in each class file's constant pool (class entries, type descriptors and class names used as string constants)
+ * and copies only the reachable classes out of the project's deployment JAR.  Service implementations listed under META-INF/services are kept
+ * when their service interface is reachable, and every non-class resource is kept as is.
+ *
+ * Classes only reached through reflection can be kept with the aws.lambda.slimJars.keep property, a comma separated list of class or
+ * package name prefixes.
+ *
+ * Entries are written in name order with a fixed timestamp, so unchanged code always produces a JAR with the same CodeSha256.
+ *
+ * @author Brendan Clemenzi
+ */
+public class LambdaFunctionJarBuilder
+{
+    private static final String CLASS_SUFFIX        = ".class";
+    private static final String SERVICES_FOLDER     = "META-INF/services/";
+
+    private static final long ENTRY_TIME = new GregorianCalendar(2000, 0, 1).getTimeInMillis();
+
+    private static final Pattern DESCRIPTOR_PATTERN = Pattern.compile("L([^;<\\[]+)[;<]");
+    private static final Pattern SIGNATURE_FILE_PATTERN = Pattern.compile("META-INF/[^/]+\\.(SF|DSA|RSA|EC)", Pattern.CASE_INSENSITIVE);
+
+    private Log m_logger;
+    private ZipFile m_sourceJar;
+
+    private Set<String> m_classNames = new HashSet<String>();
+    private List<String> m_resourceNames = new ArrayList<String>();
+    private Map<String, List<String>> m_serviceImplementations = new HashMap<String, List<String>>();
+    private List<String> m_keepPrefixes = new ArrayList<String>();
+
+    private Map<String, Set<String>> m_classReferences = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     *
+     * @param logger
+     * @param properties
+     * @param sourceJarFile
+     * @throws Exception
+     */
+    public LambdaFunctionJarBuilder(Log logger, Properties properties, File sourceJarFile) throws Exception
+    {
+        m_logger = logger;
+        m_sourceJar = new ZipFile(sourceJarFile);
+
+        for(String keepPrefix : StringUtil.emptyIfNull(properties.getProperty(Entity.FrameworkProperties.AWS_LAMBDA_SLIM_JARS_KEEP)).split(","))
+        {
+            if(!StringUtil.isNullOrEmptyTrim(keepPrefix))
+            {
+                m_keepPrefixes.add(keepPrefix.trim().replace('.', '/'));
+            }
+        }
+
+        Enumeration<? extends ZipEntry> entries = m_sourceJar.entries();
+
+        while(entries.hasMoreElements())
+        {
+            ZipEntry entry = entries.nextElement();
+            String entryName = entry.getName();
+
+            if(entry.isDirectory())
+            {
+                continue;
+            }
+
+            if(entryName.endsWith(CLASS_SUFFIX))
+            {
+                m_classNames.add(entryName.substring(0, entryName.length() - CLASS_SUFFIX.length()));
+            }
+            else if(!SIGNATURE_FILE_PATTERN.matcher(entryName).matches())
+            {
+                m_resourceNames.add(entryName);
+
+                if(entryName.startsWith(SERVICES_FOLDER) && entryName.length() > SERVICES_FOLDER.length())
+                {
+                    m_serviceImplementations.put(entryName.substring(SERVICES_FOLDER.length()).replace('.', '/'), readServiceImplementations(entry));
+                }
+            }
+        }
+
+        m_logger.info("Indexed " + m_classNames.size() + " classes from " + sourceJarFile.getName() + " for slim function JARs");
+    }
+
+    /**
+     * Write the slim JAR for the given handler class
+     *
+     * @param handlerClassName
+     * @param targetJarFile
+     * @return
+     * @throws Exception
+     */
+    public File writeFunctionJar(String handlerClassName, File targetJarFile) throws Exception
+    {
+        Set<String> reachableClasses = getReachableClasses(handlerClassName.replace('.', '/'));
+
+        List<String> entryNames = new ArrayList<String>(m_resourceNames);
+
+        for(String className : reachableClasses)
+        {
+            entryNames.add(className + CLASS_SUFFIX);
+        }
+
+        Collections.sort(entryNames);
+
+        targetJarFile.getParentFile().mkdirs();
+
+        ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(targetJarFile));
+
+        try
+        {
+            for(String entryName : entryNames)
+            {
+                ZipEntry targetEntry = new ZipEntry(entryName);
+                targetEntry.setTime(ENTRY_TIME);
+
+                outputStream.putNextEntry(targetEntry);
+
+                InputStream inputStream = m_sourceJar.getInputStream(m_sourceJar.getEntry(entryName));
+
+                try
+                {
+                    IOUtils.copy(inputStream, outputStream);
+                }
+                finally
+                {
+                    inputStream.close();
+                }
+
+                outputStream.closeEntry();
+            }
+        }
+        finally
+        {
+            outputStream.close();
+        }
+
+        m_logger.info("Packaged " + targetJarFile.getName() + " with " + reachableClasses.size() + " of " + m_classNames.size() + " classes (" + (targetJarFile.length() / 1024) + " KB)");
+
+        return targetJarFile;
+    }
+
+    /**
+     * Walk the class references from our handler, adding service implementations once their service interface has been reached
+     *
+     * @param handlerClassName
+     * @return
+     * @throws Exception
+     */
+    private Set<String> getReachableClasses(String handlerClassName) throws Exception
+    {
+        Set<String> reachableClasses = new HashSet<String>();
+        LinkedList<String> pendingClasses = new LinkedList<String>();
+
+        if(!m_classNames.contains(handlerClassName))
+        {
+            throw new Exception("Handler class not found in deployment JAR: " + handlerClassName);
+        }
+
+        pendingClasses.add(handlerClassName);
+
+        for(String className : m_classNames)
+        {
+            for(String keepPrefix : m_keepPrefixes)
+            {
+                if(className.startsWith(keepPrefix))
+                {
+                    pendingClasses.add(className);
+                }
+            }
+        }
+
+        while(!pendingClasses.isEmpty())
+        {
+            while(!pendingClasses.isEmpty())
+            {
+                String className = pendingClasses.removeFirst();
+
+                if(reachableClasses.add(className))
+                {
+                    for(String referencedClassName : getClassReferences(className))
+                    {
+                        if(!reachableClasses.contains(referencedClassName))
+                        {
+                            pendingClasses.add(referencedClassName);
+                        }
+                    }
+                }
+            }
+
+            for(Map.Entry<String, List<String>> serviceEntry : m_serviceImplementations.entrySet())
+            {
+                if(reachableClasses.contains(serviceEntry.getKey()))
+                {
+                    for(String implementationName : serviceEntry.getValue())
+                    {
+                        if(m_classNames.contains(implementationName) && !reachableClasses.contains(implementationName))
+                        {
+                            pendingClasses.add(implementationName);
+                        }
+                    }
+                }
+            }
+        }
+
+        return reachableClasses;
+    }
+
+    /**
+     * Returns the classes in our JAR referenced by the given class.  References are cached since most functions share the same libraries.
+     *
+     * @param className
+     * @return
+     * @throws IOException
+     */
+    private Set<String> getClassReferences(String className) throws IOException
+    {
+        Set<String> classReferences = m_classReferences.get(className);
+
+        if(classReferences != null)
+        {
+            return classReferences;
+        }
+
+        classReferences = new HashSet<String>();
+
+        DataInputStream inputStream = new DataInputStream(m_sourceJar.getInputStream(m_sourceJar.getEntry(className + CLASS_SUFFIX)));
+
+        try
+        {
+            ClassFileConstantPool constantPool = ClassFileConstantPool.read(inputStream);
+
+            if(constantPool != null)
+            {
+                for(String utf8Constant : constantPool.getUtf8Constants())
+                {
+                    if(utf8Constant == null)
+                    {
+                        continue;
+                    }
+
+                    // Class entries and class names used as strings, i.e. Class.forName("com.example.MyClass")
+                    String candidateName = utf8Constant.replace('.', '/');
+
+                    if(m_classNames.contains(candidateName))
+                    {
+                        classReferences.add(candidateName);
+                    }
+
+                    // Field, method and generic signatures
+                    if(utf8Constant.indexOf('L') >= 0 && utf8Constant.indexOf(';') > 0)
+                    {
+                        Matcher matcher = DESCRIPTOR_PATTERN.matcher(utf8Constant);
+
+                        while(matcher.find())
+                        {
+                            if(m_classNames.contains(matcher.group(1)))
+                            {
+                                classReferences.add(matcher.group(1));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            inputStream.close();
+        }
+
+        m_classReferences.put(className, classReferences);
+
+        return classReferences;
+    }
+
+    /**
+     *
+     * @param serviceEntry
+     * @return
+     * @throws IOException
+     */
+    private List<String> readServiceImplementations(ZipEntry serviceEntry) throws IOException
+    {
+        List<String> implementationNames = new ArrayList<String>();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(m_sourceJar.getInputStream(serviceEntry), "UTF-8"));
+
+        try
+        {
+            String line;
+
+            while((line = reader.readLine()) != null)
+            {
+                int commentIndex = line.indexOf('#');
+
+                if(commentIndex >= 0)
+                {
+                    line = line.substring(0, commentIndex);
+                }
+
+                if(!StringUtil.isNullOrEmptyTrim(line))
+                {
+                    implementationNames.add(line.trim().replace('.', '/'));
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        return implementationNames;
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException
+    {
+        m_sourceJar.close();
+    }
+}
@@ -0,0 +1,348 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.nfbsoftware.sansserverplugin.sdk.annotation.AwsLambdaWithGateway;
+import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
+
+/**
+ * The LambdaGatewayApiDefinition builds an OpenAPI (Swagger 2.0) document with the x-amazon-apigateway extensions from our
+ * AwsLambdaWithGateway annotations.  The document describes the same methods, integrations, responses and CORS handling that the
+ * deploy-lambda goal would otherwise create resource by resource, so the whole API can be applied with a single PutRestApi call.
+ *
+ * @author Brendan Clemenzi
+ */
+public class LambdaGatewayApiDefinition
+{
+    // Also used by the resources provisioning mode, so both modes pass requests to our functions the same way
+    public static final String REQUEST_TEMPLATE = "{\"body\":$input.json('$'),\"headers\":{ #foreach($header in $input.params().header.keySet()) \"$header\":\"$util.escapeJavaScript($input.params().header.get($header))\" #if($foreach.hasNext),#end #end }, \"method\":\"$context.httpMethod\", \"params\": { #foreach($param in $input.params().path.keySet()) \"$param\":\"$util.escapeJavaScript($input.params().path.get($param))\" #if($foreach.hasNext),#end #end }, \"query\": { #foreach($queryParam in $input.params().querystring.keySet()) \"$queryParam\":\"$util.escapeJavaScript($input.params().querystring.get($queryParam))\" #if($foreach.hasNext),#end #end } }";
+
+    private String m_apiName;
+    private String m_regionName;
+    private String m_accountId;
+    private String m_corsOrigin;
+
+    private Map<String, Object> m_paths = new LinkedHashMap<String, Object>();
+    private Map<String, AwsLambdaWithGateway> m_functions = new LinkedHashMap<String, AwsLambdaWithGateway>();
+
+    // The paths whose OPTIONS method is our generated CORS preflight, rather than one of our functions
+    private Set<String> m_corsPaths = new HashSet<String>();
+
+    /**
+     *
+     * @param apiName
+     * @param properties
+     */
+    public LambdaGatewayApiDefinition(String apiName, Properties properties)
+    {
+        m_apiName = apiName;
+        m_regionName = StringUtil.emptyIfNull(properties.getProperty(Entity.FrameworkProperties.AWS_REGION));
+        m_accountId = StringUtil.emptyIfNull(properties.getProperty(Entity.FrameworkProperties.AWS_ACCOUNT_ID));
+        m_corsOrigin = StringUtil.replaceIfNull(properties.getProperty(Entity.FrameworkProperties.AWS_APIGATEWAY_CORS_ORIGIN), "*");
+    }
+
+    /**
+     * Add the method (and the OPTIONS method when CORS is enabled) for one of our gateway functions.  A function mapped to OPTIONS itself
+     * always keeps its method, and answers the preflight for its resource.
+     *
+     * @param generatedLambdaName
+     * @param awsLambdaWithGatewayAnnotation
+     * @throws Exception
+     */
+    public void addFunction(String generatedLambdaName, AwsLambdaWithGateway awsLambdaWithGatewayAnnotation) throws Exception
+    {
+        String path = "/" + awsLambdaWithGatewayAnnotation.resourceName();
+        String httpMethod = awsLambdaWithGatewayAnnotation.method().name();
+
+        String operationName = httpMethod.toLowerCase();
+        boolean isOptionsFunction = operationName.equals("options");
+
+        Map<String, Object> pathItem = getPathItem(path);
+
+        // A preflight we generated gives way to a function mapped to OPTIONS, anything else already on the path is a conflict
+        if(pathItem.containsKey(operationName) && !(isOptionsFunction && m_corsPaths.contains(path)))
+        {
+            throw new Exception("More than one Lambda function is mapped to " + httpMethod + " " + path + ": " + generatedLambdaName);
+        }
+
+        pathItem.put(operationName, createLambdaOperation(generatedLambdaName, awsLambdaWithGatewayAnnotation));
+
+        if(isOptionsFunction)
+        {
+            m_corsPaths.remove(path);
+        }
+        else if((awsLambdaWithGatewayAnnotation.enableCORS() && !pathItem.containsKey("options")) || m_corsPaths.contains(path))
+        {
+            // Keep the preflight answer we generate in step with every method on the resource
+            pathItem.put("options", createCorsOperation(pathItem));
+            m_corsPaths.add(path);
+        }
+
+        m_functions.put(generatedLambdaName, awsLambdaWithGatewayAnnotation);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isEmpty()
+    {
+        return m_functions.isEmpty();
+    }
+
+    /**
+     * Returns the functions in our document, keyed by their generated Lambda function names
+     *
+     * @return
+     */
+    public Map<String, AwsLambdaWithGateway> getFunctions()
+    {
+        return m_functions;
+    }
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    public byte[] toJson() throws Exception
+    {
+        Map<String, Object> info = new LinkedHashMap<String, Object>();
+        info.put("title", m_apiName);
+        info.put("version", "1.0");
+
+        Map<String, Object> emptyModel = new LinkedHashMap<String, Object>();
+        emptyModel.put("type", "object");
+
+        Map<String, Object> definitions = new LinkedHashMap<String, Object>();
+        definitions.put("Empty", emptyModel);
+
+        Map<String, Object> apiKey = new LinkedHashMap<String, Object>();
+        apiKey.put("type", "apiKey");
+        apiKey.put("name", "x-api-key");
+        apiKey.put("in", "header");
+
+        Map<String, Object> sigv4 = new LinkedHashMap<String, Object>();
+        sigv4.put("type", "apiKey");
+        sigv4.put("name", "Authorization");
+        sigv4.put("in", "header");
+        sigv4.put("x-amazon-apigateway-authtype", "awsSigv4");
+
+        Map<String, Object> securityDefinitions = new LinkedHashMap<String, Object>();
+        securityDefinitions.put("api_key", apiKey);
+        securityDefinitions.put("sigv4", sigv4);
+
+        Map<String, Object> document = new LinkedHashMap<String, Object>();
+        document.put("swagger", "2.0");
+        document.put("info", info);
+        document.put("schemes", asList("https"));
+        document.put("paths", m_paths);
+        document.put("securityDefinitions", securityDefinitions);
+        document.put("definitions", definitions);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+
+        return objectMapper.writeValueAsBytes(document);
+    }
+
+    /**
+     *
+     * @param path
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getPathItem(String path)
+    {
+        Map<String, Object> pathItem = (Map<String, Object>)m_paths.get(path);
+
+        if(pathItem == null)
+        {
+            pathItem = new LinkedHashMap<String, Object>();
+            m_paths.put(path, pathItem);
+        }
+
+        return pathItem;
+    }
+
+    /**
+     *
+     * @param generatedLambdaName
+     * @param awsLambdaWithGatewayAnnotation
+     * @return
+     */
+    private Map<String, Object> createLambdaOperation(String generatedLambdaName, AwsLambdaWithGateway awsLambdaWithGatewayAnnotation)
+    {
+        boolean enableCORS = awsLambdaWithGatewayAnnotation.enableCORS();
+
+        Map<String, Object> operation = new LinkedHashMap<String, Object>();
+        operation.put("produces", asList("application/json"));
+        operation.put("responses", createMethodResponses(enableCORS ? asList("Access-Control-Allow-Origin") : new ArrayList<Object>()));
+
+        // Both requirements live in one security object so API Gateway applies them together
+        Map<String, Object> securityRequirement = new LinkedHashMap<String, Object>();
+
+        if(awsLambdaWithGatewayAnnotation.keyRequired())
+        {
+            securityRequirement.put("api_key", new ArrayList<Object>());
+        }
+
+        if(awsLambdaWithGatewayAnnotation.authorization() == AwsLambdaWithGateway.AuthorizationTypes.AWS_IAM)
+        {
+            securityRequirement.put("sigv4", new ArrayList<Object>());
+        }
+
+        if(!securityRequirement.isEmpty())
+        {
+            operation.put("security", asList(securityRequirement));
+        }
+
+        Map<String, Object> integrationResponse = new LinkedHashMap<String, Object>();
+        integrationResponse.put("statusCode", "200");
+
+        if(enableCORS)
+        {
+            Map<String, Object> responseParameters = new LinkedHashMap<String, Object>();
+            responseParameters.put("method.response.header.Access-Control-Allow-Origin", "'" + m_corsOrigin + "'");
+
+            integrationResponse.put("responseParameters", responseParameters);
+        }
+
+        Map<String, Object> responseTemplates = new LinkedHashMap<String, Object>();
+        responseTemplates.put("application/json", "");
+        integrationResponse.put("responseTemplates", responseTemplates);
+
+        Map<String, Object> integrationResponses = new LinkedHashMap<String, Object>();
+        integrationResponses.put("default", integrationResponse);
+
+        Map<String, Object> requestTemplates = new LinkedHashMap<String, Object>();
+        requestTemplates.put("application/json", REQUEST_TEMPLATE);
+
+        // Lambda functions are always invoked with a POST, whatever method the client called
+        Map<String, Object> integration = new LinkedHashMap<String, Object>();
+        integration.put("type", "aws");
+        integration.put("httpMethod", "POST");
+        integration.put("uri", "arn:aws:apigateway:" + m_regionName + ":lambda:path/2015-03-31/functions/arn:aws:lambda:" + m_regionName + ":" + m_accountId + ":function:" + generatedLambdaName + "/invocations");
+        integration.put("passthroughBehavior", "when_no_templates");
+        integration.put("requestTemplates", requestTemplates);
+        integration.put("responses", integrationResponses);
+
+        operation.put("x-amazon-apigateway-integration", integration);
+
+        return operation;
+    }
+
+    /**
+     * The OPTIONS method is a MOCK integration answering the CORS preflight for every method on the resource
+     *
+     * @param pathItem
+     * @return
+     */
+    private Map<String, Object> createCorsOperation(Map<String, Object> pathItem)
+    {
+        List<String> allowedMethods = new ArrayList<String>();
+
+        for(String methodName : pathItem.keySet())
+        {
+            if(!methodName.equals("options"))
+            {
+                allowedMethods.add(methodName.toUpperCase());
+            }
+        }
+
+        allowedMethods.add("OPTIONS");
+
+        Map<String, Object> operation = new LinkedHashMap<String, Object>();
+        operation.put("consumes", asList("application/json"));
+        operation.put("produces", asList("application/json"));
+        operation.put("responses", createMethodResponses(asList("Access-Control-Allow-Origin", "Access-Control-Allow-Methods", "Access-Control-Allow-Headers")));
+
+        Map<String, Object> responseParameters = new LinkedHashMap<String, Object>();
+        responseParameters.put("method.response.header.Access-Control-Allow-Headers", "'Content-Type,X-Amz-Date,Authorization,X-Api-Key,X-Amz-Security-Token'");
+        responseParameters.put("method.response.header.Access-Control-Allow-Methods", "'" + StringUtils.join(allowedMethods, ",") + "'");
+        responseParameters.put("method.response.header.Access-Control-Allow-Origin", "'" + m_corsOrigin + "'");
+
+        Map<String, Object> integrationResponse = new LinkedHashMap<String, Object>();
+        integrationResponse.put("statusCode", "200");
+        integrationResponse.put("responseParameters", responseParameters);
+
+        Map<String, Object> integrationResponses = new LinkedHashMap<String, Object>();
+        integrationResponses.put("default", integrationResponse);
+
+        Map<String, Object> requestTemplates = new LinkedHashMap<String, Object>();
+        requestTemplates.put("application/json", "{\"statusCode\": 200}");
+
+        Map<String, Object> integration = new LinkedHashMap<String, Object>();
+        integration.put("type", "mock");
+        integration.put("passthroughBehavior", "when_no_match");
+        integration.put("requestTemplates", requestTemplates);
+        integration.put("responses", integrationResponses);
+
+        operation.put("x-amazon-apigateway-integration", integration);
+
+        return operation;
+    }
+
+    /**
+     *
+     * @param headerNames
+     * @return
+     */
+    private Map<String, Object> createMethodResponses(List<Object> headerNames)
+    {
+        Map<String, Object> emptySchema = new LinkedHashMap<String, Object>();
+        emptySchema.put("$ref", "#/definitions/Empty");
+
+        Map<String, Object> methodResponse = new LinkedHashMap<String, Object>();
+        methodResponse.put("description", "200 response");
+        methodResponse.put("schema", emptySchema);
+
+        if(!headerNames.isEmpty())
+        {
+            Map<String, Object> headers = new LinkedHashMap<String, Object>();
+
+            for(Object headerName : headerNames)
+            {
+                Map<String, Object> header = new LinkedHashMap<String, Object>();
+                header.put("type", "string");
+
+                headers.put((String)headerName, header);
+            }
+
+            methodResponse.put("headers", headers);
+        }
+
+        Map<String, Object> responses = new LinkedHashMap<String, Object>();
+        responses.put("200", methodResponse);
+
+        return responses;
+    }
+
+    /**
+     *
+     * @param values
+     * @return
+     */
+    private static List<Object> asList(Object... values)
+    {
+        List<Object> list = new ArrayList<Object>();
+
+        for(Object value : values)
+        {
+            list.add(value);
+        }
+
+        return list;
+    }
+}
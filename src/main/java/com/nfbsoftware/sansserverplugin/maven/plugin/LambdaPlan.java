@@ -0,0 +1,18 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+/**
+ * Goal which prints the changes deploy-lambda would make to our Lambda functions and API Gateway resources, without changing anything.
+ *
+ * @goal plan
+ */
+public class LambdaPlan extends LambdaConfiguration
+{
+    /**
+     *
+     */
+    @Override
+    protected boolean isPlanOnly()
+    {
+        return true;
+    }
+}
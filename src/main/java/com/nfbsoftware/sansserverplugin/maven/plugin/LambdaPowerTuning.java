@@ -0,0 +1,454 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import com.amazonaws.services.lambda.model.FunctionConfiguration;
+import com.amazonaws.services.lambda.model.GetFunctionResult;
+import com.amazonaws.services.lambda.model.InvokeResult;
+import com.amazonaws.services.lambda.model.UpdateFunctionConfigurationRequest;
+import com.amazonaws.util.BinaryUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nfbsoftware.sansserverplugin.maven.amazon.AmazonLambdaUtility;
+import com.nfbsoftware.sansserverplugin.sdk.annotation.processor.LambdaFunctionProcessor;
+import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
+
+/**
+ * Goal which runs a deployed function at a series of memory sizes with a sample payload, measuring duration percentiles, init duration and
+ * cost at each, and recommends the memory size best suited to a latency or cost objective.  The function's original memory size is restored
+ * when the goal finishes.  With writeBack=true the recommended size is written into the function's annotation in the project source.
+ *
+ * The function is reconfigured while it is tuned, so run this goal against a development environment.
+ *
+ * @goal power-tune
+ */
+public class LambdaPowerTuning extends AbstractMojo
+{
+    public static final String OBJECTIVE_COST = "cost";
+    public static final String OBJECTIVE_LATENCY = "latency";
+
+    public static final double DEFAULT_PRICE_PER_GB_SECOND = 0.00001667;
+
+    // Invocations that still ran at the old memory size are retried this many times, this far apart, before we give up
+    public static final int MAX_STALE_INVOCATIONS = 10;
+    public static final long STALE_INVOCATION_DELAY_MILLIS = 1000;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private Log m_logger;
+
+    private Properties m_properties = new Properties();
+
+    private AmazonLambdaUtility m_awsLambdaClient;
+
+    /**
+     * Location of the file.
+     *
+     * @parameter expression="${project.build.directory}"
+     * @required
+     */
+    private File outputDirectory;
+
+    /**
+     * Location of the file.
+     *
+     * @parameter expression="${project.basedir}"
+     * @required
+     */
+    private File rootDirectory;
+
+    /**
+     * The name given to the function in its annotation
+     *
+     * @parameter expression="${sansserver.function}"
+     * @required
+     */
+    private String functionName;
+
+    /**
+     * A file holding the JSON event each invocation is sent
+     *
+     * @parameter expression="${sansserver.payloadFile}"
+     */
+    private File payloadFile;
+
+    /**
+     * The JSON event each invocation is sent, when no payload file is given
+     *
+     * @parameter expression="${sansserver.payload}" default-value="{}"
+     */
+    private String payload;
+
+    /**
+     * A comma separated list of the memory sizes, in MB, to measure
+     *
+     * @parameter expression="${sansserver.memorySizes}" default-value="128,256,512,1024,1536,3008"
+     */
+    private String memorySizes;
+
+    /**
+     * How many times the function is invoked at each memory size, the first of which is a cold start
+     *
+     * @parameter expression="${sansserver.invocations}" default-value="10"
+     */
+    private int invocations;
+
+    /**
+     * "cost" recommends the memory size with the lowest average cost, "latency" the one with the lowest p90 duration
+     *
+     * @parameter expression="${sansserver.objective}" default-value="cost"
+     */
+    private String objective;
+
+    /**
+     * When true, the recommended memory size is written into the function's annotation
+     *
+     * @parameter expression="${sansserver.writeBack}" default-value="false"
+     */
+    private boolean writeBack;
+
+    /**
+     * The main execution method for the plugin.
+     */
+    public void execute() throws MojoExecutionException
+    {
+        // Grab a handle to our logger
+        m_logger = getLog();
+
+        try
+        {
+            m_logger.info("Loading SansServer build.properties file");
+            File propertiesFile = new File(rootDirectory.getAbsolutePath() + "/build.properties");
+            InputStream inStream = new FileInputStream(propertiesFile);
+            m_properties.load(inStream);
+
+            m_logger.info("Initializing AWS Lambda");
+            m_awsLambdaClient = new AmazonLambdaUtility(m_logger, m_properties);
+
+            if(invocations < 2)
+            {
+                throw new Exception("Power tuning needs at least 2 invocations per memory size, one cold and one warm");
+            }
+
+            if(!OBJECTIVE_COST.equalsIgnoreCase(objective) && !OBJECTIVE_LATENCY.equalsIgnoreCase(objective))
+            {
+                throw new Exception("Unknown power tuning objective (" + objective + "), expected " + OBJECTIVE_COST + " or " + OBJECTIVE_LATENCY);
+            }
+
+            List<Integer> memorySizeList = parseMemorySizes();
+            String eventPayload = payloadFile != null ? FileUtils.readFileToString(payloadFile, "UTF-8") : payload;
+
+            String environmentPrefix = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX));
+            String generatedlambdaName = StringUtil.replaceSubstr(environmentPrefix + "_" + functionName, " ", "");
+
+            GetFunctionResult getFunctionResult = m_awsLambdaClient.getFunction(generatedlambdaName);
+
+            if(getFunctionResult == null)
+            {
+                throw new Exception("Lambda function (" + generatedlambdaName + ") has not been deployed");
+            }
+
+            FunctionConfiguration functionConfiguration = getFunctionResult.getConfiguration();
+            int originalMemorySize = functionConfiguration.getMemorySize();
+
+            List<LambdaPowerTuningResult> results = new ArrayList<LambdaPowerTuningResult>();
+
+            try
+            {
+                for(int memorySize : memorySizeList)
+                {
+                    results.add(measure(generatedlambdaName, memorySize, eventPayload));
+                }
+            }
+            finally
+            {
+                m_logger.info("Restoring " + generatedlambdaName + " to " + originalMemorySize + " MB");
+                setMemorySize(generatedlambdaName, originalMemorySize);
+            }
+
+            LambdaPowerTuningResult bestResult = recommend(results);
+
+            for(LambdaPowerTuningResult result : results)
+            {
+                m_logger.info((result == bestResult ? "* " : "  ") + result);
+            }
+
+            m_logger.info("Recommended memorySize for " + functionName + " (" + objective + "):  " + bestResult.getMemorySize());
+
+            writeReport(generatedlambdaName, originalMemorySize, results, bestResult);
+
+            if(writeBack)
+            {
+                writeMemorySize(bestResult.getMemorySize());
+            }
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+
+            throw new MojoExecutionException("Error power tuning Lambda function: " + functionName, e);
+        }
+    }
+
+    /**
+     *
+     * @return
+     * @throws Exception
+     */
+    private List<Integer> parseMemorySizes() throws Exception
+    {
+        List<Integer> memorySizeList = new ArrayList<Integer>();
+
+        for(String memorySizeString : StringUtil.emptyIfNull(memorySizes).split(","))
+        {
+            if(!StringUtil.isNullOrEmpty(memorySizeString.trim()))
+            {
+                int memorySize = Integer.parseInt(memorySizeString.trim());
+
+                if(memorySize < LambdaFunctionProcessor.MINIMUM_MEMORY_SIZE || memorySize > LambdaFunctionProcessor.MAXIMUM_MEMORY_SIZE)
+                {
+                    throw new Exception("Memory size (" + memorySize + ") is outside Lambda's range of " + LambdaFunctionProcessor.MINIMUM_MEMORY_SIZE + " to " + LambdaFunctionProcessor.MAXIMUM_MEMORY_SIZE + " MB");
+                }
+
+                memorySizeList.add(memorySize);
+            }
+        }
+
+        if(memorySizeList.isEmpty())
+        {
+            throw new Exception("No memory sizes to measure");
+        }
+
+        return memorySizeList;
+    }
+
+    /**
+     * Change the function's memory size, which also moves it onto fresh containers, and invoke it the configured number of times
+     *
+     * @param generatedlambdaName
+     * @param memorySize
+     * @param eventPayload
+     * @return
+     * @throws Exception
+     */
+    private LambdaPowerTuningResult measure(String generatedlambdaName, int memorySize, String eventPayload) throws Exception
+    {
+        m_logger.info("Measuring " + generatedlambdaName + " at " + memorySize + " MB");
+
+        setMemorySize(generatedlambdaName, memorySize);
+
+        LambdaPowerTuningResult result = new LambdaPowerTuningResult(memorySize, getPricePerGbSecond());
+
+        int recordedInvocations = 0;
+        int staleInvocations = 0;
+
+        while(recordedInvocations < invocations)
+        {
+            InvokeResult invokeResult = m_awsLambdaClient.invokeFunction(generatedlambdaName, eventPayload);
+
+            if(!StringUtil.isNullOrEmpty(invokeResult.getFunctionError()))
+            {
+                throw new Exception("Lambda function (" + generatedlambdaName + ") failed at " + memorySize + " MB:  " + invokeResult.getFunctionError());
+            }
+
+            String logTail = new String(BinaryUtils.fromBase64(StringUtil.emptyIfNull(invokeResult.getLogResult())), "UTF-8");
+
+            // The configuration update takes a moment to reach the function, so early invocations can still run at the old size
+            int reportedMemorySize = LambdaPowerTuningResult.parseMemorySize(logTail);
+
+            if(reportedMemorySize != memorySize)
+            {
+                if(++staleInvocations > MAX_STALE_INVOCATIONS)
+                {
+                    throw new Exception("Lambda function (" + generatedlambdaName + ") still ran at " + reportedMemorySize + " MB after " + MAX_STALE_INVOCATIONS + " attempts to measure it at " + memorySize + " MB");
+                }
+
+                m_logger.info("Discarding an invocation that ran at " + reportedMemorySize + " MB, waiting for " + memorySize + " MB to take effect");
+
+                Thread.sleep(STALE_INVOCATION_DELAY_MILLIS);
+                continue;
+            }
+
+            result.addInvocation(logTail, recordedInvocations == 0);
+            recordedInvocations++;
+        }
+
+        return result;
+    }
+
+    /**
+     *
+     * @param generatedlambdaName
+     * @param memorySize
+     * @throws Exception
+     */
+    private void setMemorySize(String generatedlambdaName, int memorySize) throws Exception
+    {
+        UpdateFunctionConfigurationRequest updateFunctionConfigurationRequest = new UpdateFunctionConfigurationRequest();
+        updateFunctionConfigurationRequest.setFunctionName(generatedlambdaName);
+        updateFunctionConfigurationRequest.setMemorySize(memorySize);
+
+        m_awsLambdaClient.updateFunctionConfiguration(updateFunctionConfigurationRequest);
+    }
+
+    /**
+     *
+     * @return
+     */
+    private double getPricePerGbSecond()
+    {
+        String priceString = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_LAMBDA_PRICE_PER_GB_SECOND)).trim();
+
+        return StringUtil.isNullOrEmpty(priceString) ? DEFAULT_PRICE_PER_GB_SECOND : Double.parseDouble(priceString);
+    }
+
+    /**
+     * Pick the result that best meets our objective, preferring the smaller memory size on a tie
+     *
+     * @param results
+     * @return
+     */
+    private LambdaPowerTuningResult recommend(List<LambdaPowerTuningResult> results)
+    {
+        LambdaPowerTuningResult bestResult = null;
+
+        for(LambdaPowerTuningResult result : results)
+        {
+            if(bestResult == null)
+            {
+                bestResult = result;
+                continue;
+            }
+
+            double score = OBJECTIVE_LATENCY.equalsIgnoreCase(objective) ? result.getWarmPercentile(90) : result.getAverageCost();
+            double bestScore = OBJECTIVE_LATENCY.equalsIgnoreCase(objective) ? bestResult.getWarmPercentile(90) : bestResult.getAverageCost();
+
+            if(score < bestScore || (score == bestScore && result.getMemorySize() < bestResult.getMemorySize()))
+            {
+                bestResult = result;
+            }
+        }
+
+        return bestResult;
+    }
+
+    /**
+     *
+     * @param generatedlambdaName
+     * @param originalMemorySize
+     * @param results
+     * @param bestResult
+     * @throws Exception
+     */
+    private void writeReport(String generatedlambdaName, int originalMemorySize, List<LambdaPowerTuningResult> results, LambdaPowerTuningResult bestResult) throws Exception
+    {
+        List<Object> resultReport = new ArrayList<Object>();
+
+        for(LambdaPowerTuningResult result : results)
+        {
+            resultReport.add(result.toReport());
+        }
+
+        Map<String, Object> report = new LinkedHashMap<String, Object>();
+        report.put("function", generatedlambdaName);
+        report.put("objective", objective.toLowerCase());
+        report.put("invocationsPerMemorySize", invocations);
+        report.put("originalMemorySize", originalMemorySize);
+        report.put("recommendedMemorySize", bestResult.getMemorySize());
+        report.put("results", resultReport);
+
+        File reportFile = new File(outputDirectory, generatedlambdaName + "-power-tuning.json");
+        reportFile.getParentFile().mkdirs();
+
+        OBJECT_MAPPER.writerWithDefaultPrettyPrinter().writeValue(reportFile, report);
+
+        m_logger.info("Power tuning report written to: " + reportFile.getAbsolutePath());
+    }
+
+    /**
+     * Write the memory size into the annotation of the class the function manifest says declares our function
+     *
+     * @param memorySize
+     * @throws Exception
+     */
+    private void writeMemorySize(int memorySize) throws Exception
+    {
+        File manifestFile = new File(outputDirectory, "classes/" + LambdaFunctionProcessor.FUNCTION_MANIFEST);
+
+        if(!manifestFile.isFile())
+        {
+            throw new Exception("No function manifest found to locate " + functionName + ", compile the project before using writeBack");
+        }
+
+        String className = null;
+
+        for(JsonNode function : OBJECT_MAPPER.readTree(manifestFile).path("functions"))
+        {
+            if(functionName.equals(function.path("name").asText()))
+            {
+                className = function.path("className").asText();
+            }
+        }
+
+        if(className == null)
+        {
+            throw new Exception("Lambda function (" + functionName + ") isn't in the function manifest");
+        }
+
+        File sourceFile = new File(rootDirectory, "src/main/java/" + className.replace('.', '/') + ".java");
+        String source = FileUtils.readFileToString(sourceFile, "UTF-8");
+
+        Pattern annotationPattern = Pattern.compile("@AwsLambda(WithGateway|Scheduled)?\\s*\\((.*?)\\)\\s*(public|final|abstract|@)", Pattern.DOTALL);
+        Matcher annotationMatcher = annotationPattern.matcher(source);
+
+        if(!annotationMatcher.find())
+        {
+            throw new Exception("Unable to find the annotation of " + functionName + " in: " + sourceFile.getAbsolutePath());
+        }
+
+        String attributes = annotationMatcher.group(2);
+        String updatedAttributes;
+
+        if(Pattern.compile("memorySize\\s*=\\s*\"[^\"]*\"").matcher(attributes).find())
+        {
+            updatedAttributes = attributes.replaceFirst("memorySize\\s*=\\s*\"[^\"]*\"", "memorySize=\"" + memorySize + "\"");
+        }
+        else if(Pattern.compile("name\\s*=\\s*\"[^\"]*\"").matcher(attributes).find())
+        {
+            updatedAttributes = attributes.replaceFirst("(name\\s*=\\s*\"[^\"]*\")", "$1, memorySize=\"" + memorySize + "\"");
+        }
+        else
+        {
+            // Without a name to follow, the attribute goes at the end
+            String trimmedAttributes = attributes.replaceFirst("\\s+$", "");
+
+            updatedAttributes = trimmedAttributes + (trimmedAttributes.isEmpty() ? "" : ", ") + "memorySize=\"" + memorySize + "\"";
+        }
+
+        if(!Pattern.compile("memorySize\\s*=\\s*\"" + memorySize + "\"").matcher(updatedAttributes).find())
+        {
+            throw new Exception("Unable to write memorySize=\"" + memorySize + "\" into the annotation of " + functionName + " in: " + sourceFile.getAbsolutePath());
+        }
+
+        source = source.substring(0, annotationMatcher.start(2)) + updatedAttributes + source.substring(annotationMatcher.end(2));
+
+        FileUtils.writeStringToFile(sourceFile, source, "UTF-8");
+
+        m_logger.info("Wrote memorySize=\"" + memorySize + "\" to: " + sourceFile.getAbsolutePath());
+    }
+}
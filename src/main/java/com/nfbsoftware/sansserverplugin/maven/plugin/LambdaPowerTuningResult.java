@@ -0,0 +1,187 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The measurements taken while a function ran at one memory size:  the cold invocation that followed the memory change, with its init
+ * duration, and the warm invocations after it.  Durations come from the REPORT line Lambda writes at the end of each invocation's log.
+ *
+ * @author Brendan Clemenzi
+ */
+public class LambdaPowerTuningResult
+{
+    public static final double PRICE_PER_REQUEST = 0.0000002;
+
+    private static final Pattern DURATION_PATTERN           = Pattern.compile("\\bDuration: ([0-9.]+) ms");
+    private static final Pattern BILLED_DURATION_PATTERN    = Pattern.compile("Billed Duration: ([0-9.]+) ms");
+    private static final Pattern INIT_DURATION_PATTERN      = Pattern.compile("Init Duration: ([0-9.]+) ms");
+    private static final Pattern MAX_MEMORY_USED_PATTERN    = Pattern.compile("Max Memory Used: ([0-9]+) MB");
+    private static final Pattern MEMORY_SIZE_PATTERN        = Pattern.compile("\\bMemory Size: ([0-9]+) MB");
+
+    private int m_memorySize;
+    private double m_pricePerGbSecond;
+
+    private double m_coldDuration = -1;
+    private double m_initDuration = -1;
+    private List<Double> m_warmDurations = new ArrayList<Double>();
+    private double m_totalBilledDuration;
+    private int m_invocationCount;
+    private int m_maxMemoryUsed;
+
+    /**
+     *
+     * @param memorySize
+     * @param pricePerGbSecond
+     */
+    public LambdaPowerTuningResult(int memorySize, double pricePerGbSecond)
+    {
+        m_memorySize = memorySize;
+        m_pricePerGbSecond = pricePerGbSecond;
+    }
+
+    /**
+     * Record one invocation from the REPORT line in the tail of its log
+     *
+     * @param logTail
+     * @param coldInvocation true for the first invocation after the memory size changed
+     * @throws Exception
+     */
+    public void addInvocation(String logTail, boolean coldInvocation) throws Exception
+    {
+        double duration = parseMillis(DURATION_PATTERN, logTail);
+        double billedDuration = parseMillis(BILLED_DURATION_PATTERN, logTail);
+
+        if(duration < 0 || billedDuration < 0)
+        {
+            throw new Exception("No REPORT line found in the invocation log at " + m_memorySize + " MB");
+        }
+
+        if(coldInvocation)
+        {
+            m_coldDuration = duration;
+            m_initDuration = parseMillis(INIT_DURATION_PATTERN, logTail);
+        }
+        else
+        {
+            m_warmDurations.add(duration);
+        }
+
+        Matcher memoryMatcher = MAX_MEMORY_USED_PATTERN.matcher(logTail);
+
+        if(memoryMatcher.find())
+        {
+            m_maxMemoryUsed = Math.max(m_maxMemoryUsed, Integer.parseInt(memoryMatcher.group(1)));
+        }
+
+        m_totalBilledDuration += billedDuration;
+        m_invocationCount++;
+    }
+
+    /**
+     * The memory size the invocation actually ran with, from the REPORT line in the tail of its log
+     *
+     * @param logTail
+     * @return the memory size in MB, or -1 when the log doesn't report it
+     */
+    public static int parseMemorySize(String logTail)
+    {
+        Matcher matcher = MEMORY_SIZE_PATTERN.matcher(logTail);
+
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    /**
+     *
+     * @param pattern
+     * @param logTail
+     * @return the milliseconds found, or -1 when the log doesn't report them
+     */
+    private static double parseMillis(Pattern pattern, String logTail)
+    {
+        Matcher matcher = pattern.matcher(logTail);
+
+        return matcher.find() ? Double.parseDouble(matcher.group(1)) : -1;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getMemorySize()
+    {
+        return m_memorySize;
+    }
+
+    /**
+     * The warm duration below which the given percentage of invocations finished, using the nearest rank
+     *
+     * @param percentile
+     * @return
+     */
+    public double getWarmPercentile(int percentile)
+    {
+        if(m_warmDurations.isEmpty())
+        {
+            return m_coldDuration;
+        }
+
+        List<Double> sortedDurations = new ArrayList<Double>(m_warmDurations);
+        Collections.sort(sortedDurations);
+
+        int rank = (int)Math.ceil(percentile / 100.0 * sortedDurations.size());
+
+        return sortedDurations.get(Math.max(0, rank - 1));
+    }
+
+    /**
+     * The average cost of one invocation at this memory size, including the per request charge
+     *
+     * @return
+     */
+    public double getAverageCost()
+    {
+        if(m_invocationCount == 0)
+        {
+            return 0;
+        }
+
+        double averageBilledSeconds = m_totalBilledDuration / m_invocationCount / 1000.0;
+
+        return averageBilledSeconds * (m_memorySize / 1024.0) * m_pricePerGbSecond + PRICE_PER_REQUEST;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Map<String, Object> toReport()
+    {
+        Map<String, Object> report = new LinkedHashMap<String, Object>();
+        report.put("memorySize", m_memorySize);
+        report.put("invocations", m_invocationCount);
+        report.put("coldDurationMillis", m_coldDuration);
+        report.put("initDurationMillis", m_initDuration);
+        report.put("p50Millis", getWarmPercentile(50));
+        report.put("p90Millis", getWarmPercentile(90));
+        report.put("p99Millis", getWarmPercentile(99));
+        report.put("maxMemoryUsedMB", m_maxMemoryUsed);
+        report.put("averageCost", getAverageCost());
+
+        return report;
+    }
+
+    /**
+     *
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%5d MB  p50 %8.1f ms  p90 %8.1f ms  p99 %8.1f ms  cold %8.1f ms  init %8.1f ms  used %4d MB  $%.9f", m_memorySize, getWarmPercentile(50), getWarmPercentile(90), getWarmPercentile(99), m_coldDuration, m_initDuration, m_maxMemoryUsed, getAverageCost());
+    }
+}
@@ -0,0 +1,105 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * The LambdaRegionLog prefixes every message with the region it came from, so the logs of regions deployed at the same time can be told apart.
+ *
+ * @author Brendan Clemenzi
+ */
+public class LambdaRegionLog implements Log
+{
+    private Log m_logger;
+    private String m_prefix;
+
+    /**
+     *
+     * @param logger
+     * @param regionName
+     */
+    public LambdaRegionLog(Log logger, String regionName)
+    {
+        m_logger = logger;
+        m_prefix = "[" + regionName + "] ";
+    }
+
+    public boolean isDebugEnabled()
+    {
+        return m_logger.isDebugEnabled();
+    }
+
+    public void debug(CharSequence content)
+    {
+        m_logger.debug(m_prefix + content);
+    }
+
+    public void debug(CharSequence content, Throwable error)
+    {
+        m_logger.debug(m_prefix + content, error);
+    }
+
+    public void debug(Throwable error)
+    {
+        m_logger.debug(m_prefix, error);
+    }
+
+    public boolean isInfoEnabled()
+    {
+        return m_logger.isInfoEnabled();
+    }
+
+    public void info(CharSequence content)
+    {
+        m_logger.info(m_prefix + content);
+    }
+
+    public void info(CharSequence content, Throwable error)
+    {
+        m_logger.info(m_prefix + content, error);
+    }
+
+    public void info(Throwable error)
+    {
+        m_logger.info(m_prefix, error);
+    }
+
+    public boolean isWarnEnabled()
+    {
+        return m_logger.isWarnEnabled();
+    }
+
+    public void warn(CharSequence content)
+    {
+        m_logger.warn(m_prefix + content);
+    }
+
+    public void warn(CharSequence content, Throwable error)
+    {
+        m_logger.warn(m_prefix + content, error);
+    }
+
+    public void warn(Throwable error)
+    {
+        m_logger.warn(m_prefix, error);
+    }
+
+    public boolean isErrorEnabled()
+    {
+        return m_logger.isErrorEnabled();
+    }
+
+    public void error(CharSequence content)
+    {
+        m_logger.error(m_prefix + content);
+    }
+
+    public void error(CharSequence content, Throwable error)
+    {
+        m_logger.error(m_prefix + content, error);
+    }
+
+    public void error(Throwable error)
+    {
+        m_logger.error(m_prefix, error);
+    }
+}
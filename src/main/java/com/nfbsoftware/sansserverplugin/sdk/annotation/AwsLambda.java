@@ -21,4 +21,5 @@ public @interface AwsLambda
     String timeout() default "60";
     
     boolean enablePing() default false;
+    String warmConcurrency() default "1";
 }
\ No newline at end of file
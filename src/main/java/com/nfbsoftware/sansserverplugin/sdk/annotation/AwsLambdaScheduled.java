@@ -0,0 +1,25 @@
+package com.nfbsoftware.sansserverplugin.sdk.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation class to allow use to configure Java-based Lambda functions that run on a schedule.  The cronExpression uses the six field
+ * CloudWatch Events format (minutes hours day-of-month month day-of-week year), or may be given as a complete cron(...) or rate(...)
+ * expression.
+ * 
+ * @author Brendan Clemenzi
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface AwsLambdaScheduled 
+{
+    String name();
+    String desc();
+    String handlerMethod();
+    String memorySize() default "128";
+    String timeout() default "300";
+    String cronExpression();
+}
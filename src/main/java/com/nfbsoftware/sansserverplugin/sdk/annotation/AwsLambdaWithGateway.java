@@ -44,4 +44,5 @@ public @interface AwsLambdaWithGateway
     boolean keyRequired() default false;
     boolean enableCORS() default false;
     boolean enablePing() default false;
+    String warmConcurrency() default "1";
 }
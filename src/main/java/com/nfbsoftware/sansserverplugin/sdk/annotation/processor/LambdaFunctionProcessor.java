@@ -0,0 +1,485 @@
+package com.nfbsoftware.sansserverplugin.sdk.annotation.processor;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import org.apache.commons.io.IOUtils;
+
+import com.nfbsoftware.sansserverplugin.sdk.annotation.AwsLambda;
+import com.nfbsoftware.sansserverplugin.sdk.annotation.AwsLambdaScheduled;
+import com.nfbsoftware.sansserverplugin.sdk.annotation.AwsLambdaWithGateway;
+
+/**
+ * The LambdaFunctionProcessor runs while your project compiles.  It validates each AwsLambda, AwsLambdaWithGateway and AwsLambdaScheduled class and writes them
+ * to META-INF/sansserver/functions.json, which the deploy-lambda goal reads instead of scanning target/classes.  Annotation mistakes are
+ * reported as compile errors on the offending class.
+ *
+ * The processor is registered in META-INF/services, so it runs for any project with this artifact on its compile classpath.
+ *
+ * @author Brendan Clemenzi
+ */
+@SupportedAnnotationTypes({
+    "com.nfbsoftware.sansserverplugin.sdk.annotation.AwsLambda",
+    "com.nfbsoftware.sansserverplugin.sdk.annotation.AwsLambdaWithGateway",
+    "com.nfbsoftware.sansserverplugin.sdk.annotation.AwsLambdaScheduled"})
+public class LambdaFunctionProcessor extends AbstractProcessor
+{
+    public static final String FUNCTION_MANIFEST = "META-INF/sansserver/functions.json";
+
+    public static final int MINIMUM_MEMORY_SIZE = 128;
+    public static final int MAXIMUM_MEMORY_SIZE = 10240;
+    public static final int MINIMUM_TIMEOUT     = 1;
+    public static final int MAXIMUM_TIMEOUT     = 900;
+    public static final int MINIMUM_WARM_CONCURRENCY = 1;
+    public static final int MAXIMUM_WARM_CONCURRENCY = 5;
+
+    private static final Pattern FUNCTION_NAME_PATTERN  = Pattern.compile("[a-zA-Z0-9_ -]+");
+    private static final Pattern CLASS_NAME_PATTERN     = Pattern.compile("\"className\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern CRON_FIELDS_PATTERN    = Pattern.compile("\\S+(\\s+\\S+){5}");
+
+    private Map<String, String> m_functionEntries = new TreeMap<String, String>();
+    private Map<String, String> m_functionNames = new HashMap<String, String>();
+    private Map<String, String> m_gatewayRoutes = new HashMap<String, String>();
+    private Map<String, String> m_resourceNames = new HashMap<String, String>();
+
+    /**
+     *
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion()
+    {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     *
+     */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+    {
+        if(roundEnv.processingOver())
+        {
+            if(!roundEnv.errorRaised())
+            {
+                addUnchangedFunctions();
+
+                writeFunctionManifest();
+            }
+
+            return false;
+        }
+
+        for(Element element : roundEnv.getElementsAnnotatedWith(AwsLambda.class))
+        {
+            addFunction((TypeElement)element);
+        }
+
+        for(Element element : roundEnv.getElementsAnnotatedWith(AwsLambdaWithGateway.class))
+        {
+            addFunction((TypeElement)element);
+        }
+
+        for(Element element : roundEnv.getElementsAnnotatedWith(AwsLambdaScheduled.class))
+        {
+            addFunction((TypeElement)element);
+        }
+
+        return false;
+    }
+
+    /**
+     * An incremental compile only hands us the classes that were recompiled, so carry over the functions from our previous manifest
+     * that are still annotated on the classpath
+     */
+    private void addUnchangedFunctions()
+    {
+        try
+        {
+            FileObject previousManifest = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", FUNCTION_MANIFEST);
+
+            InputStream inputStream = previousManifest.openInputStream();
+
+            try
+            {
+                Matcher matcher = CLASS_NAME_PATTERN.matcher(IOUtils.toString(inputStream, "UTF-8"));
+
+                while(matcher.find())
+                {
+                    String className = matcher.group(1);
+
+                    if(!m_functionEntries.containsKey(className))
+                    {
+                        TypeElement typeElement = processingEnv.getElementUtils().getTypeElement(className);
+
+                        if(typeElement != null)
+                        {
+                            addFunction(typeElement);
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                inputStream.close();
+            }
+        }
+        catch (Exception e)
+        {
+            // No previous manifest, so every function was part of this compile
+        }
+    }
+
+    /**
+     *
+     * @param typeElement
+     */
+    private void addFunction(TypeElement typeElement)
+    {
+        String className = processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+
+        if(m_functionEntries.containsKey(className))
+        {
+            return;
+        }
+
+        AwsLambda awsLambdaAnnotation = typeElement.getAnnotation(AwsLambda.class);
+        AwsLambdaWithGateway awsLambdaWithGatewayAnnotation = typeElement.getAnnotation(AwsLambdaWithGateway.class);
+        AwsLambdaScheduled awsLambdaScheduledAnnotation = typeElement.getAnnotation(AwsLambdaScheduled.class);
+
+        if(awsLambdaAnnotation == null && awsLambdaWithGatewayAnnotation == null && awsLambdaScheduledAnnotation == null)
+        {
+            return;
+        }
+
+        if(typeElement.getKind() != ElementKind.CLASS || !typeElement.getModifiers().contains(Modifier.PUBLIC) || typeElement.getModifiers().contains(Modifier.ABSTRACT))
+        {
+            error(typeElement, "Lambda functions must be public, concrete classes: " + className);
+            return;
+        }
+
+        StringBuilder entry = new StringBuilder();
+        entry.append("    {\"className\": ").append(quote(className));
+
+        if(awsLambdaAnnotation != null)
+        {
+            validateFunction(typeElement, awsLambdaAnnotation.name(), awsLambdaAnnotation.handlerMethod(), awsLambdaAnnotation.memorySize(), awsLambdaAnnotation.timeout(), awsLambdaAnnotation.warmConcurrency());
+
+            entry.append(", \"annotation\": \"AwsLambda\"");
+            appendFunction(entry, awsLambdaAnnotation.name(), awsLambdaAnnotation.desc(), awsLambdaAnnotation.handlerMethod(), awsLambdaAnnotation.memorySize(), awsLambdaAnnotation.timeout(), awsLambdaAnnotation.enablePing(), awsLambdaAnnotation.warmConcurrency());
+        }
+        else if(awsLambdaWithGatewayAnnotation != null)
+        {
+            validateFunction(typeElement, awsLambdaWithGatewayAnnotation.name(), awsLambdaWithGatewayAnnotation.handlerMethod(), awsLambdaWithGatewayAnnotation.memorySize(), awsLambdaWithGatewayAnnotation.timeout(), awsLambdaWithGatewayAnnotation.warmConcurrency());
+            validateGateway(typeElement, awsLambdaWithGatewayAnnotation);
+
+            entry.append(", \"annotation\": \"AwsLambdaWithGateway\"");
+            appendFunction(entry, awsLambdaWithGatewayAnnotation.name(), awsLambdaWithGatewayAnnotation.desc(), awsLambdaWithGatewayAnnotation.handlerMethod(), awsLambdaWithGatewayAnnotation.memorySize(), awsLambdaWithGatewayAnnotation.timeout(), awsLambdaWithGatewayAnnotation.enablePing(), awsLambdaWithGatewayAnnotation.warmConcurrency());
+
+            entry.append(", \"resourceName\": ").append(quote(awsLambdaWithGatewayAnnotation.resourceName()));
+            entry.append(", \"method\": ").append(quote(awsLambdaWithGatewayAnnotation.method().name()));
+            entry.append(", \"authorization\": ").append(quote(awsLambdaWithGatewayAnnotation.authorization().name()));
+            entry.append(", \"keyRequired\": ").append(awsLambdaWithGatewayAnnotation.keyRequired());
+            entry.append(", \"enableCORS\": ").append(awsLambdaWithGatewayAnnotation.enableCORS());
+        }
+        else
+        {
+            validateFunction(typeElement, awsLambdaScheduledAnnotation.name(), awsLambdaScheduledAnnotation.handlerMethod(), awsLambdaScheduledAnnotation.memorySize(), awsLambdaScheduledAnnotation.timeout(), "1");
+            validateSchedule(typeElement, awsLambdaScheduledAnnotation.cronExpression());
+
+            entry.append(", \"annotation\": \"AwsLambdaScheduled\"");
+            appendFunction(entry, awsLambdaScheduledAnnotation.name(), awsLambdaScheduledAnnotation.desc(), awsLambdaScheduledAnnotation.handlerMethod(), awsLambdaScheduledAnnotation.memorySize(), awsLambdaScheduledAnnotation.timeout(), false, "1");
+
+            entry.append(", \"cronExpression\": ").append(quote(awsLambdaScheduledAnnotation.cronExpression()));
+        }
+
+        entry.append("}");
+
+        m_functionEntries.put(className, entry.toString());
+    }
+
+    /**
+     *
+     * @param entry
+     * @param name
+     * @param desc
+     * @param handlerMethod
+     * @param memorySize
+     * @param timeout
+     * @param enablePing
+     * @param warmConcurrency
+     */
+    private void appendFunction(StringBuilder entry, String name, String desc, String handlerMethod, String memorySize, String timeout, boolean enablePing, String warmConcurrency)
+    {
+        entry.append(", \"name\": ").append(quote(name));
+        entry.append(", \"desc\": ").append(quote(desc));
+        entry.append(", \"handlerMethod\": ").append(quote(handlerMethod));
+        entry.append(", \"memorySize\": ").append(quote(memorySize));
+        entry.append(", \"timeout\": ").append(quote(timeout));
+        entry.append(", \"enablePing\": ").append(enablePing);
+        entry.append(", \"warmConcurrency\": ").append(quote(warmConcurrency));
+    }
+
+    /**
+     *
+     * @param typeElement
+     * @param name
+     * @param handlerMethod
+     * @param memorySize
+     * @param timeout
+     * @param warmConcurrency
+     */
+    private void validateFunction(TypeElement typeElement, String name, String handlerMethod, String memorySize, String timeout, String warmConcurrency)
+    {
+        if(name == null || !FUNCTION_NAME_PATTERN.matcher(name).matches())
+        {
+            error(typeElement, "Lambda function name may only contain letters, numbers, spaces, hyphens and underscores: " + name);
+        }
+        else
+        {
+            String functionNameKey = name.replace(" ", "").toLowerCase();
+            String existingClassName = m_functionNames.get(functionNameKey);
+
+            if(existingClassName != null)
+            {
+                error(typeElement, "Lambda function name (" + name + ") is already used by: " + existingClassName);
+            }
+            else
+            {
+                m_functionNames.put(functionNameKey, typeElement.getQualifiedName().toString());
+            }
+        }
+
+        validateRange(typeElement, "memorySize", memorySize, MINIMUM_MEMORY_SIZE, MAXIMUM_MEMORY_SIZE);
+        validateRange(typeElement, "timeout", timeout, MINIMUM_TIMEOUT, MAXIMUM_TIMEOUT);
+
+        // CloudWatch Events allows five targets per rule, one for each container we keep warm
+        validateRange(typeElement, "warmConcurrency", warmConcurrency, MINIMUM_WARM_CONCURRENCY, MAXIMUM_WARM_CONCURRENCY);
+
+        boolean handlerFound = false;
+
+        for(ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(typeElement)))
+        {
+            if(method.getSimpleName().contentEquals(handlerMethod) && method.getModifiers().contains(Modifier.PUBLIC))
+            {
+                handlerFound = true;
+            }
+        }
+
+        if(!handlerFound)
+        {
+            error(typeElement, "Lambda handler method (" + handlerMethod + ") is not a public method of: " + typeElement.getQualifiedName());
+        }
+    }
+
+    /**
+     *
+     * @param typeElement
+     * @param awsLambdaWithGatewayAnnotation
+     */
+    private void validateGateway(TypeElement typeElement, AwsLambdaWithGateway awsLambdaWithGatewayAnnotation)
+    {
+        String resourceName = awsLambdaWithGatewayAnnotation.resourceName();
+
+        if(resourceName == null || resourceName.trim().length() == 0 || resourceName.contains("/"))
+        {
+            error(typeElement, "Gateway resourceName must be a single, non-empty path part: " + resourceName);
+            return;
+        }
+
+        if(awsLambdaWithGatewayAnnotation.method() == AwsLambdaWithGateway.MethodTypes.OPTIONS && awsLambdaWithGatewayAnnotation.enableCORS())
+        {
+            error(typeElement, "Gateway resource (" + resourceName + ") can't map OPTIONS to a function and enable CORS");
+        }
+
+        String className = typeElement.getQualifiedName().toString();
+        String routeKey = awsLambdaWithGatewayAnnotation.method().name() + " /" + resourceName.toLowerCase();
+        String existingRouteClassName = m_gatewayRoutes.get(routeKey);
+
+        if(existingRouteClassName != null)
+        {
+            error(typeElement, "Gateway route (" + awsLambdaWithGatewayAnnotation.method().name() + " /" + resourceName + ") is already used by: " + existingRouteClassName);
+            return;
+        }
+
+        m_gatewayRoutes.put(routeKey, className);
+
+        String existingResourceClassName = m_resourceNames.get(resourceName.toLowerCase());
+
+        if(existingResourceClassName != null)
+        {
+            // Sharing a resource between methods only works when the gateway is provisioned from an OpenAPI document
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.MANDATORY_WARNING, "Gateway resourceName (" + resourceName + ") is also used by " + existingResourceClassName + ", which requires aws.apigateway.provisioningMode=openapi", typeElement);
+        }
+        else
+        {
+            m_resourceNames.put(resourceName.toLowerCase(), className);
+        }
+    }
+
+    /**
+     * CloudWatch Events cron expressions have six fields, unlike the five of a crontab
+     *
+     * @param typeElement
+     * @param cronExpression
+     */
+    private void validateSchedule(TypeElement typeElement, String cronExpression)
+    {
+        String trimmedExpression = cronExpression == null ? "" : cronExpression.trim();
+
+        if(trimmedExpression.startsWith("cron(") || trimmedExpression.startsWith("rate("))
+        {
+            if(!trimmedExpression.endsWith(")"))
+            {
+                error(typeElement, "Lambda cronExpression (" + cronExpression + ") is missing its closing parenthesis");
+            }
+        }
+        else if(!CRON_FIELDS_PATTERN.matcher(trimmedExpression).matches())
+        {
+            error(typeElement, "Lambda cronExpression (" + cronExpression + ") must have six fields:  minutes hours day-of-month month day-of-week year");
+        }
+    }
+
+    /**
+     *
+     * @param typeElement
+     * @param attributeName
+     * @param value
+     * @param minimum
+     * @param maximum
+     */
+    private void validateRange(TypeElement typeElement, String attributeName, String value, int minimum, int maximum)
+    {
+        try
+        {
+            int intValue = Integer.parseInt(value.trim());
+
+            if(intValue < minimum || intValue > maximum)
+            {
+                error(typeElement, "Lambda " + attributeName + " (" + value + ") must be between " + minimum + " and " + maximum);
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            error(typeElement, "Lambda " + attributeName + " (" + value + ") is not a whole number");
+        }
+    }
+
+    /**
+     *
+     * @param element
+     * @param message
+     */
+    private void error(Element element, String message)
+    {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Always written, even with no functions, so a manifest left by an earlier build can't outlive the functions it lists
+     */
+    private void writeFunctionManifest()
+    {
+        StringBuilder manifest = new StringBuilder();
+        manifest.append("{\n  \"functions\": [\n");
+
+        int index = 0;
+
+        for(String entry : m_functionEntries.values())
+        {
+            manifest.append(entry);
+            manifest.append(++index < m_functionEntries.size() ? ",\n" : "\n");
+        }
+
+        manifest.append("  ]\n}\n");
+
+        try
+        {
+            FileObject manifestFile = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", FUNCTION_MANIFEST);
+
+            OutputStream outputStream = manifestFile.openOutputStream();
+
+            try
+            {
+                outputStream.write(manifest.toString().getBytes("UTF-8"));
+            }
+            finally
+            {
+                outputStream.close();
+            }
+        }
+        catch (Exception e)
+        {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + FUNCTION_MANIFEST + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     *
+     * @param value
+     * @return
+     */
+    private static String quote(String value)
+    {
+        if(value == null)
+        {
+            return "null";
+        }
+
+        StringBuilder quoted = new StringBuilder("\"");
+
+        for(int index = 0; index < value.length(); index++)
+        {
+            char character = value.charAt(index);
+
+            switch(character)
+            {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if(character < 0x20)
+                    {
+                        quoted.append(String.format("\\u%04x", (int)character));
+                    }
+                    else
+                    {
+                        quoted.append(character);
+                    }
+            }
+        }
+
+        return quoted.append("\"").toString();
+    }
+}
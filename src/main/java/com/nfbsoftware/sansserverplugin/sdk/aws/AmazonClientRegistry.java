@@ -0,0 +1,147 @@
+package com.nfbsoftware.sansserverplugin.sdk.aws;
+
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
+
+/**
+ * The AmazonClientRegistry hands out AWS clients shared by the whole process.  Each client is created the first time it is asked for and kept
+ * for as long as the Lambda container lives, so a warm invocation reuses its connection pool, open connections and region lookup instead of
+ * building them again for every manager it constructs.
+ *
+ * Clients are keyed by their type, region, credentials and connection settings, so managers built from different properties never share one.
+ *
+ * @author Brendan Clemenzi
+ */
+public class AmazonClientRegistry
+{
+    private static final ConcurrentMap<String, AmazonWebServiceClient> s_clients = new ConcurrentHashMap<String, AmazonWebServiceClient>();
+
+    /**
+     * Returns the shared client of the given type for the region, credentials and connection settings in our properties
+     *
+     * @param clientClass
+     * @param properties
+     * @return
+     */
+    public static <T extends AmazonWebServiceClient> T getClient(Class<T> clientClass, Properties properties)
+    {
+        String regionName = StringUtil.emptyIfNull(properties.getProperty(Entity.FrameworkProperties.AWS_REGION));
+        String accessKey = StringUtil.emptyIfNull(properties.getProperty(Entity.FrameworkProperties.AWS_ACCESS_KEY));
+        String secretKey = StringUtil.emptyIfNull(properties.getProperty(Entity.FrameworkProperties.AWS_SECRET_KEY));
+
+        ClientConfiguration clientConfiguration = getClientConfiguration(properties);
+
+        String clientKey = clientClass.getName() + "|" + regionName + "|" + accessKey + "|" + secretKey.hashCode() + "|" + describe(clientConfiguration);
+
+        AmazonWebServiceClient client = s_clients.get(clientKey);
+
+        if(client == null)
+        {
+            synchronized(s_clients)
+            {
+                client = s_clients.get(clientKey);
+
+                if(client == null)
+                {
+                    AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
+
+                    try
+                    {
+                        client = clientClass.getConstructor(AWSCredentials.class, ClientConfiguration.class).newInstance(credentials, clientConfiguration);
+                    }
+                    catch (ReflectiveOperationException e)
+                    {
+                        throw new IllegalArgumentException("Unable to create AWS client: " + clientClass.getName(), e);
+                    }
+
+                    // Set our region
+                    client.setRegion(Region.getRegion(Regions.fromName(regionName)));
+
+                    s_clients.put(clientKey, client);
+                }
+            }
+        }
+
+        return clientClass.cast(client);
+    }
+
+    /**
+     * Build the connection settings from our properties, leaving the SDK's defaults in place for any we don't set
+     *
+     * @param properties
+     * @return
+     */
+    public static ClientConfiguration getClientConfiguration(Properties properties)
+    {
+        ClientConfiguration clientConfiguration = new ClientConfiguration();
+
+        // Keep idle connections open between invocations unless told otherwise
+        clientConfiguration.setUseTcpKeepAlive(!"false".equalsIgnoreCase(StringUtil.emptyIfNull(properties.getProperty(Entity.FrameworkProperties.AWS_CLIENT_TCP_KEEP_ALIVE)).trim()));
+
+        String maxConnections = getSetting(properties, Entity.FrameworkProperties.AWS_CLIENT_MAX_CONNECTIONS);
+        String connectionTimeout = getSetting(properties, Entity.FrameworkProperties.AWS_CLIENT_CONNECTION_TIMEOUT);
+        String socketTimeout = getSetting(properties, Entity.FrameworkProperties.AWS_CLIENT_SOCKET_TIMEOUT);
+        String requestTimeout = getSetting(properties, Entity.FrameworkProperties.AWS_CLIENT_REQUEST_TIMEOUT);
+        String connectionMaxIdle = getSetting(properties, Entity.FrameworkProperties.AWS_CLIENT_CONNECTION_MAX_IDLE);
+
+        if(maxConnections != null)
+        {
+            clientConfiguration.setMaxConnections(Integer.parseInt(maxConnections));
+        }
+
+        if(connectionTimeout != null)
+        {
+            clientConfiguration.setConnectionTimeout(Integer.parseInt(connectionTimeout));
+        }
+
+        if(socketTimeout != null)
+        {
+            clientConfiguration.setSocketTimeout(Integer.parseInt(socketTimeout));
+        }
+
+        if(requestTimeout != null)
+        {
+            clientConfiguration.setRequestTimeout(Integer.parseInt(requestTimeout));
+        }
+
+        if(connectionMaxIdle != null)
+        {
+            clientConfiguration.setConnectionMaxIdleMillis(Long.parseLong(connectionMaxIdle));
+        }
+
+        return clientConfiguration;
+    }
+
+    /**
+     *
+     * @param properties
+     * @param propertyKey
+     * @return the trimmed value, or null when it isn't set
+     */
+    private static String getSetting(Properties properties, String propertyKey)
+    {
+        String value = StringUtil.emptyIfNull(properties.getProperty(propertyKey)).trim();
+
+        return StringUtil.isNullOrEmpty(value) ? null : value;
+    }
+
+    /**
+     *
+     * @param clientConfiguration
+     * @return
+     */
+    private static String describe(ClientConfiguration clientConfiguration)
+    {
+        return clientConfiguration.getMaxConnections() + "/" + clientConfiguration.getConnectionTimeout() + "/" + clientConfiguration.getSocketTimeout() + "/" + clientConfiguration.getRequestTimeout() + "/" + clientConfiguration.getConnectionMaxIdleMillis() + "/" + clientConfiguration.useTcpKeepAlive();
+    }
+}
@@ -3,14 +3,11 @@ package com.nfbsoftware.sansserverplugin.sdk.aws;
 import java.util.HashMap;
 import java.util.Properties;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.regions.Region;
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.cognitoidentity.AmazonCognitoIdentityClient;
 import com.amazonaws.services.cognitoidentity.model.GetOpenIdTokenForDeveloperIdentityRequest;
 import com.amazonaws.services.cognitoidentity.model.GetOpenIdTokenForDeveloperIdentityResult;
 import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.ProjectConfiguration;
 import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
 
 /**
@@ -24,6 +21,14 @@ public class AmazonCognitoManager
     
     private AmazonCognitoIdentityClient m_amazonCognitoIdentityClient;
     
+    /**
+     * Create a manager from the project configuration loaded once per container
+     */
+    public AmazonCognitoManager()
+    {
+        this(ProjectConfiguration.getProperties());
+    }
+    
     /**
      * 
      * @param properties
@@ -32,15 +37,8 @@ public class AmazonCognitoManager
     {
         m_properties = properties;
         
-        String regionName = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_REGION));
-        String accessKey = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_ACCESS_KEY));
-        String secretKey = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_SECRET_KEY));
-
-        AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-        m_amazonCognitoIdentityClient = new AmazonCognitoIdentityClient(credentials);
-        
-        // Set our region
-        m_amazonCognitoIdentityClient.setRegion(Region.getRegion(Regions.fromName(regionName)));
+        // Share one client per region and credentials across every invocation this container serves
+        m_amazonCognitoIdentityClient = AmazonClientRegistry.getClient(AmazonCognitoIdentityClient.class, m_properties);
     }
     
     /**
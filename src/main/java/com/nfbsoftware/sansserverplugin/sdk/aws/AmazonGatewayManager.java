@@ -7,10 +7,6 @@ import java.util.Properties;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.regions.Region;
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.apigateway.AmazonApiGatewayClient;
 import com.amazonaws.services.apigateway.model.ApiKey;
 import com.amazonaws.services.apigateway.model.CreateApiKeyRequest;
@@ -25,7 +21,7 @@ import com.amazonaws.services.apigateway.model.GetRestApiResult;
 import com.amazonaws.services.apigateway.model.GetRestApisRequest;
 import com.amazonaws.services.apigateway.model.GetRestApisResult;
 import com.amazonaws.services.apigateway.model.RestApi;
-import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.ProjectConfiguration;
 import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
 
 /**
@@ -39,6 +35,14 @@ public class AmazonGatewayManager
     private Properties m_properties;
     private AmazonApiGatewayClient m_amazonApiGatewayClient;
     
+    /**
+     * Create a manager from the project configuration loaded once per container
+     */
+    public AmazonGatewayManager()
+    {
+        this(ProjectConfiguration.getProperties());
+    }
+    
     /**
      * 
      * @param properties
@@ -49,16 +53,8 @@ public class AmazonGatewayManager
         
         m_properties = properties;
         
-        String regionName = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_REGION));
-        String accessKey = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_ACCESS_KEY));
-        String secretKey = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_SECRET_KEY));
-
-        // Init our aws credentials
-        AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-        m_amazonApiGatewayClient = new AmazonApiGatewayClient(credentials);
-
-        // Set our region
-        m_amazonApiGatewayClient.setRegion(Region.getRegion(Regions.fromName(regionName)));
+        // Share one client per region and credentials across every invocation this container serves
+        m_amazonApiGatewayClient = AmazonClientRegistry.getClient(AmazonApiGatewayClient.class, m_properties);
     }
     
     /**
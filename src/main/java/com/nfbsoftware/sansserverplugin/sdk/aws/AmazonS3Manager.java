@@ -17,10 +17,6 @@ import org.apache.commons.io.IOUtils;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.HttpMethod;
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.regions.Region;
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
@@ -30,6 +26,7 @@ import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.ProjectConfiguration;
 import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
 
 /**
@@ -45,6 +42,14 @@ public class AmazonS3Manager
     private AmazonS3 m_amazonS3Client;
     private Properties m_properties;
 
+    /**
+     * Create a manager from the project configuration loaded once per container
+     */
+    public AmazonS3Manager()
+    {
+        this(ProjectConfiguration.getProperties());
+    }
+    
     /**
      * 
      * @param properties
@@ -55,20 +60,13 @@ public class AmazonS3Manager
         
         m_properties = properties;
         
-        String regionName = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_REGION));
-        String accessKey = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_ACCESS_KEY));
-        String secretKey = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_SECRET_KEY));
         String bucketName = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_S3_BUCKET_NAME));
 
         // Save out bucket name for use later
         m_bucketName = bucketName;
 
-        // Init our aws credentials
-        AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-        m_amazonS3Client = new AmazonS3Client(credentials);
-
-        // Set our region
-        m_amazonS3Client.setRegion(Region.getRegion(Regions.fromName(regionName)));
+        // Share one client per region and credentials across every invocation this container serves
+        m_amazonS3Client = AmazonClientRegistry.getClient(AmazonS3Client.class, m_properties);
     }
 
     /**
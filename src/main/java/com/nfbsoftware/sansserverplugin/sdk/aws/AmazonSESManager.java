@@ -17,10 +17,6 @@ import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
 
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.regions.Region;
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.simpleemail.AmazonSimpleEmailServiceClient;
 import com.amazonaws.services.simpleemail.model.Body;
 import com.amazonaws.services.simpleemail.model.Content;
@@ -30,6 +26,7 @@ import com.amazonaws.services.simpleemail.model.RawMessage;
 import com.amazonaws.services.simpleemail.model.SendEmailRequest;
 import com.amazonaws.services.simpleemail.model.SendRawEmailRequest;
 import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.ProjectConfiguration;
 import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
 
 /**
@@ -44,6 +41,14 @@ public class AmazonSESManager
     private AmazonSimpleEmailServiceClient m_amazonSimpleEmailServiceClient;
     private Properties m_properties;
     
+    /**
+     * Create a manager from the project configuration loaded once per container
+     */
+    public AmazonSESManager()
+    {
+        this(ProjectConfiguration.getProperties());
+    }
+    
     /**
      * 
      * @param properties
@@ -54,16 +59,8 @@ public class AmazonSESManager
         
         m_properties = properties;
         
-        String regionName = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_REGION));
-        String accessKey = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_ACCESS_KEY));
-        String secretKey = StringUtil.emptyIfNull(m_properties.getProperty(Entity.FrameworkProperties.AWS_SECRET_KEY));
-
-        // Init our aws credentials
-        AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-        m_amazonSimpleEmailServiceClient = new AmazonSimpleEmailServiceClient(credentials);
-
-        // Set our region
-        m_amazonSimpleEmailServiceClient.setRegion(Region.getRegion(Regions.fromName(regionName)));
+        // Share one client per region and credentials across every invocation this container serves
+        m_amazonSimpleEmailServiceClient = AmazonClientRegistry.getClient(AmazonSimpleEmailServiceClient.class, m_properties);
     }
     
     /**
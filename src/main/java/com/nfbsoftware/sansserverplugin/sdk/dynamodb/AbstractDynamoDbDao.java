@@ -11,17 +11,15 @@ import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.regions.Region;
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.nfbsoftware.sansserverplugin.sdk.aws.AmazonClientRegistry;
 import com.nfbsoftware.sansserverplugin.sdk.util.DynamoDbUtility;
 import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.ProjectConfiguration;
 
 /**
  * The AbstractAmazonDaoImpl class is used as a base for managing the CRUD operations of a DynamoDB table.  You will notice that the constructor asks for a table
@@ -45,6 +43,14 @@ public abstract class AbstractDynamoDbDao
     
     protected AmazonDynamoDBClient m_amazonDynamoDBClient;
     
+    /**
+     * Create a DAO from the project configuration loaded once per container
+     */
+    public AbstractDynamoDbDao(String baseTableName, String primaryId) throws Exception
+    {
+        this(ProjectConfiguration.getProperties(), baseTableName, primaryId);
+    }
+    
     /**
      * 
      * @param properties
@@ -61,16 +67,10 @@ public abstract class AbstractDynamoDbDao
         // Set the Amazon credentials
         try
         {
-            String regionName = m_properties.getProperty(Entity.FrameworkProperties.AWS_REGION);
-            String accessKey = m_properties.getProperty(Entity.FrameworkProperties.AWS_ACCESS_KEY);
-            String secretKey = m_properties.getProperty(Entity.FrameworkProperties.AWS_SECRET_KEY);
             String environmentePrefix = m_properties.getProperty(Entity.FrameworkProperties.ENVIRONEMNT_PREFIX);
             
-            AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-            m_amazonDynamoDBClient = new AmazonDynamoDBClient(credentials);
-            
-            // Set our region
-            m_amazonDynamoDBClient.setRegion(Region.getRegion(Regions.fromName(regionName)));
+            // Share one client per region and credentials across every invocation this container serves
+            m_amazonDynamoDBClient = AmazonClientRegistry.getClient(AmazonDynamoDBClient.class, m_properties);
 
             if(!StringUtils.isNotEmpty(environmentePrefix))
             {
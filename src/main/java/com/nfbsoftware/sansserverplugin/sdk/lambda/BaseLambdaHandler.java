@@ -1,18 +1,15 @@
 package com.nfbsoftware.sansserverplugin.sdk.lambda;
 
-import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.LambdaLogger;
 import com.nfbsoftware.sansserverplugin.sdk.lambda.model.HandlerResponse;
-import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
+import com.nfbsoftware.sansserverplugin.sdk.util.ProjectConfiguration;
+import com.nfbsoftware.sansserverplugin.sdk.util.SecureUUID;
 
 /**
  * The BaseHandler should be used as a base function for Lambda.  It will create a baseline set of objects needed by all our functions.
@@ -21,20 +18,44 @@ import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
  * 
  * @author Brendan Clemenzi
  */
-public class BaseLambdaHandler implements ILambdaFunction
+public class BaseLambdaHandler implements ILambdaRequestFunction
 {
+    public static final String PING_EVENT_KEY = "sansServerPing";
+    public static final String PING_HOLD_KEY = "sansServerPingHoldMillis";
+    
+    // Identifies this container in the ping logs, since every container loads its own copy of the class
+    private static final String CONTAINER_ID = SecureUUID.generateGUID();
+    private static final AtomicBoolean COLD_START = new AtomicBoolean(true);
+    
+    /**
+     * @deprecated The request fields are only filled for handlers overriding processRequest(), and aren't safe to share between threads.
+     * Override processRequest(RequestContext) and read the request from the context, or use the getters below.
+     */
+    @Deprecated
     protected LambdaLogger m_logger;
+    @Deprecated
     protected Object m_input;
+    @Deprecated
     protected Context m_context;
     
+    @Deprecated
     protected HashMap<String, String> m_requestHeaders = new HashMap<String, String>();
+    @Deprecated
     protected HashMap<String, String> m_requestParams = new HashMap<String, String>();
+    @Deprecated
     protected HashMap<String, String> m_requestQuery = new HashMap<String, String>();
+    @Deprecated
     protected HashMap<String, String> m_requestBody = new HashMap<String, String>();
     
+    @Deprecated
     protected HashMap<String, Object> m_inputHashMap;
     
-    protected Properties m_properties = new Properties();
+    // The request being processed by each thread, so the getters below keep working for handlers written before the RequestContext
+    private final ThreadLocal<RequestContext> m_requestContext = new ThreadLocal<RequestContext>();
+    
+    // Our own properties, falling back to the shared snapshot of project.properties loaded once per container.  Anything a handler loads
+    // or sets in initialize() only changes its own copy.
+    protected Properties m_properties = new Properties(ProjectConfiguration.getProperties());
     
     /**
      * Basic constructor
@@ -56,17 +77,41 @@ public class BaseLambdaHandler implements ILambdaFunction
     }
     
     /**
-     * Initialize our handler with whatever it needs upfront
+     * Initialize our handler with whatever it needs upfront.  Our properties are already loaded, once per container, by the
+     * ProjectConfiguration.
      * 
      * @throws Exception
      */
     protected void initialize() throws Exception
     {
-        // Load our properties file.  This is hard coded into our deployment
-        InputStream is = BaseLambdaHandler.class.getResourceAsStream("/project.properties");
+    }
+    
+    /**
+     * Returns the request being processed by the calling thread.  Worker threads started by your function should be handed the
+     * RequestContext given to processRequest instead.
+     * 
+     * @return
+     */
+    protected RequestContext getRequestContext()
+    {
+        RequestContext requestContext = m_requestContext.get();
+        
+        if(requestContext == null)
+        {
+            throw new IllegalStateException("No request is being processed on this thread, pass the RequestContext to any worker threads");
+        }
         
-        // Load our properties file into memory
-        m_properties.load(is);
+        return requestContext;
+    }
+    
+    /**
+     * Returns the logger for the current request
+     * 
+     * @return
+     */
+    protected LambdaLogger getLogger()
+    {
+        return getRequestContext().getLogger();
     }
     
     /**
@@ -76,7 +121,7 @@ public class BaseLambdaHandler implements ILambdaFunction
      */
     protected Context getFunctionContext()
     {
-        return m_context;
+        return getRequestContext().getFunctionContext();
     }
     
     /**
@@ -86,7 +131,7 @@ public class BaseLambdaHandler implements ILambdaFunction
      */
     protected Object getFunctionInput()
     {
-        return m_input;
+        return getRequestContext().getFunctionInput();
     }
     
     /**
@@ -110,9 +155,7 @@ public class BaseLambdaHandler implements ILambdaFunction
      */
     protected Object getInputObject(String objectKey)
     {
-        Object tmpObject = m_inputHashMap.get(objectKey);
-        
-        return tmpObject;
+        return getRequestContext().getInputObject(objectKey);
     }
     
     /**
@@ -123,14 +166,7 @@ public class BaseLambdaHandler implements ILambdaFunction
      */
     protected String getHeader(String headerKey)
     {
-        String tmpValue = null;
-
-        if(m_requestBody != null)
-        {
-            tmpValue = m_requestHeaders.get(headerKey);
-        }
-        
-        return tmpValue;
+        return getRequestContext().getHeader(headerKey);
     }
     
     /**
@@ -140,14 +176,7 @@ public class BaseLambdaHandler implements ILambdaFunction
      */
     protected Set<String> getHeaderKeySet()
     {
-        Set<String> tmpValue = new HashSet<String>();
-
-        if(m_requestHeaders != null)
-        {
-            tmpValue = m_requestHeaders.keySet();
-        }
-        
-        return tmpValue;
+        return getRequestContext().getHeaderKeySet();
     }
     
     /**
@@ -158,14 +187,7 @@ public class BaseLambdaHandler implements ILambdaFunction
      */
     protected String getParameter(String parameterKey)
     {
-        String tmpValue = null;
-
-        if(m_requestBody != null)
-        {
-            tmpValue = m_requestParams.get(parameterKey);
-        }
-        
-        return tmpValue;
+        return getRequestContext().getParameter(parameterKey);
     }
     
     /**
@@ -175,14 +197,7 @@ public class BaseLambdaHandler implements ILambdaFunction
      */
     protected Set<String> getParameterKeySet()
     {
-        Set<String> tmpValue = new HashSet<String>();
-
-        if(m_requestParams != null)
-        {
-            tmpValue = m_requestParams.keySet();
-        }
-        
-        return tmpValue;
+        return getRequestContext().getParameterKeySet();
     }
     
     /**
@@ -193,14 +208,7 @@ public class BaseLambdaHandler implements ILambdaFunction
      */
     protected String getQuery(String queryStringKey)
     {
-        String tmpValue = null;
-
-        if(m_requestBody != null)
-        {
-            tmpValue = m_requestQuery.get(queryStringKey);
-        }
-        
-        return tmpValue;
+        return getRequestContext().getQuery(queryStringKey);
     }
     
     /**
@@ -210,14 +218,7 @@ public class BaseLambdaHandler implements ILambdaFunction
      */
     protected Set<String> getQueryKeySet()
     {
-        Set<String> tmpValue = new HashSet<String>();
-
-        if(m_requestQuery != null)
-        {
-            tmpValue = m_requestQuery.keySet();
-        }
-        
-        return tmpValue;
+        return getRequestContext().getQueryKeySet();
     }
     
     /**
@@ -228,14 +229,7 @@ public class BaseLambdaHandler implements ILambdaFunction
      */
     protected String getBody(String bodyKey)
     {
-        String tmpValue = null;
-
-        if(m_requestBody != null)
-        {
-            tmpValue = m_requestBody.get(bodyKey);
-        }
-        
-        return tmpValue;
+        return getRequestContext().getBody(bodyKey);
     }
     
     /**
@@ -245,52 +239,18 @@ public class BaseLambdaHandler implements ILambdaFunction
      */
     protected Set<String> getBodyKeySet()
     {
-        Set<String> tmpValue = new HashSet<String>();
-
-        if(m_requestBody != null)
-        {
-            tmpValue = m_requestBody.keySet();
-        }
-        
-        return tmpValue;
+        return getRequestContext().getBodyKeySet();
     }
     
     /**
-     * The getRequestParameter method is a convenience method that will loop though our three possible 
+     * The getRequestParameter method is a convenience method that will loop though our body, query string, input object and headers
      * 
      * @param key
      * @return
      */
     protected String getRequestParameter(String key)
     {
-        String tmpValue = getBody(key);
-
-        // If body is null then try from the query string
-        if(StringUtil.isNullOrEmpty(tmpValue))
-        {
-            tmpValue = getQuery(key);
-        }
-        
-        // If body/query are null then try from the input object
-        if(StringUtil.isNullOrEmpty(tmpValue))
-        {
-            try
-            {
-                tmpValue = (String)getInputObject(key);
-            }
-            catch (Exception e)
-            {
-                tmpValue = null;
-            }
-        }
-        
-        // If body/query/Input are null then try from the header object
-        if(StringUtil.isNullOrEmpty(tmpValue))
-        {
-            tmpValue = getHeader(key);
-        }
-
-        return tmpValue;
+        return getRequestContext().getRequestParameter(key);
     }
     
     /**
@@ -302,112 +262,34 @@ public class BaseLambdaHandler implements ILambdaFunction
      */
     public HandlerResponse handleRequest(Object input, Context context)
     {
-        // Set out imputs:
-        m_input = input;
-        m_context = context;
-        
-        // Set our logger
-        m_logger = m_context.getLogger();
-        
-        @SuppressWarnings("unchecked")
-        HashMap<String, Object> inputHashMap = (HashMap<String, Object>)input;
-        m_inputHashMap = inputHashMap;
-        
-        Object tmpHeaders = m_inputHashMap.get("headers");
-        if(tmpHeaders != null)
-        {
-            try
-            {
-                m_requestHeaders = (HashMap<String, String>)m_inputHashMap.get("headers");
-            }
-            catch (Exception e)
-            {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
-        }
+        // Every invocation gets its own context, so nothing from the last request can leak into this one
+        return dispatchRequest(new RequestContext(input, context));
+    }
+    
+    /**
+     * Answer a ping or process the request, making it the current request of this thread while we do
+     * 
+     * @param requestContext
+     * @return
+     */
+    protected HandlerResponse dispatchRequest(RequestContext requestContext)
+    {
+        // Whichever invocation a container serves first is its cold start, ping or not
+        boolean coldStart = COLD_START.getAndSet(false);
         
-        Object tmpParams = m_inputHashMap.get("params");
-        if(tmpParams != null)
-        {
-            try
-            {
-                m_requestParams = (HashMap<String, String>)m_inputHashMap.get("params");
-            }
-            catch (Exception e)
-            {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
-        }
+        RequestContext previousContext = m_requestContext.get();
+        m_requestContext.set(requestContext);
         
-        Object tmpQuery = m_inputHashMap.get("query");
-        if(tmpQuery != null)
-        {
-            try
-            {
-                m_requestQuery = (HashMap<String, String>)m_inputHashMap.get("query");
-            }
-            catch (Exception e)
-            {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
-            }
-        }
-        
-        Object tmpBody = m_inputHashMap.get("body");
-        if(tmpBody != null)
+        try
         {
-            try
+            // Keep-warm pings only need the container to be loaded, so answer them before touching the request
+            if(isPingEvent())
             {
-                // If the body is coming to us like "take=6&skip=0&page=1&pageSize=6" then
-                // we will need to parse the string into the individual parameters
-                if(tmpBody instanceof String)
-                {
-                    String rawBody = tmpBody.toString();
-                    
-                    String[] parsedBody = StringUtil.parseString(rawBody, "&");
-                    List<String> parameterList = new ArrayList<String>(Arrays.asList(parsedBody));
-                    
-                    for(String tmpParam : parameterList)
-                    {
-                        try
-                        {
-                            if(tmpParam.contains("="))
-                            {
-                                String[] parsedParam = StringUtil.parseString(tmpParam, "=");
-                                
-                                String tmpValue = StringUtil.EMPTY_STRING;
-                                if(parsedParam.length == 2)
-                                {
-                                    tmpValue = java.net.URLDecoder.decode(StringUtil.emptyIfNull(parsedParam[1]), "UTF-8");
-                                }
-                                
-                                m_requestBody.put(parsedParam[0], tmpValue);
-                            }
-                        }
-                        catch (Exception e)
-                        {
-                            m_logger.log("Error parsing body parameter: " + tmpParam);
-                        }
-                    }
-                }
-                else
-                {
-                    // Cast the body map to 
-                    m_requestBody = (HashMap<String, String>)m_inputHashMap.get("body");
-                }
+                return handlePing(coldStart);
             }
-            catch (Exception e)
-            {
-                e.printStackTrace();
-            }
-        }
-
-        try
-        {
+            
             // Process our request
-            HandlerResponse handlerResponse =  processRequest();
+            HandlerResponse handlerResponse = processRequest(requestContext);
             
             // Return our response object
             return handlerResponse;
@@ -415,7 +297,7 @@ public class BaseLambdaHandler implements ILambdaFunction
         catch (Exception e)
         {
             // Log our exception
-            m_logger.log("ERROR: " + e.getMessage());
+            requestContext.log("ERROR: " + e.getMessage());
             
             // Always return at least a failure response
             HandlerResponse handlerResponse = new HandlerResponse();
@@ -426,10 +308,103 @@ public class BaseLambdaHandler implements ILambdaFunction
             // Return our response object
             return handlerResponse;
         }
+        finally
+        {
+            // Put back whatever request this thread was processing, in case a handler called another one in-process
+            if(previousContext != null)
+            {
+                m_requestContext.set(previousContext);
+            }
+            else
+            {
+                m_requestContext.remove();
+            }
+        }
+    }
+    
+    /**
+     * Returns true when our input is the keep-warm ping scheduled for functions with enablePing set
+     * 
+     * @return
+     */
+    protected boolean isPingEvent()
+    {
+        return Boolean.TRUE.equals(getInputObject(PING_EVENT_KEY));
+    }
+    
+    /**
+     * Answer a keep-warm ping without running processRequest.  When the ping asks us to, we hold the container for a moment so the other
+     * pings sent with it are answered by other containers.
+     * 
+     * @param coldStart true when this ping is the first invocation the container has served
+     * @return
+     */
+    protected HandlerResponse handlePing(boolean coldStart)
+    {
+        Object pingHold = getInputObject(PING_HOLD_KEY);
+        
+        if(pingHold instanceof Number && ((Number)pingHold).longValue() > 0)
+        {
+            try
+            {
+                Thread.sleep(((Number)pingHold).longValue());
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        getRequestContext().log("Ping answered by container " + CONTAINER_ID + (coldStart ? " (cold start)" : " (warm)"));
+        
+        HandlerResponse handlerResponse = new HandlerResponse();
+        
+        handlerResponse.setStatus(HandlerResponse.StatusKeys.SUCCESS);
+        handlerResponse.setStatusMessage("pong " + CONTAINER_ID);
+        
+        return handlerResponse;
+    }
+    
+    /**
+     * Process one invocation.  Override this method in your implementations of this base class; everything about the request is in the
+     * context given, so the handler can safely be reused or called from several threads at once.  By default we call the older processRequest
+     * method, which reads the same request through the handler's getters.
+     * 
+     * @param requestContext
+     * @return
+     * @throws Exception
+     */
+    public HandlerResponse processRequest(RequestContext requestContext) throws Exception
+    {
+        fillRequestFields(requestContext);
+        
+        return processRequest();
+    }
+    
+    /**
+     * Point the deprecated fields read by handlers written before the RequestContext at this request.  Each invocation gets new maps, so
+     * nothing from the last request is left behind in them, but they only read from the context until a handler changes or iterates over
+     * them, so reading one body key still only decodes that key.
+     * 
+     * @param requestContext
+     */
+    @SuppressWarnings("deprecation")
+    private void fillRequestFields(RequestContext requestContext)
+    {
+        m_logger = requestContext.getLogger();
+        m_input = requestContext.getFunctionInput();
+        m_context = requestContext.getFunctionContext();
+        
+        m_inputHashMap = new RequestSectionMap<Object>(requestContext.getInputMap());
+        m_requestHeaders = new RequestSectionMap<String>(requestContext.getHeaderMap());
+        m_requestParams = new RequestSectionMap<String>(requestContext.getParameterMap());
+        m_requestQuery = new RequestSectionMap<String>(requestContext.getQueryMap());
+        m_requestBody = new RequestSectionMap<String>(requestContext.getBodyMap());
     }
     
     /**
-     * The processRequest method should be overridden in your implementations of this base class
+     * The processRequest method can be overridden in your implementations of this base class, when you would rather read the request through
+     * the handler's getters than the RequestContext
      * 
      * @return
      * @throws Exception
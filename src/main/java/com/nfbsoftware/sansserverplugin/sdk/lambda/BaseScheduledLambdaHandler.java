@@ -0,0 +1,136 @@
+package com.nfbsoftware.sansserverplugin.sdk.lambda;
+
+import com.amazonaws.services.lambda.AWSLambdaClient;
+import com.amazonaws.services.lambda.model.InvocationType;
+import com.amazonaws.services.lambda.model.InvokeRequest;
+import com.nfbsoftware.sansserverplugin.sdk.aws.AmazonClientRegistry;
+import com.nfbsoftware.sansserverplugin.sdk.lambda.model.HandlerResponse;
+
+/**
+ * The BaseScheduledLambdaHandler should be used as the base class for functions annotated with AwsLambdaScheduled.  Instead of overriding
+ * "processRequest", implement "processBatch" to work through one batch of your job at a time.  Batches are run until the job reports
+ * there is no more work, or until the time left in this invocation wouldn't fit another batch.  When work remains, the function invokes
+ * itself asynchronously to carry on, so a long job is drained over several invocations instead of being cut off by the Lambda timeout.
+ * 
+ * Rescheduling calls lambda:InvokeFunction on the function itself, so the function's role needs that permission.
+ * 
+ * @author Brendan Clemenzi
+ */
+public abstract class BaseScheduledLambdaHandler extends BaseLambdaHandler
+{
+    public static final String CONTINUATION_EVENT_KEY = "sansServerContinuation";
+    
+    public static final long DEFAULT_SAFETY_MARGIN_MILLIS = 5000;
+    
+    /**
+     * Process one batch of work.  Keep each batch well inside the time budget given; the budget already leaves a safety margin for
+     * returning our response.
+     * 
+     * @param timeBudgetMillis
+     * @return true when there is more work waiting, false once the job is drained
+     * @throws Exception
+     */
+    protected abstract boolean processBatch(long timeBudgetMillis) throws Exception;
+    
+    /**
+     * Run batches until the job is drained or we run out of time, then reschedule ourselves if work remains
+     * 
+     * @return
+     * @throws Exception
+     */
+    @Override
+    public HandlerResponse processRequest() throws Exception
+    {
+        int batchCount = 0;
+        long longestBatchMillis = 0;
+        boolean hasMoreWork = true;
+        
+        // Only start a batch when there is time left for one at least as long as the longest so far
+        while(hasMoreWork && getTimeBudgetMillis() > longestBatchMillis)
+        {
+            long batchStartTime = System.currentTimeMillis();
+            
+            hasMoreWork = processBatch(getTimeBudgetMillis());
+            
+            longestBatchMillis = Math.max(longestBatchMillis, System.currentTimeMillis() - batchStartTime);
+            batchCount++;
+        }
+        
+        HandlerResponse handlerResponse = new HandlerResponse();
+        handlerResponse.setStatus(HandlerResponse.StatusKeys.SUCCESS);
+        
+        if(hasMoreWork)
+        {
+            reschedule();
+            
+            handlerResponse.setStatusMessage("Processed " + batchCount + " batches, rescheduled to continue");
+        }
+        else
+        {
+            handlerResponse.setStatusMessage("Processed " + batchCount + " batches, all work is done");
+        }
+        
+        getLogger().log(handlerResponse.getStatusMessage() + " (continuation " + getContinuationCount() + ")");
+        
+        return handlerResponse;
+    }
+    
+    /**
+     * The time left in this invocation, less our safety margin
+     * 
+     * @return
+     */
+    protected long getTimeBudgetMillis()
+    {
+        return getFunctionContext().getRemainingTimeInMillis() - getSafetyMarginMillis();
+    }
+    
+    /**
+     * The time kept back from each invocation for rescheduling and returning our response.  Override for jobs that need longer to wind down.
+     * 
+     * @return
+     */
+    protected long getSafetyMarginMillis()
+    {
+        return DEFAULT_SAFETY_MARGIN_MILLIS;
+    }
+    
+    /**
+     * Returns true when this invocation is carrying on a job started by an earlier invocation, rather than a scheduled run
+     * 
+     * @return
+     */
+    protected boolean isContinuation()
+    {
+        return getContinuationCount() > 0;
+    }
+    
+    /**
+     * Returns how many invocations came before this one in the current run of the job
+     * 
+     * @return
+     */
+    protected int getContinuationCount()
+    {
+        Object continuation = getInputObject(CONTINUATION_EVENT_KEY);
+        
+        return continuation instanceof Number ? ((Number)continuation).intValue() : 0;
+    }
+    
+    /**
+     * Invoke ourselves asynchronously so another invocation carries on with the work that remains
+     * 
+     * @throws Exception
+     */
+    protected void reschedule() throws Exception
+    {
+        AWSLambdaClient awsLambdaClient = AmazonClientRegistry.getClient(AWSLambdaClient.class, m_properties);
+        
+        InvokeRequest invokeRequest = new InvokeRequest();
+        invokeRequest.setFunctionName(getFunctionContext().getFunctionName());
+        invokeRequest.setInvocationType(InvocationType.Event);
+        invokeRequest.setPayload("{\"" + CONTINUATION_EVENT_KEY + "\":" + (getContinuationCount() + 1) + "}");
+        
+        awsLambdaClient.invoke(invokeRequest);
+    }
+}
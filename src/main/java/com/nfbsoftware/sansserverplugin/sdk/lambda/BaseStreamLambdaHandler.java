@@ -0,0 +1,239 @@
+package com.nfbsoftware.sansserverplugin.sdk.lambda;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nfbsoftware.sansserverplugin.sdk.lambda.model.HandlerResponse;
+
+/**
+ * The BaseStreamLambdaHandler is a drop-in alternative to the BaseLambdaHandler for busy functions with large request bodies.  Instead of
+ * letting Lambda turn the whole event into nested HashMaps for us to cast and copy, we read the raw JSON written by our API Gateway mapping
+ * template with a streaming parser, straight into the string maps of the RequestContext, and write the HandlerResponse straight back to
+ * Lambda's output stream.
+ *
+ * Nested objects and arrays inside the headers, params, query or body are kept as their JSON text.  Any other element of the event is still
+ * available from getInputObject.
+ *
+ * @author Brendan Clemenzi
+ */
+public class BaseStreamLambdaHandler extends BaseLambdaHandler implements RequestStreamHandler
+{
+    // Thread safe once configured, so shared by every handler in the container
+    private static final ObjectMapper s_objectMapper = new ObjectMapper();
+    private static final JsonFactory s_jsonFactory = s_objectMapper.getFactory();
+
+    /**
+     * This is the primary method used/configured for Lambda.  Be default, we do not want to override this method.
+     *
+     * @param input
+     * @param output
+     * @param context
+     * @throws IOException
+     */
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException
+    {
+        HandlerResponse handlerResponse;
+
+        try
+        {
+            handlerResponse = dispatchRequest(parseRequest(input, context));
+        }
+        catch (IOException e)
+        {
+            if(context != null)
+            {
+                context.getLogger().log("ERROR: Unable to parse request: " + e.getMessage());
+            }
+
+            // Always return at least a failure response
+            handlerResponse = new HandlerResponse();
+
+            handlerResponse.setStatus(HandlerResponse.StatusKeys.FAILURE);
+            handlerResponse.setStatusMessage("Unable to parse request: " + e.getMessage());
+        }
+
+        writeResponse(handlerResponse, output);
+    }
+
+    /**
+     * Read the event written by our mapping template into a RequestContext
+     *
+     * @param input
+     * @param context
+     * @return
+     * @throws IOException
+     */
+    protected RequestContext parseRequest(InputStream input, Context context) throws IOException
+    {
+        Map<String, Object> inputMap = new HashMap<String, Object>();
+        Map<String, String> requestHeaders = Collections.emptyMap();
+        Map<String, String> requestParams = Collections.emptyMap();
+        Map<String, String> requestQuery = Collections.emptyMap();
+        Map<String, String> requestBody = Collections.emptyMap();
+
+        JsonParser parser = s_jsonFactory.createParser(input);
+
+        try
+        {
+            if(parser.nextToken() == JsonToken.START_OBJECT)
+            {
+                while(parser.nextToken() == JsonToken.FIELD_NAME)
+                {
+                    String fieldName = parser.getCurrentName();
+                    JsonToken valueToken = parser.nextToken();
+
+                    if("headers".equals(fieldName))
+                    {
+                        requestHeaders = readStringMap(parser);
+                    }
+                    else if("params".equals(fieldName))
+                    {
+                        requestParams = readStringMap(parser);
+                    }
+                    else if("query".equals(fieldName))
+                    {
+                        requestQuery = readStringMap(parser);
+                    }
+                    else if("body".equals(fieldName))
+                    {
+                        // A form post arrives as a single string we still need to split up
+                        if(valueToken == JsonToken.VALUE_STRING)
+                        {
+                            requestBody = RequestContext.parseFormBody(parser.getText(), context != null ? context.getLogger() : null);
+                        }
+                        else
+                        {
+                            requestBody = readStringMap(parser);
+                        }
+                    }
+                    else
+                    {
+                        inputMap.put(fieldName, readValue(parser));
+                    }
+                }
+            }
+        }
+        finally
+        {
+            parser.close();
+        }
+
+        return new RequestContext(context, inputMap, requestHeaders, requestParams, requestQuery, requestBody);
+    }
+
+    /**
+     * Read the object at the parser's current token into a map of strings, skipping it when it isn't an object
+     *
+     * @param parser
+     * @return
+     * @throws IOException
+     */
+    private static Map<String, String> readStringMap(JsonParser parser) throws IOException
+    {
+        if(parser.getCurrentToken() != JsonToken.START_OBJECT)
+        {
+            parser.skipChildren();
+
+            return Collections.emptyMap();
+        }
+
+        Map<String, String> values = new HashMap<String, String>();
+
+        while(parser.nextToken() == JsonToken.FIELD_NAME)
+        {
+            String fieldName = parser.getCurrentName();
+            JsonToken valueToken = parser.nextToken();
+
+            if(valueToken == JsonToken.START_OBJECT || valueToken == JsonToken.START_ARRAY)
+            {
+                values.put(fieldName, readJsonText(parser));
+            }
+            else if(valueToken == JsonToken.VALUE_NULL)
+            {
+                values.put(fieldName, null);
+            }
+            else
+            {
+                values.put(fieldName, parser.getText());
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Copy the object or array at the parser's current token out as JSON text
+     *
+     * @param parser
+     * @return
+     * @throws IOException
+     */
+    private static String readJsonText(JsonParser parser) throws IOException
+    {
+        StringWriter jsonText = new StringWriter();
+
+        JsonGenerator generator = s_jsonFactory.createGenerator(jsonText);
+
+        try
+        {
+            generator.copyCurrentStructure(parser);
+        }
+        finally
+        {
+            generator.close();
+        }
+
+        return jsonText.toString();
+    }
+
+    /**
+     * Read the value at the parser's current token the way Lambda would have given it to us
+     *
+     * @param parser
+     * @return
+     * @throws IOException
+     */
+    private static Object readValue(JsonParser parser) throws IOException
+    {
+        switch(parser.getCurrentToken())
+        {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                return parser.readValueAs(Object.class);
+        }
+    }
+
+    /**
+     * Write our response to Lambda's output stream
+     *
+     * @param handlerResponse
+     * @param output
+     * @throws IOException
+     */
+    protected void writeResponse(HandlerResponse handlerResponse, OutputStream output) throws IOException
+    {
+        s_objectMapper.writeValue(output, handlerResponse);
+    }
+}
@@ -0,0 +1,132 @@
+package com.nfbsoftware.sansserverplugin.sdk.lambda;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.nfbsoftware.sansserverplugin.sdk.util.FormDecoder;
+
+/**
+ * A read-only view of a form encoded body like "take=6&skip=0&page=1&pageSize=6".  Nothing is parsed until the body is first read:  the
+ * body is then split into its parameters once, and each value is only URL decoded the first time it is asked for, so a handler reading one
+ * or two fields doesn't pay to decode the rest.  The parsing itself is done by the FormDecoder.
+ *
+ * @author Brendan Clemenzi
+ */
+class FormBodyMap extends AbstractMap<String, String>
+{
+    private final String m_rawBody;
+    private final LambdaLogger m_logger;
+
+    // Parameter names to their still encoded values, built on first use
+    private volatile Map<String, String> m_encodedValues;
+    private final ConcurrentMap<String, String> m_decodedValues = new ConcurrentHashMap<String, String>();
+
+    /**
+     *
+     * @param rawBody
+     * @param logger where to report parameters that can't be decoded, may be null
+     */
+    FormBodyMap(String rawBody, LambdaLogger logger)
+    {
+        m_rawBody = rawBody;
+        m_logger = logger;
+    }
+
+    /**
+     * Split the body into its parameters the first time we need them
+     *
+     * @return
+     */
+    private Map<String, String> getEncodedValues()
+    {
+        Map<String, String> encodedValues = m_encodedValues;
+
+        if(encodedValues == null)
+        {
+            encodedValues = Collections.unmodifiableMap(FormDecoder.decodeNames(m_rawBody));
+            m_encodedValues = encodedValues;
+        }
+
+        return encodedValues;
+    }
+
+    @Override
+    public String get(Object key)
+    {
+        // Our decoded values can't hold a null key, and the body never has one
+        if(key == null)
+        {
+            return null;
+        }
+
+        String decodedValue = m_decodedValues.get(key);
+
+        if(decodedValue == null)
+        {
+            String encodedValue = getEncodedValues().get(key);
+
+            if(encodedValue == null)
+            {
+                return null;
+            }
+
+            try
+            {
+                decodedValue = FormDecoder.decodeComponent(encodedValue);
+            }
+            catch (IllegalArgumentException e)
+            {
+                if(m_logger != null)
+                {
+                    m_logger.log("Error parsing body parameter: " + key + "=" + encodedValue);
+                }
+
+                return null;
+            }
+
+            m_decodedValues.put((String)key, decodedValue);
+        }
+
+        return decodedValue;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return getEncodedValues().containsKey(key);
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        return getEncodedValues().keySet();
+    }
+
+    @Override
+    public int size()
+    {
+        return getEncodedValues().size();
+    }
+
+    /**
+     * Iterating over every entry decodes every value
+     */
+    @Override
+    public Set<Map.Entry<String, String>> entrySet()
+    {
+        Map<String, String> decodedValues = new HashMap<String, String>();
+
+        for(String parameterName : keySet())
+        {
+            decodedValues.put(parameterName, get(parameterName));
+        }
+
+        return Collections.unmodifiableMap(decodedValues).entrySet();
+    }
+}
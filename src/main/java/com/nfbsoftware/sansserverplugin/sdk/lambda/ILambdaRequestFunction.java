@@ -0,0 +1,14 @@
+package com.nfbsoftware.sansserverplugin.sdk.lambda;
+
+import com.nfbsoftware.sansserverplugin.sdk.lambda.model.HandlerResponse;
+
+/**
+ * The ILambdaRequestFunction interface is implemented by functions that are handed the RequestContext of each invocation, instead of
+ * reading the request from handler fields.
+ * 
+ * @author Brendan Clemenzi
+ */
+public interface ILambdaRequestFunction extends ILambdaFunction
+{
+    public HandlerResponse processRequest(RequestContext requestContext) throws Exception;
+}
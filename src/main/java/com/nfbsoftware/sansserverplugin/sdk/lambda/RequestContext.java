@@ -0,0 +1,385 @@
+package com.nfbsoftware.sansserverplugin.sdk.lambda;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
+
+/**
+ * The RequestContext holds everything about one invocation of a function:  the raw input and context Lambda passed us, and the headers,
+ * path parameters, query string and body pulled out of the input.  Each of those sections is only parsed the first time it is read.  It is
+ * built fresh for every invocation and can't be changed once built, so a handler instance can be reused by a warm container, or called
+ * from several threads at once, without one request seeing another's values.  Hand it to any worker threads your function starts.
+ *
+ * @author Brendan Clemenzi
+ */
+public class RequestContext
+{
+    private final Object m_input;
+    private final Context m_context;
+    private final LambdaLogger m_logger;
+
+    private final Map<String, Object> m_inputMap;
+
+    // Each section is only pulled out of the input the first time it is read
+    private volatile Map<String, String> m_requestHeaders;
+    private volatile Map<String, String> m_requestParams;
+    private volatile Map<String, String> m_requestQuery;
+    private volatile Map<String, String> m_requestBody;
+
+    /**
+     *
+     * @param input
+     * @param context
+     */
+    @SuppressWarnings("unchecked")
+    public RequestContext(Object input, Context context)
+    {
+        m_input = input;
+        m_context = context;
+        m_logger = context != null ? context.getLogger() : null;
+
+        Map<String, Object> inputMap = input instanceof Map ? (Map<String, Object>)input : Collections.<String, Object>emptyMap();
+
+        m_inputMap = Collections.unmodifiableMap(inputMap);
+    }
+
+    /**
+     * Create a context from sections already parsed out of the input, such as by the BaseStreamLambdaHandler.  The maps are wrapped, not copied,
+     * so they shouldn't be changed afterwards.
+     *
+     * @param context
+     * @param inputMap the input's elements other than its headers, params, query and body
+     * @param requestHeaders
+     * @param requestParams
+     * @param requestQuery
+     * @param requestBody
+     */
+    public RequestContext(Context context, Map<String, Object> inputMap, Map<String, String> requestHeaders, Map<String, String> requestParams, Map<String, String> requestQuery, Map<String, String> requestBody)
+    {
+        m_input = inputMap;
+        m_context = context;
+        m_logger = context != null ? context.getLogger() : null;
+
+        m_inputMap = Collections.unmodifiableMap(inputMap);
+        m_requestHeaders = Collections.unmodifiableMap(requestHeaders);
+        m_requestParams = Collections.unmodifiableMap(requestParams);
+        m_requestQuery = Collections.unmodifiableMap(requestQuery);
+        m_requestBody = Collections.unmodifiableMap(requestBody);
+    }
+
+    /**
+     *
+     * @param value
+     * @return a read-only view of the map, or an empty map when the value isn't one
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> toStringMap(Object value)
+    {
+        if(value instanceof Map)
+        {
+            return Collections.unmodifiableMap((Map<String, String>)value);
+        }
+
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Parse a form encoded body like "take=6&skip=0&page=1&pageSize=6" into its individual parameters.  The body is split on first use and
+     * each value is only decoded when it is asked for.
+     *
+     * @param rawBody
+     * @param logger where to report parameters that can't be decoded, may be null
+     * @return
+     */
+    public static Map<String, String> parseFormBody(String rawBody, LambdaLogger logger)
+    {
+        return new FormBodyMap(rawBody, logger);
+    }
+
+    /**
+     *
+     * @return
+     */
+    private Map<String, String> getRequestHeaders()
+    {
+        Map<String, String> requestHeaders = m_requestHeaders;
+
+        if(requestHeaders == null)
+        {
+            requestHeaders = toStringMap(m_inputMap.get("headers"));
+            m_requestHeaders = requestHeaders;
+        }
+
+        return requestHeaders;
+    }
+
+    /**
+     *
+     * @return
+     */
+    private Map<String, String> getRequestParams()
+    {
+        Map<String, String> requestParams = m_requestParams;
+
+        if(requestParams == null)
+        {
+            requestParams = toStringMap(m_inputMap.get("params"));
+            m_requestParams = requestParams;
+        }
+
+        return requestParams;
+    }
+
+    /**
+     *
+     * @return
+     */
+    private Map<String, String> getRequestQuery()
+    {
+        Map<String, String> requestQuery = m_requestQuery;
+
+        if(requestQuery == null)
+        {
+            requestQuery = toStringMap(m_inputMap.get("query"));
+            m_requestQuery = requestQuery;
+        }
+
+        return requestQuery;
+    }
+
+    /**
+     * If the body is coming to us like "take=6&skip=0&page=1&pageSize=6" then we will need to parse the string into the individual parameters,
+     * otherwise it is already a map.
+     *
+     * @return
+     */
+    private Map<String, String> getRequestBody()
+    {
+        Map<String, String> requestBody = m_requestBody;
+
+        if(requestBody == null)
+        {
+            Object body = m_inputMap.get("body");
+
+            requestBody = body instanceof String ? parseFormBody(body.toString(), m_logger) : toStringMap(body);
+            m_requestBody = requestBody;
+        }
+
+        return requestBody;
+    }
+
+    /**
+     * Write to the function's log, when we have one
+     *
+     * @param message
+     */
+    public void log(String message)
+    {
+        if(m_logger != null)
+        {
+            m_logger.log(message);
+        }
+    }
+
+    /**
+     * Returns the raw input object passed to the lambda function
+     *
+     * @return
+     */
+    public Object getFunctionInput()
+    {
+        return m_input;
+    }
+
+    /**
+     * Returns the raw context object passed to the lambda function
+     *
+     * @return
+     */
+    public Context getFunctionContext()
+    {
+        return m_context;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public LambdaLogger getLogger()
+    {
+        return m_logger;
+    }
+
+    /**
+     * Returns the function's raw input event elements
+     *
+     * @return
+     */
+    public Map<String, Object> getInputMap()
+    {
+        return m_inputMap;
+    }
+
+    /**
+     *
+     * @param objectKey
+     * @return
+     */
+    public Object getInputObject(String objectKey)
+    {
+        return m_inputMap.get(objectKey);
+    }
+
+    /**
+     * Returns the request headers, parsing them on first use
+     *
+     * @return
+     */
+    public Map<String, String> getHeaderMap()
+    {
+        return getRequestHeaders();
+    }
+
+    /**
+     * Returns the request path parameters, parsing them on first use
+     *
+     * @return
+     */
+    public Map<String, String> getParameterMap()
+    {
+        return getRequestParams();
+    }
+
+    /**
+     * Returns the request query string parameters, parsing them on first use
+     *
+     * @return
+     */
+    public Map<String, String> getQueryMap()
+    {
+        return getRequestQuery();
+    }
+
+    /**
+     * Returns the request body parameters.  Iterating over a form body decodes every value, so prefer getBody when only a few are needed.
+     *
+     * @return
+     */
+    public Map<String, String> getBodyMap()
+    {
+        return getRequestBody();
+    }
+
+    /**
+     *
+     * @param headerKey
+     * @return
+     */
+    public String getHeader(String headerKey)
+    {
+        return getRequestHeaders().get(headerKey);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Set<String> getHeaderKeySet()
+    {
+        return getRequestHeaders().keySet();
+    }
+
+    /**
+     *
+     * @param parameterKey
+     * @return
+     */
+    public String getParameter(String parameterKey)
+    {
+        return getRequestParams().get(parameterKey);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Set<String> getParameterKeySet()
+    {
+        return getRequestParams().keySet();
+    }
+
+    /**
+     *
+     * @param queryStringKey
+     * @return
+     */
+    public String getQuery(String queryStringKey)
+    {
+        return getRequestQuery().get(queryStringKey);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Set<String> getQueryKeySet()
+    {
+        return getRequestQuery().keySet();
+    }
+
+    /**
+     *
+     * @param bodyKey
+     * @return
+     */
+    public String getBody(String bodyKey)
+    {
+        return getRequestBody().get(bodyKey);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Set<String> getBodyKeySet()
+    {
+        return getRequestBody().keySet();
+    }
+
+    /**
+     * Looks for the key in the body, then the query string, then the raw input object and finally the headers
+     *
+     * @param key
+     * @return
+     */
+    public String getRequestParameter(String key)
+    {
+        String tmpValue = getBody(key);
+
+        // If body is null then try from the query string
+        if(StringUtil.isNullOrEmpty(tmpValue))
+        {
+            tmpValue = getQuery(key);
+        }
+
+        // If body/query are null then try from the input object
+        if(StringUtil.isNullOrEmpty(tmpValue))
+        {
+            Object tmpObject = getInputObject(key);
+
+            tmpValue = tmpObject instanceof String ? (String)tmpObject : null;
+        }
+
+        // If body/query/Input are null then try from the header object
+        if(StringUtil.isNullOrEmpty(tmpValue))
+        {
+            tmpValue = getHeader(key);
+        }
+
+        return tmpValue;
+    }
+}
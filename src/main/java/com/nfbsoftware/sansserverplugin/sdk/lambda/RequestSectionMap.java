@@ -0,0 +1,233 @@
+package com.nfbsoftware.sansserverplugin.sdk.lambda;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The HashMap given to handlers still reading the deprecated request fields.  Reads of a single key go straight to the RequestContext's
+ * section, so a form body only decodes the values the handler asks for.  The section is copied into the map the first time it is changed or
+ * iterated over, after which it behaves like any other HashMap.
+ *
+ * Java 8's forEach, compute and merge methods only see what has already been copied, so call keySet or entrySet first when using them.
+ *
+ * @author Brendan Clemenzi
+ */
+class RequestSectionMap<V> extends HashMap<String, V>
+{
+    private static final long serialVersionUID = 1L;
+
+    // Null once the section has been copied into the map
+    private transient Map<String, V> m_section;
+
+    /**
+     *
+     * @param section
+     */
+    RequestSectionMap(Map<String, V> section)
+    {
+        m_section = section;
+    }
+
+    /**
+     * Copy the section into the map before anything changes or walks over it
+     */
+    private void copySection()
+    {
+        Map<String, V> section = m_section;
+
+        if(section != null)
+        {
+            // Cleared first, since putAll may call back into our own put
+            m_section = null;
+
+            super.putAll(section);
+        }
+    }
+
+    @Override
+    public V get(Object key)
+    {
+        Map<String, V> section = m_section;
+
+        return section != null ? section.get(key) : super.get(key);
+    }
+
+    /**
+     *
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    public V getOrDefault(Object key, V defaultValue)
+    {
+        V value = get(key);
+
+        return value != null || containsKey(key) ? value : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        Map<String, V> section = m_section;
+
+        return section != null ? section.containsKey(key) : super.containsKey(key);
+    }
+
+    @Override
+    public int size()
+    {
+        Map<String, V> section = m_section;
+
+        return section != null ? section.size() : super.size();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value)
+    {
+        copySection();
+
+        return super.containsValue(value);
+    }
+
+    @Override
+    public V put(String key, V value)
+    {
+        copySection();
+
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends V> map)
+    {
+        copySection();
+
+        super.putAll(map);
+    }
+
+    /**
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public V putIfAbsent(String key, V value)
+    {
+        V currentValue = get(key);
+
+        if(currentValue == null)
+        {
+            currentValue = put(key, value);
+        }
+
+        return currentValue;
+    }
+
+    @Override
+    public V remove(Object key)
+    {
+        copySection();
+
+        return super.remove(key);
+    }
+
+    /**
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public boolean remove(Object key, Object value)
+    {
+        V currentValue = get(key);
+
+        if(containsKey(key) && (currentValue == null ? value == null : currentValue.equals(value)))
+        {
+            remove(key);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public V replace(String key, V value)
+    {
+        return containsKey(key) ? put(key, value) : null;
+    }
+
+    /**
+     *
+     * @param key
+     * @param oldValue
+     * @param newValue
+     * @return
+     */
+    public boolean replace(String key, V oldValue, V newValue)
+    {
+        V currentValue = get(key);
+
+        if(containsKey(key) && (currentValue == null ? oldValue == null : currentValue.equals(oldValue)))
+        {
+            put(key, newValue);
+
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public void clear()
+    {
+        m_section = null;
+
+        super.clear();
+    }
+
+    @Override
+    public Set<String> keySet()
+    {
+        copySection();
+
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<V> values()
+    {
+        copySection();
+
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet()
+    {
+        copySection();
+
+        return super.entrySet();
+    }
+
+    @Override
+    public Object clone()
+    {
+        copySection();
+
+        return super.clone();
+    }
+}
@@ -4,6 +4,7 @@ import java.net.InetSocketAddress;
 import java.util.Properties;
 
 import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+import com.nfbsoftware.sansserverplugin.sdk.util.ProjectConfiguration;
 import com.nfbsoftware.sansserverplugin.sdk.util.StringUtil;
 
 import net.spy.memcached.MemcachedClient;
@@ -18,6 +19,14 @@ public class AmazonMemcacheManager
     private MemcachedClient m_amazonMemcachedClient;
     private Properties m_properties;
     
+    /**
+     * Create a manager from the project configuration loaded once per container
+     */
+    public AmazonMemcacheManager() throws Exception
+    {
+        this(ProjectConfiguration.getProperties());
+    }
+    
     /**
      * 
      * @param properties
@@ -18,6 +18,7 @@ public class Entity
         public static final String ENVIRONEMNT_SITE_URL                 = "environment.siteUrl";
         
         public static final String AWS_REGION                           = "aws.region";
+        public static final String AWS_REGIONS                          = "aws.regions";
         public static final String AWS_ACCOUNT_ID                       = "aws.accountId";
         public static final String AWS_ACCESS_KEY                       = "aws.accessKey";
         public static final String AWS_SECRET_KEY                       = "aws.secretKey";
@@ -26,14 +27,27 @@ public class Entity
         public static final String AWS_COGNITO_PROVIDER_NAME            = "aws.cognito.providerName";
         
         public static final String AWS_LAMBDA_ROLE_ARN                  = "aws.lambda.roleArn";
+        public static final String AWS_LAMBDA_DEPLOYMENT_CONCURRENCY    = "aws.lambda.deploymentConcurrency";
+        public static final String AWS_LAMBDA_SLIM_JARS                 = "aws.lambda.slimJars";
+        public static final String AWS_LAMBDA_SLIM_JARS_KEEP            = "aws.lambda.slimJars.keep";
+        public static final String AWS_LAMBDA_PING_RATE                 = "aws.lambda.pingRateMinutes";
+        public static final String AWS_LAMBDA_PING_HOLD                 = "aws.lambda.pingHoldMillis";
+        public static final String AWS_LAMBDA_PRICE_PER_GB_SECOND       = "aws.lambda.pricePerGbSecond";
         
         public static final String AWS_APIGATEWAY_DEVELOPMENT_STAGE     = "aws.apigateway.deploymentStage";
         public static final String AWS_APIGATEWAY_DEVELOPMENT_DESC      = "aws.apigateway.deploymentDescription";
+        public static final String AWS_APIGATEWAY_PROVISIONING_MODE     = "aws.apigateway.provisioningMode";
+        public static final String AWS_APIGATEWAY_IMPORT_MODE           = "aws.apigateway.importMode";
+        public static final String AWS_APIGATEWAY_PERMISSION_SCOPE      = "aws.apigateway.permissionScope";
         
         public static final String AWS_DYNAMODB_TABLE_NAME_PREFIX       = "aws.dynamodb.tableNamePrefix";
         
         public static final String AWS_S3_BUCKET_NAME                   = "aws.s3.bucketName";
         public static final String AWS_S3_DEPLOYMENT_FOLDER             = "aws.s3.deploymentFolder";
+        public static final String AWS_S3_CONTENT_ADDRESSED_JARS        = "aws.s3.contentAddressedJars";
+        public static final String AWS_S3_MULTIPART_THRESHOLD           = "aws.s3.multipartThresholdMB";
+        public static final String AWS_S3_MULTIPART_PART_SIZE           = "aws.s3.multipartPartSizeMB";
+        public static final String AWS_S3_UPLOAD_CONCURRENCY            = "aws.s3.uploadConcurrency";
         
         public static final String AWS_SES_REPLY_EMAIL_ADDRESS          = "aws.ses.replyEmailAddress";
         
@@ -41,5 +55,18 @@ public class Entity
         
         public static final String AWS_MEMCACHED_HOST                   = "aws.memcached.host";
         public static final String AWS_MEMCACHED_PORT                   = "aws.memcached.port";
+        
+        public static final String AWS_CLIENT_MAX_CONNECTIONS           = "aws.client.maxConnections";
+        public static final String AWS_CLIENT_CONNECTION_TIMEOUT        = "aws.client.connectionTimeoutMillis";
+        public static final String AWS_CLIENT_SOCKET_TIMEOUT            = "aws.client.socketTimeoutMillis";
+        public static final String AWS_CLIENT_REQUEST_TIMEOUT           = "aws.client.requestTimeoutMillis";
+        public static final String AWS_CLIENT_CONNECTION_MAX_IDLE       = "aws.client.connectionMaxIdleMillis";
+        public static final String AWS_CLIENT_TCP_KEEP_ALIVE            = "aws.client.tcpKeepAlive";
+        
+        public static final String AWS_THROTTLE_PREFIX                  = "aws.throttle.";
+        public static final String AWS_THROTTLE_MAX_RETRIES             = "aws.throttle.maxRetries";
+        public static final String AWS_THROTTLE_BASE_DELAY              = "aws.throttle.baseDelayMillis";
+        public static final String AWS_THROTTLE_MAX_DELAY               = "aws.throttle.maxDelayMillis";
+        public static final String AWS_REQUEST_CONCURRENCY              = "aws.requestConcurrency";
     }
 }
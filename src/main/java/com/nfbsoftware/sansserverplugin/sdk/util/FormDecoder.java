@@ -0,0 +1,258 @@
+package com.nfbsoftware.sansserverplugin.sdk.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The FormDecoder parses application/x-www-form-urlencoded bodies like "take=6&skip=0&page=1&pageSize=6".  The body is walked once by index,
+ * without splitting it into intermediate arrays, straight into a map sized for the number of parameters.  Values keep any '=' after the
+ * first, '+' becomes a space and percent escapes are decoded as UTF-8.  Names and values without either are returned as plain substrings.
+ *
+ * When a name is repeated the last value wins, use decodeValues to get all of them.  Parameters without an '=' are skipped, as is any
+ * parameter with a malformed percent escape, leaving the rest of the body intact.
+ *
+ * @author Brendan Clemenzi
+ */
+public class FormDecoder
+{
+    /**
+     * Decode every parameter in the body
+     *
+     * @param body
+     * @return
+     */
+    public static Map<String, String> decode(String body)
+    {
+        return parse(body, true);
+    }
+
+    /**
+     * Split the body into its decoded names and their still encoded values, for callers that decode each value with decodeComponent only
+     * when it is needed
+     *
+     * @param body
+     * @return
+     */
+    public static Map<String, String> decodeNames(String body)
+    {
+        return parse(body, false);
+    }
+
+    /**
+     * Returns every value given for the name, in the order they appear in the body
+     *
+     * @param body
+     * @param parameterName
+     * @return
+     */
+    public static List<String> decodeValues(String body, String parameterName)
+    {
+        List<String> values = new ArrayList<String>();
+
+        int length = body.length();
+        int start = 0;
+
+        while(start < length)
+        {
+            int end = body.indexOf('&', start);
+            if(end < 0)
+            {
+                end = length;
+            }
+
+            int separator = end > start ? indexOf(body, '=', start, end) : -1;
+
+            if(separator >= 0)
+            {
+                try
+                {
+                    if(parameterName.equals(decodeComponent(body, start, separator)))
+                    {
+                        values.add(decodeComponent(body, separator + 1, end));
+                    }
+                }
+                catch (IllegalArgumentException e)
+                {
+                    // Only this parameter is unreadable, so drop it and keep the others
+                }
+            }
+
+            start = end + 1;
+        }
+
+        return values;
+    }
+
+    /**
+     *
+     * @param body
+     * @param decodeValues false to leave the values encoded
+     * @return
+     */
+    private static Map<String, String> parse(String body, boolean decodeValues)
+    {
+        int length = body.length();
+
+        // Size the map for the parameters we are about to add, so it never has to grow
+        int parameterCount = 1;
+        for(int index = 0; index < length; index++)
+        {
+            if(body.charAt(index) == '&')
+            {
+                parameterCount++;
+            }
+        }
+
+        Map<String, String> parameters = new HashMap<String, String>((int)(parameterCount / 0.75f) + 1);
+
+        int start = 0;
+
+        while(start < length)
+        {
+            int end = body.indexOf('&', start);
+            if(end < 0)
+            {
+                end = length;
+            }
+
+            // Skip the empty parameters left by "&&" or a trailing '&'
+            if(end > start)
+            {
+                int separator = indexOf(body, '=', start, end);
+
+                if(separator >= 0)
+                {
+                    try
+                    {
+                        String value = decodeValues ? decodeComponent(body, separator + 1, end) : body.substring(separator + 1, end);
+
+                        parameters.put(decodeComponent(body, start, separator), value);
+                    }
+                    catch (IllegalArgumentException e)
+                    {
+                        // Only this parameter is unreadable, so drop it and keep the others
+                    }
+                }
+            }
+
+            start = end + 1;
+        }
+
+        return parameters;
+    }
+
+    /**
+     *
+     * @param text
+     * @param character
+     * @param start
+     * @param end
+     * @return the index of the character between start and end, or -1
+     */
+    private static int indexOf(String text, char character, int start, int end)
+    {
+        for(int index = start; index < end; index++)
+        {
+            if(text.charAt(index) == character)
+            {
+                return index;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Decode one name or value
+     *
+     * @param text
+     * @return
+     * @throws IllegalArgumentException when a percent escape is malformed
+     */
+    public static String decodeComponent(String text)
+    {
+        return decodeComponent(text, 0, text.length());
+    }
+
+    /**
+     * Decode the name or value between start and end
+     *
+     * @param text
+     * @param start
+     * @param end
+     * @return
+     * @throws IllegalArgumentException when a percent escape is malformed
+     */
+    public static String decodeComponent(String text, int start, int end)
+    {
+        int firstEncoded = start;
+        while(firstEncoded < end && text.charAt(firstEncoded) != '%' && text.charAt(firstEncoded) != '+')
+        {
+            firstEncoded++;
+        }
+
+        // Most values have nothing to decode
+        if(firstEncoded == end)
+        {
+            return text.substring(start, end);
+        }
+
+        StringBuilder decoded = new StringBuilder(end - start);
+        decoded.append(text, start, firstEncoded);
+
+        byte[] bytes = null;
+        int index = firstEncoded;
+
+        while(index < end)
+        {
+            char character = text.charAt(index);
+
+            if(character == '+')
+            {
+                decoded.append(' ');
+                index++;
+            }
+            else if(character == '%')
+            {
+                // A run of escapes may be one multi-byte character, so collect the whole run before decoding it
+                if(bytes == null)
+                {
+                    bytes = new byte[(end - index) / 3];
+                }
+
+                int byteCount = 0;
+
+                while(index < end && text.charAt(index) == '%')
+                {
+                    if(index + 2 >= end)
+                    {
+                        throw new IllegalArgumentException("Incomplete escape at the end of: " + text.substring(start, end));
+                    }
+
+                    int high = Character.digit(text.charAt(index + 1), 16);
+                    int low = Character.digit(text.charAt(index + 2), 16);
+
+                    if(high < 0 || low < 0)
+                    {
+                        throw new IllegalArgumentException("Illegal escape at " + (index - start) + " in: " + text.substring(start, end));
+                    }
+
+                    bytes[byteCount++] = (byte)((high << 4) + low);
+                    index += 3;
+                }
+
+                decoded.append(new String(bytes, 0, byteCount, StandardCharsets.UTF_8));
+            }
+            else
+            {
+                decoded.append(character);
+                index++;
+            }
+        }
+
+        return decoded.toString();
+    }
+}
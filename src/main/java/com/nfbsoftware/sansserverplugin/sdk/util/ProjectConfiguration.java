@@ -0,0 +1,242 @@
+package com.nfbsoftware.sansserverplugin.sdk.util;
+
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The ProjectConfiguration is a read-only snapshot of the /project.properties file written into our deployment JAR by the build-properties
+ * goal.  It is loaded once, when the class is first used by a Lambda container, and shared by every handler and manager that container creates,
+ * so warm invocations spend nothing on configuration.
+ *
+ * Any property can be overridden with an environment variable named after its key in upper case, with every character other than a letter
+ * or digit replaced by an underscore.  For example, aws.s3.bucketName is overridden by AWS_S3_BUCKETNAME.  The known framework properties
+ * in Entity.FrameworkProperties are read from the environment even when the file doesn't set them; any other property has to be in the
+ * file for its environment variable to be used.
+ *
+ * @author Brendan Clemenzi
+ */
+public class ProjectConfiguration
+{
+    public static final String PROPERTIES_RESOURCE = "/project.properties";
+
+    private static final Map<String, String> s_values;
+    private static final Properties s_properties;
+
+    static
+    {
+        Properties fileProperties = new Properties();
+
+        try
+        {
+            InputStream is = ProjectConfiguration.class.getResourceAsStream(PROPERTIES_RESOURCE);
+
+            if(is != null)
+            {
+                try
+                {
+                    fileProperties.load(is);
+                }
+                finally
+                {
+                    is.close();
+                }
+            }
+            else
+            {
+                System.err.println("--> No " + PROPERTIES_RESOURCE + " found on the classpath, using the environment variables of the framework properties only");
+            }
+        }
+        catch (Exception e)
+        {
+            // Since we are out of options in Lambda, just print the stacktrace.
+            e.printStackTrace();
+        }
+
+        Map<String, String> values = new HashMap<String, String>();
+
+        for(String propertyKey : fileProperties.stringPropertyNames())
+        {
+            String environmentValue = System.getenv(toEnvironmentVariableName(propertyKey));
+
+            values.put(propertyKey, environmentValue != null ? environmentValue : fileProperties.getProperty(propertyKey));
+        }
+
+        // Our own settings can come from the environment alone, such as when a function is configured without a project.properties
+        for(String propertyKey : getFrameworkPropertyKeys())
+        {
+            String environmentValue = System.getenv(toEnvironmentVariableName(propertyKey));
+
+            if(environmentValue != null)
+            {
+                values.put(propertyKey, environmentValue);
+            }
+        }
+
+        s_values = Collections.unmodifiableMap(values);
+        s_properties = new SnapshotProperties(s_values);
+    }
+
+    /**
+     * Returns the keys declared in Entity.FrameworkProperties, leaving out prefixes like aws.throttle. that are completed per service
+     *
+     * @return
+     */
+    private static List<String> getFrameworkPropertyKeys()
+    {
+        List<String> propertyKeys = new ArrayList<String>();
+
+        for(Field field : Entity.FrameworkProperties.class.getFields())
+        {
+            if(Modifier.isStatic(field.getModifiers()) && field.getType() == String.class)
+            {
+                try
+                {
+                    String propertyKey = (String)field.get(null);
+
+                    if(!propertyKey.endsWith("."))
+                    {
+                        propertyKeys.add(propertyKey);
+                    }
+                }
+                catch (IllegalAccessException e)
+                {
+                    // Every field we declare is public
+                }
+            }
+        }
+
+        return propertyKeys;
+    }
+
+    /**
+     * The name of the environment variable that overrides the given property
+     *
+     * @param propertyKey
+     * @return
+     */
+    public static String toEnvironmentVariableName(String propertyKey)
+    {
+        StringBuilder variableName = new StringBuilder(propertyKey.length());
+
+        for(int index = 0; index < propertyKey.length(); index++)
+        {
+            char character = propertyKey.charAt(index);
+
+            variableName.append(Character.isLetterOrDigit(character) ? Character.toUpperCase(character) : '_');
+        }
+
+        return variableName.toString();
+    }
+
+    /**
+     * Returns the value of the given property, or null when it isn't set
+     *
+     * @param propertyKey
+     * @return
+     */
+    public static String getProperty(String propertyKey)
+    {
+        return s_values.get(propertyKey);
+    }
+
+    /**
+     * Returns every property in our snapshot
+     *
+     * @return
+     */
+    public static Map<String, String> getValues()
+    {
+        return s_values;
+    }
+
+    /**
+     * Returns our snapshot as a Properties object, for the managers and DAOs that take one.  Lookups read the snapshot directly instead of
+     * going through the synchronized Hashtable behind Properties, and any attempt to change it throws an UnsupportedOperationException.
+     *
+     * @return
+     */
+    public static Properties getProperties()
+    {
+        return s_properties;
+    }
+
+    /**
+     * A Properties that reads from our snapshot and can't be changed once it has been created
+     */
+    private static class SnapshotProperties extends Properties
+    {
+        private static final long serialVersionUID = 1L;
+
+        private Map<String, String> m_values;
+        private boolean m_frozen = false;
+
+        /**
+         *
+         * @param values
+         */
+        public SnapshotProperties(Map<String, String> values)
+        {
+            m_values = values;
+
+            // Keep the Hashtable in step for callers that iterate over the keys
+            super.putAll(values);
+
+            m_frozen = true;
+        }
+
+        @Override
+        public String getProperty(String key)
+        {
+            return m_values.get(key);
+        }
+
+        @Override
+        public String getProperty(String key, String defaultValue)
+        {
+            String value = m_values.get(key);
+
+            return value != null ? value : defaultValue;
+        }
+
+        @Override
+        public synchronized Object put(Object key, Object value)
+        {
+            if(m_frozen)
+            {
+                throw new UnsupportedOperationException("The project configuration is read-only");
+            }
+
+            return super.put(key, value);
+        }
+
+        @Override
+        public synchronized void putAll(Map<?, ?> values)
+        {
+            if(m_frozen)
+            {
+                throw new UnsupportedOperationException("The project configuration is read-only");
+            }
+
+            super.putAll(values);
+        }
+
+        @Override
+        public synchronized Object remove(Object key)
+        {
+            throw new UnsupportedOperationException("The project configuration is read-only");
+        }
+
+        @Override
+        public synchronized void clear()
+        {
+            throw new UnsupportedOperationException("The project configuration is read-only");
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.nfbsoftware.sansserverplugin.maven.amazon;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+import com.amazonaws.AmazonServiceException;
+import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the AmazonRequestThrottle, using a fake client in place of AWS
+ *
+ * @author Brendan Clemenzi
+ */
+public class AmazonRequestThrottleTest extends TestCase
+{
+    private static final double REQUESTS_PER_SECOND = 100;
+
+    /**
+     * Every test gets its own service name, since throttles are shared per service and region
+     *
+     * @param serviceName
+     * @param maxRetries
+     * @return
+     */
+    private AmazonRequestThrottle createThrottle(String serviceName, int maxRetries)
+    {
+        Properties properties = new Properties();
+        properties.setProperty(Entity.FrameworkProperties.AWS_REGION, "us-east-1");
+        properties.setProperty(Entity.FrameworkProperties.AWS_THROTTLE_PREFIX + serviceName + ".requestsPerSecond", String.valueOf(REQUESTS_PER_SECOND));
+        properties.setProperty(Entity.FrameworkProperties.AWS_THROTTLE_MAX_RETRIES, String.valueOf(maxRetries));
+        properties.setProperty(Entity.FrameworkProperties.AWS_THROTTLE_BASE_DELAY, "10");
+        properties.setProperty(Entity.FrameworkProperties.AWS_THROTTLE_MAX_DELAY, "50");
+
+        return AmazonRequestThrottle.getInstance(new SystemStreamLog(), properties, serviceName);
+    }
+
+    public void testRetriesTooManyRequestsWithBackoff() throws Exception
+    {
+        AmazonRequestThrottle throttle = createThrottle("test-retry", 5);
+
+        FakeAmazonClient statusClient = new FakeAmazonClient(2, 429, "LimitExceeded");
+        FakeAmazonClient errorCodeClient = new FakeAmazonClient(2, 400, "TooManyRequestsException");
+
+        long startTime = System.currentTimeMillis();
+
+        assertEquals(FakeAmazonClient.RESULT, throttle.execute("Fake", statusClient));
+        assertEquals(FakeAmazonClient.RESULT, throttle.execute("Fake", errorCodeClient));
+
+        assertEquals(3, statusClient.getCallCount());
+        assertEquals(3, errorCodeClient.getCallCount());
+
+        // Each of the four retries slept for at least a millisecond
+        assertTrue(System.currentTimeMillis() - startTime >= 4);
+    }
+
+    public void testRateHalvesWhenThrottledThenRecovers() throws Exception
+    {
+        AmazonRequestThrottle throttle = createThrottle("test-rate", 5);
+
+        assertEquals(REQUESTS_PER_SECOND, throttle.getRequestsPerSecond(), 0.001);
+
+        throttle.execute("Fake", new FakeAmazonClient(1, 429, "Throttling"));
+
+        // The throttled attempt halved the rate and the successful retry started it climbing again
+        assertEquals(REQUESTS_PER_SECOND / 2 + 0.1, throttle.getRequestsPerSecond(), 0.001);
+
+        for(int count = 0; count < 20; count++)
+        {
+            throttle.execute("Fake", new FakeAmazonClient(0, 200, null));
+        }
+
+        assertEquals(REQUESTS_PER_SECOND / 2 + 2.1, throttle.getRequestsPerSecond(), 0.001);
+    }
+
+    public void testRateNeverRecoversPastTheConfiguredLimit() throws Exception
+    {
+        AmazonRequestThrottle throttle = createThrottle("test-limit", 5);
+
+        for(int count = 0; count < 5; count++)
+        {
+            throttle.execute("Fake", new FakeAmazonClient(0, 200, null));
+        }
+
+        assertEquals(REQUESTS_PER_SECOND, throttle.getRequestsPerSecond(), 0.001);
+    }
+
+    public void testRethrowsLastExceptionWhenRetriesRunOut() throws Exception
+    {
+        AmazonRequestThrottle throttle = createThrottle("test-exhausted", 2);
+
+        FakeAmazonClient client = new FakeAmazonClient(-1, 429, "TooManyRequestsException");
+
+        try
+        {
+            throttle.execute("Fake", client);
+
+            fail("Expected the throttling error once the retries ran out");
+        }
+        catch (AmazonServiceException e)
+        {
+            assertSame(client.getLastException(), e);
+        }
+
+        // The first attempt plus two retries
+        assertEquals(3, client.getCallCount());
+    }
+
+    public void testOtherServiceErrorsAreNotRetried() throws Exception
+    {
+        AmazonRequestThrottle throttle = createThrottle("test-service-error", 5);
+
+        FakeAmazonClient client = new FakeAmazonClient(-1, 500, "InternalFailure");
+
+        try
+        {
+            throttle.execute("Fake", client);
+
+            fail("Expected the service error to be thrown");
+        }
+        catch (AmazonServiceException e)
+        {
+            assertSame(client.getLastException(), e);
+        }
+
+        assertEquals(1, client.getCallCount());
+        assertEquals(REQUESTS_PER_SECOND, throttle.getRequestsPerSecond(), 0.001);
+    }
+
+    public void testClientErrorsAreNotRetried() throws Exception
+    {
+        AmazonRequestThrottle throttle = createThrottle("test-client-error", 5);
+
+        final IllegalStateException clientError = new IllegalStateException("Fake client failure");
+        final int[] callCount = new int[1];
+
+        try
+        {
+            throttle.execute("Fake", new Callable<String>()
+            {
+                public String call() throws Exception
+                {
+                    callCount[0]++;
+
+                    throw clientError;
+                }
+            });
+
+            fail("Expected the client error to be thrown");
+        }
+        catch (IllegalStateException e)
+        {
+            assertSame(clientError, e);
+        }
+
+        assertEquals(1, callCount[0]);
+    }
+}
@@ -0,0 +1,87 @@
+package com.nfbsoftware.sansserverplugin.maven.amazon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.amazonaws.AmazonServiceException;
+
+/**
+ * The FakeAmazonClient stands in for an AWS client in our tests.  It fails its first calls with the errors it was given, then succeeds.
+ * Every error is created fresh for each call, so tests can check which one was thrown.
+ *
+ * @author Brendan Clemenzi
+ */
+public class FakeAmazonClient implements Callable<String>
+{
+    public static final String RESULT = "OK";
+
+    private int m_failureCount;
+    private int m_statusCode;
+    private String m_errorCode;
+
+    private int m_callCount = 0;
+    private List<Exception> m_thrownExceptions = new ArrayList<Exception>();
+
+    /**
+     *
+     * @param failureCount the number of calls to fail before succeeding, or -1 to always fail
+     * @param statusCode
+     * @param errorCode
+     */
+    public FakeAmazonClient(int failureCount, int statusCode, String errorCode)
+    {
+        m_failureCount = failureCount;
+        m_statusCode = statusCode;
+        m_errorCode = errorCode;
+    }
+
+    /**
+     * Build the AmazonServiceException AWS would have answered with
+     *
+     * @param statusCode
+     * @param errorCode
+     * @return
+     */
+    public static AmazonServiceException createServiceException(int statusCode, String errorCode)
+    {
+        AmazonServiceException ase = new AmazonServiceException("Fake " + errorCode);
+        ase.setStatusCode(statusCode);
+        ase.setErrorCode(errorCode);
+
+        return ase;
+    }
+
+    public String call() throws Exception
+    {
+        m_callCount++;
+
+        if(m_failureCount < 0 || m_callCount <= m_failureCount)
+        {
+            AmazonServiceException ase = createServiceException(m_statusCode, m_errorCode);
+            m_thrownExceptions.add(ase);
+
+            throw ase;
+        }
+
+        return RESULT;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public int getCallCount()
+    {
+        return m_callCount;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Exception getLastException()
+    {
+        return m_thrownExceptions.isEmpty() ? null : m_thrownExceptions.get(m_thrownExceptions.size() - 1);
+    }
+}
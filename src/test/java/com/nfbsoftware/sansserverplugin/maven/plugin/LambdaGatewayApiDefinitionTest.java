@@ -0,0 +1,144 @@
+package com.nfbsoftware.sansserverplugin.maven.plugin;
+
+import java.util.Map;
+import java.util.Properties;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nfbsoftware.sansserverplugin.sdk.annotation.AwsLambdaWithGateway;
+import com.nfbsoftware.sansserverplugin.sdk.annotation.AwsLambdaWithGateway.MethodTypes;
+import com.nfbsoftware.sansserverplugin.sdk.util.Entity;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the OPTIONS methods in the LambdaGatewayApiDefinition
+ *
+ * @author Brendan Clemenzi
+ */
+public class LambdaGatewayApiDefinitionTest extends TestCase
+{
+    @AwsLambdaWithGateway(name = "Get", desc = "", handlerMethod = "handleRequest", resourceName = "items", method = MethodTypes.GET, enableCORS = true)
+    private static class CorsGetFunction
+    {
+    }
+
+    @AwsLambdaWithGateway(name = "Post", desc = "", handlerMethod = "handleRequest", resourceName = "items", method = MethodTypes.POST, enableCORS = true)
+    private static class CorsPostFunction
+    {
+    }
+
+    @AwsLambdaWithGateway(name = "Options", desc = "", handlerMethod = "handleRequest", resourceName = "items", method = MethodTypes.OPTIONS)
+    private static class OptionsFunction
+    {
+    }
+
+    /**
+     *
+     * @return
+     */
+    private LambdaGatewayApiDefinition createDefinition()
+    {
+        Properties properties = new Properties();
+        properties.setProperty(Entity.FrameworkProperties.AWS_REGION, "us-east-1");
+        properties.setProperty(Entity.FrameworkProperties.AWS_ACCOUNT_ID, "123456789012");
+
+        return new LambdaGatewayApiDefinition("TestApi", properties);
+    }
+
+    /**
+     *
+     * @param gatewayApiDefinition
+     * @param functionClass
+     * @throws Exception
+     */
+    private void addFunction(LambdaGatewayApiDefinition gatewayApiDefinition, Class<?> functionClass) throws Exception
+    {
+        gatewayApiDefinition.addFunction("Test" + functionClass.getSimpleName(), functionClass.getAnnotation(AwsLambdaWithGateway.class));
+    }
+
+    /**
+     *
+     * @param gatewayApiDefinition
+     * @param operationName
+     * @return
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getIntegration(LambdaGatewayApiDefinition gatewayApiDefinition, String operationName) throws Exception
+    {
+        Map<String, Object> document = new ObjectMapper().readValue(gatewayApiDefinition.toJson(), Map.class);
+        Map<String, Object> paths = (Map<String, Object>)document.get("paths");
+        Map<String, Object> pathItem = (Map<String, Object>)paths.get("/items");
+        Map<String, Object> operation = (Map<String, Object>)pathItem.get(operationName);
+
+        return (Map<String, Object>)operation.get("x-amazon-apigateway-integration");
+    }
+
+    /**
+     *
+     * @param integration
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private String getAllowedMethods(Map<String, Object> integration)
+    {
+        Map<String, Object> responses = (Map<String, Object>)integration.get("responses");
+        Map<String, Object> response = (Map<String, Object>)responses.get("default");
+        Map<String, Object> responseParameters = (Map<String, Object>)response.get("responseParameters");
+
+        return (String)responseParameters.get("method.response.header.Access-Control-Allow-Methods");
+    }
+
+    public void testPreflightCoversEveryMethod() throws Exception
+    {
+        LambdaGatewayApiDefinition gatewayApiDefinition = createDefinition();
+
+        addFunction(gatewayApiDefinition, CorsGetFunction.class);
+        addFunction(gatewayApiDefinition, CorsPostFunction.class);
+
+        Map<String, Object> integration = getIntegration(gatewayApiDefinition, "options");
+
+        assertEquals("mock", integration.get("type"));
+        assertEquals("'GET,POST,OPTIONS'", getAllowedMethods(integration));
+    }
+
+    public void testOptionsFunctionWithoutCorsKeepsItsIntegration() throws Exception
+    {
+        LambdaGatewayApiDefinition gatewayApiDefinition = createDefinition();
+
+        addFunction(gatewayApiDefinition, OptionsFunction.class);
+
+        assertEquals("aws", getIntegration(gatewayApiDefinition, "options").get("type"));
+    }
+
+    public void testOptionsFunctionReplacesGeneratedPreflight() throws Exception
+    {
+        LambdaGatewayApiDefinition gatewayApiDefinition = createDefinition();
+
+        addFunction(gatewayApiDefinition, CorsGetFunction.class);
+        addFunction(gatewayApiDefinition, OptionsFunction.class);
+        addFunction(gatewayApiDefinition, CorsPostFunction.class);
+
+        Map<String, Object> integration = getIntegration(gatewayApiDefinition, "options");
+
+        assertEquals("aws", integration.get("type"));
+        assertTrue(((String)integration.get("uri")).endsWith(":function:TestOptionsFunction/invocations"));
+    }
+
+    public void testTwoOptionsFunctionsConflict() throws Exception
+    {
+        LambdaGatewayApiDefinition gatewayApiDefinition = createDefinition();
+
+        addFunction(gatewayApiDefinition, OptionsFunction.class);
+
+        try
+        {
+            gatewayApiDefinition.addFunction("TestOtherOptionsFunction", OptionsFunction.class.getAnnotation(AwsLambdaWithGateway.class));
+            fail("Expected a second OPTIONS function to be rejected");
+        }
+        catch (Exception e)
+        {
+            assertTrue(e.getMessage().startsWith("More than one Lambda function is mapped to OPTIONS /items"));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.nfbsoftware.sansserverplugin.sdk.lambda;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.nfbsoftware.sansserverplugin.sdk.lambda.model.HandlerResponse;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the request fields the BaseLambdaHandler fills for handlers overriding processRequest()
+ *
+ * @author Brendan Clemenzi
+ */
+@SuppressWarnings("deprecation")
+public class BaseLambdaHandlerTest extends TestCase
+{
+    /**
+     * A handler written before the RequestContext, reading one body key from the deprecated field
+     */
+    private static class LegacyHandler extends BaseLambdaHandler
+    {
+        private String m_page;
+        private int m_bodySize;
+
+        @Override
+        public HandlerResponse processRequest() throws Exception
+        {
+            m_page = m_requestBody.get("page");
+            m_bodySize = m_requestBody.size();
+
+            return super.processRequest();
+        }
+    }
+
+    /**
+     *
+     * @param body
+     * @return
+     */
+    private static Map<String, Object> createInput(String body)
+    {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("Accept", "application/json");
+
+        Map<String, Object> input = new HashMap<String, Object>();
+        input.put("headers", headers);
+        input.put("body", body);
+
+        return input;
+    }
+
+    public void testLegacyHandlerDecodesOnlyTheBodyKeyItReads()
+    {
+        FakeLambdaContext context = new FakeLambdaContext();
+        LegacyHandler handler = new LegacyHandler();
+
+        // The other value can't be decoded, so decoding it would be logged
+        HandlerResponse handlerResponse = handler.handleRequest(createInput("page=2&filter=%zz"), context);
+
+        assertEquals(HandlerResponse.StatusKeys.SUCCESS, handlerResponse.getStatus());
+        assertEquals("2", handler.m_page);
+        assertEquals(2, handler.m_bodySize);
+        assertTrue(context.getMessages().isEmpty());
+
+        // Walking the whole body decodes the rest
+        assertEquals(2, handler.m_requestBody.entrySet().size());
+        assertEquals(1, context.getMessages().size());
+        assertTrue(context.getMessages().get(0).startsWith("Error parsing body parameter: filter"));
+    }
+
+    public void testLegacyFieldsCanBeChanged()
+    {
+        LegacyHandler handler = new LegacyHandler();
+
+        handler.handleRequest(createInput("page=2&size=10"), new FakeLambdaContext());
+
+        handler.m_requestBody.put("page", "3");
+        handler.m_requestBody.remove("size");
+        handler.m_requestHeaders.put("Origin", "localhost");
+
+        assertEquals("3", handler.m_requestBody.get("page"));
+        assertFalse(handler.m_requestBody.containsKey("size"));
+        assertEquals(1, handler.m_requestBody.size());
+        assertEquals("application/json", handler.m_requestHeaders.get("Accept"));
+        assertEquals(2, handler.m_requestHeaders.keySet().size());
+
+        // The next request starts from its own maps
+        handler.handleRequest(createInput("page=4"), new FakeLambdaContext());
+
+        assertEquals("4", handler.m_requestBody.get("page"));
+        assertNull(handler.m_requestHeaders.get("Origin"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.nfbsoftware.sansserverplugin.sdk.lambda;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.services.lambda.runtime.ClientContext;
+import com.amazonaws.services.lambda.runtime.CognitoIdentity;
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.LambdaLogger;
+
+/**
+ * A Lambda context for unit tests, keeping every message logged to it
+ *
+ * @author Brendan Clemenzi
+ */
+public class FakeLambdaContext implements Context
+{
+    private final List<String> m_messages = new ArrayList<String>();
+
+    private final LambdaLogger m_logger = new LambdaLogger()
+    {
+        public void log(String message)
+        {
+            m_messages.add(message);
+        }
+    };
+
+    /**
+     *
+     * @return
+     */
+    public List<String> getMessages()
+    {
+        return m_messages;
+    }
+
+    public String getAwsRequestId()
+    {
+        return "test-request";
+    }
+
+    public String getLogGroupName()
+    {
+        return null;
+    }
+
+    public String getLogStreamName()
+    {
+        return null;
+    }
+
+    public String getFunctionName()
+    {
+        return "TestFunction";
+    }
+
+    public String getFunctionVersion()
+    {
+        return "$LATEST";
+    }
+
+    public String getInvokedFunctionArn()
+    {
+        return null;
+    }
+
+    public CognitoIdentity getIdentity()
+    {
+        return null;
+    }
+
+    public ClientContext getClientContext()
+    {
+        return null;
+    }
+
+    public int getRemainingTimeInMillis()
+    {
+        return 30000;
+    }
+
+    public int getMemoryLimitInMB()
+    {
+        return 512;
+    }
+
+    public LambdaLogger getLogger()
+    {
+        return m_logger;
+    }
+}
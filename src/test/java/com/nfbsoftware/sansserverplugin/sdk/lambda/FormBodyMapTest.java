@@ -0,0 +1,40 @@
+package com.nfbsoftware.sansserverplugin.sdk.lambda;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the FormBodyMap
+ *
+ * @author Brendan Clemenzi
+ */
+public class FormBodyMapTest extends TestCase
+{
+    public void testDecodesValuesOnRead()
+    {
+        Map<String, String> body = RequestContext.parseFormBody("name=Jos%C3%A9&city=New+York", null);
+
+        assertEquals(2, body.size());
+        assertEquals("Jos\u00E9", body.get("name"));
+        assertEquals("New York", body.get("city"));
+    }
+
+    public void testNullKey()
+    {
+        Map<String, String> body = RequestContext.parseFormBody("a=1", null);
+
+        assertNull(body.get(null));
+        assertFalse(body.containsKey(null));
+    }
+
+    public void testMalformedParameterDoesNotEmptyTheBody()
+    {
+        Map<String, String> body = RequestContext.parseFormBody("a=1&bad%4=2&b=%zz&c=3", null);
+
+        assertEquals("1", body.get("a"));
+        assertEquals("3", body.get("c"));
+        assertNull(body.get("b"));
+        assertFalse(body.containsKey("bad%4"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.nfbsoftware.sansserverplugin.sdk.util;
+
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the FormDecoder with the StringUtil.parseString and URLDecoder path the BaseLambdaHandler used to parse form bodies with.  It isn't
+ * run by the unit tests, run it with:
+ *
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java -Dexec.args="-cp %classpath org.openjdk.jmh.Main FormDecoderBenchmark"
+ *
+ * @author Brendan Clemenzi
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormDecoderBenchmark
+{
+    @Param({"plain", "encoded"})
+    public String m_bodyType;
+
+    private String m_body;
+
+    @Setup
+    public void setUp()
+    {
+        if(m_bodyType.equals("plain"))
+        {
+            m_body = "take=6&skip=0&page=1&pageSize=6&sort=name&order=asc&filter=active&view=grid";
+        }
+        else
+        {
+            m_body = "name=Jos%C3%A9+Garc%C3%ADa&email=jose%40example.com&city=New+York&note=1%2B1%3D2&price=%E2%82%AC5&tags=a%2Cb%2Cc&page=1&pageSize=6";
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> formDecoder()
+    {
+        return FormDecoder.decode(m_body);
+    }
+
+    @Benchmark
+    public Map<String, String> parseStringAndUrlDecoder()
+    {
+        Map<String, String> requestBody = new HashMap<String, String>();
+
+        // The body parsing the BaseLambdaHandler did before the FormDecoder
+        for(String tmpParam : StringUtil.parseString(m_body, "&"))
+        {
+            try
+            {
+                if(tmpParam.contains("="))
+                {
+                    String[] parsedParam = StringUtil.parseString(tmpParam, "=");
+
+                    String tmpValue = StringUtil.EMPTY_STRING;
+                    if(parsedParam.length == 2)
+                    {
+                        tmpValue = URLDecoder.decode(StringUtil.emptyIfNull(parsedParam[1]), "UTF-8");
+                    }
+
+                    requestBody.put(parsedParam[0], tmpValue);
+                }
+            }
+            catch (Exception e)
+            {
+                // Skipped, as the handler did after logging it
+            }
+        }
+
+        return requestBody;
+    }
+}
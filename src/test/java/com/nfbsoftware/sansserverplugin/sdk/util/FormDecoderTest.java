@@ -0,0 +1,135 @@
+package com.nfbsoftware.sansserverplugin.sdk.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the FormDecoder
+ *
+ * @author Brendan Clemenzi
+ */
+public class FormDecoderTest extends TestCase
+{
+    public void testPlainParameters()
+    {
+        Map<String, String> parameters = FormDecoder.decode("take=6&skip=0&page=1&pageSize=6");
+
+        assertEquals(4, parameters.size());
+        assertEquals("6", parameters.get("take"));
+        assertEquals("0", parameters.get("skip"));
+        assertEquals("1", parameters.get("page"));
+        assertEquals("6", parameters.get("pageSize"));
+    }
+
+    public void testPlusIsSpace()
+    {
+        assertEquals("hello big world", FormDecoder.decode("greeting=hello+big+world").get("greeting"));
+        assertEquals("first name", FormDecoder.decode("first+name=Brendan").keySet().iterator().next());
+    }
+
+    public void testPercentEscapes()
+    {
+        Map<String, String> parameters = FormDecoder.decode("email=user%40example.com&math=1%2B1%3D2&path=%2Fa%2fb");
+
+        assertEquals("user@example.com", parameters.get("email"));
+        assertEquals("1+1=2", parameters.get("math"));
+        assertEquals("/a/b", parameters.get("path"));
+    }
+
+    public void testMultiByteUtf8()
+    {
+        Map<String, String> parameters = FormDecoder.decode("price=%E2%82%AC5&name=Jos%C3%A9&emoji=%F0%9F%98%80");
+
+        assertEquals("\u20AC5", parameters.get("price"));
+        assertEquals("Jos\u00E9", parameters.get("name"));
+        assertEquals("\uD83D\uDE00", parameters.get("emoji"));
+    }
+
+    public void testTruncatedEscapeThrowsFromDecodeComponent()
+    {
+        try
+        {
+            FormDecoder.decodeComponent("abc%4");
+            fail("Expected an incomplete escape to be rejected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            FormDecoder.decodeComponent("abc%");
+            fail("Expected an incomplete escape to be rejected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            FormDecoder.decodeComponent("%zz");
+            fail("Expected an illegal escape to be rejected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    public void testMalformedParameterIsSkippedAlone()
+    {
+        Map<String, String> parameters = FormDecoder.decode("a=1&bad%4=2&b=%zz&c=3");
+
+        assertEquals(2, parameters.size());
+        assertEquals("1", parameters.get("a"));
+        assertEquals("3", parameters.get("c"));
+
+        Map<String, String> names = FormDecoder.decodeNames("a=1&bad%4=2&b=%zz&c=3");
+
+        // Values are left encoded, so only the bad name is dropped here
+        assertEquals(3, names.size());
+        assertEquals("%zz", names.get("b"));
+    }
+
+    public void testEmptyValues()
+    {
+        Map<String, String> parameters = FormDecoder.decode("a=&b=2");
+
+        assertEquals("", parameters.get("a"));
+        assertEquals("2", parameters.get("b"));
+    }
+
+    public void testParametersWithoutSeparatorAreSkipped()
+    {
+        Map<String, String> parameters = FormDecoder.decode("flag&a=1&&b=2&");
+
+        assertEquals(2, parameters.size());
+        assertFalse(parameters.containsKey("flag"));
+        assertEquals("1", parameters.get("a"));
+        assertEquals("2", parameters.get("b"));
+    }
+
+    public void testEqualsInsideValue()
+    {
+        assertEquals("a=b=c", FormDecoder.decode("token=a=b=c").get("token"));
+    }
+
+    public void testRepeatedNames()
+    {
+        String body = "tag=red&size=1&tag=green+apple&tag=%E2%82%AC";
+
+        assertEquals("\u20AC", FormDecoder.decode(body).get("tag"));
+        assertEquals(Arrays.asList("red", "green apple", "\u20AC"), FormDecoder.decodeValues(body, "tag"));
+        assertEquals(Collections.<String>emptyList(), FormDecoder.decodeValues(body, "missing"));
+    }
+
+    public void testEmptyBody()
+    {
+        assertTrue(FormDecoder.decode("").isEmpty());
+    }
+}